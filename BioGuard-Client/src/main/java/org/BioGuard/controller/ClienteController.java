@@ -2,6 +2,8 @@ package org.BioGuard.controller;
 
 import org.BioGuard.network.client.ClientConfig;
 import org.BioGuard.network.client.SSLClient;
+import org.BioGuard.network.protocol.BinaryMessageReader;
+import org.BioGuard.network.protocol.BinaryMessageWriter;
 import org.BioGuard.network.protocol.IMessageProtocol;
 import org.BioGuard.network.protocol.LengthPrefixedProtocol;
 
@@ -10,6 +12,9 @@ import java.io.IOException;
 /**
  * Controlador de comunicación con el servidor.
  *
+ * <p>Al conectar intenta pasar al protocolo binario; con un servidor que
+ * no lo admite sigue en texto.</p>
+ *
  * @author Sergio Grajales
  * @author Jhonatan Tamayo
  * @version 1.0
@@ -40,8 +45,9 @@ public class ClienteController {
 
             System.out.print("Conectando a " + SERVER_HOST + ":" + SERVER_PORT + "... ");
             client.connect();
+            boolean binario = client.negotiateBinary();
             conectado = true;
-            System.out.println("Conectado.");
+            System.out.println(binario ? "Conectado (protocolo binario)." : "Conectado.");
             return true;
 
         } catch (IOException e) {
@@ -64,6 +70,27 @@ public class ClienteController {
         return client.sendMessage(comando);
     }
 
+    /**
+     * Envía una petición del protocolo binario.
+     *
+     * @param peticion Petición a enviar
+     * @return Respuesta del servidor, válida hasta el siguiente envío
+     * @throws IOException Si hay error de comunicación
+     */
+    public BinaryMessageReader enviarBinario(BinaryMessageWriter peticion) throws IOException {
+        if (!conectado || client == null) {
+            throw new IOException("No conectado al servidor");
+        }
+        return client.sendBinary(peticion);
+    }
+
+    /**
+     * @return true si la conexión usa el protocolo binario
+     */
+    public boolean isBinario() {
+        return conectado && client != null && client.isBinary();
+    }
+
     /**
      * Desconecta del servidor.
      */
@@ -1,5 +1,8 @@
 package org.BioGuard.network.client;
 
+import org.BioGuard.network.protocol.BinaryMessageReader;
+import org.BioGuard.network.protocol.BinaryMessageWriter;
+
 import java.io.IOException;
 
 /**
@@ -85,4 +88,44 @@ public interface ITCPClient {
      *         false en caso contrario.
      */
     boolean isConnected();
-}
\ No newline at end of file
+
+    /**
+     * Pide al servidor pasar la conexión al protocolo binario
+     * ({@link org.BioGuard.network.protocol.BinaryProtocol}).
+     *
+     * <p>Si el servidor no lo admite, la conexión sigue en texto y
+     * {@link #sendMessage(String)} funciona igual. Tras aceptarse, los
+     * mensajes de texto siguen disponibles: viajan en tramas binarias de
+     * texto. Por defecto el cliente no lo admite.</p>
+     *
+     * @return true si la conexión quedó en binario
+     * @throws IOException Si ocurre un error en la comunicación
+     * @throws IllegalStateException Si el cliente no está conectado
+     */
+    default boolean negotiateBinary() throws IOException {
+        return false;
+    }
+
+    /**
+     * @return true si la conexión usa el protocolo binario
+     */
+    default boolean isBinary() {
+        return false;
+    }
+
+    /**
+     * Envía un mensaje binario y espera la respuesta.
+     *
+     * <p>El lector retornado deja de ser válido en el siguiente envío, así
+     * que sus campos deben leerse antes.</p>
+     *
+     * @param request Petición completa
+     * @return Respuesta posicionada en su primer campo
+     * @throws IOException Si ocurre un error en la comunicación
+     * @throws IllegalStateException Si el cliente no está conectado o la
+     *                               conexión no está en binario
+     */
+    default BinaryMessageReader sendBinary(BinaryMessageWriter request) throws IOException {
+        throw new IllegalStateException("El cliente no admite el protocolo binario");
+    }
+}
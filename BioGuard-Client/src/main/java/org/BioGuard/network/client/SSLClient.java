@@ -1,5 +1,10 @@
 package org.BioGuard.network.client;
 
+import org.BioGuard.network.protocol.BinaryCodec;
+import org.BioGuard.network.protocol.BinaryMessageReader;
+import org.BioGuard.network.protocol.BinaryMessageWriter;
+import org.BioGuard.network.protocol.BinaryProtocol;
+import org.BioGuard.network.protocol.IMessageCodec;
 import org.BioGuard.network.protocol.IMessageProtocol;
 
 import javax.net.ssl.*;
@@ -14,6 +19,8 @@ public class SSLClient implements ITCPClient {
     private SSLSocket socket;
     private OutputStream out;
     private InputStream in;
+    private IMessageCodec codec;
+    private BinaryCodec binario;
     private volatile boolean connected = false;
 
     public SSLClient(ClientConfig config, IMessageProtocol protocol) {
@@ -51,6 +58,8 @@ public class SSLClient implements ITCPClient {
 
             out = socket.getOutputStream();
             in = socket.getInputStream();
+            codec = protocol.openCodec(in, out);
+            binario = codec instanceof BinaryCodec ? (BinaryCodec) codec : null;
             connected = true;
 
         } catch (Exception e) {
@@ -66,8 +75,8 @@ public class SSLClient implements ITCPClient {
         }
 
         try {
-            protocol.encode(message, out);
-            String response = protocol.decode(in);
+            codec.encode(message);
+            String response = codec.decode();
             return response;
         } catch (IOException e) {
             disconnect();
@@ -75,13 +84,49 @@ public class SSLClient implements ITCPClient {
         }
     }
 
+    @Override
+    public boolean negotiateBinary() throws IOException {
+        if (binario != null) {
+            return true;
+        }
+        if (!BinaryProtocol.NEGOCIACION.equals(sendMessage(BinaryProtocol.NEGOCIACION))) {
+            return false;
+        }
+        binario = new BinaryCodec(in, out);
+        codec = binario;
+        return true;
+    }
+
+    @Override
+    public boolean isBinary() {
+        return binario != null;
+    }
+
+    @Override
+    public BinaryMessageReader sendBinary(BinaryMessageWriter request) throws IOException {
+        if (!connected || socket == null || socket.isClosed()) {
+            throw new IllegalStateException("Cliente no está conectado");
+        }
+        if (binario == null) {
+            throw new IllegalStateException("La conexión no usa el protocolo binario");
+        }
+
+        try {
+            binario.escribirMensaje(request);
+            return binario.leerMensaje();
+        } catch (IOException e) {
+            disconnect();
+            throw e;
+        }
+    }
+
     @Override
     public void disconnect() {
         connected = false;
         try { if (out != null) out.close(); } catch (IOException ignored) {}
         try { if (in != null) in.close(); } catch (IOException ignored) {}
         try { if (socket != null) socket.close(); } catch (IOException ignored) {}
-        out = null; in = null; socket = null;
+        out = null; in = null; codec = null; binario = null; socket = null;
     }
 
     @Override
@@ -1,5 +1,10 @@
 package org.BioGuard.network.client;
 
+import org.BioGuard.network.protocol.BinaryCodec;
+import org.BioGuard.network.protocol.BinaryMessageReader;
+import org.BioGuard.network.protocol.BinaryMessageWriter;
+import org.BioGuard.network.protocol.BinaryProtocol;
+import org.BioGuard.network.protocol.IMessageCodec;
 import org.BioGuard.network.protocol.IMessageProtocol;
 
 import java.io.*;
@@ -20,6 +25,8 @@ import java.net.SocketTimeoutException;
  *   <li>Timeouts configurables para lectura</li>
  *   <li>Manejo de errores con desconexión automática</li>
  *   <li>Operaciones thread-safe mediante sincronización</li>
+ *   <li>Protocolo binario negociado con {@link #negotiateBinary()}, o desde
+ *       el inicio si se crea con {@link BinaryProtocol}</li>
  * </ul>
  *
  * <p>Ejemplo de uso:</p>
@@ -55,6 +62,8 @@ public class TCPClient implements ITCPClient {
     private Socket socket;
     private OutputStream out;
     private InputStream in;
+    private IMessageCodec codec;
+    private BinaryCodec binario;
     private volatile boolean connected = false;
 
     /**
@@ -98,6 +107,8 @@ public class TCPClient implements ITCPClient {
 
             out = socket.getOutputStream();
             in = socket.getInputStream();
+            codec = protocol.openCodec(in, out);
+            binario = codec instanceof BinaryCodec ? (BinaryCodec) codec : null;
 
             connected = true;
             System.out.println("Conexión establecida");
@@ -131,10 +142,10 @@ public class TCPClient implements ITCPClient {
 
         try {
             // Enviar mensaje usando el protocolo
-            protocol.encode(message, out);
+            codec.encode(message);
 
             // Recibir respuesta
-            String response = protocol.decode(in);
+            String response = codec.decode();
 
             return response;
 
@@ -150,6 +161,55 @@ public class TCPClient implements ITCPClient {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Envía {@link BinaryProtocol#NEGOCIACION} y, si el servidor lo
+     * confirma, cambia el codec de la conexión por un {@link BinaryCodec}.</p>
+     */
+    @Override
+    public synchronized boolean negotiateBinary() throws IOException {
+        if (binario != null) {
+            return true;
+        }
+        if (!BinaryProtocol.NEGOCIACION.equals(sendMessage(BinaryProtocol.NEGOCIACION))) {
+            return false;
+        }
+        binario = new BinaryCodec(in, out);
+        codec = binario;
+        return true;
+    }
+
+    @Override
+    public boolean isBinary() {
+        return binario != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized BinaryMessageReader sendBinary(BinaryMessageWriter request) throws IOException {
+        if (!connected || socket == null || socket.isClosed()) {
+            throw new IllegalStateException("Cliente no está conectado");
+        }
+        if (binario == null) {
+            throw new IllegalStateException("La conexión no usa el protocolo binario");
+        }
+
+        try {
+            binario.escribirMensaje(request);
+            return binario.leerMensaje();
+
+        } catch (SocketTimeoutException e) {
+            disconnect();
+            throw new IOException("Timeout esperando respuesta del servidor", e);
+        } catch (IOException e) {
+            disconnect();
+            throw new IOException("Error en comunicación: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -172,6 +232,8 @@ public class TCPClient implements ITCPClient {
         // Liberar recursos
         out = null;
         in = null;
+        codec = null;
+        binario = null;
         socket = null;
         connected = false;
 
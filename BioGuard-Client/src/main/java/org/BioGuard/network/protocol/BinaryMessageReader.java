@@ -0,0 +1,176 @@
+package org.BioGuard.network.protocol;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lector de un mensaje de {@link BinaryProtocol}.
+ *
+ * <p>Responsabilidad Única: Recorrer en orden los campos del cuerpo de una
+ * trama comprobando su etiqueta. Leer un campo es una lectura de ancho
+ * fijo sobre el arreglo recibido, sin buscar separadores ni convertir
+ * texto a números. Un campo de otro tipo o un cuerpo truncado lanzan
+ * {@link ProtocolException}.</p>
+ *
+ * <p>El lector no copia la trama: el {@link BinaryCodec} lo reutiliza
+ * para el mensaje siguiente, así que sus campos deben leerse antes de
+ * volver a leer de la conexión. No es seguro para hilos.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public class BinaryMessageReader {
+
+    private static final ByteBuffer VACIO = ByteBuffer.allocate(0);
+
+    private ByteBuffer buffer = VACIO;
+    private int codigo;
+
+    /**
+     * Crea un lector sobre el cuerpo de una trama.
+     *
+     * @param cuerpo Cuerpo de la trama, sin el prefijo de longitud
+     * @return Lector posicionado en el primer campo
+     * @throws ProtocolException Si el cuerpo está vacío
+     */
+    public static BinaryMessageReader desde(byte[] cuerpo) throws ProtocolException {
+        return new BinaryMessageReader().reiniciar(cuerpo, cuerpo.length);
+    }
+
+    /**
+     * Pasa a leer otro cuerpo.
+     *
+     * @param cuerpo Arreglo con el cuerpo desde la posición 0
+     * @param longitud Bytes del cuerpo
+     * @return Este lector
+     * @throws ProtocolException Si el cuerpo está vacío
+     */
+    BinaryMessageReader reiniciar(byte[] cuerpo, int longitud) throws ProtocolException {
+        if (longitud < 1) {
+            throw new ProtocolException("Mensaje binario sin código");
+        }
+        if (buffer.array() == cuerpo) {
+            buffer.clear().limit(longitud);
+        } else {
+            buffer = ByteBuffer.wrap(cuerpo, 0, longitud);
+        }
+        codigo = buffer.get() & 0xFF;
+        return this;
+    }
+
+    /**
+     * @return Operación (petición) o estado (respuesta) del mensaje
+     */
+    public int getCodigo() {
+        return codigo;
+    }
+
+    /**
+     * @return true si quedan campos por leer
+     */
+    public boolean tieneMas() {
+        return buffer.hasRemaining();
+    }
+
+    public int leerInt() throws ProtocolException {
+        campo(BinaryProtocol.TIPO_INT, Integer.BYTES);
+        return buffer.getInt();
+    }
+
+    public long leerLong() throws ProtocolException {
+        campo(BinaryProtocol.TIPO_LONG, Long.BYTES);
+        return buffer.getLong();
+    }
+
+    /**
+     * @return Texto del campo, o null si se escribió null
+     * @throws ProtocolException Si el campo no es un texto o está truncado
+     */
+    public String leerTexto() throws ProtocolException {
+        campo(BinaryProtocol.TIPO_TEXTO, Integer.BYTES);
+        int longitud = buffer.getInt();
+        if (longitud == -1) {
+            return null;
+        }
+        if (longitud < 0) {
+            throw new ProtocolException("Longitud de texto inválida: " + longitud);
+        }
+        disponibles(longitud);
+        String texto = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), longitud,
+                StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + longitud);
+        return texto;
+    }
+
+    /**
+     * Lee una secuencia empaquetada y la entrega a quien la construye.
+     *
+     * @param constructor Recibe las palabras (en un arreglo nuevo) y el
+     *                    número de bases
+     * @param <T> Tipo de la secuencia construida
+     * @return La secuencia construida
+     * @throws ProtocolException Si el campo no es una secuencia o está truncado
+     */
+    public <T> T leerSecuencia(ConstructorSecuencia<T> constructor) throws ProtocolException {
+        campo(BinaryProtocol.TIPO_SECUENCIA, Integer.BYTES);
+        int bases = buffer.getInt();
+        if (bases < 0) {
+            throw new ProtocolException("Longitud de secuencia inválida: " + bases);
+        }
+        int n = (int) ((bases + 31L) >>> 5);
+        disponibles((long) n * Long.BYTES);
+
+        long[] palabras = new long[n];
+        buffer.asLongBuffer().get(palabras);
+        buffer.position(buffer.position() + n * Long.BYTES);
+        return constructor.crear(palabras, bases);
+    }
+
+    /**
+     * @return Número de elementos de la lista; sus campos siguen a
+     *         continuación
+     * @throws ProtocolException Si el campo no es una lista
+     */
+    public int leerLista() throws ProtocolException {
+        campo(BinaryProtocol.TIPO_LISTA, Integer.BYTES);
+        int elementos = buffer.getInt();
+        if (elementos < 0) {
+            throw new ProtocolException("Número de elementos inválido: " + elementos);
+        }
+        return elementos;
+    }
+
+    private void campo(byte tipo, int bytes) throws ProtocolException {
+        disponibles(1L + bytes);
+        byte leido = buffer.get();
+        if (leido != tipo) {
+            buffer.position(buffer.position() - 1);
+            throw new ProtocolException("Se esperaba un campo de tipo " + tipo + " y se encontró " + leido);
+        }
+    }
+
+    private void disponibles(long bytes) throws ProtocolException {
+        if (buffer.remaining() < bytes) {
+            throw new ProtocolException("Mensaje binario truncado");
+        }
+    }
+
+    /**
+     * Construye una secuencia a partir de sus palabras empaquetadas.
+     *
+     * @param <T> Tipo de la secuencia
+     */
+    @FunctionalInterface
+    public interface ConstructorSecuencia<T> {
+
+        /**
+         * @param palabras Palabras de 32 bases (el arreglo no se vuelve a usar)
+         * @param bases Número de bases
+         * @return La secuencia
+         * @throws IllegalArgumentException Si los datos no forman una secuencia válida
+         */
+        T crear(long[] palabras, int bases);
+    }
+}
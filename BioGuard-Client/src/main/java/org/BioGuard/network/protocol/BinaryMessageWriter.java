@@ -0,0 +1,223 @@
+package org.BioGuard.network.protocol;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Constructor de un mensaje de {@link BinaryProtocol}.
+ *
+ * <p>Responsabilidad Única: Escribir el código y los campos con su
+ * etiqueta en un único arreglo que ya reserva el prefijo de longitud, de
+ * modo que la trama completa sale en una sola escritura sin copias.</p>
+ *
+ * <p>No es seguro para hilos. Puede reutilizarse con
+ * {@link #reiniciar(int)}.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public class BinaryMessageWriter {
+
+    private static final int CAPACIDAD_INICIAL = 256;
+
+    /** Capacidad por encima de la cual {@link #reiniciar} no conserva el arreglo. */
+    private static final int CAPACIDAD_RETENIDA = 64 * 1024;
+
+    private static final byte[] CODIGOS = new byte[128];
+
+    static {
+        Arrays.fill(CODIGOS, (byte) -1);
+        CODIGOS['A'] = 0;
+        CODIGOS['C'] = 1;
+        CODIGOS['G'] = 2;
+        CODIGOS['T'] = 3;
+    }
+
+    private ByteBuffer buffer;
+    private int codigo;
+
+    /**
+     * @param codigo Operación (petición) o estado (respuesta)
+     */
+    public BinaryMessageWriter(int codigo) {
+        this.buffer = ByteBuffer.allocate(CAPACIDAD_INICIAL);
+        reiniciar(codigo);
+    }
+
+    /**
+     * Descarta los campos escritos y empieza un mensaje nuevo.
+     *
+     * @param codigo Operación (petición) o estado (respuesta)
+     * @return Este mensaje
+     */
+    public BinaryMessageWriter reiniciar(int codigo) {
+        if (codigo < 0 || codigo > 0xFF) {
+            throw new IllegalArgumentException("Código fuera de rango: " + codigo);
+        }
+        if (buffer.capacity() > CAPACIDAD_RETENIDA) {
+            buffer = ByteBuffer.allocate(CAPACIDAD_INICIAL);
+        }
+        this.codigo = codigo;
+        buffer.clear();
+        buffer.position(BinaryProtocol.LENGTH_PREFIX_SIZE);
+        buffer.put((byte) codigo);
+        return this;
+    }
+
+    /**
+     * @return Operación o estado del mensaje
+     */
+    public int getCodigo() {
+        return codigo;
+    }
+
+    public BinaryMessageWriter escribirInt(int valor) {
+        asegurar(1 + Integer.BYTES);
+        buffer.put(BinaryProtocol.TIPO_INT).putInt(valor);
+        return this;
+    }
+
+    public BinaryMessageWriter escribirLong(long valor) {
+        asegurar(1 + Long.BYTES);
+        buffer.put(BinaryProtocol.TIPO_LONG).putLong(valor);
+        return this;
+    }
+
+    /**
+     * @param texto Texto a escribir en UTF-8; puede ser null
+     * @return Este mensaje
+     */
+    public BinaryMessageWriter escribirTexto(String texto) {
+        if (texto == null) {
+            asegurar(1 + Integer.BYTES);
+            buffer.put(BinaryProtocol.TIPO_TEXTO).putInt(-1);
+            return this;
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        asegurar(1 + Integer.BYTES + bytes.length);
+        buffer.put(BinaryProtocol.TIPO_TEXTO).putInt(bytes.length).put(bytes);
+        return this;
+    }
+
+    /**
+     * Empaqueta las bases a 2 bits directamente en el mensaje.
+     *
+     * @param bases Secuencia compuesta solo por A, C, G, T
+     * @return Este mensaje
+     * @throws IllegalArgumentException Si contiene otros caracteres
+     */
+    public BinaryMessageWriter escribirSecuencia(CharSequence bases) {
+        int n = bases.length();
+        int palabras = palabrasPara(n);
+        asegurar(1 + Integer.BYTES + palabras * Long.BYTES);
+        int inicio = buffer.position();
+        buffer.put(BinaryProtocol.TIPO_SECUENCIA).putInt(n);
+
+        long palabra = 0;
+        for (int i = 0; i < n; i++) {
+            char c = bases.charAt(i);
+            int base = c < 128 ? CODIGOS[c] : -1;
+            if (base < 0) {
+                buffer.position(inicio); // El mensaje queda como antes
+                throw new IllegalArgumentException("Carácter inválido '" + c + "' en la posición " + i);
+            }
+            palabra |= ((long) base) << ((i & 31) << 1);
+            if ((i & 31) == 31) {
+                buffer.putLong(palabra);
+                palabra = 0;
+            }
+        }
+        if ((n & 31) != 0) {
+            buffer.putLong(palabra);
+        }
+        return this;
+    }
+
+    /**
+     * Escribe una secuencia ya empaquetada.
+     *
+     * @param palabras Palabras con 32 bases cada una; las bases
+     *                 posteriores al final deben estar a cero
+     * @param bases Número de bases
+     * @return Este mensaje
+     */
+    public BinaryMessageWriter escribirSecuencia(long[] palabras, int bases) {
+        int n = palabrasPara(bases);
+        if (bases < 0 || palabras.length < n) {
+            throw new IllegalArgumentException("Longitud inválida: " + bases);
+        }
+        asegurar(1 + Integer.BYTES + n * Long.BYTES);
+        buffer.put(BinaryProtocol.TIPO_SECUENCIA).putInt(bases);
+        buffer.asLongBuffer().put(palabras, 0, n);
+        buffer.position(buffer.position() + n * Long.BYTES);
+        return this;
+    }
+
+    /**
+     * Abre una lista: a continuación deben escribirse los campos de sus
+     * elementos.
+     *
+     * @param elementos Número de elementos
+     * @return Este mensaje
+     */
+    public BinaryMessageWriter escribirLista(int elementos) {
+        if (elementos < 0) {
+            throw new IllegalArgumentException("Número de elementos inválido: " + elementos);
+        }
+        asegurar(1 + Integer.BYTES);
+        buffer.put(BinaryProtocol.TIPO_LISTA).putInt(elementos);
+        return this;
+    }
+
+    /**
+     * @return Bytes del cuerpo del mensaje, sin el prefijo de longitud
+     */
+    public int getTamano() {
+        return buffer.position() - BinaryProtocol.LENGTH_PREFIX_SIZE;
+    }
+
+    /**
+     * @return La trama completa, con su prefijo, en un buffer en modo
+     *         lectura que comparte el arreglo del mensaje
+     * @throws IOException Si el mensaje supera el tamaño máximo
+     */
+    public ByteBuffer trama() throws IOException {
+        return ByteBuffer.wrap(buffer.array(), 0, cerrarTrama());
+    }
+
+    // Escribe el prefijo de longitud y retorna el tamaño de la trama
+    int cerrarTrama() throws IOException {
+        int tamano = getTamano();
+        if (tamano > BinaryProtocol.MAX_MESSAGE_SIZE) {
+            throw new IOException("Mensaje demasiado grande: " + tamano + " bytes");
+        }
+        buffer.putInt(0, tamano);
+        return buffer.position();
+    }
+
+    byte[] getDatos() {
+        return buffer.array();
+    }
+
+    private void asegurar(int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        long necesaria = (long) buffer.position() + bytes;
+        if (necesaria > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Mensaje demasiado grande");
+        }
+        int capacidad = (int) Math.max(necesaria, Math.min(Integer.MAX_VALUE - 8, 2L * buffer.capacity()));
+        ByteBuffer nuevo = ByteBuffer.allocate(capacidad);
+        buffer.flip();
+        nuevo.put(buffer);
+        buffer = nuevo;
+    }
+
+    private static int palabrasPara(int bases) {
+        return (bases + 31) >>> 5;
+    }
+}
@@ -16,8 +16,8 @@ import java.nio.charset.StandardCharsets;
  */
 public class LengthPrefixedProtocol implements IMessageProtocol {
 
-    private static final int MAX_MESSAGE_SIZE = 2 * 1024 * 1024; // 2MB
-    private static final int LENGTH_PREFIX_SIZE = 4;
+    static final int MAX_MESSAGE_SIZE = 16 * 1024 * 1024; // 16MB: muestras de hasta 10M bases
+    static final int LENGTH_PREFIX_SIZE = 4;
 
     @Override
     public String decode(InputStream inputStream) throws IOException {
@@ -72,4 +72,13 @@ public class LengthPrefixedProtocol implements IMessageProtocol {
         dataOutput.write(messageBytes);
         dataOutput.flush();
     }
+
+    /**
+     * Crea un {@link LengthPrefixedCodec}: lee las tramas exactas y
+     * reutiliza sus buffers entre mensajes.
+     */
+    @Override
+    public IMessageCodec openCodec(InputStream inputStream, OutputStream outputStream) {
+        return new LengthPrefixedCodec(inputStream, outputStream);
+    }
 }
\ No newline at end of file
@@ -1,9 +1,15 @@
 package org.BioGuard.ui;
 
 import org.BioGuard.controller.ClienteController;
+import org.BioGuard.network.protocol.BinaryMessageReader;
+import org.BioGuard.network.protocol.BinaryMessageWriter;
+import org.BioGuard.network.protocol.BinaryProtocol;
 import org.BioGuard.utils.Validador;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.Scanner;
 
 /**
@@ -12,6 +18,10 @@ import java.util.Scanner;
  * <p>Responsabilidad Única: Gestionar el envío de muestras y la
  * consulta de diagnósticos.</p>
  *
+ * <p>Con el protocolo binario la muestra viaja empaquetada a 2 bits por
+ * base y los diagnósticos llegan como campos tipados; con el de texto se
+ * usan los comandos y respuestas de siempre.</p>
+ *
  * @author Sergio Grajales
  * @author Jhonatan Tamayo
  * @version 1.0
@@ -55,6 +65,18 @@ public class MenuMuestra {
         }
 
         System.out.print("Enviando muestra al servidor... ");
+        if (controller.isBinario()) {
+            BinaryMessageReader respuesta = controller.enviarBinario(
+                    new BinaryMessageWriter(BinaryProtocol.OP_ENVIAR_MUESTRA)
+                            .escribirTexto(doc)
+                            .escribirSecuencia(sec)
+                            .escribirInt(0));
+            System.out.println("Completado.\n");
+            if (!esError(respuesta)) {
+                imprimirDiagnostico(respuesta, true);
+            }
+            return;
+        }
         String comando = "ENVIAR_MUESTRA:" + doc + "|" + sec;
         String respuesta = controller.enviarComando(comando);
 
@@ -78,6 +100,26 @@ public class MenuMuestra {
         }
 
         System.out.print("Consultando diagnosticos... ");
+        if (controller.isBinario()) {
+            BinaryMessageReader respuesta = controller.enviarBinario(
+                    new BinaryMessageWriter(BinaryProtocol.OP_CONSULTAR_DIAGNOSTICOS).escribirTexto(doc));
+            System.out.println("Completado.\n");
+            System.out.println("RESULTADOS:");
+            if (esError(respuesta)) {
+                return;
+            }
+            int total = respuesta.leerLista();
+            if (total == 0) {
+                System.out.println("  No hay diagnosticos para este paciente.");
+                return;
+            }
+            System.out.println("  ID del diagnostico | Fecha | Virus detectados");
+            System.out.println("  " + "-".repeat(50));
+            for (int i = 0; i < total; i++) {
+                imprimirDiagnostico(respuesta, false);
+            }
+            return;
+        }
         String comando = "CONSULTAR_DIAGNOSTICOS:" + doc;
         String respuesta = controller.enviarComando(comando);
 
@@ -119,6 +161,16 @@ public class MenuMuestra {
         }
 
         System.out.print("Consultando detalle... ");
+        if (controller.isBinario()) {
+            BinaryMessageReader respuesta = controller.enviarBinario(
+                    new BinaryMessageWriter(BinaryProtocol.OP_VER_DIAGNOSTICO).escribirTexto(id));
+            System.out.println("Completado.\n");
+            System.out.println("DETALLE:");
+            if (!esError(respuesta)) {
+                imprimirDiagnostico(respuesta, true);
+            }
+            return;
+        }
         String comando = "VER_DIAGNOSTICO:" + id;
         String respuesta = controller.enviarComando(comando);
 
@@ -134,4 +186,53 @@ public class MenuMuestra {
             }
         }
     }
-}
\ No newline at end of file
+
+    private static boolean esError(BinaryMessageReader respuesta) throws IOException {
+        if (respuesta.getCodigo() == BinaryProtocol.ESTADO_OK) {
+            return false;
+        }
+        System.out.println("  ERROR: " + respuesta.leerTexto());
+        return true;
+    }
+
+    /**
+     * Lee los campos de un diagnóstico (ver el formato en el servidor) y
+     * lo muestra completo o como una fila de la tabla de resultados.
+     */
+    private static void imprimirDiagnostico(BinaryMessageReader respuesta, boolean detalle) throws IOException {
+        String id = respuesta.leerTexto();
+        String paciente = respuesta.leerTexto();
+        respuesta.leerTexto(); // Id de la muestra
+        long milis = respuesta.leerLong();
+        String fecha = milis == Long.MIN_VALUE ? "-"
+                : LocalDateTime.ofInstant(Instant.ofEpochMilli(milis), ZoneOffset.UTC).toString();
+        int virus = respuesta.leerLista();
+
+        if (!detalle) {
+            for (int i = 0; i < virus; i++) {
+                respuesta.leerTexto();
+                respuesta.leerInt();
+                respuesta.leerInt();
+                respuesta.leerInt();
+            }
+            System.out.printf("  %-25s | %s | %d virus%n", id, fecha.substring(0, Math.min(16, fecha.length())), virus);
+            return;
+        }
+
+        System.out.println("  DIAGNOSTICO:" + id);
+        System.out.println("  Paciente: " + paciente);
+        System.out.println("  Fecha: " + fecha);
+        System.out.println("  Virus detectados: " + virus);
+        if (virus > 0) {
+            System.out.println("\n  Hallazgos:");
+        }
+        for (int i = 0; i < virus; i++) {
+            String nombre = respuesta.leerTexto();
+            int inicio = respuesta.leerInt();
+            int fin = respuesta.leerInt();
+            int diferencias = respuesta.leerInt();
+            System.out.println("    " + nombre + ": posición " + inicio + "-" + fin
+                    + (diferencias > 0 ? " (" + diferencias + " bases distintas)" : ""));
+        }
+    }
+}
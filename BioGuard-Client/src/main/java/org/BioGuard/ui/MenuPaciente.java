@@ -1,6 +1,9 @@
 package org.BioGuard.ui;
 
 import org.BioGuard.controller.ClienteController;
+import org.BioGuard.network.protocol.BinaryMessageReader;
+import org.BioGuard.network.protocol.BinaryMessageWriter;
+import org.BioGuard.network.protocol.BinaryProtocol;
 import org.BioGuard.utils.Validador;
 
 import java.io.IOException;
@@ -85,6 +88,33 @@ public class MenuPaciente {
         System.out.println("\n--- LISTAR PACIENTES ---");
 
         System.out.print("Consultando pacientes... ");
+        if (controller.isBinario()) {
+            BinaryMessageReader respuesta = controller.enviarBinario(
+                    new BinaryMessageWriter(BinaryProtocol.OP_LISTAR_PACIENTES));
+            System.out.println("Completado.\n");
+            System.out.println("PACIENTES REGISTRADOS:");
+            if (respuesta.getCodigo() != BinaryProtocol.ESTADO_OK) {
+                System.out.println("  ERROR: " + respuesta.leerTexto());
+                return;
+            }
+            int total = respuesta.leerLista();
+            if (total == 0) {
+                System.out.println("  No hay pacientes registrados.");
+            }
+            for (int i = 0; i < total; i++) {
+                // documento, nombre, apellido, edad, correo, genero, ciudad, pais
+                String documento = respuesta.leerTexto();
+                String nombre = respuesta.leerTexto();
+                String apellido = respuesta.leerTexto();
+                int edad = respuesta.leerInt();
+                String correo = respuesta.leerTexto();
+                respuesta.leerTexto();
+                respuesta.leerTexto();
+                respuesta.leerTexto();
+                System.out.println("  " + documento + "," + nombre + "," + apellido + "," + edad + "," + correo);
+            }
+            return;
+        }
         String comando = "LISTAR_PACIENTES";
         String respuesta = controller.enviarComando(comando);
 
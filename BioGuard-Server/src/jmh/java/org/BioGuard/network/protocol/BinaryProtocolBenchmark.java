@@ -0,0 +1,86 @@
+package org.BioGuard.network.protocol;
+
+import org.BioGuard.model.PackedSequence;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara lo que cuesta al servidor interpretar una muestra recibida con
+ * el protocolo de texto ({@code ENVIAR_MUESTRA:documento|secuencia|0}) y
+ * con {@link BinaryProtocol#OP_ENVIAR_MUESTRA}, desde el cuerpo de la
+ * trama hasta la {@link PackedSequence}.
+ *
+ * <pre>mvn -Pjmh compile exec:exec -Djmh.benchmarks=BinaryProtocolBenchmark</pre>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryProtocolBenchmark {
+
+    /** Bases de la muestra. */
+    @Param({"1000", "200000"})
+    private int bases;
+
+    private byte[] cuerpoTexto;
+    private byte[] cuerpoBinario;
+
+    @Setup
+    public void preparar() throws IOException {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(bases);
+        for (int i = 0; i < bases; i++) {
+            sb.append("ACGT".charAt(random.nextInt(4)));
+        }
+        String muestra = sb.toString();
+
+        cuerpoTexto = ("ENVIAR_MUESTRA:1001|" + muestra + "|0").getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer trama = new BinaryMessageWriter(BinaryProtocol.OP_ENVIAR_MUESTRA)
+                .escribirTexto("1001")
+                .escribirSecuencia(muestra)
+                .escribirInt(0)
+                .trama();
+        cuerpoBinario = Arrays.copyOfRange(trama.array(), BinaryProtocol.LENGTH_PREFIX_SIZE, trama.limit());
+    }
+
+    @Benchmark
+    public PackedSequence parsearTexto() {
+        // Lo que hacen el codec, CommandParser y DiagnosticoCommandHandler
+        String mensaje = new String(cuerpoTexto, StandardCharsets.UTF_8);
+        String[] partes = mensaje.substring("ENVIAR_MUESTRA:".length()).split("\\|", 3);
+        Integer.parseInt(partes[2].trim());
+        return PackedSequence.desde(partes[1].trim());
+    }
+
+    @Benchmark
+    public PackedSequence parsearBinario() throws IOException {
+        BinaryMessageReader peticion = BinaryMessageReader.desde(cuerpoBinario);
+        peticion.leerTexto();
+        PackedSequence secuencia = peticion.leerSecuencia(PackedSequence::desdePalabras);
+        peticion.leerInt();
+        return secuencia;
+    }
+}
@@ -0,0 +1,96 @@
+package org.BioGuard.network.protocol;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara {@link LengthPrefixedProtocol} con {@link LengthPrefixedCodec}
+ * al leer y escribir una trama.
+ *
+ * <p>Se ejecuta con el perfil {@code jmh} del pom, que agrega el
+ * perfilador de GC: la métrica {@code gc.alloc.rate.norm} da los bytes
+ * reservados por mensaje.</p>
+ *
+ * <pre>mvn -Pjmh compile exec:exec</pre>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LengthPrefixedCodecBenchmark {
+
+    /** Longitud del mensaje: un comando corto, uno mediano y una muestra. */
+    @Param({"64", "4096", "1000000"})
+    private int longitud;
+
+    private String mensaje;
+    private final OutputStream descarte = OutputStream.nullOutputStream();
+
+    private LengthPrefixedProtocol protocolo;
+    private ByteArrayInputStream tramaProtocolo;
+
+    private LengthPrefixedCodec codec;
+    private ByteArrayInputStream tramaCodec;
+
+    @Setup
+    public void preparar() throws IOException {
+        StringBuilder sb = new StringBuilder("DIAGNOSTICO:1001:");
+        String bases = "ACGT";
+        while (sb.length() < longitud) {
+            sb.append(bases.charAt(sb.length() & 3));
+        }
+        mensaje = sb.toString();
+
+        protocolo = new LengthPrefixedProtocol();
+        ByteArrayOutputStream trama = new ByteArrayOutputStream();
+        protocolo.encode(mensaje, trama);
+
+        // mark/reset vuelve a leer la misma trama en cada invocación
+        tramaProtocolo = new ByteArrayInputStream(trama.toByteArray());
+        tramaCodec = new ByteArrayInputStream(trama.toByteArray());
+        codec = new LengthPrefixedCodec(tramaCodec, descarte);
+    }
+
+    @Benchmark
+    public String decodeProtocolo() throws IOException {
+        tramaProtocolo.reset();
+        return protocolo.decode(tramaProtocolo);
+    }
+
+    @Benchmark
+    public String decodeCodec() throws IOException {
+        tramaCodec.reset();
+        return codec.decode();
+    }
+
+    @Benchmark
+    public void encodeProtocolo() throws IOException {
+        protocolo.encode(mensaje, descarte);
+    }
+
+    @Benchmark
+    public void encodeCodec() throws IOException {
+        codec.encode(mensaje);
+    }
+}
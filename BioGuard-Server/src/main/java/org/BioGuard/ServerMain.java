@@ -3,6 +3,9 @@ package org.BioGuard;
 import org.BioGuard.network.protocol.IMessageProtocol;
 import org.BioGuard.network.protocol.LengthPrefixedProtocol;
 import org.BioGuard.network.server.ITCPServer;
+import org.BioGuard.network.server.ModoHilos;
+import org.BioGuard.network.server.NIOSSLTCPServer;
+import org.BioGuard.network.server.NIOTCPServer;
 import org.BioGuard.network.server.TCPServer;
 import org.BioGuard.network.server.SSLTCPServer;
 import org.BioGuard.network.server.ISSLConfig;
@@ -10,8 +13,14 @@ import org.BioGuard.network.server.SSLConfig;
 import org.BioGuard.handler.IMessageProcessor;
 import org.BioGuard.handler.MessageHandler;
 import org.BioGuard.service.*;
+import org.BioGuard.service.diagnostico.AlmacenArchivosFasta;
+import org.BioGuard.service.diagnostico.AlmacenMuestras;
+import org.BioGuard.service.diagnostico.AlmacenSegmentos;
 import org.BioGuard.service.diagnostico.DiagnosticoService;
 import org.BioGuard.service.diagnostico.IDiagnosticoService;
+import org.BioGuard.service.deteccion.CacheDeteccion;
+
+import java.util.List;
 
 public class ServerMain {
 
@@ -20,6 +29,21 @@ public class ServerMain {
     private static final String KEYSTORE_PATH = "certs/keystore.p12";
     private static final String KEYSTORE_PASSWORD = "changeit";
     private static final boolean USAR_SSL = true;
+    private static final boolean USAR_NIO = false;
+    private static final int HILOS_TRABAJO_NIO = Runtime.getRuntime().availableProcessors() * 2;
+    // Hilo de cada cliente cuando USAR_NIO es false (VIRTUALES requiere Java 21)
+    private static final ModoHilos MODO_HILOS = ModoHilos.PLATAFORMA;
+    private static final int LONGITUD_MAXIMA_MUESTRA = 10_000_000;
+    private static final int UMBRAL_ESCANEO_PARALELO = 1_000_000;
+    private static final int CAPACIDAD_CACHE_DETECCION = CacheDeteccion.CAPACIDAD_POR_DEFECTO;
+    private static final String RUTA_CATALOGO_VIRUS = "data/catalogo.bin";
+    private static final boolean USAR_ALMACEN_SEGMENTOS = false;
+    private static final String DIRECTORIO_SEGMENTOS = "data/segmentos/";
+    private static final long TAMANO_SEGMENTO = 64L * 1024 * 1024;
+    private static final boolean MAPEAR_SEGMENTOS = true;
+    private static final boolean USAR_SNAPSHOT = true;
+    private static final String RUTA_SNAPSHOT = "data/estado.snapshot";
+    private static final long INTERVALO_SNAPSHOT_MINUTOS = 10;
 
     public static void main(String[] args) {
         System.out.println("╔═════════════════════════╗");
@@ -29,35 +53,66 @@ public class ServerMain {
         try {
             System.out.println("\n Inicializando servicios...");
 
-            // 1. Crear servicios en orden correcto
-            IPacienteService pacienteService = new PacienteService();
-            IVirusService virusService = new VirusService();                    // ← PRIMERO
-            IDiagnosticoService diagnosticoService = new DiagnosticoService(virusService); // ← AHORA FUNCIONA
+            // 1. Leer la foto del estado, si está vigente
+            SnapshotServidor snapshot = new SnapshotServidor(RUTA_SNAPSHOT, List.of(
+                    "data/pacientes.csv", "data/pacientes.journal", "data/pacientes.journal.compactando",
+                    AlmacenArchivosFasta.DIRECTORIO_POR_DEFECTO, DIRECTORIO_SEGMENTOS));
+            SnapshotServidor.Estado estado = USAR_SNAPSHOT ? snapshot.cargarSiVigente() : null;
+
+            // 2. Crear servicios en orden correcto
+            IPacienteService pacienteService = estado != null
+                    ? new PacienteService(estado.getPacientes())
+                    : new PacienteService();
+            IVirusService virusService = new VirusService(RUTA_CATALOGO_VIRUS);                    // ← PRIMERO
+            AlmacenMuestras almacenMuestras = USAR_ALMACEN_SEGMENTOS
+                    ? new AlmacenSegmentos(DIRECTORIO_SEGMENTOS, TAMANO_SEGMENTO, MAPEAR_SEGMENTOS)
+                    : new AlmacenArchivosFasta();
+            IDiagnosticoService diagnosticoService = new DiagnosticoService(
+                    virusService, LONGITUD_MAXIMA_MUESTRA, UMBRAL_ESCANEO_PARALELO,
+                    CAPACIDAD_CACHE_DETECCION, almacenMuestras, estado);
+
+            if (USAR_SNAPSHOT) {
+                snapshot.programar(pacienteService, diagnosticoService, INTERVALO_SNAPSHOT_MINUTOS);
+            }
+
+            // Un solo hook, en orden: la foto incluye los CSV ya escritos y
+            // se toma antes de cerrar el almacén
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                diagnosticoService.vaciarCSV();
+                if (USAR_SNAPSHOT) {
+                    snapshot.detener(pacienteService, diagnosticoService);
+                }
+                diagnosticoService.cerrar();
+            }, "apagado"));
 
-            // 2. Crear procesador
+            // 3. Crear procesador
             IMessageProcessor messageProcessor = new MessageHandler(
                     pacienteService,
                     diagnosticoService,
                     virusService
             );
 
-            // 3. Crear protocolo
+            // 4. Crear protocolo
             IMessageProtocol protocol = new LengthPrefixedProtocol();
 
-            // 4. Crear servidor
+            // 5. Crear servidor
             ITCPServer server;
             if (USAR_SSL) {
                 System.out.println("\nConfigurando servidor SSL...");
                 ISSLConfig sslConfig = new SSLConfig(PUERTO_SSL, KEYSTORE_PATH, KEYSTORE_PASSWORD);
-                server = new SSLTCPServer(sslConfig, messageProcessor);
+                server = USAR_NIO
+                        ? new NIOSSLTCPServer(sslConfig, messageProcessor, HILOS_TRABAJO_NIO)
+                        : new SSLTCPServer(sslConfig, messageProcessor, MODO_HILOS);
                 System.out.println("Servidor SSL configurado en puerto " + PUERTO_SSL);
             } else {
                 System.out.println("\nConfigurando servidor TCP normal...");
-                server = new TCPServer(PUERTO_NORMAL, protocol, messageProcessor);
+                server = USAR_NIO
+                        ? new NIOTCPServer(PUERTO_NORMAL, messageProcessor, HILOS_TRABAJO_NIO)
+                        : new TCPServer(PUERTO_NORMAL, protocol, messageProcessor, MODO_HILOS);
                 System.out.println(" TCP configurado en puerto " + PUERTO_NORMAL);
             }
 
-            // 5. Iniciar servidor
+            // 6. Iniciar servidor
             System.out.println("\nIniciando servidor...");
             server.start();
 
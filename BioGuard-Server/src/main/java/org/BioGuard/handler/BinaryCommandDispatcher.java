@@ -0,0 +1,73 @@
+package org.BioGuard.handler;
+
+import org.BioGuard.network.protocol.BinaryMessageReader;
+import org.BioGuard.network.protocol.BinaryMessageWriter;
+import org.BioGuard.network.protocol.BinaryProtocol;
+
+import java.io.IOException;
+
+/**
+ * Despachador de los mensajes binarios por su código de operación.
+ *
+ * <p>Responsabilidad Única: Enrutar cada petición de
+ * {@link BinaryProtocol} a su handler. Es el equivalente de
+ * {@link CommandParser} para el protocolo binario: en lugar de comparar
+ * prefijos de texto, el código de un byte indexa directamente una tabla
+ * de 256 entradas.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public class BinaryCommandDispatcher {
+
+    private final BinaryCommand[] comandos = new BinaryCommand[256];
+
+    /**
+     * Registra el handler de una operación.
+     *
+     * @param opcode Código de la operación (0-255)
+     * @param comando Handler que procesa la operación
+     */
+    public void registrarComando(int opcode, BinaryCommand comando) {
+        if (opcode < 0 || opcode >= comandos.length) {
+            throw new IllegalArgumentException("Código de operación fuera de rango: " + opcode);
+        }
+        comandos[opcode] = comando;
+    }
+
+    /**
+     * Ejecuta el handler de la operación de la petición.
+     *
+     * @param peticion Petición recibida
+     * @return Respuesta del handler, o un {@link BinaryProtocol#ESTADO_ERROR}
+     */
+    public BinaryMessageWriter ejecutarComando(BinaryMessageReader peticion) {
+        BinaryCommand comando = comandos[peticion.getCodigo()];
+        if (comando == null) {
+            return BinaryResponseFormatter.error("Operación no reconocida: 0x"
+                    + Integer.toHexString(peticion.getCodigo()));
+        }
+        try {
+            return comando.ejecutar(peticion);
+        } catch (IOException e) {
+            return BinaryResponseFormatter.error("Mensaje mal formado: " + e.getMessage());
+        } catch (Exception e) {
+            return BinaryResponseFormatter.error(e.getMessage());
+        }
+    }
+
+    /**
+     * Handler de una operación binaria.
+     */
+    @FunctionalInterface
+    public interface BinaryCommand {
+
+        /**
+         * @param peticion Petición posicionada en su primer campo
+         * @return Respuesta completa
+         * @throws IOException Si la petición no tiene los campos esperados
+         */
+        BinaryMessageWriter ejecutar(BinaryMessageReader peticion) throws IOException;
+    }
+}
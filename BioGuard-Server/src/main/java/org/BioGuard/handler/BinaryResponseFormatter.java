@@ -0,0 +1,102 @@
+package org.BioGuard.handler;
+
+import org.BioGuard.model.Diagnostico;
+import org.BioGuard.model.Paciente;
+import org.BioGuard.model.Virus;
+import org.BioGuard.network.protocol.BinaryMessageWriter;
+import org.BioGuard.network.protocol.BinaryProtocol;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Formato de las respuestas del protocolo binario.
+ *
+ * <p>Responsabilidad Única: Escribir los modelos como secuencias fijas de
+ * campos tipados, el equivalente binario de las líneas separadas por
+ * comas del protocolo de texto. El orden de los campos es parte del
+ * protocolo y el cliente lo lee en el mismo orden:</p>
+ *
+ * <ul>
+ *   <li>Diagnóstico: TEXTO id, TEXTO documento, TEXTO id de muestra,
+ *       LONG fecha, LISTA de hallazgos (TEXTO virus, INT inicio, INT fin,
+ *       INT diferencias).</li>
+ *   <li>Paciente: TEXTO documento, nombre, apellido, INT edad, TEXTO
+ *       correo, género, ciudad, país.</li>
+ *   <li>Virus: TEXTO id, nombre, tipo, INT nivel, INT longitud de la
+ *       secuencia, INT tolerancia.</li>
+ * </ul>
+ *
+ * <p>Las fechas son los milisegundos de la fecha local tomada en UTC (o
+ * {@code Long.MIN_VALUE} si no tiene), de
+ * modo que el cliente reconstruye la misma fecha sin importar su zona.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public final class BinaryResponseFormatter {
+
+    private BinaryResponseFormatter() {
+    }
+
+    public static BinaryMessageWriter ok() {
+        return new BinaryMessageWriter(BinaryProtocol.ESTADO_OK);
+    }
+
+    public static BinaryMessageWriter error(String motivo) {
+        return new BinaryMessageWriter(BinaryProtocol.ESTADO_ERROR).escribirTexto(motivo);
+    }
+
+    public static BinaryMessageWriter texto(String respuesta) {
+        return new BinaryMessageWriter(BinaryProtocol.ESTADO_TEXTO).escribirTexto(respuesta);
+    }
+
+    public static void escribirDiagnostico(BinaryMessageWriter mensaje, Diagnostico d) {
+        mensaje.escribirTexto(d.getId())
+                .escribirTexto(d.getDocumentoPaciente())
+                .escribirTexto(d.getIdMuestra())
+                .escribirLong(fecha(d.getFecha()));
+
+        List<Diagnostico.HallazgoVirus> hallazgos = d.getVirusDetectados();
+        mensaje.escribirLista(hallazgos.size());
+        for (Diagnostico.HallazgoVirus h : hallazgos) {
+            mensaje.escribirTexto(h.getNombreVirus())
+                    .escribirInt(h.getPosicionInicio())
+                    .escribirInt(h.getPosicionFin())
+                    .escribirInt(h.getDiferencias());
+        }
+    }
+
+    public static void escribirDiagnosticos(BinaryMessageWriter mensaje, List<Diagnostico> diagnosticos) {
+        mensaje.escribirLista(diagnosticos.size());
+        for (Diagnostico d : diagnosticos) {
+            escribirDiagnostico(mensaje, d);
+        }
+    }
+
+    public static void escribirPaciente(BinaryMessageWriter mensaje, Paciente p) {
+        mensaje.escribirTexto(p.getDocumento())
+                .escribirTexto(p.getNombre())
+                .escribirTexto(p.getApellido())
+                .escribirInt(p.getEdad())
+                .escribirTexto(p.getCorreo())
+                .escribirTexto(p.getGenero())
+                .escribirTexto(p.getCiudad())
+                .escribirTexto(p.getPais());
+    }
+
+    public static void escribirVirus(BinaryMessageWriter mensaje, Virus v) {
+        mensaje.escribirTexto(v.getId())
+                .escribirTexto(v.getNombre())
+                .escribirTexto(v.getTipo())
+                .escribirInt(v.getNivelPeligrosidad())
+                .escribirInt(v.getLongitudSecuencia())
+                .escribirInt(v.getToleranciaMutaciones());
+    }
+
+    private static long fecha(LocalDateTime fecha) {
+        return fecha != null ? fecha.toInstant(ZoneOffset.UTC).toEpochMilli() : Long.MIN_VALUE;
+    }
+}
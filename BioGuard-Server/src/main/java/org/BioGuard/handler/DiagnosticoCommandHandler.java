@@ -1,13 +1,25 @@
 package org.BioGuard.handler;
 
 import org.BioGuard.model.Diagnostico;
+import org.BioGuard.model.PackedSequence;
+import org.BioGuard.network.protocol.BinaryMessageReader;
+import org.BioGuard.network.protocol.BinaryMessageWriter;
 import org.BioGuard.service.IPacienteService;
+import org.BioGuard.service.deteccion.CacheDeteccion;
 import org.BioGuard.service.diagnostico.IDiagnosticoService;
+import org.BioGuard.service.reporte.CacheComparaciones;
+import org.BioGuard.service.reporte.EjecutorComparaciones;
 import org.BioGuard.service.reporte.MutacionReporter;
+import org.BioGuard.util.SecuenciaComparator;
 import org.BioGuard.exception.DiagnosticoException;
 
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Optional;
+import java.util.SortedSet;
 
 /**
  * Manejador de comandos relacionados con diagnósticos.
@@ -23,6 +35,8 @@ public class DiagnosticoCommandHandler {
 
     private final IDiagnosticoService diagnosticoService;
     private final IPacienteService pacienteService;
+    private final CacheComparaciones cacheComparaciones = new CacheComparaciones();
+    private final EjecutorComparaciones ejecutorComparaciones;
 
     /**
      * Constructor del manejador de diagnósticos.
@@ -33,42 +47,43 @@ public class DiagnosticoCommandHandler {
     public DiagnosticoCommandHandler(IDiagnosticoService diagnosticoService, IPacienteService pacienteService) {
         this.diagnosticoService = diagnosticoService;
         this.pacienteService = pacienteService;
+        this.ejecutorComparaciones = diagnosticoService.obtenerEjecutorComparaciones();
     }
 
     /**
      * Procesa el envío de una muestra de ADN.
      *
-     * <p>Formato esperado: ENVIAR_MUESTRA:documento|secuencia</p>
+     * <p>Formato esperado: ENVIAR_MUESTRA:documento|secuencia[|tolerancia]</p>
+     * <p>La tolerancia es opcional: número de bases distintas admitidas
+     * por virus detectado. Si se omite, solo se buscan coincidencias exactas
+     * (salvo para virus registrados con tolerancia propia).</p>
      *
-     * @param datos Datos del comando (documento|secuencia)
+     * @param datos Datos del comando (documento|secuencia|tolerancia)
      * @return Resultado del procesamiento
      */
     public String handleEnviarMuestra(String datos) {
         try {
-            String[] partes = datos.split("\\|", 2);
+            String[] partes = datos.split("\\|", 3);
             if (partes.length < 2) {
                 return "ERROR: Formato inválido. Se esperaba: documento|secuencia";
             }
 
             String documento = partes[0].trim();
             String secuencia = partes[1].trim();
+            int tolerancia;
+            try {
+                tolerancia = partes.length > 2 ? Integer.parseInt(partes[2].trim()) : 0;
+            } catch (NumberFormatException e) {
+                return "ERROR: La tolerancia debe ser un número";
+            }
 
             // Validar que el paciente existe
             if (!pacienteService.buscarPorDocumento(documento).isPresent()) {
                 return "ERROR: Paciente no encontrado: " + documento;
             }
 
-            // Validar secuencia (solo ATCG)
-            if (!secuencia.matches("^[ATCG]+$")) {
-                return "ERROR: La secuencia solo puede contener A, T, C, G";
-            }
-
-            // Validar longitud
-            if (secuencia.length() > 10000) {
-                return "ERROR: Secuencia demasiado larga (máx 10000 caracteres)";
-            }
-
-            Diagnostico diagnostico = diagnosticoService.procesarMuestra(documento, secuencia);
+            // La secuencia se valida al empaquetarla en el servicio
+            Diagnostico diagnostico = diagnosticoService.procesarMuestra(documento, secuencia, tolerancia);
 
             return "DIAGNOSTICO_COMPLETADO:" + diagnostico.getId() +
                     "|Virus detectados: " + diagnostico.getVirusDetectados().size();
@@ -80,6 +95,37 @@ public class DiagnosticoCommandHandler {
         }
     }
 
+    /**
+     * Versión binaria de {@link #handleEnviarMuestra(String)}.
+     *
+     * <p>Campos: TEXTO documento, SECUENCIA muestra, INT tolerancia. La
+     * secuencia llega empaquetada y no se vuelve a validar carácter a
+     * carácter.</p>
+     *
+     * @param peticion Petición con los campos de la muestra
+     * @return El diagnóstico completo
+     * @throws IOException Si faltan campos
+     */
+    public BinaryMessageWriter handleEnviarMuestraBinario(BinaryMessageReader peticion) throws IOException {
+        String documento = peticion.leerTexto();
+        PackedSequence secuencia = peticion.leerSecuencia(PackedSequence::desdePalabras);
+        int tolerancia = peticion.leerInt();
+
+        if (documento == null || !pacienteService.buscarPorDocumento(documento).isPresent()) {
+            return BinaryResponseFormatter.error("Paciente no encontrado: " + documento);
+        }
+
+        try {
+            Diagnostico diagnostico = diagnosticoService.procesarMuestra(documento, secuencia, tolerancia);
+            BinaryMessageWriter respuesta = BinaryResponseFormatter.ok();
+            BinaryResponseFormatter.escribirDiagnostico(respuesta, diagnostico);
+            return respuesta;
+
+        } catch (DiagnosticoException e) {
+            return BinaryResponseFormatter.error(e.getMessage());
+        }
+    }
+
     /**
      * Procesa la consulta de diagnósticos de un paciente.
      *
@@ -97,20 +143,139 @@ public class DiagnosticoCommandHandler {
             if (diagnosticos.isEmpty()) {
                 return "No hay diagnósticos para el paciente " + doc;
             }
+            return listarDiagnosticos(diagnosticos);
+
+        } catch (Exception e) {
+            return "ERROR: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Versión binaria de {@link #handleConsultarDiagnosticos(String)}.
+     *
+     * <p>Campos: TEXTO documento. Responde con una LISTA de diagnósticos,
+     * vacía si el paciente no tiene ninguno.</p>
+     *
+     * @param peticion Petición con el documento
+     * @return Lista de diagnósticos completos
+     * @throws IOException Si falta el documento
+     */
+    public BinaryMessageWriter handleConsultarDiagnosticosBinario(BinaryMessageReader peticion) throws IOException {
+        String documento = peticion.leerTexto();
+        BinaryMessageWriter respuesta = BinaryResponseFormatter.ok();
+        BinaryResponseFormatter.escribirDiagnosticos(respuesta, diagnosticoService.buscarPorPaciente(documento));
+        return respuesta;
+    }
+
+    /**
+     * Procesa la consulta de diagnósticos en que se detectó un virus.
+     *
+     * <p>Formato esperado: DIAGNOSTICOS_POR_VIRUS:nombre_virus</p>
+     *
+     * @param nombreVirus Nombre del virus
+     * @return Lista de diagnósticos con ese virus (más reciente primero)
+     */
+    public String handleDiagnosticosPorVirus(String nombreVirus) {
+        try {
+            String nombre = nombreVirus.trim();
+            if (nombre.isEmpty()) {
+                return "ERROR: Formato inválido. Use: DIAGNOSTICOS_POR_VIRUS:nombre_virus";
+            }
 
-            StringBuilder sb = new StringBuilder("DIAGNOSTICOS:");
-            for (Diagnostico d : diagnosticos) {
-                sb.append("\n").append(d.getId()).append(",")
-                        .append(d.getFecha()).append(",")
-                        .append(d.getVirusDetectados().size()).append(" virus");
+            List<Diagnostico> diagnosticos = diagnosticoService.buscarPorVirus(nombre);
+            if (diagnosticos.isEmpty()) {
+                return "No hay diagnósticos con el virus " + nombre;
+            }
+            return listarDiagnosticos(diagnosticos);
+
+        } catch (Exception e) {
+            return "ERROR: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Procesa la consulta de diagnósticos en un rango de fechas.
+     *
+     * <p>Formato esperado: DIAGNOSTICOS_POR_FECHA:desde|hasta, con fechas
+     * yyyy-MM-dd (día completo) o yyyy-MM-ddTHH:mm:ss</p>
+     *
+     * @param datos Fechas inicial y final, ambas incluidas
+     * @return Lista de diagnósticos del rango (más reciente primero)
+     */
+    public String handleDiagnosticosPorFecha(String datos) {
+        try {
+            String[] partes = datos.split("\\|");
+            if (partes.length != 2) {
+                return "ERROR: Formato inválido. Use: DIAGNOSTICOS_POR_FECHA:desde|hasta";
+            }
+
+            LocalDateTime desde = parsearFecha(partes[0].trim(), false);
+            LocalDateTime hasta = parsearFecha(partes[1].trim(), true);
+            if (hasta.isBefore(desde)) {
+                return "ERROR: La fecha final es anterior a la inicial";
+            }
+
+            List<Diagnostico> diagnosticos = diagnosticoService.buscarPorFecha(desde, hasta);
+            if (diagnosticos.isEmpty()) {
+                return "No hay diagnósticos entre " + desde + " y " + hasta;
+            }
+            return listarDiagnosticos(diagnosticos);
+
+        } catch (DateTimeParseException e) {
+            return "ERROR: Fecha inválida: " + e.getParsedString();
+        } catch (Exception e) {
+            return "ERROR: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Procesa la consulta de pacientes en que se detectó un virus.
+     *
+     * <p>Formato esperado: PACIENTES_CON_VIRUS:nombre_virus</p>
+     *
+     * @param nombreVirus Nombre del virus
+     * @return Documentos de los pacientes, separados por comas
+     */
+    public String handlePacientesConVirus(String nombreVirus) {
+        try {
+            String nombre = nombreVirus.trim();
+            if (nombre.isEmpty()) {
+                return "ERROR: Formato inválido. Use: PACIENTES_CON_VIRUS:nombre_virus";
             }
-            return sb.toString();
+
+            SortedSet<String> pacientes = diagnosticoService.buscarPacientesConVirus(nombre);
+            if (pacientes.isEmpty()) {
+                return "No hay pacientes con el virus " + nombre;
+            }
+            return "PACIENTES:" + String.join(",", pacientes);
 
         } catch (Exception e) {
             return "ERROR: " + e.getMessage();
         }
     }
 
+    private static String listarDiagnosticos(List<Diagnostico> diagnosticos) {
+        StringBuilder sb = new StringBuilder("DIAGNOSTICOS:");
+        for (Diagnostico d : diagnosticos) {
+            sb.append("\n").append(d.getId()).append(",")
+                    .append(d.getFecha()).append(",")
+                    .append(d.getVirusDetectados().size()).append(" virus");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Una fecha sin hora abarca el día completo: desde el inicio si es la
+     * cota inicial, hasta el último instante si es la final.
+     */
+    private static LocalDateTime parsearFecha(String texto, boolean finDelDia) {
+        if (texto.length() <= 10) {
+            LocalDate dia = LocalDate.parse(texto);
+            return finDelDia ? dia.plusDays(1).atStartOfDay().minusNanos(1) : dia.atStartOfDay();
+        }
+        return LocalDateTime.parse(texto);
+    }
+
     /**
      * Procesa la consulta detallada de un diagnóstico específico.
      *
@@ -141,6 +306,9 @@ public class DiagnosticoCommandHandler {
                     sb.append("\n  ").append(h.getNombreVirus())
                             .append(": posición ").append(h.getPosicionInicio())
                             .append("-").append(h.getPosicionFin());
+                    if (h.getDiferencias() > 0) {
+                        sb.append(" (").append(h.getDiferencias()).append(" bases distintas)");
+                    }
                 }
             }
 
@@ -151,32 +319,120 @@ public class DiagnosticoCommandHandler {
         }
     }
 
+    /**
+     * Versión binaria de {@link #handleVerDiagnostico(String)}.
+     *
+     * <p>Campos: TEXTO id del diagnóstico.</p>
+     *
+     * @param peticion Petición con el id
+     * @return El diagnóstico completo
+     * @throws IOException Si falta el id
+     */
+    public BinaryMessageWriter handleVerDiagnosticoBinario(BinaryMessageReader peticion) throws IOException {
+        String id = peticion.leerTexto();
+        Optional<Diagnostico> opt = id != null ? diagnosticoService.buscarPorId(id) : Optional.empty();
+        if (!opt.isPresent()) {
+            return BinaryResponseFormatter.error("Diagnóstico no encontrado: " + id);
+        }
+
+        BinaryMessageWriter respuesta = BinaryResponseFormatter.ok();
+        BinaryResponseFormatter.escribirDiagnostico(respuesta, opt.get());
+        return respuesta;
+    }
+
     /**
      * Procesa la generación de reporte de mutaciones.
      *
-     * <p>Formato esperado: REPORTE_MUTACIONES:documento|idMuestra</p>
+     * <p>Formato esperado: REPORTE_MUTACIONES:documento|idMuestra[|modo]</p>
      * <p>El idMuestra es opcional. Si no se proporciona, se usa la muestra más reciente.</p>
+     * <p>El modo es POSICIONAL (por defecto) o ALINEADO; este último reporta
+     * sustituciones, inserciones y deleciones.</p>
      *
-     * @param parametros Parámetros del comando (documento|idMuestra)
+     * @param parametros Parámetros del comando (documento|idMuestra|modo)
      * @return Resultado de la generación del reporte
      */
     public String handleReporteMutaciones(String parametros) {
         try {
-            // Formato: documento|idMuestra (idMuestra opcional)
-            String[] partes = parametros.split("\\|", 2);
+            // Formato: documento|idMuestra|modo (idMuestra y modo opcionales)
+            String[] partes = parametros.split("\\|", 3);
             String documento = partes[0].trim();
             String idMuestra = partes.length > 1 ? partes[1].trim() : null;
+            SecuenciaComparator.Modo modo = SecuenciaComparator.Modo.POSICIONAL;
+            if (partes.length > 2 && !partes[2].trim().isEmpty()) {
+                try {
+                    modo = SecuenciaComparator.Modo.valueOf(partes[2].trim().toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    return "ERROR: Modo inválido (use POSICIONAL o ALINEADO)";
+                }
+            }
 
             // Validar que el paciente existe
             if (!pacienteService.buscarPorDocumento(documento).isPresent()) {
                 return "ERROR: Paciente no encontrado: " + documento;
             }
 
-            MutacionReporter reporter = new MutacionReporter(diagnosticoService);
+            MutacionReporter reporter = new MutacionReporter(
+                    diagnosticoService, modo, cacheComparaciones, ejecutorComparaciones);
             return reporter.generarReporteComoString(documento, idMuestra);
 
         } catch (Exception e) {
             return "ERROR generando reporte de mutaciones: " + e.getMessage();
         }
     }
+
+    /**
+     * Cancela los reportes de mutaciones en curso de un paciente.
+     *
+     * <p>Formato esperado: CANCELAR_REPORTE_MUTACIONES:documento</p>
+     *
+     * @param documento Documento del paciente
+     * @return Confirmación o error si no hay reporte en curso
+     */
+    public String handleCancelarReporteMutaciones(String documento) {
+        String doc = documento.trim();
+        if (ejecutorComparaciones.cancelar(doc)) {
+            return "REPORTE_CANCELADO:" + doc;
+        }
+        return "ERROR: No hay reporte de mutaciones en curso para " + doc;
+    }
+
+    /**
+     * Devuelve las métricas de la caché de detección.
+     *
+     * <p>Formato esperado: ESTADISTICAS_CACHE</p>
+     *
+     * @param ignorado Sin parámetros
+     * @return Aciertos, fallos, tasa de aciertos, entradas y expulsiones
+     */
+    public String handleEstadisticasCache(String ignorado) {
+        CacheDeteccion cache = diagnosticoService.obtenerCacheDeteccion();
+        return String.format("CACHE_DETECCION:aciertos=%d|fallos=%d|tasa=%.2f%%|entradas=%d|expulsiones=%d",
+                cache.getAciertos(), cache.getFallos(), cache.getTasaAciertos(),
+                cache.getTamano(), cache.getExpulsiones());
+    }
+
+    /**
+     * Devuelve el progreso del re-escaneo de muestras guardadas.
+     *
+     * <p>Formato esperado: ESTADO_REESCANEO</p>
+     *
+     * @param ignorado Sin parámetros
+     * @return Estado, trabajos pendientes, muestras procesadas y diagnósticos actualizados
+     */
+    public String handleEstadoReescaneo(String ignorado) {
+        return diagnosticoService.obtenerProgresoReescaneo();
+    }
+
+    /**
+     * Consulta si el CSV de un diagnóstico ya está escrito en disco.
+     *
+     * @param id Id del diagnóstico
+     * @return "ESTADO_DIAGNOSTICO:id|PENDIENTE", "|GUARDADO", "|ERROR" o "|SIN_CSV"
+     */
+    public String handleEstadoDiagnostico(String id) {
+        String idDiagnostico = id.trim();
+        return diagnosticoService.obtenerEstadoCSV(idDiagnostico)
+                .map(estado -> "ESTADO_DIAGNOSTICO:" + idDiagnostico + "|" + estado)
+                .orElse("ERROR: Diagnóstico no encontrado: " + idDiagnostico);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package org.BioGuard.handler;
+
+import org.BioGuard.network.protocol.BinaryMessageReader;
+import org.BioGuard.network.protocol.BinaryMessageWriter;
+
+/**
+ * Procesador de los mensajes de
+ * {@link org.BioGuard.network.protocol.BinaryProtocol}.
+ *
+ * <p>Los servidores solo aceptan la negociación del protocolo binario si
+ * su {@link IMessageProcessor} implementa también esta interfaz.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public interface IBinaryMessageProcessor {
+
+    /**
+     * @param peticion Petición posicionada en su primer campo
+     * @return Respuesta completa; nunca null
+     */
+    BinaryMessageWriter process(BinaryMessageReader peticion);
+}
@@ -1,21 +1,31 @@
 package org.BioGuard.handler;
 
+import org.BioGuard.network.protocol.BinaryMessageReader;
+import org.BioGuard.network.protocol.BinaryMessageWriter;
+import org.BioGuard.network.protocol.BinaryProtocol;
 import org.BioGuard.service.IPacienteService;
 import org.BioGuard.service.IVirusService;
 import org.BioGuard.service.diagnostico.IDiagnosticoService;
 import org.BioGuard.service.diagnostico.DiagnosticoService;
 import org.BioGuard.service.reporte.AltoRiesgoReporter;
 
+import java.io.IOException;
+
 /**
  * Procesador de mensajes del servidor que delega en handlers especializados.
  *
+ * <p>Atiende los dos protocolos: los comandos de texto se enrutan por
+ * prefijo con un {@link CommandParser} y las peticiones binarias por su
+ * código de operación con un {@link BinaryCommandDispatcher}.</p>
+ *
  * @author Sergio Grajales
  * @author Jhonatan Tamayo
  * @version 1.0
  */
-public class MessageHandler implements IMessageProcessor {
+public class MessageHandler implements IMessageProcessor, IBinaryMessageProcessor {
 
     private final CommandParser parser;
+    private final BinaryCommandDispatcher dispatcher;
     private final IPacienteService pacienteService;
     private final IDiagnosticoService diagnosticoService;
     private final IVirusService virusService;
@@ -27,6 +37,7 @@ public class MessageHandler implements IMessageProcessor {
         this.diagnosticoService = diagnosticoService;
         this.virusService = virusService;
         this.parser = new CommandParser();
+        this.dispatcher = new BinaryCommandDispatcher();
 
         inicializarComandos();
     }
@@ -52,12 +63,32 @@ public class MessageHandler implements IMessageProcessor {
         parser.registrarComando("ENVIAR_MUESTRA:", diagnosticoHandler::handleEnviarMuestra);
         parser.registrarComando("CONSULTAR_DIAGNOSTICOS:", diagnosticoHandler::handleConsultarDiagnosticos); // ← CORREGIDO
         parser.registrarComando("VER_DIAGNOSTICO:", diagnosticoHandler::handleVerDiagnostico);
+        parser.registrarComando("DIAGNOSTICOS_POR_VIRUS:", diagnosticoHandler::handleDiagnosticosPorVirus);
+        parser.registrarComando("DIAGNOSTICOS_POR_FECHA:", diagnosticoHandler::handleDiagnosticosPorFecha);
+        parser.registrarComando("PACIENTES_CON_VIRUS:", diagnosticoHandler::handlePacientesConVirus);
+        parser.registrarComando("ESTADISTICAS_CACHE", diagnosticoHandler::handleEstadisticasCache);
+        parser.registrarComando("ESTADO_REESCANEO", diagnosticoHandler::handleEstadoReescaneo);
+        parser.registrarComando("ESTADO_DIAGNOSTICO:", diagnosticoHandler::handleEstadoDiagnostico);
 
         // Reportes
         parser.registrarComando("REPORTE_ALTO_RIESGO", this::handleReporteAltoRiesgo);
 
         //Reporte de mutacion
         parser.registrarComando("REPORTE_MUTACIONES:", diagnosticoHandler::handleReporteMutaciones);
+        parser.registrarComando("CANCELAR_REPORTE_MUTACIONES:", diagnosticoHandler::handleCancelarReporteMutaciones);
+
+        // Protocolo binario: el resto de comandos viaja como texto
+        dispatcher.registrarComando(BinaryProtocol.OP_TEXTO, this::handleTexto);
+        dispatcher.registrarComando(BinaryProtocol.OP_ENVIAR_MUESTRA, diagnosticoHandler::handleEnviarMuestraBinario);
+        dispatcher.registrarComando(BinaryProtocol.OP_VER_DIAGNOSTICO, diagnosticoHandler::handleVerDiagnosticoBinario);
+        dispatcher.registrarComando(BinaryProtocol.OP_CONSULTAR_DIAGNOSTICOS, diagnosticoHandler::handleConsultarDiagnosticosBinario);
+        dispatcher.registrarComando(BinaryProtocol.OP_CONSULTAR_PACIENTE, pacienteHandler::handleConsultaBinario);
+        dispatcher.registrarComando(BinaryProtocol.OP_LISTAR_PACIENTES, pacienteHandler::handleListarBinario);
+        dispatcher.registrarComando(BinaryProtocol.OP_LISTAR_VIRUS, virusHandler::handleListarBinario);
+    }
+
+    private BinaryMessageWriter handleTexto(BinaryMessageReader peticion) throws IOException {
+        return BinaryResponseFormatter.texto(process(peticion.leerTexto()));
     }
 
     private String handleReporteAltoRiesgo(String parametros) {
@@ -82,4 +113,9 @@ public class MessageHandler implements IMessageProcessor {
     public String process(String message) {
         return parser.ejecutarComando(message);
     }
-}
\ No newline at end of file
+
+    @Override
+    public BinaryMessageWriter process(BinaryMessageReader peticion) {
+        return dispatcher.ejecutarComando(peticion);
+    }
+}
@@ -1,9 +1,13 @@
 package org.BioGuard.handler;
 
 import org.BioGuard.model.Paciente;
+import org.BioGuard.network.protocol.BinaryMessageReader;
+import org.BioGuard.network.protocol.BinaryMessageWriter;
 import org.BioGuard.service.IPacienteService;
 import org.BioGuard.exception.PacienteDuplicadoException;
 
+import java.io.IOException;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -103,4 +107,32 @@ public class PacienteCommandHandler {
         }
         return sb.toString();
     }
-}
\ No newline at end of file
+
+    /**
+     * Versión binaria de {@link #handleConsulta(String)}: TEXTO documento.
+     */
+    public BinaryMessageWriter handleConsultaBinario(BinaryMessageReader peticion) throws IOException {
+        String documento = peticion.leerTexto();
+        Optional<Paciente> opt = documento != null ? pacienteService.buscarPorDocumento(documento) : Optional.empty();
+        if (!opt.isPresent()) {
+            return BinaryResponseFormatter.error("Paciente no encontrado");
+        }
+
+        BinaryMessageWriter respuesta = BinaryResponseFormatter.ok();
+        BinaryResponseFormatter.escribirPaciente(respuesta, opt.get());
+        return respuesta;
+    }
+
+    /**
+     * Versión binaria de {@link #handleListar(String)}: LISTA de pacientes
+     * con todos sus campos, vacía si no hay ninguno.
+     */
+    public BinaryMessageWriter handleListarBinario(BinaryMessageReader peticion) {
+        List<Paciente> pacientes = pacienteService.listarTodos();
+        BinaryMessageWriter respuesta = BinaryResponseFormatter.ok().escribirLista(pacientes.size());
+        for (Paciente p : pacientes) {
+            BinaryResponseFormatter.escribirPaciente(respuesta, p);
+        }
+        return respuesta;
+    }
+}
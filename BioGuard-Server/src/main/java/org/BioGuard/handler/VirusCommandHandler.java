@@ -1,6 +1,8 @@
 package org.BioGuard.handler;
 
 import org.BioGuard.model.Virus;
+import org.BioGuard.network.protocol.BinaryMessageReader;
+import org.BioGuard.network.protocol.BinaryMessageWriter;
 import org.BioGuard.service.IVirusService;
 
 import java.util.List;
@@ -34,6 +36,9 @@ public class VirusCommandHandler {
             if (partes.length > 2) {
                 virus.setSecuencia(partes[2].trim());
             }
+            if (partes.length > 3) {
+                virus.setToleranciaMutaciones(Integer.parseInt(partes[3].trim()));
+            }
 
             Virus registrado = virusService.registrarVirus(virus);
             return "VIRUS_REGISTRADO:" + registrado.getId();
@@ -58,12 +63,13 @@ public class VirusCommandHandler {
             if (partes.length > 3) virus.setSintomas(partes[3].trim());
             if (partes.length > 4) virus.setTratamiento(partes[4].trim());
             if (partes.length > 5) virus.setSecuencia(partes[5].trim());
+            if (partes.length > 6) virus.setToleranciaMutaciones(Integer.parseInt(partes[6].trim()));
 
             Virus registrado = virusService.registrarVirus(virus);
             return "VIRUS_REGISTRADO:" + registrado.getId();
 
         } catch (NumberFormatException e) {
-            return "ERROR: Nivel debe ser número (1-5)";
+            return "ERROR: Nivel y tolerancia deben ser números";
         } catch (Exception e) {
             return "ERROR: " + e.getMessage();
         }
@@ -98,6 +104,19 @@ public class VirusCommandHandler {
         return sb.toString();
     }
 
+    /**
+     * Versión binaria de {@link #handleListar(String)}: LISTA de virus,
+     * vacía si no hay ninguno.
+     */
+    public BinaryMessageWriter handleListarBinario(BinaryMessageReader peticion) {
+        List<Virus> virus = virusService.listarTodos();
+        BinaryMessageWriter respuesta = BinaryResponseFormatter.ok().escribirLista(virus.size());
+        for (Virus v : virus) {
+            BinaryResponseFormatter.escribirVirus(respuesta, v);
+        }
+        return respuesta;
+    }
+
     private int obtenerNivelNumerico(String nivel) {
         switch (nivel.toLowerCase()) {
             case "poco infeccioso": return 1;
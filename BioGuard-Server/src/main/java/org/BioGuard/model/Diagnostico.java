@@ -14,11 +14,18 @@ import java.util.List;
  */
 public class Diagnostico {
 
+    /**
+     * Formato de la fecha en el id ({@code documento_fecha}) y en el nombre
+     * del CSV del diagnóstico.
+     */
+    public static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH-mm-ss.SSS");
+
     private String id;
     private String documentoPaciente;
     private String idMuestra;
     private List<HallazgoVirus> virusDetectados;
     private LocalDateTime fecha;
+    private String archivoCSV;
 
     public Diagnostico() {
         this.virusDetectados = new ArrayList<>();
@@ -33,8 +40,7 @@ public class Diagnostico {
     }
 
     private String generarId() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH-mm-ss.SSS");
-        return documentoPaciente + "_" + fecha.format(formatter);
+        return documentoPaciente + "_" + fecha.format(FORMATO_FECHA);
     }
 
     // Getters y Setters
@@ -57,6 +63,12 @@ public class Diagnostico {
     public LocalDateTime getFecha() { return fecha; }
     public void setFecha(LocalDateTime fecha) { this.fecha = fecha; }
 
+    /**
+     * @return Ruta del CSV del diagnóstico, o null si aún no se generó
+     */
+    public String getArchivoCSV() { return archivoCSV; }
+    public void setArchivoCSV(String archivoCSV) { this.archivoCSV = archivoCSV; }
+
     /**
      * Agrega un virus detectado al diagnóstico.
      */
@@ -66,25 +78,40 @@ public class Diagnostico {
 
     /**
      * Clase interna para representar un hallazgo de virus.
+     *
+     * <p>Los hallazgos aproximados indican cuántas bases difieren de la
+     * secuencia registrada del virus; en los exactos es 0.</p>
      */
     public static class HallazgoVirus {
         private String nombreVirus;
         private int posicionInicio;
         private int posicionFin;
+        private int diferencias;
 
         public HallazgoVirus(String nombreVirus, int posicionInicio, int posicionFin) {
+            this(nombreVirus, posicionInicio, posicionFin, 0);
+        }
+
+        public HallazgoVirus(String nombreVirus, int posicionInicio, int posicionFin, int diferencias) {
             this.nombreVirus = nombreVirus;
             this.posicionInicio = posicionInicio;
             this.posicionFin = posicionFin;
+            this.diferencias = diferencias;
         }
 
         public String getNombreVirus() { return nombreVirus; }
         public int getPosicionInicio() { return posicionInicio; }
         public int getPosicionFin() { return posicionFin; }
+        public int getDiferencias() { return diferencias; }
 
+        /**
+         * Formato CSV: virus,posicion_inicio,posicion_fin. Los hallazgos
+         * aproximados agregan una cuarta columna con las diferencias.
+         */
         @Override
         public String toString() {
-            return nombreVirus + "," + posicionInicio + "," + posicionFin;
+            String base = nombreVirus + "," + posicionInicio + "," + posicionFin;
+            return diferencias > 0 ? base + "," + diferencias : base;
         }
     }
 }
\ No newline at end of file
@@ -1,35 +1,70 @@
 package org.BioGuard.model;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Representa una muestra de ADN enviada por un paciente.
  *
+ * <p>Las muestras cargadas desde archivo pueden crearse solo con su
+ * encabezado y un {@link CargadorSecuencia}: la secuencia se lee la
+ * primera vez que se pide y queda guardada desde entonces.</p>
+ *
+ * <p>El id de una muestra nueva es {@code documento_yyyyMMdd_HHmmss_nanos}.
+ * La fecha de cada muestra creada en el proceso es estrictamente posterior
+ * a la de la anterior (se adelanta un nanosegundo si el reloj no avanzó),
+ * así que dos muestras del mismo paciente en el mismo segundo no
+ * comparten id.</p>
+ *
  * @author Sergio Grajales
  * @author Jhonatan Tamayo
  * @version 1.0
  */
 public class Muestra {
 
+    private static final DateTimeFormatter FORMATO_ID = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss_SSSSSSSSS");
+    private static final AtomicReference<LocalDateTime> ULTIMA_FECHA = new AtomicReference<>(LocalDateTime.MIN);
+
     private String id;
     private String documentoPaciente;
-    private String secuencia;
+    private volatile PackedSequence secuencia;
+    private volatile CargadorSecuencia cargador;
+    private final ReentrantLock lockCarga = new ReentrantLock();
     private LocalDateTime fecha;
     private String archivoPath;
 
     public Muestra() {}
 
     public Muestra(String documentoPaciente, String secuencia) {
+        this(documentoPaciente, PackedSequence.desde(secuencia));
+    }
+
+    public Muestra(String documentoPaciente, PackedSequence secuencia) {
         this.documentoPaciente = documentoPaciente;
         this.secuencia = secuencia;
-        this.fecha = LocalDateTime.now();
-        this.id = generarId();
+        this.fecha = fechaUnica();
+        this.id = generarId(documentoPaciente, fecha);
     }
 
-    private String generarId() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
-        return documentoPaciente + "_" + fecha.format(formatter);
+    private static LocalDateTime fechaUnica() {
+        LocalDateTime ahora = LocalDateTime.now();
+        return ULTIMA_FECHA.updateAndGet(ultima -> ahora.isAfter(ultima) ? ahora : ultima.plusNanos(1));
+    }
+
+    /**
+     * Id de la muestra de un paciente con la fecha dada. Permite
+     * reconstruirlo a partir del encabezado de un archivo.
+     *
+     * @param documento Documento del paciente
+     * @param fecha Fecha de la muestra, con sus nanosegundos
+     * @return Id de la muestra
+     */
+    public static String generarId(String documento, LocalDateTime fecha) {
+        return documento + "_" + fecha.format(FORMATO_ID);
     }
 
     /**
@@ -53,8 +88,73 @@ public class Muestra {
         this.documentoPaciente = documentoPaciente;
     }
 
-    public String getSecuencia() { return secuencia; }
-    public void setSecuencia(String secuencia) { this.secuencia = secuencia; }
+    /**
+     * Obtiene la secuencia como texto. Se decodifica en cada llamada;
+     * para comparaciones y detección use {@link #getSecuenciaEmpaquetada()}.
+     */
+    public String getSecuencia() {
+        PackedSequence empaquetada = getSecuenciaEmpaquetada();
+        return empaquetada != null ? empaquetada.toString() : null;
+    }
+    public void setSecuencia(String secuencia) {
+        setSecuenciaEmpaquetada(secuencia != null ? PackedSequence.desde(secuencia) : null);
+    }
+
+    /**
+     * Obtiene la secuencia empaquetada, leyéndola con el cargador si aún
+     * no se ha cargado.
+     *
+     * @throws UncheckedIOException Si la carga diferida falla
+     */
+    public PackedSequence getSecuenciaEmpaquetada() {
+        PackedSequence actual = secuencia;
+        if (actual != null || cargador == null) {
+            return actual;
+        }
+        lockCarga.lock();
+        try {
+            if (secuencia == null && cargador != null) {
+                try {
+                    secuencia = cargador.cargar();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Error cargando la secuencia de " + id + ": " + e.getMessage(), e);
+                }
+                cargador = null;
+            }
+            return secuencia;
+        } finally {
+            lockCarga.unlock();
+        }
+    }
+
+    public void setSecuenciaEmpaquetada(PackedSequence secuencia) {
+        this.secuencia = secuencia;
+        this.cargador = null;
+    }
+
+    /**
+     * Difiere la lectura de la secuencia hasta su primer uso. Puede
+     * invocarse sobre una muestra en uso para descartar la secuencia ya
+     * cargada (por ejemplo, al pasar a leerla de un archivo mapeado).
+     *
+     * @param cargador Lee la secuencia cuando se necesita
+     */
+    public void setCargadorSecuencia(CargadorSecuencia cargador) {
+        lockCarga.lock();
+        try {
+            // El cargador se publica antes de vaciar la secuencia: quien vea
+            // la secuencia vacía encuentra el cargador
+            this.cargador = cargador;
+            this.secuencia = null;
+        } finally {
+            lockCarga.unlock();
+        }
+    }
+
+    /**
+     * @return true si la secuencia ya está en memoria
+     */
+    public boolean isSecuenciaCargada() { return secuencia != null; }
 
     public LocalDateTime getFecha() { return fecha; }
     public void setFecha(LocalDateTime fecha) { this.fecha = fecha; }
@@ -75,4 +175,12 @@ public class Muestra {
         return String.format("Muestra{id='%s', documento='%s', fecha=%s}",
                 id, documentoPaciente, fecha);
     }
+
+    /**
+     * Lectura diferida de la secuencia de una muestra.
+     */
+    @FunctionalInterface
+    public interface CargadorSecuencia {
+        PackedSequence cargar() throws IOException;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,481 @@
+package org.BioGuard.model;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Secuencia de ADN empaquetada a 2 bits por base.
+ *
+ * <p>Las bases se codifican como A=0, C=1, G=2, T=3 y se guardan 32 por
+ * cada {@code long}, empezando por los bits menos significativos. Una
+ * secuencia ocupa así unas 4 veces menos memoria que un {@code String}
+ * con compact strings, y 8 veces menos sin ellos.</p>
+ *
+ * <p>Las comparaciones posicionales se hacen palabra a palabra: dos
+ * secuencias alineadas desde la posición 0 comparten la misma
+ * disposición de bits, por lo que basta un XOR por cada 32 bases.</p>
+ *
+ * <p>Las palabras pueden estar en un arreglo del heap o, sin copiarlas,
+ * en un {@link LongBuffer} fuera del heap (por ejemplo, la vista de un
+ * archivo mapeado en memoria; ver {@link #sobre(LongBuffer, int)}). Las
+ * comparaciones y los detectores leen siempre a través de
+ * {@link #palabra(int)}, así que funcionan igual con ambas.</p>
+ *
+ * <p>Las instancias son inmutables y seguras para uso concurrente.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public final class PackedSequence implements CharSequence {
+
+    /** Bases por palabra de 64 bits. */
+    public static final int BASES_POR_PALABRA = 32;
+
+    private static final char[] BASES = {'A', 'C', 'G', 'T'};
+    private static final long BITS_BAJOS = 0x5555555555555555L;
+    private static final byte[] CODIGOS = new byte[128];
+
+    static {
+        Arrays.fill(CODIGOS, (byte) -1);
+        CODIGOS['A'] = 0;
+        CODIGOS['C'] = 1;
+        CODIGOS['G'] = 2;
+        CODIGOS['T'] = 3;
+    }
+
+    public static final PackedSequence VACIA = new PackedSequence(new long[0], 0);
+
+    // Exactamente una de las dos representaciones está presente
+    private final long[] palabras;
+    private final LongBuffer externas;
+    private final int numero;
+    private final int longitud;
+
+    private PackedSequence(long[] palabras, int longitud) {
+        this.palabras = palabras;
+        this.externas = null;
+        this.numero = palabras.length;
+        this.longitud = longitud;
+    }
+
+    private PackedSequence(LongBuffer externas, int longitud) {
+        this.palabras = null;
+        this.externas = externas;
+        this.numero = externas.limit();
+        this.longitud = longitud;
+    }
+
+    /**
+     * Empaqueta una secuencia de texto.
+     *
+     * @param secuencia Secuencia compuesta solo por A, C, G, T
+     * @return Secuencia empaquetada
+     * @throws IllegalArgumentException Si contiene otros caracteres
+     */
+    public static PackedSequence desde(CharSequence secuencia) {
+        if (secuencia instanceof PackedSequence) {
+            return (PackedSequence) secuencia;
+        }
+        int longitud = secuencia.length();
+        long[] palabras = new long[palabrasPara(longitud)];
+        int invalida = empaquetar(secuencia, palabras, 0);
+        if (invalida >= 0) {
+            throw caracterInvalido(secuencia.charAt(invalida), invalida);
+        }
+        return new PackedSequence(palabras, longitud);
+    }
+
+    /**
+     * Valida y empaqueta el texto en una sola pasada, con una consulta a
+     * tabla por carácter y sin más memoria que las palabras de destino.
+     *
+     * <p>Las palabras desde {@code posicion} deben estar a cero. Si hay un
+     * carácter inválido, las bases anteriores a él quedan escritas.</p>
+     *
+     * @param texto Texto a empaquetar
+     * @param destino Palabras donde escribir
+     * @param posicion Posición (en bases) donde empieza a escribirse
+     * @return Índice en {@code texto} del primer carácter inválido, o -1
+     */
+    private static int empaquetar(CharSequence texto, long[] destino, int posicion) {
+        int n = texto.length();
+        int p = posicion;
+        long palabra = (p & 31) != 0 ? destino[p >>> 5] : 0;
+
+        for (int i = 0; i < n; i++, p++) {
+            char c = texto.charAt(i);
+            int codigo = c < 128 ? CODIGOS[c] : -1;
+            if (codigo < 0) {
+                destino[p >>> 5] = palabra;
+                return i;
+            }
+            palabra |= ((long) codigo) << ((p & 31) << 1);
+            if ((p & 31) == 31) {
+                destino[p >>> 5] = palabra;
+                palabra = 0;
+            }
+        }
+        if ((p & 31) != 0) {
+            destino[p >>> 5] = palabra;
+        }
+        return -1;
+    }
+
+    private static IllegalArgumentException caracterInvalido(char c, int posicion) {
+        return new IllegalArgumentException("Carácter inválido '" + c + "' en la posición " + posicion);
+    }
+
+    /**
+     * Reconstruye una secuencia a partir de sus palabras empaquetadas.
+     *
+     * @param palabras Palabras de 64 bits (se copian)
+     * @param longitud Número de bases
+     * @return Secuencia empaquetada
+     */
+    public static PackedSequence desdePalabras(long[] palabras, int longitud) {
+        int necesarias = palabrasPara(longitud);
+        if (longitud < 0 || palabras.length < necesarias) {
+            throw new IllegalArgumentException("Longitud inválida: " + longitud);
+        }
+        long[] copia = Arrays.copyOf(palabras, necesarias);
+        limpiarCola(copia, longitud);
+        return new PackedSequence(copia, longitud);
+    }
+
+    /**
+     * Crea una secuencia que lee sus palabras directamente del buffer, sin
+     * copiarlas. Las palabras se toman desde la posición actual del buffer,
+     * que no se modifica; su contenido no debe cambiar mientras la
+     * secuencia esté en uso.
+     *
+     * @param palabras Buffer con las palabras (por ejemplo, de un archivo mapeado)
+     * @param longitud Número de bases
+     * @return Secuencia empaquetada respaldada por el buffer
+     * @throws IllegalArgumentException Si faltan palabras o las bases
+     *         posteriores al final no están a cero
+     */
+    public static PackedSequence sobre(LongBuffer palabras, int longitud) {
+        int necesarias = palabrasPara(longitud);
+        if (longitud < 0 || palabras.remaining() < necesarias) {
+            throw new IllegalArgumentException("Longitud inválida: " + longitud);
+        }
+        LongBuffer vista = palabras.slice(palabras.position(), necesarias);
+        int resto = longitud & 31;
+        if (resto != 0 && (vista.get(necesarias - 1) & -(1L << (resto << 1))) != 0) {
+            throw new IllegalArgumentException("Bits no nulos después de la base " + longitud);
+        }
+        return new PackedSequence(vista, longitud);
+    }
+
+    /**
+     * @param longitud Número de bases
+     * @return Palabras de 64 bits necesarias para guardarlas
+     */
+    public static int palabrasPara(int longitud) {
+        return (longitud + BASES_POR_PALABRA - 1) / BASES_POR_PALABRA;
+    }
+
+    /**
+     * @param c Carácter a codificar
+     * @return Código 0-3 de la base, o -1 si no es A, C, G ni T
+     */
+    public static int codificar(char c) {
+        return c < 128 ? CODIGOS[c] : -1;
+    }
+
+    /**
+     * @param codigo Código 0-3
+     * @return Carácter de la base
+     */
+    public static char decodificar(int codigo) {
+        return BASES[codigo];
+    }
+
+    @Override
+    public int length() {
+        return longitud;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return longitud == 0;
+    }
+
+    /**
+     * @param indice Posición de la base
+     * @return Código 0-3 de la base en esa posición
+     */
+    public int codigoEn(int indice) {
+        if (indice < 0 || indice >= longitud) {
+            throw new IndexOutOfBoundsException("Índice " + indice + " fuera de [0, " + longitud + ")");
+        }
+        return (int) (palabra(indice >>> 5) >>> ((indice & 31) << 1)) & 3;
+    }
+
+    @Override
+    public char charAt(int indice) {
+        return BASES[codigoEn(indice)];
+    }
+
+    /**
+     * @return Número de palabras de 64 bits de la secuencia
+     */
+    public int numeroPalabras() {
+        return numero;
+    }
+
+    /**
+     * Devuelve una palabra empaquetada. Las bases posteriores al final de
+     * la secuencia están siempre a cero.
+     *
+     * @param indice Índice de la palabra
+     * @return 32 bases empaquetadas
+     */
+    public long palabra(int indice) {
+        return palabras != null ? palabras[indice] : externas.get(indice);
+    }
+
+    /**
+     * @return Copia de las palabras empaquetadas, en el heap
+     */
+    public long[] copiarPalabras() {
+        if (palabras != null) {
+            return palabras.clone();
+        }
+        long[] copia = new long[numero];
+        externas.get(0, copia);
+        return copia;
+    }
+
+    /**
+     * @return true si las palabras están fuera del heap
+     */
+    public boolean isExterna() {
+        return externas != null;
+    }
+
+    @Override
+    public PackedSequence subSequence(int inicio, int fin) {
+        if (inicio < 0 || fin > longitud || inicio > fin) {
+            throw new IndexOutOfBoundsException("Rango [" + inicio + ", " + fin + ") inválido");
+        }
+        int nueva = fin - inicio;
+        long[] destino = new long[palabrasPara(nueva)];
+        int desplazamiento = (inicio & 31) << 1;
+        int origen = inicio >>> 5;
+
+        for (int i = 0; i < destino.length; i++) {
+            long valor = palabra(origen + i) >>> desplazamiento;
+            if (desplazamiento != 0 && origen + i + 1 < numero) {
+                valor |= palabra(origen + i + 1) << (64 - desplazamiento);
+            }
+            destino[i] = valor;
+        }
+        limpiarCola(destino, nueva);
+        return new PackedSequence(destino, nueva);
+    }
+
+    /**
+     * Cuenta las posiciones en que ambas secuencias tienen la misma base,
+     * dentro del prefijo común.
+     *
+     * @param otra Secuencia a comparar
+     * @return Número de coincidencias posicionales
+     */
+    public int contarCoincidencias(PackedSequence otra) {
+        int minimo = Math.min(longitud, otra.longitud);
+        int completas = minimo >>> 5;
+        int diferencias = 0;
+
+        for (int i = 0; i < completas; i++) {
+            diferencias += Long.bitCount(mascaraDiferencias(palabra(i), otra.palabra(i)));
+        }
+        int resto = minimo & 31;
+        if (resto != 0) {
+            long mascara = mascaraDiferencias(palabra(completas), otra.palabra(completas));
+            diferencias += Long.bitCount(mascara & ((1L << (resto << 1)) - 1));
+        }
+        return minimo - diferencias;
+    }
+
+    /**
+     * Busca la primera posición, desde {@code desde}, en que las dos
+     * secuencias difieren dentro del prefijo común.
+     *
+     * @param otra Secuencia a comparar
+     * @param desde Posición inicial
+     * @return Primera posición distinta, o la longitud del prefijo común
+     */
+    public int primeraDiferencia(PackedSequence otra, int desde) {
+        return buscarPosicion(otra, desde, true);
+    }
+
+    /**
+     * Busca la primera posición, desde {@code desde}, en que las dos
+     * secuencias tienen la misma base dentro del prefijo común.
+     *
+     * @param otra Secuencia a comparar
+     * @param desde Posición inicial
+     * @return Primera posición igual, o la longitud del prefijo común
+     */
+    public int primeraCoincidencia(PackedSequence otra, int desde) {
+        return buscarPosicion(otra, desde, false);
+    }
+
+    private int buscarPosicion(PackedSequence otra, int desde, boolean diferente) {
+        int minimo = Math.min(longitud, otra.longitud);
+        if (desde >= minimo) {
+            return minimo;
+        }
+
+        int i = desde >>> 5;
+        long descartar = ~((1L << ((desde & 31) << 1)) - 1);
+        int ultima = palabrasPara(minimo);
+
+        for (; i < ultima; i++) {
+            long mascara = mascaraDiferencias(palabra(i), otra.palabra(i));
+            if (!diferente) {
+                mascara = ~mascara & BITS_BAJOS;
+            }
+            mascara &= descartar;
+            descartar = -1L;
+            if (mascara != 0) {
+                int posicion = (i << 5) + (Long.numberOfTrailingZeros(mascara) >>> 1);
+                return Math.min(posicion, minimo);
+            }
+        }
+        return minimo;
+    }
+
+    /**
+     * Marca con un bit (el bajo de cada par) las bases distintas.
+     */
+    private static long mascaraDiferencias(long a, long b) {
+        long x = a ^ b;
+        return (x | (x >>> 1)) & BITS_BAJOS;
+    }
+
+    private static void limpiarCola(long[] palabras, int longitud) {
+        limpiarCola(palabras, longitud, palabras.length - 1);
+    }
+
+    private static void limpiarCola(long[] palabras, int longitud, int indice) {
+        int resto = longitud & 31;
+        if (resto != 0 && indice >= 0 && indice < palabras.length) {
+            palabras[indice] &= (1L << (resto << 1)) - 1;
+        }
+    }
+
+    @Override
+    public String toString() {
+        char[] texto = new char[longitud];
+        for (int i = 0; i < longitud; i++) {
+            texto[i] = BASES[(int) (palabra(i >>> 5) >>> ((i & 31) << 1)) & 3];
+        }
+        return new String(texto);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PackedSequence)) return false;
+        PackedSequence otra = (PackedSequence) o;
+        if (longitud != otra.longitud) return false;
+        if (palabras != null && otra.palabras != null) return Arrays.equals(palabras, otra.palabras);
+        for (int i = 0; i < numero; i++) {
+            if (palabra(i) != otra.palabra(i)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        // Igual que Arrays.hashCode(long[]) para cualquier representación
+        int hash = 1;
+        for (int i = 0; i < numero; i++) {
+            long valor = palabra(i);
+            hash = 31 * hash + (int) (valor ^ (valor >>> 32));
+        }
+        return 31 * longitud + hash;
+    }
+
+    /**
+     * Constructor incremental de secuencias empaquetadas, útil al leer
+     * una secuencia repartida en varias líneas.
+     */
+    public static final class Builder {
+        private long[] palabras;
+        private int longitud;
+
+        public Builder() {
+            this(64);
+        }
+
+        public Builder(int capacidadBases) {
+            this.palabras = new long[Math.max(1, palabrasPara(capacidadBases))];
+        }
+
+        /**
+         * Agrega una base.
+         *
+         * @param base Carácter A, C, G o T
+         * @return Este builder
+         * @throws IllegalArgumentException Si el carácter no es una base válida
+         */
+        public Builder append(char base) {
+            int codigo = codificar(base);
+            if (codigo < 0) {
+                throw caracterInvalido(base, longitud);
+            }
+            return appendCodigo(codigo);
+        }
+
+        /**
+         * Agrega todas las bases del texto.
+         *
+         * @param bases Texto con A, C, G, T
+         * @return Este builder
+         * @throws IllegalArgumentException Si contiene otros caracteres
+         */
+        public Builder append(CharSequence bases) {
+            int total = longitud + bases.length();
+            if (palabrasPara(total) > palabras.length) {
+                palabras = Arrays.copyOf(palabras, Math.max(palabras.length * 2, palabrasPara(total)));
+            }
+            int invalida = empaquetar(bases, palabras, longitud);
+            if (invalida >= 0) {
+                // Descartar las bases ya escritas de este texto
+                Arrays.fill(palabras, palabrasPara(longitud), palabrasPara(longitud + invalida), 0L);
+                limpiarCola(palabras, longitud, longitud >>> 5);
+                throw caracterInvalido(bases.charAt(invalida), longitud + invalida);
+            }
+            longitud = total;
+            return this;
+        }
+
+        /**
+         * Agrega una base ya codificada.
+         *
+         * @param codigo Código 0-3
+         * @return Este builder
+         */
+        public Builder appendCodigo(int codigo) {
+            int palabra = longitud >>> 5;
+            if (palabra == palabras.length) {
+                palabras = Arrays.copyOf(palabras, palabras.length * 2);
+            }
+            palabras[palabra] |= ((long) codigo) << ((longitud & 31) << 1);
+            longitud++;
+            return this;
+        }
+
+        public int length() {
+            return longitud;
+        }
+
+        public PackedSequence build() {
+            return new PackedSequence(Arrays.copyOf(palabras, palabrasPara(longitud)), longitud);
+        }
+    }
+}
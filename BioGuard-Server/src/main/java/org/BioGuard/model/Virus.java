@@ -9,13 +9,21 @@ package org.BioGuard.model;
  */
 public class Virus {
 
+    /** Bases distintas máximas admitidas al detectar un virus o una muestra. */
+    public static final int TOLERANCIA_MAXIMA = 10;
+
     private String id;
     private String nombre;
     private String tipo;
     private int nivelPeligrosidad;
     private String sintomas;
     private String tratamiento;
-    private String secuencia;  // ← NUEVO CAMPO
+    // Se guarda empaquetada cuando solo contiene A, C, G, T; en otro caso
+    // se conserva el texto original, que nunca coincide con una muestra
+    private PackedSequence secuenciaEmpaquetada;
+    private String secuenciaTexto;
+    // Bases distintas admitidas al detectarlo (0 = solo coincidencia exacta)
+    private int toleranciaMutaciones;
 
     public Virus() {}
 
@@ -27,7 +35,25 @@ public class Virus {
         this.nivelPeligrosidad = nivelPeligrosidad;
         this.sintomas = sintomas;
         this.tratamiento = tratamiento;
-        this.secuencia = secuencia;
+        setSecuencia(secuencia);
+    }
+
+    /**
+     * Copia todos los datos de otro virus. La secuencia empaquetada es
+     * inmutable y se comparte.
+     *
+     * @param otro Virus a copiar
+     */
+    public Virus(Virus otro) {
+        this.id = otro.id;
+        this.nombre = otro.nombre;
+        this.tipo = otro.tipo;
+        this.nivelPeligrosidad = otro.nivelPeligrosidad;
+        this.sintomas = otro.sintomas;
+        this.tratamiento = otro.tratamiento;
+        this.secuenciaEmpaquetada = otro.secuenciaEmpaquetada;
+        this.secuenciaTexto = otro.secuenciaTexto;
+        this.toleranciaMutaciones = otro.toleranciaMutaciones;
     }
 
     // Getters y Setters
@@ -51,8 +77,52 @@ public class Virus {
     public String getTratamiento() { return tratamiento; }
     public void setTratamiento(String tratamiento) { this.tratamiento = tratamiento; }
 
-    public String getSecuencia() { return secuencia; }  // ← NUEVO
-    public void setSecuencia(String secuencia) { this.secuencia = secuencia; }  // ← NUEVO
+    public String getSecuencia() {
+        return secuenciaEmpaquetada != null ? secuenciaEmpaquetada.toString() : secuenciaTexto;
+    }
+
+    public void setSecuencia(String secuencia) {
+        this.secuenciaEmpaquetada = null;
+        this.secuenciaTexto = secuencia;
+        if (secuencia != null && !secuencia.isEmpty()) {
+            try {
+                this.secuenciaEmpaquetada = PackedSequence.desde(secuencia);
+                this.secuenciaTexto = null;
+            } catch (IllegalArgumentException e) {
+                // Caracteres fuera de A, C, G, T: se conserva como texto
+            }
+        }
+    }
+
+    /**
+     * @return Secuencia empaquetada, o null si no tiene secuencia o
+     *         contiene caracteres distintos de A, C, G, T
+     */
+    public PackedSequence getSecuenciaEmpaquetada() { return secuenciaEmpaquetada; }
+
+    /**
+     * Asigna una secuencia ya empaquetada, sin volver a validarla.
+     */
+    public void setSecuenciaEmpaquetada(PackedSequence secuencia) {
+        this.secuenciaEmpaquetada = secuencia;
+        this.secuenciaTexto = null;
+    }
+
+    /**
+     * @return Longitud de la secuencia sin decodificarla
+     */
+    public int getLongitudSecuencia() {
+        if (secuenciaEmpaquetada != null) return secuenciaEmpaquetada.length();
+        return secuenciaTexto != null ? secuenciaTexto.length() : 0;
+    }
+
+    public int getToleranciaMutaciones() { return toleranciaMutaciones; }
+    public void setToleranciaMutaciones(int toleranciaMutaciones) {
+        if (toleranciaMutaciones < 0 || toleranciaMutaciones > TOLERANCIA_MAXIMA) {
+            throw new IllegalArgumentException("La tolerancia debe estar entre 0 y " + TOLERANCIA_MAXIMA);
+        }
+        this.toleranciaMutaciones = toleranciaMutaciones;
+    }
 
     @Override
     public String toString() {
@@ -0,0 +1,131 @@
+package org.BioGuard.network.protocol;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Codec de una conexión con el formato de {@link BinaryProtocol}.
+ *
+ * <p>Responsabilidad Única: Leer y escribir mensajes binarios completos
+ * con buffers de la conexión. Como {@link IMessageCodec}, los textos
+ * viajan en tramas {@link BinaryProtocol#OP_TEXTO}; además
+ * {@link #leerMensaje()} y {@link #escribirMensaje} dan acceso a los
+ * campos tipados.</p>
+ *
+ * <p>Igual que {@link LengthPrefixedCodec}, lee exactamente cada trama,
+ * así que una conexión puede pasar de un codec a otro entre dos mensajes
+ * (es lo que hace la negociación). Los cuerpos de hasta
+ * {@link #TAMANO_BUFFER} bytes y el lector se reutilizan; los flujos deben
+ * ser los del socket sin buffer adicional.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public class BinaryCodec implements IMessageCodec {
+
+    /** Capacidad del buffer de entrada que se conserva entre mensajes. */
+    public static final int TAMANO_BUFFER = 8 * 1024;
+
+    private final InputStream inputStream;
+    private final OutputStream outputStream;
+
+    private final byte[] cabecera = new byte[BinaryProtocol.LENGTH_PREFIX_SIZE];
+    private final BinaryMessageReader lector = new BinaryMessageReader();
+    private byte[] entrada;
+    private BinaryMessageWriter texto;
+
+    /**
+     * @param inputStream Flujo de entrada del socket
+     * @param outputStream Flujo de salida del socket
+     */
+    public BinaryCodec(InputStream inputStream, OutputStream outputStream) {
+        if (inputStream == null) {
+            throw new IllegalArgumentException("InputStream no puede ser null");
+        }
+        if (outputStream == null) {
+            throw new IllegalArgumentException("OutputStream no puede ser null");
+        }
+        this.inputStream = inputStream;
+        this.outputStream = outputStream;
+    }
+
+    /**
+     * Lee el siguiente mensaje. El lector retornado es siempre el mismo y
+     * su contenido deja de ser válido en la lectura siguiente.
+     *
+     * @return Lector posicionado en el primer campo
+     * @throws EOFException Si la conexión se cerró entre mensajes
+     * @throws IOException Si ocurre un error de lectura o el formato es inválido
+     */
+    public BinaryMessageReader leerMensaje() throws IOException {
+        if (!leer(cabecera, cabecera.length, true)) {
+            throw new EOFException("Conexión cerrada");
+        }
+        int messageLength = ((cabecera[0] & 0xFF) << 24) | ((cabecera[1] & 0xFF) << 16)
+                | ((cabecera[2] & 0xFF) << 8) | (cabecera[3] & 0xFF);
+        BinaryProtocol.validarLongitud(messageLength);
+
+        byte[] cuerpo;
+        if (messageLength <= TAMANO_BUFFER) {
+            if (entrada == null) {
+                entrada = new byte[TAMANO_BUFFER];
+            }
+            cuerpo = entrada;
+        } else {
+            cuerpo = new byte[messageLength];
+        }
+        leer(cuerpo, messageLength, false);
+        return lector.reiniciar(cuerpo, messageLength);
+    }
+
+    /**
+     * Envía un mensaje y vacía la salida.
+     *
+     * @param mensaje Mensaje completo
+     * @throws IOException Si ocurre un error de escritura o el mensaje
+     *                     supera el tamaño máximo
+     */
+    public void escribirMensaje(BinaryMessageWriter mensaje) throws IOException {
+        if (mensaje == null) {
+            throw new IllegalArgumentException("El mensaje no puede ser null");
+        }
+        outputStream.write(mensaje.getDatos(), 0, mensaje.cerrarTrama());
+        outputStream.flush();
+    }
+
+    @Override
+    public String decode() throws IOException {
+        return BinaryProtocol.texto(leerMensaje());
+    }
+
+    @Override
+    public void encode(String message) throws IOException {
+        if (message == null) {
+            throw new IllegalArgumentException("El mensaje no puede ser null");
+        }
+        if (texto == null) {
+            texto = new BinaryMessageWriter(BinaryProtocol.OP_TEXTO);
+        }
+        escribirMensaje(texto.reiniciar(BinaryProtocol.OP_TEXTO).escribirTexto(message));
+    }
+
+    // Lee exactamente n bytes; false si el flujo terminó antes del primero
+    // y se estaba esperando una trama nueva
+    private boolean leer(byte[] destino, int n, boolean inicioTrama) throws IOException {
+        int leidos = 0;
+        while (leidos < n) {
+            int r = inputStream.read(destino, leidos, n - leidos);
+            if (r < 0) {
+                if (leidos == 0 && inicioTrama) {
+                    return false;
+                }
+                throw new IOException("Conexión cerrada antes de recibir mensaje completo", new EOFException());
+            }
+            leidos += r;
+        }
+        return true;
+    }
+}
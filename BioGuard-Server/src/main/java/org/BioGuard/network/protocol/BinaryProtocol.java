@@ -0,0 +1,160 @@
+package org.BioGuard.network.protocol;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Protocolo binario con código de operación de un byte y campos tipados.
+ *
+ * <p>Responsabilidad Única: Definir el formato binario del cable. Cada
+ * trama conserva el prefijo de {@link LengthPrefixedProtocol}; el cuerpo
+ * empieza con un byte de código (la operación en las peticiones, el
+ * estado en las respuestas) seguido de campos con etiqueta:</p>
+ *
+ * <pre>
+ * [4 bytes de longitud][código][campo]...
+ *
+ * INT        [0x01][4 bytes]
+ * LONG       [0x02][8 bytes]
+ * TEXTO      [0x03][4 bytes de longitud, -1 si es null][UTF-8]
+ * SECUENCIA  [0x04][4 bytes de número de bases][palabras de 8 bytes]
+ * LISTA      [0x05][4 bytes de número de elementos], seguida de sus campos
+ * </pre>
+ *
+ * <p>Las secuencias viajan a 2 bits por base (A=0, C=1, G=2, T=3), 32
+ * bases por palabra desde los bits menos significativos: la misma
+ * disposición de {@code PackedSequence} en el servidor, que las adopta sin
+ * volver a validar cada carácter. Todos los enteros van en big-endian.</p>
+ *
+ * <p>Un cliente que se conecta con {@link LengthPrefixedProtocol} cambia
+ * a este formato enviando el texto {@link #NEGOCIACION}: si el servidor lo
+ * admite, responde con el mismo texto y desde la trama siguiente ambos
+ * lados hablan en binario; un servidor anterior responde con un error y la
+ * conexión sigue en texto. El cliente no debe enviar nada más hasta
+ * recibir esa respuesta.</p>
+ *
+ * <p>Los comandos sin operación propia viajan con {@link #OP_TEXTO}: su
+ * texto es el del protocolo de texto y su respuesta también.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ * @see BinaryCodec
+ */
+public class BinaryProtocol implements IMessageProtocol {
+
+    /** Mensaje de texto con que se negocia el cambio al formato binario. */
+    public static final String NEGOCIACION = "PROTOCOLO:BINARIO/1";
+
+    // Operaciones (primer byte de una petición)
+
+    /** Comando del protocolo de texto: TEXTO comando. */
+    public static final int OP_TEXTO = 0x00;
+    /** TEXTO documento, SECUENCIA muestra, INT tolerancia. */
+    public static final int OP_ENVIAR_MUESTRA = 0x01;
+    /** TEXTO id del diagnóstico. */
+    public static final int OP_VER_DIAGNOSTICO = 0x02;
+    /** TEXTO documento del paciente. */
+    public static final int OP_CONSULTAR_DIAGNOSTICOS = 0x03;
+    /** TEXTO documento del paciente. */
+    public static final int OP_CONSULTAR_PACIENTE = 0x04;
+    /** Sin campos. */
+    public static final int OP_LISTAR_PACIENTES = 0x05;
+    /** Sin campos. */
+    public static final int OP_LISTAR_VIRUS = 0x06;
+
+    // Estados (primer byte de una respuesta)
+
+    /** Respuesta a {@link #OP_TEXTO}: TEXTO respuesta. */
+    public static final int ESTADO_TEXTO = 0x00;
+    /** Operación completada; los campos dependen de la operación. */
+    public static final int ESTADO_OK = 0x01;
+    /** Operación fallida: TEXTO motivo. */
+    public static final int ESTADO_ERROR = 0x02;
+
+    // Etiquetas de los campos
+    static final byte TIPO_INT = 0x01;
+    static final byte TIPO_LONG = 0x02;
+    static final byte TIPO_TEXTO = 0x03;
+    static final byte TIPO_SECUENCIA = 0x04;
+    static final byte TIPO_LISTA = 0x05;
+
+    static final int MAX_MESSAGE_SIZE = LengthPrefixedProtocol.MAX_MESSAGE_SIZE;
+    static final int LENGTH_PREFIX_SIZE = LengthPrefixedProtocol.LENGTH_PREFIX_SIZE;
+
+    /**
+     * Lee una trama de texto ({@link #OP_TEXTO} o {@link #ESTADO_TEXTO}).
+     * Una respuesta {@link #ESTADO_ERROR} se entrega como
+     * {@code "ERROR: motivo"}, igual que en el protocolo de texto.
+     */
+    @Override
+    public String decode(InputStream inputStream) throws IOException {
+        if (inputStream == null) {
+            throw new IllegalArgumentException("InputStream no puede ser null");
+        }
+
+        DataInputStream dataInput = new DataInputStream(inputStream);
+        try {
+            int messageLength = dataInput.readInt();
+            validarLongitud(messageLength);
+
+            byte[] cuerpo = new byte[messageLength];
+            dataInput.readFully(cuerpo);
+            return texto(new BinaryMessageReader().reiniciar(cuerpo, messageLength));
+
+        } catch (EOFException e) {
+            throw new IOException("Conexión cerrada antes de recibir mensaje completo", e);
+        }
+    }
+
+    /**
+     * Escribe el mensaje en una trama {@link #OP_TEXTO}.
+     */
+    @Override
+    public void encode(String message, OutputStream outputStream) throws IOException {
+        if (message == null) {
+            throw new IllegalArgumentException("El mensaje no puede ser null");
+        }
+        if (outputStream == null) {
+            throw new IllegalArgumentException("OutputStream no puede ser null");
+        }
+
+        BinaryMessageWriter trama = new BinaryMessageWriter(OP_TEXTO).escribirTexto(message);
+        outputStream.write(trama.getDatos(), 0, trama.cerrarTrama());
+        outputStream.flush();
+    }
+
+    /**
+     * Crea un {@link BinaryCodec}, que además de texto lee y escribe
+     * mensajes con campos tipados.
+     */
+    @Override
+    public IMessageCodec openCodec(InputStream inputStream, OutputStream outputStream) {
+        return new BinaryCodec(inputStream, outputStream);
+    }
+
+    static void validarLongitud(int messageLength) throws IOException {
+        if (messageLength <= 0) {
+            throw new IOException("Longitud inválida: " + messageLength);
+        }
+        if (messageLength > MAX_MESSAGE_SIZE) {
+            throw new IOException("Longitud excede máximo: " + messageLength + " > " + MAX_MESSAGE_SIZE);
+        }
+    }
+
+    // Texto de una trama de texto o de error
+    static String texto(BinaryMessageReader mensaje) throws IOException {
+        switch (mensaje.getCodigo()) {
+            case OP_TEXTO:
+                return mensaje.leerTexto();
+            case ESTADO_ERROR:
+                return "ERROR: " + mensaje.leerTexto();
+            default:
+                throw new IOException("Se esperaba un mensaje de texto y se recibió el código 0x"
+                        + Integer.toHexString(mensaje.getCodigo()));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.BioGuard.network.protocol;
+
+import java.io.IOException;
+
+/**
+ * Canal de mensajes de una conexión, ligado a sus flujos de entrada y
+ * salida.
+ *
+ * <p>A diferencia de {@link IMessageProtocol}, que no guarda estado entre
+ * llamadas, un codec pertenece a una sola conexión y puede conservar sus
+ * buffers de un mensaje al siguiente. No es seguro para hilos: cada
+ * conexión usa el suyo desde un hilo a la vez.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ * @see IMessageProtocol#openCodec
+ */
+public interface IMessageCodec {
+
+    /**
+     * Lee el siguiente mensaje de la conexión.
+     *
+     * @return El mensaje decodificado como String
+     * @throws java.io.EOFException Si la conexión se cerró entre mensajes
+     * @throws IOException Si ocurre un error de lectura o el formato es inválido
+     */
+    String decode() throws IOException;
+
+    /**
+     * Escribe un mensaje en la conexión y vacía la salida.
+     *
+     * @param message Mensaje a enviar
+     * @throws IOException Si ocurre un error de escritura
+     * @throws IllegalArgumentException Si el mensaje es null
+     */
+    void encode(String message) throws IOException;
+}
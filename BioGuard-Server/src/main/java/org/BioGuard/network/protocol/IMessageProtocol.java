@@ -1,5 +1,7 @@
 package org.BioGuard.network.protocol;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -44,4 +46,30 @@ public interface IMessageProtocol {
      * @throws IllegalArgumentException Si el mensaje es null o vacío, o el OutputStream es null
      */
     void encode(String message, OutputStream outputStream) throws IOException;
+
+    /**
+     * Crea el codec de una conexión. Por defecto pone un buffer en cada
+     * flujo y delega en {@link #decode} y {@link #encode}; un protocolo
+     * puede retornar uno que reutilice sus buffers entre mensajes.
+     *
+     * @param inputStream Flujo de entrada del socket, sin buffer
+     * @param outputStream Flujo de salida del socket, sin buffer
+     * @return Codec de la conexión
+     */
+    default IMessageCodec openCodec(InputStream inputStream, OutputStream outputStream) {
+        InputStream entrada = new BufferedInputStream(inputStream);
+        OutputStream salida = new BufferedOutputStream(outputStream);
+        return new IMessageCodec() {
+            @Override
+            public String decode() throws IOException {
+                return IMessageProtocol.this.decode(entrada);
+            }
+
+            @Override
+            public void encode(String message) throws IOException {
+                IMessageProtocol.this.encode(message, salida);
+                salida.flush();
+            }
+        };
+    }
 }
\ No newline at end of file
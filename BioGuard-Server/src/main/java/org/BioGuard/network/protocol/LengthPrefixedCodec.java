@@ -0,0 +1,191 @@
+package org.BioGuard.network.protocol;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Codec de una conexión con el formato de {@link LengthPrefixedProtocol}.
+ *
+ * <p>Responsabilidad Única: Leer y escribir tramas
+ * {@code [4 bytes de longitud][mensaje en UTF-8]} con buffers propios de
+ * la conexión, reutilizados de un mensaje al siguiente, en lugar de crear
+ * streams y arreglos en cada llamada.</p>
+ *
+ * <ul>
+ *   <li>Lectura: se leen exactamente los 4 bytes del prefijo y luego
+ *       exactamente el cuerpo, nunca bytes de la trama siguiente. Los
+ *       cuerpos de hasta {@link #TAMANO_BUFFER} bytes usan el buffer de la
+ *       conexión; los mayores, un arreglo que no se retiene.</li>
+ *   <li>Escritura: el mensaje se codifica en UTF-8 directamente sobre el
+ *       buffer de salida, que se envía cada vez que se llena, sin copia
+ *       intermedia del mensaje completo.</li>
+ * </ul>
+ *
+ * <p>Los buffers se crean con el primer mensaje, de modo que una conexión
+ * que nunca envía nada no los reserva. Los flujos deben ser los del
+ * socket sin buffer adicional.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public class LengthPrefixedCodec implements IMessageCodec {
+
+    /** Capacidad de los buffers que se conservan entre mensajes. */
+    public static final int TAMANO_BUFFER = 8 * 1024;
+
+    private final InputStream inputStream;
+    private final OutputStream outputStream;
+
+    private final byte[] cabecera = new byte[LengthPrefixedProtocol.LENGTH_PREFIX_SIZE];
+    private byte[] entrada;
+    private byte[] salida;
+
+    /**
+     * @param inputStream Flujo de entrada del socket
+     * @param outputStream Flujo de salida del socket
+     */
+    public LengthPrefixedCodec(InputStream inputStream, OutputStream outputStream) {
+        if (inputStream == null) {
+            throw new IllegalArgumentException("InputStream no puede ser null");
+        }
+        if (outputStream == null) {
+            throw new IllegalArgumentException("OutputStream no puede ser null");
+        }
+        this.inputStream = inputStream;
+        this.outputStream = outputStream;
+    }
+
+    @Override
+    public String decode() throws IOException {
+        if (!leer(cabecera, cabecera.length, true)) {
+            throw new EOFException("Conexión cerrada");
+        }
+        int messageLength = ((cabecera[0] & 0xFF) << 24) | ((cabecera[1] & 0xFF) << 16)
+                | ((cabecera[2] & 0xFF) << 8) | (cabecera[3] & 0xFF);
+
+        if (messageLength <= 0) {
+            throw new IOException("Longitud inválida: " + messageLength);
+        }
+        if (messageLength > LengthPrefixedProtocol.MAX_MESSAGE_SIZE) {
+            throw new IOException("Longitud excede máximo: " + messageLength + " > " +
+                    LengthPrefixedProtocol.MAX_MESSAGE_SIZE);
+        }
+
+        byte[] cuerpo;
+        if (messageLength <= TAMANO_BUFFER) {
+            if (entrada == null) {
+                entrada = new byte[TAMANO_BUFFER];
+            }
+            cuerpo = entrada;
+        } else {
+            cuerpo = new byte[messageLength];
+        }
+        leer(cuerpo, messageLength, false);
+        return new String(cuerpo, 0, messageLength, StandardCharsets.UTF_8);
+    }
+
+    // Lee exactamente n bytes; false si el flujo terminó antes del primero
+    // y se estaba esperando una trama nueva
+    private boolean leer(byte[] destino, int n, boolean inicioTrama) throws IOException {
+        int leidos = 0;
+        while (leidos < n) {
+            int r = inputStream.read(destino, leidos, n - leidos);
+            if (r < 0) {
+                if (leidos == 0 && inicioTrama) {
+                    return false;
+                }
+                throw new IOException("Conexión cerrada antes de recibir mensaje completo", new EOFException());
+            }
+            leidos += r;
+        }
+        return true;
+    }
+
+    @Override
+    public void encode(String message) throws IOException {
+        if (message == null) {
+            throw new IllegalArgumentException("El mensaje no puede ser null");
+        }
+
+        long longitud = longitudUTF8(message);
+        if (longitud > LengthPrefixedProtocol.MAX_MESSAGE_SIZE) {
+            throw new IOException("Mensaje demasiado grande: " + longitud + " bytes");
+        }
+
+        if (salida == null) {
+            salida = new byte[TAMANO_BUFFER];
+        }
+        byte[] b = salida;
+        int pos = 0;
+        b[pos++] = (byte) (longitud >>> 24);
+        b[pos++] = (byte) (longitud >>> 16);
+        b[pos++] = (byte) (longitud >>> 8);
+        b[pos++] = (byte) longitud;
+
+        int n = message.length();
+        for (int i = 0; i < n; i++) {
+            // Espacio para el carácter más largo (4 bytes)
+            if (pos > b.length - 4) {
+                outputStream.write(b, 0, pos);
+                pos = 0;
+            }
+
+            char c = message.charAt(i);
+            if (c < 0x80) {
+                b[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                b[pos++] = (byte) (0xC0 | (c >> 6));
+                b[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (!Character.isSurrogate(c)) {
+                b[pos++] = (byte) (0xE0 | (c >> 12));
+                b[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (esPar(message, i)) {
+                int cp = Character.toCodePoint(c, message.charAt(++i));
+                b[pos++] = (byte) (0xF0 | (cp >> 18));
+                b[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                b[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                b[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                b[pos++] = '?'; // Sustituto suelto, igual que String.getBytes
+            }
+        }
+
+        outputStream.write(b, 0, pos);
+        outputStream.flush();
+    }
+
+    /**
+     * @param texto Texto a medir
+     * @return Bytes que ocupa en UTF-8, con la misma sustitución de
+     *         {@link String#getBytes(java.nio.charset.Charset)}
+     */
+    static long longitudUTF8(String texto) {
+        int n = texto.length();
+        long bytes = n;
+        for (int i = 0; i < n; i++) {
+            char c = texto.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                bytes += 1;
+            } else if (!Character.isSurrogate(c)) {
+                bytes += 2;
+            } else if (esPar(texto, i)) {
+                bytes += 2; // 4 bytes por los dos caracteres del par
+                i++;
+            }
+        }
+        return bytes;
+    }
+
+    private static boolean esPar(String texto, int i) {
+        return Character.isHighSurrogate(texto.charAt(i)) && i + 1 < texto.length()
+                && Character.isLowSurrogate(texto.charAt(i + 1));
+    }
+}
@@ -0,0 +1,138 @@
+package org.BioGuard.network.protocol;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Decodificador incremental del formato de {@link LengthPrefixedProtocol}.
+ *
+ * <p>Responsabilidad Única: Reconstruir los mensajes a partir de los
+ * fragmentos que entrega un canal no bloqueante. Cada llamada consume los
+ * bytes disponibles del buffer y retorna un mensaje en cuanto lo completa;
+ * entre llamadas conserva el prefijo o el cuerpo a medio recibir, de modo
+ * que el buffer de lectura puede devolverse a su pool.</p>
+ *
+ * <p>El cuerpo crece a medida que llegan los bytes en lugar de reservarse
+ * completo al leer el prefijo: una conexión que anuncia 16MB y no los
+ * envía solo retiene lo que realmente recibió.</p>
+ *
+ * <p>No es seguro para hilos: cada conexión usa su propio decodificador.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public class LengthPrefixedFrameDecoder {
+
+    private static final int CUERPO_INICIAL = 8 * 1024;
+
+    // Prefijo a medio leer
+    private int prefijo;
+    private int bytesPrefijo;
+
+    // Cuerpo a medio leer (null mientras se lee el prefijo)
+    private byte[] cuerpo;
+    private int longitud;
+    private int recibidos;
+
+    /**
+     * Consume bytes de la entrada hasta completar un mensaje o agotarla.
+     * Debe llamarse de nuevo mientras retorne mensajes: la entrada puede
+     * traer varios seguidos.
+     *
+     * @param entrada Buffer en modo lectura
+     * @return Mensaje completo, o null si faltan bytes
+     * @throws IOException Si el prefijo anuncia una longitud inválida
+     */
+    public String decodificar(ByteBuffer entrada) throws IOException {
+        byte[] trama = decodificarTrama(entrada);
+        return trama != null ? new String(trama, StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * Igual que {@link #decodificar}, pero retorna el cuerpo sin
+     * interpretarlo, para los mensajes de {@link BinaryProtocol}.
+     *
+     * @param entrada Buffer en modo lectura
+     * @return Cuerpo completo (un arreglo nuevo de su longitud exacta), o
+     *         null si faltan bytes
+     * @throws IOException Si el prefijo anuncia una longitud inválida
+     */
+    public byte[] decodificarTrama(ByteBuffer entrada) throws IOException {
+        while (entrada.hasRemaining()) {
+            if (cuerpo == null) {
+                if (bytesPrefijo == 0 && entrada.remaining() >= LengthPrefixedProtocol.LENGTH_PREFIX_SIZE) {
+                    iniciarCuerpo(entrada.getInt());
+                } else {
+                    prefijo = (prefijo << 8) | (entrada.get() & 0xFF);
+                    if (++bytesPrefijo == LengthPrefixedProtocol.LENGTH_PREFIX_SIZE) {
+                        iniciarCuerpo(prefijo);
+                        prefijo = 0;
+                        bytesPrefijo = 0;
+                    }
+                }
+                continue;
+            }
+
+            int faltan = longitud - recibidos;
+            int n = Math.min(entrada.remaining(), faltan);
+            if (recibidos + n > cuerpo.length) {
+                cuerpo = Arrays.copyOf(cuerpo, (int) Math.min(longitud, Math.max(recibidos + n, 2L * cuerpo.length)));
+            }
+            entrada.get(cuerpo, recibidos, n);
+            recibidos += n;
+
+            if (recibidos == longitud) {
+                // El cuerpo nunca crece más allá de la longitud anunciada
+                byte[] trama = cuerpo;
+                cuerpo = null;
+                return trama;
+            }
+        }
+        return null;
+    }
+
+    private void iniciarCuerpo(int messageLength) throws IOException {
+        if (messageLength <= 0) {
+            throw new IOException("Longitud inválida: " + messageLength);
+        }
+        if (messageLength > LengthPrefixedProtocol.MAX_MESSAGE_SIZE) {
+            throw new IOException("Longitud excede máximo: " + messageLength + " > " +
+                    LengthPrefixedProtocol.MAX_MESSAGE_SIZE);
+        }
+        longitud = messageLength;
+        recibidos = 0;
+        cuerpo = new byte[Math.min(messageLength, CUERPO_INICIAL)];
+    }
+
+    /**
+     * @return true si no hay un mensaje a medio recibir
+     */
+    public boolean isVacio() {
+        return cuerpo == null && bytesPrefijo == 0;
+    }
+
+    /**
+     * Codifica un mensaje con su prefijo de longitud.
+     *
+     * @param message Mensaje a enviar
+     * @return Buffer en modo lectura con el prefijo y el cuerpo UTF-8
+     * @throws IOException Si el mensaje supera el tamaño máximo
+     */
+    public static ByteBuffer codificar(String message) throws IOException {
+        if (message == null) {
+            throw new IllegalArgumentException("El mensaje no puede ser null");
+        }
+
+        byte[] messageBytes = message.getBytes(StandardCharsets.UTF_8);
+        if (messageBytes.length > LengthPrefixedProtocol.MAX_MESSAGE_SIZE) {
+            throw new IOException("Mensaje demasiado grande: " + messageBytes.length + " bytes");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(LengthPrefixedProtocol.LENGTH_PREFIX_SIZE + messageBytes.length);
+        buffer.putInt(messageBytes.length).put(messageBytes);
+        return buffer.flip();
+    }
+}
@@ -14,8 +14,8 @@ import java.nio.charset.StandardCharsets;
  */
 public class LengthPrefixedProtocol implements IMessageProtocol {
 
-    private static final int MAX_MESSAGE_SIZE = 2 * 1024 * 1024; // 2MB
-    private static final int LENGTH_PREFIX_SIZE = 4;
+    static final int MAX_MESSAGE_SIZE = 16 * 1024 * 1024; // 16MB: muestras de hasta 10M bases
+    static final int LENGTH_PREFIX_SIZE = 4;
 
     @Override
     public String decode(InputStream inputStream) throws IOException {
@@ -23,7 +23,10 @@ public class LengthPrefixedProtocol implements IMessageProtocol {
             throw new IllegalArgumentException("InputStream no puede ser null");
         }
 
-        DataInputStream dataInput = new DataInputStream(new BufferedInputStream(inputStream));
+        // Sin buffer propio: quien llama ya lee de un stream con buffer, y
+        // uno nuevo por mensaje duplicaba la memoria de cada cliente en
+        // espera y podía quedarse con bytes del mensaje siguiente
+        DataInputStream dataInput = new DataInputStream(inputStream);
 
         try {
             // 1. Leer longitud (4 bytes)
@@ -71,4 +74,13 @@ public class LengthPrefixedProtocol implements IMessageProtocol {
         dataOutput.write(messageBytes);
         dataOutput.flush();
     }
+
+    /**
+     * Crea un {@link LengthPrefixedCodec}: lee las tramas exactas y
+     * reutiliza sus buffers entre mensajes.
+     */
+    @Override
+    public IMessageCodec openCodec(InputStream inputStream, OutputStream outputStream) {
+        return new LengthPrefixedCodec(inputStream, outputStream);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+package org.BioGuard.network.server;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool de buffers directos de tamaño fijo.
+ *
+ * <p>Responsabilidad Única: Reutilizar los buffers de lectura de los
+ * canales en lugar de reservar uno por conexión. Un buffer se toma solo
+ * mientras dura una lectura y se devuelve al terminarla, así que las
+ * conexiones inactivas no retienen memoria de lectura.</p>
+ *
+ * <p>Si el pool está vacío se crea un buffer nuevo; al devolverlo solo se
+ * conserva si el pool no ha llegado a su máximo.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public class BufferPool {
+
+    private final int tamanoBuffer;
+    private final int maximoRetenidos;
+    private final ConcurrentLinkedQueue<ByteBuffer> libres = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger retenidos = new AtomicInteger();
+
+    /**
+     * @param tamanoBuffer Capacidad de cada buffer en bytes
+     * @param maximoRetenidos Buffers libres que se conservan como máximo
+     */
+    public BufferPool(int tamanoBuffer, int maximoRetenidos) {
+        if (tamanoBuffer <= 0) {
+            throw new IllegalArgumentException("Tamaño de buffer inválido: " + tamanoBuffer);
+        }
+        this.tamanoBuffer = tamanoBuffer;
+        this.maximoRetenidos = Math.max(0, maximoRetenidos);
+    }
+
+    /**
+     * @return Buffer vacío en modo escritura
+     */
+    public ByteBuffer adquirir() {
+        ByteBuffer buffer = libres.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(tamanoBuffer);
+        }
+        retenidos.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * @param buffer Buffer obtenido con {@link #adquirir()}
+     */
+    public void liberar(ByteBuffer buffer) {
+        if (buffer == null || buffer.capacity() != tamanoBuffer) {
+            return;
+        }
+        if (retenidos.incrementAndGet() <= maximoRetenidos) {
+            libres.offer(buffer);
+        } else {
+            retenidos.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return Buffers libres en el pool
+     */
+    public int getRetenidos() {
+        return retenidos.get();
+    }
+}
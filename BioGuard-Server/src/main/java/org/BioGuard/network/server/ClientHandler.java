@@ -1,6 +1,12 @@
 package org.BioGuard.network.server;
 
+import org.BioGuard.handler.IBinaryMessageProcessor;
 import org.BioGuard.handler.IMessageProcessor;
+import org.BioGuard.network.protocol.BinaryCodec;
+import org.BioGuard.network.protocol.BinaryMessageReader;
+import org.BioGuard.network.protocol.BinaryMessageWriter;
+import org.BioGuard.network.protocol.BinaryProtocol;
+import org.BioGuard.network.protocol.IMessageCodec;
 import org.BioGuard.network.protocol.IMessageProtocol;
 
 import java.io.*;
@@ -12,6 +18,13 @@ import java.net.SocketTimeoutException;
  * Manejador de clientes para el servidor TCP.
  * Permite múltiples mensajes por conexión.
  *
+ * <p>Si el procesador implementa {@link IBinaryMessageProcessor}, el
+ * cliente puede pasar al {@link BinaryProtocol} con el mensaje
+ * {@link BinaryProtocol#NEGOCIACION}. Como en {@link NIOTCPServer}, una
+ * petición binaria que no se puede procesar se responde con
+ * {@link BinaryProtocol#ESTADO_ERROR} y la conexión sigue abierta; solo
+ * un error de E/S o un prefijo de longitud inválido la cierran.</p>
+ *
  * @author Sergio Grajales
  * @author Jhonatan Tamayo
  * @version 1.0
@@ -48,26 +61,48 @@ public class ClientHandler implements Runnable {
             // Configurar timeout para no bloquear indefinidamente
             clientSocket.setSoTimeout(60000); // 60 segundos
 
-            try (InputStream inputStream = new BufferedInputStream(clientSocket.getInputStream());
-                 OutputStream outputStream = new BufferedOutputStream(clientSocket.getOutputStream())) {
+            try (InputStream inputStream = clientSocket.getInputStream();
+                 OutputStream outputStream = clientSocket.getOutputStream()) {
+
+                // Un codec por conexión: reutiliza sus buffers entre mensajes
+                IMessageCodec codec = protocol.openCodec(inputStream, outputStream);
+                IBinaryMessageProcessor binaryProcessor = processor instanceof IBinaryMessageProcessor
+                        ? (IBinaryMessageProcessor) processor : null;
+                BinaryCodec binario = binaryProcessor != null && codec instanceof BinaryCodec
+                        ? (BinaryCodec) codec : null;
 
                 // Bucle para recibir múltiples mensajes del mismo cliente
                 while (running && !clientSocket.isClosed()) {
                     try {
+                        if (binario != null) {
+                            BinaryMessageWriter respuesta = procesarBinario(binaryProcessor, binario.leerMensaje());
+                            binario.escribirMensaje(respuesta);
+                            System.out.println("[" + clientId + "] Respuesta binaria enviada: " + respuesta.getTamano() + " bytes");
+                            continue;
+                        }
+
                         // Leer mensaje del cliente usando el protocolo
-                        String clientMessage = protocol.decode(inputStream);
+                        String clientMessage = codec.decode();
 
                         if (clientMessage == null || clientMessage.trim().isEmpty()) {
                             continue; // Mensaje vacío, seguir esperando
                         }
 
+                        if (binaryProcessor != null && BinaryProtocol.NEGOCIACION.equals(clientMessage)) {
+                            // Desde la próxima trama el cliente habla en binario
+                            codec.encode(BinaryProtocol.NEGOCIACION);
+                            binario = new BinaryCodec(inputStream, outputStream);
+                            System.out.println("[" + clientId + "] Protocolo binario negociado");
+                            continue;
+                        }
+
                         System.out.println("[" + clientId + "] Mensaje recibido: " + clientMessage);
 
                         // Procesar mensaje (lógica de negocio)
                         String response = processor.process(clientMessage);
 
                         // Enviar respuesta usando el protocolo
-                        protocol.encode(response, outputStream);
+                        codec.encode(response);
 
                         System.out.println("[" + clientId + "] Respuesta enviada: " + response);
 
@@ -115,6 +150,32 @@ public class ClientHandler implements Runnable {
         }
     }
 
+    /**
+     * Procesa una petición binaria ya leída. Los errores de la petición o
+     * de su respuesta se entregan como {@link BinaryProtocol#ESTADO_ERROR}
+     * en lugar de cerrar la conexión.
+     */
+    private static BinaryMessageWriter procesarBinario(IBinaryMessageProcessor binaryProcessor,
+                                                       BinaryMessageReader peticion) {
+        BinaryMessageWriter respuesta;
+        try {
+            respuesta = binaryProcessor.process(peticion);
+        } catch (RuntimeException e) {
+            respuesta = errorBinario(e.getMessage());
+        }
+        try {
+            // Comprueba el tamaño antes de escribir nada en el socket
+            respuesta.trama();
+        } catch (IOException e) {
+            respuesta = errorBinario(e.getMessage());
+        }
+        return respuesta;
+    }
+
+    private static BinaryMessageWriter errorBinario(String motivo) {
+        return new BinaryMessageWriter(BinaryProtocol.ESTADO_ERROR).escribirTexto(motivo);
+    }
+
     /**
      * Detiene el manejador del cliente.
      */
@@ -0,0 +1,69 @@
+package org.BioGuard.network.server;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tipo de hilo con que los servidores bloqueantes atienden a cada cliente.
+ *
+ * <p>Responsabilidad Única: Crear el ejecutor de los {@link ClientHandler}
+ * de {@link TCPServer} y {@link SSLTCPServer}. Con hilos virtuales, un
+ * cliente inactivo bloqueado en una lectura solo retiene su pila (unos
+ * pocos KB en el heap) y no un hilo del sistema operativo.</p>
+ *
+ * <p>El proyecto compila para Java 17, así que los hilos virtuales se
+ * crean por reflexión; en una JVM anterior a 21 el modo
+ * {@link #VIRTUALES} avisa y usa hilos de plataforma.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public enum ModoHilos {
+
+    /** Un hilo del sistema operativo por cliente, de un pool sin límite. */
+    PLATAFORMA,
+
+    /** Un hilo virtual por cliente (Java 21 o superior). */
+    VIRTUALES;
+
+    /**
+     * @param prefijo Prefijo del nombre de los hilos
+     * @return Ejecutor que crea un hilo por tarea según el modo
+     */
+    public ExecutorService crearEjecutor(String prefijo) {
+        if (this == VIRTUALES) {
+            ExecutorService virtuales = crearVirtuales(prefijo);
+            if (virtuales != null) {
+                return virtuales;
+            }
+            System.err.println("[ModoHilos] Hilos virtuales no disponibles en Java " +
+                    Runtime.version().feature() + "; se usan hilos de plataforma");
+        }
+
+        AtomicInteger numero = new AtomicInteger();
+        return Executors.newCachedThreadPool(tarea -> new Thread(tarea, prefijo + numero.getAndIncrement()));
+    }
+
+    // Thread.ofVirtual().name(prefijo, 0).factory() y
+    // Executors.newThreadPerTaskExecutor(fabrica), o null si no existen
+    private static ExecutorService crearVirtuales(String prefijo) {
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Object constructor = Thread.class.getMethod("ofVirtual").invoke(null);
+            constructor = builder.getMethod("name", String.class, long.class).invoke(constructor, prefijo, 0L);
+            ThreadFactory fabrica = (ThreadFactory) builder.getMethod("factory").invoke(constructor);
+
+            return (ExecutorService) Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, fabrica);
+
+        } catch (ReflectiveOperationException e) {
+            // Antes de Java 19 no existen; en 19 y 20 son vista previa y
+            // lanzan UnsupportedOperationException
+            return null;
+        }
+    }
+}
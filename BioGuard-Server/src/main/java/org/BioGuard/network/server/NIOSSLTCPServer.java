@@ -0,0 +1,100 @@
+package org.BioGuard.network.server;
+
+import org.BioGuard.handler.IMessageProcessor;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Servidor TLS no bloqueante: el bucle de {@link NIOTCPServer} con un
+ * {@link TransporteTLS} por conexión.
+ *
+ * <p>Responsabilidad Única: Atender muchas conexiones TLS con pocos hilos.
+ * El hilo del selector cifra y descifra con un {@link SSLEngine} por
+ * conexión; las tareas delegadas del handshake corren en un pool pequeño
+ * y los mensajes se procesan en el pool de trabajo del servidor. Usa el
+ * mismo keystore que {@link SSLTCPServer}, así que los clientes no
+ * cambian.</p>
+ *
+ * <p>Además del tiempo de inactividad de {@link NIOTCPServer}, una
+ * conexión que no completa el handshake en {@link #TIEMPO_MAXIMO_HANDSHAKE_MS}
+ * se cierra, aunque siga enviando bytes.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public class NIOSSLTCPServer extends NIOTCPServer {
+
+    /** Hilos que ejecutan las tareas delegadas de los handshakes. */
+    public static final int HILOS_TAREAS_TLS = 2;
+
+    /** Tiempo desde la conexión para completar el handshake TLS. */
+    public static final long TIEMPO_MAXIMO_HANDSHAKE_MS = 10_000;
+
+    private final ISSLConfig sslConfig;
+    private final ExecutorService tareas;
+    private volatile SSLContext sslContext;
+
+    /**
+     * @param sslConfig Configuración SSL (keystore, puerto, contraseña)
+     * @param processor Procesador de mensajes
+     * @param hilosTrabajo Hilos que procesan los mensajes
+     */
+    public NIOSSLTCPServer(ISSLConfig sslConfig, IMessageProcessor processor, int hilosTrabajo) {
+        super(sslConfig.getPort(), processor, hilosTrabajo);
+        this.sslConfig = sslConfig;
+
+        AtomicInteger numero = new AtomicInteger();
+        this.tareas = Executors.newFixedThreadPool(HILOS_TAREAS_TLS, tarea -> {
+            Thread hilo = new Thread(tarea, "tls-tareas-" + numero.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    @Override
+    public void start() throws IOException {
+        try {
+            sslContext = SSLTCPServer.createSSLContext(sslConfig);
+        } catch (Exception e) {
+            throw new IOException("Error iniciando servidor SSL: " + e.getMessage(), e);
+        }
+        super.start();
+    }
+
+    @Override
+    Transporte crearTransporte(SocketChannel canal, Runnable reactivar) throws IOException {
+        InetSocketAddress remota = (InetSocketAddress) canal.getRemoteAddress();
+        SSLEngine motor = sslContext.createSSLEngine(remota.getHostString(), remota.getPort());
+        motor.setUseClientMode(false);
+        return new TransporteTLS(canal, motor, tareas, reactivar);
+    }
+
+    @Override
+    String plazoVencido(Conexion conexion, long ahora) {
+        if (conexion.transporte.enHandshake()
+                && ahora - conexion.creada >= TimeUnit.MILLISECONDS.toNanos(TIEMPO_MAXIMO_HANDSHAKE_MS)) {
+            return "Handshake TLS sin completar a tiempo";
+        }
+        return super.plazoVencido(conexion, ahora);
+    }
+
+    @Override
+    String getNombreTransporte() {
+        return "NIO/TLS";
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        tareas.shutdownNow();
+    }
+}
@@ -0,0 +1,727 @@
+package org.BioGuard.network.server;
+
+import org.BioGuard.handler.IBinaryMessageProcessor;
+import org.BioGuard.handler.IMessageProcessor;
+import org.BioGuard.network.protocol.BinaryMessageReader;
+import org.BioGuard.network.protocol.BinaryMessageWriter;
+import org.BioGuard.network.protocol.BinaryProtocol;
+import org.BioGuard.network.protocol.LengthPrefixedFrameDecoder;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Servidor TCP no bloqueante basado en {@link Selector}.
+ *
+ * <p>Responsabilidad Única: Atender muchas conexiones con pocos hilos. Un
+ * único hilo (el que llama a {@link #start()}) acepta conexiones y lee y
+ * escribe en todos los canales; los mensajes se reconstruyen de forma
+ * incremental con un {@link LengthPrefixedFrameDecoder} sobre buffers de
+ * un {@link BufferPool}, y cada mensaje completo se procesa en un pool
+ * acotado de hilos de trabajo. Una conexión inactiva no ocupa ningún hilo
+ * ni buffer de lectura.</p>
+ *
+ * <p>El formato en el cable es el de
+ * {@link org.BioGuard.network.protocol.LengthPrefixedProtocol}, así que los
+ * clientes existentes no cambian. Los bytes pasan por un
+ * {@link Transporte}: plano en este servidor, TLS en
+ * {@link NIOSSLTCPServer}. Los mensajes de una misma conexión se
+ * procesan en orden, de a uno, y sus respuestas salen en el mismo orden.
+ * Si un cliente encadena demasiados mensajes sin procesar (más de
+ * {@link #MAXIMO_MENSAJES_EN_ESPERA}, o más de
+ * {@link #MAXIMO_BYTES_EN_ESPERA} entre todos) se deja de leer su canal
+ * hasta que se ponga al día. Si deja sin leer más de
+ * {@link #MAXIMO_BYTES_POR_ENVIAR} de respuestas, además de no leer su
+ * canal se pausa el procesamiento de sus mensajes hasta que las reciba.
+ * Si el pool de trabajo está saturado, el mensaje se responde con un
+ * error.</p>
+ *
+ * <p>Como el tiempo de espera de {@link ClientHandler}, una conexión que
+ * pasa {@link #TIEMPO_INACTIVIDAD_MS} sin enviar nada ni recibir parte de
+ * sus respuestas, y sin un mensaje en proceso, se cierra. El hilo del
+ * selector revisa los plazos cada {@link #INTERVALO_REVISION_MS}.</p>
+ *
+ * <p>Si el procesador implementa {@link IBinaryMessageProcessor}, cada
+ * conexión puede pasar al {@link BinaryProtocol} con el mensaje
+ * {@link BinaryProtocol#NEGOCIACION}. El selector solo separa las tramas;
+ * el hilo de trabajo las interpreta como texto o como mensaje binario
+ * según lo negociado hasta ese momento.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public class NIOTCPServer implements ITCPServer {
+
+    /** Capacidad de cada buffer de lectura. */
+    public static final int TAMANO_BUFFER_LECTURA = 64 * 1024;
+
+    /** Buffers de lectura libres que conserva el pool. */
+    public static final int BUFFERS_RETENIDOS = 64;
+
+    /** Conexiones con mensajes esperando un hilo de trabajo. */
+    public static final int CAPACIDAD_COLA_TRABAJO = 1024;
+
+    /** Conexiones pendientes de aceptar que admite el sistema operativo. */
+    public static final int BACKLOG = 1024;
+
+    /** Mensajes por conexión recibidos y sin responder antes de dejar de leerla. */
+    public static final int MAXIMO_MENSAJES_EN_ESPERA = 16;
+
+    /**
+     * Bytes de mensajes por conexión recibidos y sin responder antes de
+     * dejar de leerla. Se puede superar en lo que llegue en una lectura; el
+     * mensaje a medio recibir no cuenta, ya que lo acota su prefijo.
+     */
+    public static final long MAXIMO_BYTES_EN_ESPERA = 1024 * 1024;
+
+    /** Bytes de respuestas por enviar a una conexión antes de dejar de leerla. */
+    public static final long MAXIMO_BYTES_POR_ENVIAR = 1024 * 1024;
+
+    /** Tiempo sin actividad tras el cual se cierra una conexión. */
+    public static final long TIEMPO_INACTIVIDAD_MS = 60_000;
+
+    /** Cada cuánto revisa el selector los plazos de las conexiones. */
+    public static final long INTERVALO_REVISION_MS = 1_000;
+
+    private final int port;
+    private final IMessageProcessor processor;
+    private final IBinaryMessageProcessor binaryProcessor;
+    private final int hilosTrabajo;
+    private final BufferPool buffers;
+    private ThreadPoolExecutor trabajadores;
+
+    // Conexiones cuyo interés en el selector debe recalcularse
+    private final Queue<Conexion> cambios = new ConcurrentLinkedQueue<>();
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    /**
+     * @param port Puerto de escucha
+     * @param processor Procesador de mensajes
+     * @param hilosTrabajo Hilos que procesan los mensajes
+     */
+    public NIOTCPServer(int port, IMessageProcessor processor, int hilosTrabajo) {
+        if (port <= 0 || port > 65535) {
+            throw new IllegalArgumentException("Puerto inválido: " + port);
+        }
+        if (processor == null) {
+            throw new IllegalArgumentException("El procesador no puede ser null");
+        }
+        if (hilosTrabajo <= 0) {
+            throw new IllegalArgumentException("Hilos de trabajo inválidos: " + hilosTrabajo);
+        }
+
+        this.port = port;
+        this.processor = processor;
+        this.binaryProcessor = processor instanceof IBinaryMessageProcessor
+                ? (IBinaryMessageProcessor) processor : null;
+        this.hilosTrabajo = hilosTrabajo;
+        this.buffers = new BufferPool(TAMANO_BUFFER_LECTURA, BUFFERS_RETENIDOS);
+    }
+
+    @Override
+    public void start() throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("El servidor ya está en ejecución");
+        }
+
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(port), BACKLOG);
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            running.set(false);
+            cerrarCanales();
+            throw e;
+        }
+        trabajadores = crearTrabajadores(hilosTrabajo);
+
+        System.out.println("=== Servidor BioGuard iniciado (" + getNombreTransporte() + ") ===");
+        System.out.println("Puerto: " + port);
+        System.out.println("Hilos de trabajo: " + hilosTrabajo);
+        System.out.println("Procesador: " + processor.getClass().getSimpleName());
+        System.out.println("Esperando conexiones...\n");
+
+        try {
+            long proximaRevision = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(INTERVALO_REVISION_MS);
+            while (running.get()) {
+                selector.select(INTERVALO_REVISION_MS);
+                aplicarCambios();
+
+                Iterator<SelectionKey> claves = selector.selectedKeys().iterator();
+                while (claves.hasNext()) {
+                    SelectionKey clave = claves.next();
+                    claves.remove();
+                    atender(clave);
+                }
+
+                long ahora = System.nanoTime();
+                if (ahora - proximaRevision >= 0) {
+                    revisarPlazos(ahora);
+                    proximaRevision = ahora + TimeUnit.MILLISECONDS.toNanos(INTERVALO_REVISION_MS);
+                }
+            }
+        } catch (ClosedSelectorException e) {
+            // stop() cerró el selector
+        } finally {
+            cerrarCanales();
+        }
+    }
+
+    /**
+     * Crea el transporte de una conexión recién aceptada.
+     *
+     * @param canal Canal de la conexión
+     * @param reactivar Pide al selector volver a atender la conexión
+     * @return Transporte de la conexión
+     * @throws IOException Si no se puede preparar
+     */
+    Transporte crearTransporte(SocketChannel canal, Runnable reactivar) throws IOException {
+        return new Transporte.Plano(canal);
+    }
+
+    /**
+     * @return Nombre del transporte para los mensajes de inicio
+     */
+    String getNombreTransporte() {
+        return "NIO";
+    }
+
+    private static ThreadPoolExecutor crearTrabajadores(int hilos) {
+        AtomicInteger numero = new AtomicInteger();
+        return new ThreadPoolExecutor(hilos, hilos, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(CAPACIDAD_COLA_TRABAJO),
+                tarea -> {
+                    Thread hilo = new Thread(tarea, "nio-trabajo-" + numero.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+    }
+
+    private void atender(SelectionKey clave) {
+        if (!clave.isValid()) {
+            return;
+        }
+        if (clave.isAcceptable()) {
+            aceptar();
+            return;
+        }
+
+        Conexion conexion = (Conexion) clave.attachment();
+        if (clave.isWritable()) {
+            escribir(conexion);
+        }
+        if (clave.isValid() && (clave.isReadable() || conexion.transporte.tieneEntradaPendiente())) {
+            leer(conexion);
+        }
+    }
+
+    /**
+     * Cierra las conexiones que vencieron su plazo. Se ejecuta en el hilo
+     * del selector.
+     *
+     * @param ahora Instante de la revisión, de {@link System#nanoTime()}
+     */
+    private void revisarPlazos(long ahora) {
+        for (SelectionKey clave : selector.keys()) {
+            if (!clave.isValid() || !(clave.attachment() instanceof Conexion)) {
+                continue;
+            }
+            Conexion conexion = (Conexion) clave.attachment();
+            String motivo = plazoVencido(conexion, ahora);
+            if (motivo != null) {
+                System.out.println("[" + conexion.clientId + "] " + motivo);
+                cerrar(conexion);
+            }
+        }
+    }
+
+    /**
+     * @param conexion Conexión a revisar
+     * @param ahora Instante de la revisión, de {@link System#nanoTime()}
+     * @return Motivo para cerrar la conexión, o null si sigue en plazo
+     */
+    String plazoVencido(Conexion conexion, long ahora) {
+        if (ahora - conexion.ultimaActividad < TimeUnit.MILLISECONDS.toNanos(TIEMPO_INACTIVIDAD_MS)) {
+            return null;
+        }
+        synchronized (conexion) {
+            if (conexion.procesando) {
+                return null; // Espera una respuesta, no está inactiva
+            }
+        }
+        return conexion.salientes.isEmpty()
+                ? "Tiempo de inactividad agotado"
+                : "Tiempo agotado sin recibir las respuestas";
+    }
+
+    private void aceptar() {
+        try {
+            SocketChannel canal;
+            while ((canal = serverChannel.accept()) != null) {
+                try {
+                    canal.configureBlocking(false);
+                    canal.socket().setTcpNoDelay(true);
+                    Conexion conexion = new Conexion(canal);
+                    conexion.transporte = crearTransporte(canal, () -> solicitarCambio(conexion));
+                    conexion.clave = canal.register(selector, SelectionKey.OP_READ, conexion);
+                    System.out.println("[" + conexion.clientId + "] Cliente conectado");
+                } catch (IOException e) {
+                    System.err.println("Error preparando conexión: " + e.getMessage());
+                    canal.close();
+                }
+            }
+        } catch (IOException e) {
+            if (running.get()) {
+                System.err.println("Error aceptando conexión: " + e.getMessage());
+            }
+        }
+    }
+
+    private void leer(Conexion conexion) {
+        ByteBuffer buffer = buffers.adquirir();
+        try {
+            do {
+                buffer.clear();
+                int leidos = conexion.transporte.leer(buffer);
+                if (leidos < 0) {
+                    if (!conexion.decoder.isVacio()) {
+                        System.err.println("[" + conexion.clientId + "] Conexión cerrada antes de recibir mensaje completo");
+                    }
+                    cerrar(conexion);
+                    return;
+                }
+
+                if (leidos > 0) {
+                    conexion.ultimaActividad = System.nanoTime();
+                }
+                buffer.flip();
+                byte[] trama;
+                while ((trama = conexion.decoder.decodificarTrama(buffer)) != null) {
+                    recibir(conexion, trama);
+                }
+            } while (conexion.transporte.tieneEntradaPendiente());
+
+            // El transporte pudo dejar bytes propios por enviar
+            escribir(conexion);
+
+        } catch (IOException e) {
+            System.err.println("[" + conexion.clientId + "] Error de E/S: " + e.getMessage());
+            cerrar(conexion);
+        } finally {
+            buffers.liberar(buffer);
+        }
+    }
+
+    private void recibir(Conexion conexion, byte[] trama) {
+        boolean despachar;
+        synchronized (conexion) {
+            conexion.entrantes.add(trama);
+            despachar = !conexion.procesando;
+            conexion.procesando = true;
+        }
+        if (despachar) {
+            despachar(conexion);
+        }
+    }
+
+    private void despachar(Conexion conexion) {
+        try {
+            trabajadores.execute(() -> procesar(conexion));
+        } catch (RejectedExecutionException e) {
+            // Pool saturado o detenido: se descarta lo recibido
+            int descartados;
+            boolean binario;
+            synchronized (conexion) {
+                descartados = conexion.entrantes.size();
+                conexion.entrantes.clear();
+                conexion.procesando = false;
+                binario = conexion.binario;
+            }
+            for (int i = 0; i < descartados; i++) {
+                if (binario) {
+                    responder(conexion, errorBinario("Servidor ocupado, intente de nuevo"));
+                } else {
+                    responder(conexion, "ERROR: Servidor ocupado, intente de nuevo");
+                }
+            }
+        }
+    }
+
+    // Hilo de trabajo: procesa en orden los mensajes de la conexión
+    private void procesar(Conexion conexion) {
+        while (true) {
+            byte[] trama;
+            boolean binario;
+            synchronized (conexion) {
+                if (!conexion.cerrada && conexion.salientes.getBytes() >= MAXIMO_BYTES_POR_ENVIAR) {
+                    // El cliente no recibe sus respuestas: el selector
+                    // reanuda al enviarlas (ver reanudar)
+                    conexion.procesando = false;
+                    break;
+                }
+                trama = conexion.entrantes.poll();
+                if (trama == null || conexion.cerrada) {
+                    conexion.entrantes.clear();
+                    conexion.procesando = false;
+                    break;
+                }
+                binario = conexion.binario;
+            }
+
+            if (binario) {
+                responder(conexion, procesarBinario(trama));
+                continue;
+            }
+
+            String mensaje = new String(trama, StandardCharsets.UTF_8);
+            if (mensaje.trim().isEmpty()) {
+                continue; // Mensaje vacío, igual que ClientHandler
+            }
+            if (binaryProcessor != null && BinaryProtocol.NEGOCIACION.equals(mensaje)) {
+                // La confirmación sale en texto; las tramas siguientes son binarias
+                synchronized (conexion) {
+                    conexion.binario = true;
+                }
+                responder(conexion, BinaryProtocol.NEGOCIACION);
+                continue;
+            }
+
+            String respuesta;
+            try {
+                respuesta = processor.process(mensaje);
+            } catch (RuntimeException e) {
+                respuesta = "ERROR: " + e.getMessage();
+            }
+            responder(conexion, respuesta);
+        }
+        // Reanuda la lectura si estaba detenida
+        solicitarCambio(conexion);
+    }
+
+    /**
+     * Vuelve a despachar los mensajes de una conexión pausada por
+     * respuestas sin recibir, si ya bajaron del máximo.
+     */
+    private void reanudar(Conexion conexion) {
+        if (conexion.salientes.getBytes() >= MAXIMO_BYTES_POR_ENVIAR) {
+            return;
+        }
+        boolean despachar;
+        synchronized (conexion) {
+            despachar = !conexion.procesando && !conexion.cerrada && !conexion.entrantes.isEmpty();
+            if (despachar) {
+                conexion.procesando = true;
+            }
+        }
+        if (despachar) {
+            despachar(conexion);
+        }
+    }
+
+    private ByteBuffer procesarBinario(byte[] trama) {
+        BinaryMessageWriter respuesta;
+        try {
+            respuesta = binaryProcessor.process(BinaryMessageReader.desde(trama));
+        } catch (IOException | RuntimeException e) {
+            respuesta = new BinaryMessageWriter(BinaryProtocol.ESTADO_ERROR).escribirTexto(e.getMessage());
+        }
+        try {
+            return respuesta.trama();
+        } catch (IOException e) {
+            return errorBinario(e.getMessage());
+        }
+    }
+
+    private static ByteBuffer errorBinario(String motivo) {
+        try {
+            return new BinaryMessageWriter(BinaryProtocol.ESTADO_ERROR).escribirTexto(motivo).trama();
+        } catch (IOException imposible) {
+            throw new IllegalStateException(imposible);
+        }
+    }
+
+    private void responder(Conexion conexion, ByteBuffer salida) {
+        conexion.salientes.add(salida);
+        // La inactividad se cuenta desde la última respuesta
+        conexion.ultimaActividad = System.nanoTime();
+        solicitarCambio(conexion);
+    }
+
+    private void responder(Conexion conexion, String respuesta) {
+        ByteBuffer salida;
+        try {
+            salida = LengthPrefixedFrameDecoder.codificar(respuesta);
+        } catch (IOException e) {
+            System.err.println("[" + conexion.clientId + "] " + e.getMessage());
+            try {
+                salida = LengthPrefixedFrameDecoder.codificar("ERROR: " + e.getMessage());
+            } catch (IOException imposible) {
+                return;
+            }
+        }
+        responder(conexion, salida);
+    }
+
+    private void solicitarCambio(Conexion conexion) {
+        cambios.add(conexion);
+        selector.wakeup();
+    }
+
+    // Hilo del selector: escribe lo pendiente y recalcula los intereses
+    private void aplicarCambios() {
+        Conexion conexion;
+        while ((conexion = cambios.poll()) != null) {
+            if (!conexion.clave.isValid()) {
+                continue;
+            }
+            escribir(conexion);
+            if (conexion.clave.isValid() && conexion.transporte.tieneEntradaPendiente()) {
+                leer(conexion);
+            }
+        }
+    }
+
+    private void escribir(Conexion conexion) {
+        if (!conexion.clave.isValid()) {
+            return;
+        }
+        try {
+            if (!conexion.transporte.enEspera()) {
+                ByteBuffer cabeza = conexion.salientes.peek();
+                int restante = cabeza != null ? cabeza.remaining() : 0;
+                conexion.transporte.escribir(conexion.salientes);
+                if (cabeza != null && (conexion.salientes.peek() != cabeza || cabeza.remaining() != restante)) {
+                    conexion.ultimaActividad = System.nanoTime();
+                }
+            }
+            reanudar(conexion);
+            actualizarInteres(conexion);
+
+        } catch (IOException e) {
+            System.err.println("[" + conexion.clientId + "] Error de socket: " + e.getMessage());
+            cerrar(conexion);
+        }
+    }
+
+    private void actualizarInteres(Conexion conexion) {
+        if (!conexion.clave.isValid()) {
+            return;
+        }
+        int pendientes;
+        long bytesPendientes;
+        synchronized (conexion) {
+            pendientes = conexion.entrantes.size();
+            bytesPendientes = conexion.entrantes.getBytes();
+        }
+        int interes = 0;
+        if (!conexion.transporte.enEspera()) {
+            if (pendientes < MAXIMO_MENSAJES_EN_ESPERA && bytesPendientes < MAXIMO_BYTES_EN_ESPERA
+                    && conexion.salientes.getBytes() < MAXIMO_BYTES_POR_ENVIAR) {
+                interes |= SelectionKey.OP_READ;
+            }
+            if (!conexion.salientes.isEmpty() || conexion.transporte.tieneSalidaPendiente()) {
+                interes |= SelectionKey.OP_WRITE;
+            }
+        }
+        conexion.clave.interestOps(interes);
+    }
+
+    private void cerrar(Conexion conexion) {
+        synchronized (conexion) {
+            if (conexion.cerrada) {
+                return;
+            }
+            conexion.cerrada = true;
+            conexion.entrantes.clear();
+        }
+        conexion.clave.cancel();
+        conexion.transporte.cerrar();
+        try {
+            conexion.canal.close();
+        } catch (IOException e) {
+            // Ignorar error al cerrar
+        }
+        conexion.salientes.clear();
+        System.out.println("[" + conexion.clientId + "] Conexión cerrada");
+    }
+
+    private void cerrarCanales() {
+        if (selector != null && selector.isOpen()) {
+            for (SelectionKey clave : selector.keys()) {
+                if (clave.attachment() instanceof Conexion) {
+                    cerrar((Conexion) clave.attachment());
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                System.err.println("Error cerrando selector: " + e.getMessage());
+            }
+        }
+        try {
+            if (serverChannel != null && serverChannel.isOpen()) {
+                serverChannel.close();
+                System.out.println("Socket del servidor cerrado");
+            }
+        } catch (IOException e) {
+            System.err.println("Error cerrando server socket: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void stop() {
+        System.out.println("\n⏹ Deteniendo servidor...");
+        if (!running.getAndSet(false)) {
+            return;
+        }
+        // El hilo del selector sale del bucle y cierra los canales
+        selector.wakeup();
+
+        trabajadores.shutdown();
+        try {
+            if (!trabajadores.awaitTermination(30, TimeUnit.SECONDS)) {
+                trabajadores.shutdownNow();
+                System.out.println("Pool de hilos forzado a terminar");
+            } else {
+                System.out.println("Pool de hilos terminado correctamente");
+            }
+        } catch (InterruptedException e) {
+            trabajadores.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        System.out.println("Servidor detenido");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Estado de una conexión: su transporte, el decodificador con el
+     * mensaje a medio recibir, las tramas por procesar, el protocolo
+     * negociado y las respuestas por enviar.
+     */
+    static final class Conexion {
+        final SocketChannel canal;
+        final String clientId;
+        final LengthPrefixedFrameDecoder decoder = new LengthPrefixedFrameDecoder();
+        final ColaSalida salientes = new ColaSalida();
+        Transporte transporte;
+        SelectionKey clave;
+        // Instante de la conexión, de System.nanoTime()
+        final long creada = System.nanoTime();
+        // Último mensaje recibido, respondido o enviado en parte, de System.nanoTime()
+        volatile long ultimaActividad = creada;
+
+        // Protegidos por el monitor de la conexión
+        final ColaEntrada entrantes = new ColaEntrada();
+        boolean procesando;
+        boolean cerrada;
+        boolean binario;
+
+        Conexion(SocketChannel canal) throws IOException {
+            this.canal = canal;
+            InetSocketAddress remota = (InetSocketAddress) canal.getRemoteAddress();
+            this.clientId = remota.getAddress().getHostAddress() + ":" + remota.getPort();
+        }
+    }
+
+    /**
+     * Cola de tramas recibidas que lleva la cuenta de sus bytes. No es
+     * segura para hilos: se usa con el monitor de la conexión.
+     */
+    static final class ColaEntrada extends ArrayDeque<byte[]> {
+        private static final long serialVersionUID = 1L;
+
+        private long bytes;
+
+        @Override
+        public void addLast(byte[] trama) {
+            super.addLast(trama);
+            bytes += trama.length;
+        }
+
+        @Override
+        public byte[] pollFirst() {
+            byte[] trama = super.pollFirst();
+            if (trama != null) {
+                bytes -= trama.length;
+            }
+            return trama;
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            bytes = 0;
+        }
+
+        /**
+         * @return Bytes de las tramas en la cola
+         */
+        long getBytes() {
+            return bytes;
+        }
+    }
+
+    /**
+     * Cola de respuestas por enviar que lleva la cuenta de sus bytes. Cada
+     * respuesta se encola como un {@code slice}, de modo que al retirarla
+     * su límite es el tamaño con que se contó.
+     */
+    static final class ColaSalida extends ConcurrentLinkedQueue<ByteBuffer> {
+        private static final long serialVersionUID = 1L;
+
+        private final AtomicLong bytes = new AtomicLong();
+
+        @Override
+        public boolean offer(ByteBuffer salida) {
+            ByteBuffer respuesta = salida.slice();
+            bytes.addAndGet(respuesta.limit());
+            return super.offer(respuesta);
+        }
+
+        @Override
+        public ByteBuffer poll() {
+            ByteBuffer respuesta = super.poll();
+            if (respuesta != null) {
+                bytes.addAndGet(-respuesta.limit());
+            }
+            return respuesta;
+        }
+
+        /**
+         * @return Bytes de las respuestas en la cola, contando enteras las
+         *         que están a medio enviar
+         */
+        long getBytes() {
+            return bytes.get();
+        }
+    }
+}
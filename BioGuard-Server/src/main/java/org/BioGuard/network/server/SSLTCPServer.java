@@ -1,6 +1,11 @@
 package org.BioGuard.network.server;
 
+import org.BioGuard.handler.IBinaryMessageProcessor;
 import org.BioGuard.handler.IMessageProcessor;
+import org.BioGuard.network.protocol.BinaryCodec;
+import org.BioGuard.network.protocol.BinaryMessageWriter;
+import org.BioGuard.network.protocol.BinaryProtocol;
+import org.BioGuard.network.protocol.IMessageCodec;
 import org.BioGuard.network.protocol.IMessageProtocol;
 import org.BioGuard.network.protocol.LengthPrefixedProtocol;
 
@@ -13,10 +18,18 @@ import java.net.Socket;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.security.KeyStore;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Servidor SSL que maneja múltiples clientes concurrentemente.
  *
+ * <p>Cada cliente se atiende en su propio hilo, de plataforma o virtual
+ * según el {@link ModoHilos}.</p>
+ *
+ * <p>Si el procesador implementa {@link IBinaryMessageProcessor}, el
+ * cliente puede pasar al {@link BinaryProtocol} con el mensaje
+ * {@link BinaryProtocol#NEGOCIACION}.</p>
+ *
  * @author Sergio Grajales
  * @author Jhonatan Tamayo
  * @version 1.0
@@ -26,6 +39,8 @@ public class SSLTCPServer implements ITCPServer {
     private final ISSLConfig sslConfig;
     private final IMessageProcessor processor;
     private final IMessageProtocol protocol;
+    private final ModoHilos modoHilos;
+    private final ExecutorService clientes;
     private volatile boolean running = false;
     private ServerSocket serverSocket;
 
@@ -36,19 +51,40 @@ public class SSLTCPServer implements ITCPServer {
      * @param processor Procesador de mensajes
      */
     public SSLTCPServer(ISSLConfig sslConfig, IMessageProcessor processor) {
+        this(sslConfig, processor, ModoHilos.PLATAFORMA);
+    }
+
+    /**
+     * Constructor del servidor SSL.
+     *
+     * @param sslConfig Configuración SSL (keystore, puerto, contraseña)
+     * @param processor Procesador de mensajes
+     * @param modoHilos Tipo de hilo de cada cliente
+     */
+    public SSLTCPServer(ISSLConfig sslConfig, IMessageProcessor processor, ModoHilos modoHilos) {
         this.sslConfig = sslConfig;
         this.processor = processor;
         this.protocol = new LengthPrefixedProtocol();
+        this.modoHilos = modoHilos;
+        this.clientes = modoHilos.crearEjecutor("cliente-ssl-");
     }
 
     /**
      * Crea la fábrica de sockets SSL usando el keystore configurado.
      */
     private SSLServerSocketFactory createSSLFactory() throws Exception {
+        return createSSLContext(sslConfig).getServerSocketFactory();
+    }
+
+    /**
+     * Crea el contexto TLS con el keystore configurado. Lo comparten este
+     * servidor y {@link NIOSSLTCPServer}.
+     */
+    static SSLContext createSSLContext(ISSLConfig sslConfig) throws Exception {
         char[] password = sslConfig.getKeyStorePassword().toCharArray();
         KeyStore ks = KeyStore.getInstance("PKCS12");
 
-        try (InputStream is = getClass().getClassLoader().getResourceAsStream(sslConfig.getKeyStorePath())) {
+        try (InputStream is = SSLTCPServer.class.getClassLoader().getResourceAsStream(sslConfig.getKeyStorePath())) {
             if (is == null) {
                 throw new IOException("No se encontro el keystore: " + sslConfig.getKeyStorePath());
             }
@@ -60,7 +96,7 @@ public class SSLTCPServer implements ITCPServer {
             SSLContext sslContext = SSLContext.getInstance("TLS");
             sslContext.init(kmf.getKeyManagers(), null, null);
 
-            return sslContext.getServerSocketFactory();
+            return sslContext;
         }
     }
 
@@ -71,13 +107,13 @@ public class SSLTCPServer implements ITCPServer {
             serverSocket = factory.createServerSocket(sslConfig.getPort());
             running = true;
 
-            System.out.println("[Server] Escuchando SSL en puerto: " + sslConfig.getPort());
+            System.out.println("[Server] Escuchando SSL en puerto: " + sslConfig.getPort() + " (hilos: " + modoHilos + ")");
 
             while (running) {
                 try {
                     Socket clientSocket = serverSocket.accept();
                     // Cada cliente en su propio hilo
-                    new Thread(() -> handleClient(clientSocket)).start();
+                    clientes.execute(() -> handleClient(clientSocket));
                 } catch (IOException e) {
                     if (running) {
                         System.err.println("[Server] Error aceptando conexión: " + e.getMessage());
@@ -102,28 +138,48 @@ public class SSLTCPServer implements ITCPServer {
             // Configurar timeout para no bloquear indefinidamente
             clientSocket.setSoTimeout(60000); // 60 segundos
 
-            InputStream in = new BufferedInputStream(clientSocket.getInputStream());
-            OutputStream out = new BufferedOutputStream(clientSocket.getOutputStream());
+            InputStream in = clientSocket.getInputStream();
+            OutputStream out = clientSocket.getOutputStream();
+            IMessageCodec codec = protocol.openCodec(in, out);
+            IBinaryMessageProcessor binaryProcessor = processor instanceof IBinaryMessageProcessor
+                    ? (IBinaryMessageProcessor) processor : null;
+            BinaryCodec binario = binaryProcessor != null && codec instanceof BinaryCodec
+                    ? (BinaryCodec) codec : null;
 
             System.out.println("[Server] Cliente conectado: " + clientId);
 
             // Bucle para recibir múltiples mensajes del mismo cliente
             while (!clientSocket.isClosed() && running) {
                 try {
+                    if (binario != null) {
+                        BinaryMessageWriter respuesta = binaryProcessor.process(binario.leerMensaje());
+                        binario.escribirMensaje(respuesta);
+                        System.out.println("[Server] Respuesta binaria enviada a " + clientId + ": " + respuesta.getTamano() + " bytes");
+                        continue;
+                    }
+
                     // Leer mensaje del cliente usando el protocolo
-                    String clientMessage = protocol.decode(in);
+                    String clientMessage = codec.decode();
 
                     if (clientMessage == null || clientMessage.trim().isEmpty()) {
                         continue; // Mensaje vacío, seguir esperando
                     }
 
+                    if (binaryProcessor != null && BinaryProtocol.NEGOCIACION.equals(clientMessage)) {
+                        // Desde la próxima trama el cliente habla en binario
+                        codec.encode(BinaryProtocol.NEGOCIACION);
+                        binario = new BinaryCodec(in, out);
+                        System.out.println("[Server] Protocolo binario negociado con " + clientId);
+                        continue;
+                    }
+
                     System.out.println("[Server] Mensaje recibido de " + clientId + ": " + clientMessage);
 
                     // Procesar mensaje (lógica de negocio)
                     String response = processor.process(clientMessage);
 
                     // Enviar respuesta usando el protocolo
-                    protocol.encode(response, out);
+                    codec.encode(response);
 
                     System.out.println("[Server] Respuesta enviada a " + clientId + ": " + response);
 
@@ -179,6 +235,7 @@ public class SSLTCPServer implements ITCPServer {
         } catch (IOException e) {
             System.err.println("[Server] Error cerrando servidor: " + e.getMessage());
         }
+        clientes.shutdown();
         System.out.println("[Server] Servidor SSL detenido");
     }
 
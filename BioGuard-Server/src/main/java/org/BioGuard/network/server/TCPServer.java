@@ -7,13 +7,15 @@ import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Servidor TCP mejorado con pool de hilos.
  *
+ * <p>Cada cliente se atiende en su propio hilo, de plataforma o virtual
+ * según el {@link ModoHilos}.</p>
+ *
  * @author Sergio Grajales
  * @author Jhonatan Tamayo
  * @version 1.0
@@ -23,11 +25,22 @@ public class TCPServer implements ITCPServer {
     private final int port;
     private final IMessageProtocol protocol;
     private final IMessageProcessor processor;
+    private final ModoHilos modoHilos;
     private final ExecutorService threadPool;
     private ServerSocket serverSocket;
     private final AtomicBoolean running = new AtomicBoolean(false);
 
     public TCPServer(int port, IMessageProtocol protocol, IMessageProcessor processor) {
+        this(port, protocol, processor, ModoHilos.PLATAFORMA);
+    }
+
+    /**
+     * @param port Puerto de escucha
+     * @param protocol Protocolo de mensajes
+     * @param processor Procesador de mensajes
+     * @param modoHilos Tipo de hilo de cada cliente
+     */
+    public TCPServer(int port, IMessageProtocol protocol, IMessageProcessor processor, ModoHilos modoHilos) {
         if (port <= 0 || port > 65535) {
             throw new IllegalArgumentException("Puerto inválido: " + port);
         }
@@ -37,11 +50,15 @@ public class TCPServer implements ITCPServer {
         if (processor == null) {
             throw new IllegalArgumentException("El procesador no puede ser null");
         }
+        if (modoHilos == null) {
+            throw new IllegalArgumentException("El modo de hilos no puede ser null");
+        }
 
         this.port = port;
         this.protocol = protocol;
         this.processor = processor;
-        this.threadPool = Executors.newCachedThreadPool();
+        this.modoHilos = modoHilos;
+        this.threadPool = modoHilos.crearEjecutor("cliente-");
     }
 
     @Override
@@ -57,6 +74,7 @@ public class TCPServer implements ITCPServer {
         System.out.println("Puerto: " + port);
         System.out.println("Protocolo: " + protocol.getClass().getSimpleName());
         System.out.println("Procesador: " + processor.getClass().getSimpleName());
+        System.out.println("Hilos: " + modoHilos);
         System.out.println("Esperando conexiones...\n");
 
         while (running.get()) {
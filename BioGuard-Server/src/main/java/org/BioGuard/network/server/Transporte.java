@@ -0,0 +1,106 @@
+package org.BioGuard.network.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+
+/**
+ * Forma en que {@link NIOTCPServer} lee y escribe los bytes de una
+ * conexión.
+ *
+ * <p>Responsabilidad Única: Separar el bucle del selector del tratamiento
+ * de los bytes en el canal. El transporte plano los pasa tal cual; el de
+ * TLS ({@link TransporteTLS}) los cifra y descifra y lleva el handshake.
+ * Todos los métodos se llaman desde el hilo del selector.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+abstract class Transporte {
+
+    /**
+     * Lee del canal y deja en el buffer los bytes de aplicación.
+     *
+     * @param aplicacion Buffer en modo escritura
+     * @return Bytes de aplicación obtenidos, o -1 si el cliente cerró
+     * @throws IOException Si hay error de E/S o de protocolo
+     */
+    abstract int leer(ByteBuffer aplicacion) throws IOException;
+
+    /**
+     * Envía lo que el canal admita de las respuestas pendientes. Las
+     * respuestas enviadas completas se retiran de la cola.
+     *
+     * @param salientes Respuestas codificadas, en orden
+     * @throws IOException Si hay error de E/S o de protocolo
+     */
+    abstract void escribir(Queue<ByteBuffer> salientes) throws IOException;
+
+    /**
+     * @return true si quedan bytes leídos del canal sin entregar: deben
+     *         consumirse sin esperar a que el canal tenga más datos
+     */
+    boolean tieneEntradaPendiente() {
+        return false;
+    }
+
+    /**
+     * @return true si el transporte tiene bytes propios por enviar
+     */
+    boolean tieneSalidaPendiente() {
+        return false;
+    }
+
+    /**
+     * @return true mientras la conexión no ha terminado de establecerse
+     *         (el handshake TLS); entretanto no puede llevar mensajes
+     */
+    boolean enHandshake() {
+        return false;
+    }
+
+    /**
+     * @return true mientras la conexión espera una tarea fuera del
+     *         selector; entretanto no se atiende su canal
+     */
+    boolean enEspera() {
+        return false;
+    }
+
+    /**
+     * Último envío antes de cerrar el canal.
+     */
+    void cerrar() {
+    }
+
+    /**
+     * Transporte sin cifrado.
+     */
+    static final class Plano extends Transporte {
+
+        private final SocketChannel canal;
+
+        Plano(SocketChannel canal) {
+            this.canal = canal;
+        }
+
+        @Override
+        int leer(ByteBuffer aplicacion) throws IOException {
+            return canal.read(aplicacion);
+        }
+
+        @Override
+        void escribir(Queue<ByteBuffer> salientes) throws IOException {
+            ByteBuffer salida;
+            while ((salida = salientes.peek()) != null) {
+                canal.write(salida);
+                if (salida.hasRemaining()) {
+                    return; // El socket no admite más por ahora
+                }
+                salientes.poll();
+            }
+        }
+    }
+}
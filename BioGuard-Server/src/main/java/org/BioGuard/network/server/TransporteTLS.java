@@ -0,0 +1,274 @@
+package org.BioGuard.network.server;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Transporte TLS sobre un canal no bloqueante con {@link SSLEngine}.
+ *
+ * <p>Responsabilidad Única: Cifrar las respuestas, descifrar lo recibido y
+ * llevar el handshake sin bloquear el hilo del selector. Las tareas
+ * delegadas del motor (validación de certificados, intercambio de claves)
+ * se ejecutan en un pool aparte; mientras corren la conexión queda en
+ * espera y al terminar se pide al selector que la retome.</p>
+ *
+ * <p>Los bytes cifrados recibidos y por enviar se guardan en buffers
+ * propios de la conexión, del tamaño de un registro TLS; los descifrados
+ * van al buffer del pool que entrega el servidor.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+final class TransporteTLS extends Transporte {
+
+    private static final ByteBuffer VACIO = ByteBuffer.allocate(0);
+
+    private final SocketChannel canal;
+    private final SSLEngine motor;
+    private final Executor tareas;
+    private final Runnable reactivar;
+
+    // Cifrado recibido, en modo escritura
+    private ByteBuffer redEntrada;
+    // Cifrado por enviar, en modo lectura
+    private ByteBuffer redSalida;
+
+    private volatile boolean enTarea;
+    // El último unwrap necesitó más bytes del canal
+    private boolean faltanBytes;
+    private boolean cerradoPorCliente;
+    private volatile boolean handshakeTerminado;
+
+    /**
+     * @param canal Canal de la conexión
+     * @param motor Motor TLS en modo servidor
+     * @param tareas Pool de las tareas delegadas
+     * @param reactivar Pide al selector volver a atender la conexión
+     * @throws SSLException Si el motor no puede iniciar el handshake
+     */
+    TransporteTLS(SocketChannel canal, SSLEngine motor, Executor tareas, Runnable reactivar) throws SSLException {
+        this.canal = canal;
+        this.motor = motor;
+        this.tareas = tareas;
+        this.reactivar = reactivar;
+
+        int tamanoRegistro = motor.getSession().getPacketBufferSize();
+        this.redEntrada = ByteBuffer.allocate(tamanoRegistro);
+        this.redSalida = ByteBuffer.allocate(tamanoRegistro).flip();
+        motor.beginHandshake();
+    }
+
+    @Override
+    int leer(ByteBuffer aplicacion) throws IOException {
+        if (enTarea) {
+            return 0;
+        }
+        int leidos = canal.read(redEntrada);
+        if (leidos < 0) {
+            cerradoPorCliente = true;
+            try {
+                motor.closeInbound();
+            } catch (SSLException e) {
+                // El cliente cerró sin close_notify
+            }
+            return -1;
+        }
+        if (leidos > 0) {
+            faltanBytes = false;
+        }
+
+        int producidos = desenvolver(aplicacion);
+        return cerradoPorCliente && producidos == 0 ? -1 : producidos;
+    }
+
+    private int desenvolver(ByteBuffer aplicacion) throws IOException {
+        int producidos = 0;
+        redEntrada.flip();
+        try {
+            while (!enTarea) {
+                HandshakeStatus estado = motor.getHandshakeStatus();
+                if (estado == HandshakeStatus.NEED_TASK) {
+                    lanzarTareas();
+                    break;
+                }
+                if (estado == HandshakeStatus.NEED_WRAP) {
+                    if (!envolver(VACIO)) {
+                        break; // Salida llena: se retoma al escribir
+                    }
+                    continue;
+                }
+                if (!redEntrada.hasRemaining()) {
+                    faltanBytes = true;
+                    break;
+                }
+
+                SSLEngineResult resultado = motor.unwrap(redEntrada, aplicacion);
+                producidos += resultado.bytesProduced();
+                anotarHandshake(resultado);
+
+                if (resultado.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+                    // Registro incompleto; si no cabe en el buffer, se agranda
+                    int tamano = motor.getSession().getPacketBufferSize();
+                    if (redEntrada.capacity() < tamano) {
+                        redEntrada = ByteBuffer.allocate(tamano).put(redEntrada).flip();
+                    }
+                    faltanBytes = true;
+                    break;
+                }
+                if (resultado.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                    break; // El buffer de aplicación está lleno
+                }
+                if (resultado.getStatus() == SSLEngineResult.Status.CLOSED) {
+                    cerradoPorCliente = true;
+                    break;
+                }
+                if (resultado.bytesConsumed() == 0 && resultado.bytesProduced() == 0
+                        && resultado.getHandshakeStatus() == estado) {
+                    faltanBytes = true; // Sin avance: se espera al canal
+                    break;
+                }
+            }
+        } finally {
+            redEntrada.compact();
+        }
+        return producidos;
+    }
+
+    @Override
+    void escribir(Queue<ByteBuffer> salientes) throws IOException {
+        if (enTarea || !vaciar()) {
+            return;
+        }
+
+        while (true) {
+            HandshakeStatus estado = motor.getHandshakeStatus();
+            if (estado == HandshakeStatus.NEED_TASK) {
+                lanzarTareas();
+                return;
+            }
+
+            ByteBuffer origen;
+            if (estado == HandshakeStatus.NEED_WRAP) {
+                origen = VACIO;
+            } else if (estado == HandshakeStatus.NEED_UNWRAP || estado == HandshakeStatus.NEED_UNWRAP_AGAIN) {
+                return; // Se espera al cliente
+            } else {
+                origen = salientes.peek();
+                if (origen == null) {
+                    return;
+                }
+            }
+
+            if (!envolver(origen)) {
+                return;
+            }
+            if (origen != VACIO && !origen.hasRemaining()) {
+                salientes.poll();
+            }
+        }
+    }
+
+    // Cifra un registro y lo envía; false si el canal no admitió todo
+    private boolean envolver(ByteBuffer origen) throws IOException {
+        redSalida.compact();
+        SSLEngineResult resultado;
+        try {
+            resultado = motor.wrap(origen, redSalida);
+        } finally {
+            redSalida.flip();
+        }
+        anotarHandshake(resultado);
+
+        if (resultado.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+            int tamano = motor.getSession().getPacketBufferSize();
+            if (redSalida.capacity() < tamano + redSalida.remaining()) {
+                redSalida = ByteBuffer.allocate(tamano + redSalida.remaining()).put(redSalida).flip();
+            }
+        } else if (resultado.getStatus() == SSLEngineResult.Status.CLOSED && motor.isOutboundDone()) {
+            vaciar();
+            throw new SSLException("Sesión TLS cerrada");
+        }
+        return vaciar();
+    }
+
+    // El handshake inicial termina con el wrap o unwrap que devuelve FINISHED
+    private void anotarHandshake(SSLEngineResult resultado) {
+        if (resultado.getHandshakeStatus() == HandshakeStatus.FINISHED) {
+            handshakeTerminado = true;
+        }
+    }
+
+    // Envía los bytes cifrados pendientes; true si no queda ninguno
+    private boolean vaciar() throws IOException {
+        while (redSalida.hasRemaining()) {
+            if (canal.write(redSalida) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void lanzarTareas() {
+        enTarea = true;
+        faltanBytes = false;
+        Runnable ejecutar = () -> {
+            Runnable tarea;
+            while ((tarea = motor.getDelegatedTask()) != null) {
+                tarea.run();
+            }
+            enTarea = false;
+            reactivar.run();
+        };
+        try {
+            tareas.execute(ejecutar);
+        } catch (RejectedExecutionException e) {
+            ejecutar.run();
+        }
+    }
+
+    @Override
+    boolean tieneEntradaPendiente() {
+        return !enTarea && !faltanBytes && !cerradoPorCliente && !redSalida.hasRemaining()
+                && redEntrada.position() > 0;
+    }
+
+    @Override
+    boolean tieneSalidaPendiente() {
+        return !enTarea && (redSalida.hasRemaining() || motor.getHandshakeStatus() == HandshakeStatus.NEED_WRAP);
+    }
+
+    @Override
+    boolean enHandshake() {
+        return !handshakeTerminado;
+    }
+
+    @Override
+    boolean enEspera() {
+        return enTarea;
+    }
+
+    @Override
+    void cerrar() {
+        if (enTarea) {
+            return;
+        }
+        // close_notify sin esperar respuesta
+        motor.closeOutbound();
+        try {
+            while (!motor.isOutboundDone() && envolver(VACIO)) {
+                // Sigue hasta que el motor no tenga más que enviar
+            }
+        } catch (IOException e) {
+            // El canal se cierra de todos modos
+        }
+    }
+}
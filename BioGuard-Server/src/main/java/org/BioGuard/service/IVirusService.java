@@ -2,6 +2,9 @@ package org.BioGuard.service;
 
 import org.BioGuard.model.Virus;
 import org.BioGuard.exception.VirusNotFoundException;
+import org.BioGuard.service.deteccion.CatalogoListener;
+import org.BioGuard.service.deteccion.CatalogoVirus;
+import org.BioGuard.service.deteccion.DetectorVirus;
 
 import java.util.List;
 import java.util.Optional;
@@ -13,5 +16,34 @@ public interface IVirusService {
     List<Virus> buscarPorNivelPeligrosidad(int nivel);
     Virus actualizarVirus(Virus virus) throws VirusNotFoundException;
     boolean eliminarVirus(String id);
+
+    /**
+     * @return Virus registrados (lista inmodificable de la foto vigente)
+     */
     List<Virus> listarTodos();
+
+    /**
+     * Obtiene la foto vigente del catálogo, con sus índices y su detector.
+     * La foto es inmutable; cada cambio publica una nueva con la versión
+     * siguiente.
+     *
+     * @return Catálogo vigente
+     */
+    CatalogoVirus obtenerCatalogo();
+
+    /**
+     * Obtiene el detector compilado con el estado actual del catálogo.
+     * Equivale a {@code obtenerCatalogo().getDetector()}.
+     *
+     * @return Detector de virus vigente
+     */
+    DetectorVirus obtenerDetector();
+
+    /**
+     * Registra un receptor que se avisa cada vez que se agrega o modifica
+     * un virus, después de publicar la nueva foto del catálogo.
+     *
+     * @param listener Receptor de los cambios
+     */
+    void agregarListener(CatalogoListener listener);
 }
\ No newline at end of file
@@ -7,11 +7,24 @@ import org.BioGuard.exception.MuestraNoEncontradaException;
 import java.io.*;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Servicio de pacientes con persistencia en archivo CSV.
  *
+ * <p>Los cambios no reescriben el CSV: cada alta, actualización o baja se
+ * anexa como una línea al diario {@code data/pacientes.journal}. Cuando el
+ * diario acumula suficientes entradas, un hilo de fondo lo compacta:
+ * escribe el estado completo en {@code data/pacientes.csv} y descarta el
+ * diario ya incluido. Al cargar se lee el CSV y se reaplica el diario.</p>
+ *
+ * <p>Las escrituras se serializan con un candado propio y hacen la E/S
+ * fuera del candado de lectura/escritura del mapa, que solo se toma para
+ * actualizarlo en memoria; los lectores nunca esperan al disco.</p>
+ *
  * @author Sergio Grajales
  * @author Jhonatan Tamayo
  * @version 1.0
@@ -20,18 +33,77 @@ public class PacienteService implements IPacienteService {
 
     private static final String CSV_FILE = "data/pacientes.csv";
     private static final String CSV_HEADER = "documento,nombre,apellido,edad,correo,genero,ciudad,pais";
+    private static final String JOURNAL_FILE = "data/pacientes.journal";
+    // Diario ya rotado cuya compactación está en curso (o se interrumpió)
+    private static final String JOURNAL_COMPACTANDO = "data/pacientes.journal.compactando";
+    private static final String CSV_TEMPORAL = "data/pacientes.csv.tmp";
+
+    /** Entradas del diario a partir de las cuales se compacta. */
+    public static final int UMBRAL_COMPACTACION = 1000;
+
+    private static final String OP_GUARDAR = "G";
+    private static final String OP_ELIMINAR = "E";
 
     private final Map<String, Paciente> pacientes = new LinkedHashMap<>();
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
+    // Serializa las escrituras (validación, diario y mapa) sin bloquear lectores
+    private final ReentrantLock lockEscritura = new ReentrantLock();
+    private BufferedWriter diario;
+    private int entradasDiario;
+    private boolean compactacionPendiente;
+    private final ExecutorService compactador = Executors.newSingleThreadExecutor(r -> {
+        Thread hilo = new Thread(r, "compactacion-pacientes");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
     public PacienteService() {
         cargarDesdeCSV();
+        lockEscritura.lock();
+        try {
+            abrirDiario();
+            // Un diario pendiente de una ejecución anterior se compacta al iniciar
+            if (entradasDiario > 0 || Files.exists(Paths.get(JOURNAL_COMPACTANDO))) {
+                programarCompactacion();
+            }
+        } finally {
+            lockEscritura.unlock();
+        }
+    }
+
+    /**
+     * Crea el servicio con pacientes ya leídos de la foto del servidor. El
+     * CSV y el diario no se reaplican: la foto es posterior a ambos. Las
+     * entradas del diario sí se cuentan, para compactarlo al llegar al
+     * umbral como si se hubieran leído.
+     *
+     * @param iniciales Pacientes a registrar
+     */
+    public PacienteService(Collection<Paciente> iniciales) {
+        for (Paciente p : iniciales) {
+            pacientes.put(p.getDocumento(), p);
+        }
+        lockEscritura.lock();
+        try {
+            entradasDiario = contarEntradas(Paths.get(JOURNAL_FILE));
+            abrirDiario();
+            // Compactar en cuanto se arranca cambiaría el CSV e invalidaría
+            // la foto: solo se hace si el diario ya llegó al umbral o quedó
+            // una compactación interrumpida
+            if (entradasDiario >= UMBRAL_COMPACTACION || Files.exists(Paths.get(JOURNAL_COMPACTANDO))) {
+                programarCompactacion();
+            }
+        } finally {
+            lockEscritura.unlock();
+        }
     }
 
     @Override
     public Paciente registrarPaciente(Paciente paciente) throws PacienteDuplicadoException {
-        lock.writeLock().lock();
+        lockEscritura.lock();
         try {
+            // Solo este hilo modifica el mapa: se puede leer sin el candado de lectura
             if (pacientes.containsKey(paciente.getDocumento())) {
                 throw new PacienteDuplicadoException(
                         "Ya existe paciente con documento: " + paciente.getDocumento()
@@ -39,13 +111,13 @@ public class PacienteService implements IPacienteService {
             }
 
             validarPaciente(paciente);
-            pacientes.put(paciente.getDocumento(), paciente);
-            guardarEnCSV();
+            anotar(OP_GUARDAR + "," + aLineaCSV(paciente));
+            poner(paciente);
 
             return paciente;
 
         } finally {
-            lock.writeLock().unlock();
+            lockEscritura.unlock();
         }
     }
 
@@ -71,7 +143,7 @@ public class PacienteService implements IPacienteService {
 
     @Override
     public Paciente actualizarPaciente(Paciente paciente) throws MuestraNoEncontradaException {
-        lock.writeLock().lock();
+        lockEscritura.lock();
         try {
             if (!pacientes.containsKey(paciente.getDocumento())) {
                 throw new MuestraNoEncontradaException(
@@ -80,25 +152,40 @@ public class PacienteService implements IPacienteService {
             }
 
             validarPaciente(paciente);
-            pacientes.put(paciente.getDocumento(), paciente);
-            guardarEnCSV();
+            anotar(OP_GUARDAR + "," + aLineaCSV(paciente));
+            poner(paciente);
 
             return paciente;
 
         } finally {
-            lock.writeLock().unlock();
+            lockEscritura.unlock();
         }
     }
 
     @Override
     public boolean eliminarPaciente(String documento) {
-        lock.writeLock().lock();
+        lockEscritura.lock();
         try {
-            if (pacientes.remove(documento) != null) {
-                guardarEnCSV();
-                return true;
+            if (!pacientes.containsKey(documento)) {
+                return false;
+            }
+            anotar(OP_ELIMINAR + "," + documento);
+            lock.writeLock().lock();
+            try {
+                pacientes.remove(documento);
+            } finally {
+                lock.writeLock().unlock();
             }
-            return false;
+            return true;
+        } finally {
+            lockEscritura.unlock();
+        }
+    }
+
+    private void poner(Paciente paciente) {
+        lock.writeLock().lock();
+        try {
+            pacientes.put(paciente.getDocumento(), paciente);
         } finally {
             lock.writeLock().unlock();
         }
@@ -124,7 +211,13 @@ public class PacienteService implements IPacienteService {
     }
 
     private void cargarDesdeCSV() {
-        Path path = Paths.get(CSV_FILE);
+        leerCSV(Paths.get(CSV_FILE));
+        // Diario de una compactación interrumpida y luego el diario actual
+        reaplicarDiario(Paths.get(JOURNAL_COMPACTANDO));
+        entradasDiario = reaplicarDiario(Paths.get(JOURNAL_FILE));
+    }
+
+    private void leerCSV(Path path) {
         if (!Files.exists(path)) return;
 
         try (BufferedReader reader = Files.newBufferedReader(path)) {
@@ -132,50 +225,205 @@ public class PacienteService implements IPacienteService {
             while ((linea = reader.readLine()) != null) {
                 if (linea.trim().isEmpty()) continue;
 
-                String[] campos = linea.split(",");
-                if (campos.length < 8) continue;
-
-                Paciente p = new Paciente(
-                        campos[0].trim(), // documento
-                        campos[1].trim(), // nombre
-                        campos[2].trim(), // apellido
-                        Integer.parseInt(campos[3].trim()), // edad
-                        campos[4].trim(), // correo
-                        campos[5].trim(), // genero
-                        campos[6].trim(), // ciudad
-                        campos[7].trim()  // pais
-                );
-                pacientes.put(p.getDocumento(), p);
+                Paciente p = desdeLineaCSV(linea.split(","), 0);
+                if (p != null) {
+                    pacientes.put(p.getDocumento(), p);
+                }
             }
         } catch (IOException e) {
             System.err.println("Error cargando pacientes: " + e.getMessage());
         }
     }
 
-    private void guardarEnCSV() {
+    /**
+     * Reaplica las entradas de un diario en orden. Reaplicar entradas ya
+     * incluidas en el CSV deja el mismo estado, así que es seguro tras una
+     * compactación interrumpida.
+     *
+     * @return Entradas leídas
+     */
+    private int reaplicarDiario(Path path) {
+        if (!Files.exists(path)) return 0;
+
+        int entradas = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String linea;
+            while ((linea = reader.readLine()) != null) {
+                if (linea.trim().isEmpty()) continue;
+
+                String[] campos = linea.split(",");
+                if (OP_ELIMINAR.equals(campos[0]) && campos.length >= 2) {
+                    pacientes.remove(campos[1].trim());
+                } else if (OP_GUARDAR.equals(campos[0])) {
+                    Paciente p = desdeLineaCSV(campos, 1);
+                    if (p != null) {
+                        // Una actualización conserva la posición original
+                        pacientes.put(p.getDocumento(), p);
+                    }
+                }
+                entradas++;
+            }
+        } catch (IOException | RuntimeException e) {
+            // Una última línea cortada por una caída se ignora
+            System.err.println("Error leyendo diario de pacientes " + path + ": " + e.getMessage());
+        }
+        return entradas;
+    }
+
+    private static int contarEntradas(Path path) {
+        if (!Files.exists(path)) return 0;
+
+        int entradas = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String linea;
+            while ((linea = reader.readLine()) != null) {
+                if (!linea.isBlank()) {
+                    entradas++;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error leyendo diario de pacientes " + path + ": " + e.getMessage());
+        }
+        return entradas;
+    }
+
+    private static Paciente desdeLineaCSV(String[] campos, int desde) {
+        if (campos.length - desde < 8) return null;
+
+        return new Paciente(
+                campos[desde].trim(),     // documento
+                campos[desde + 1].trim(), // nombre
+                campos[desde + 2].trim(), // apellido
+                Integer.parseInt(campos[desde + 3].trim()), // edad
+                campos[desde + 4].trim(), // correo
+                campos[desde + 5].trim(), // genero
+                campos[desde + 6].trim(), // ciudad
+                campos[desde + 7].trim()  // pais
+        );
+    }
+
+    private static String aLineaCSV(Paciente p) {
+        return new StringBuilder(96)
+                .append(p.getDocumento()).append(',')
+                .append(p.getNombre()).append(',')
+                .append(p.getApellido()).append(',')
+                .append(p.getEdad()).append(',')
+                .append(p.getCorreo()).append(',')
+                .append(p.getGenero()).append(',')
+                .append(p.getCiudad()).append(',')
+                .append(p.getPais())
+                .toString();
+    }
+
+    // ========== DIARIO ==========
+
+    /**
+     * Debe invocarse con {@code lockEscritura} tomado.
+     */
+    private void abrirDiario() {
         try {
             Files.createDirectories(Paths.get("data"));
+            diario = Files.newBufferedWriter(Paths.get(JOURNAL_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            diario = null;
+            System.err.println("Error abriendo diario de pacientes: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Anexa una entrada al diario. Debe invocarse con {@code lockEscritura}
+     * tomado.
+     */
+    private void anotar(String entrada) {
+        if (diario == null) {
+            abrirDiario();
+            if (diario == null) {
+                return;
+            }
+        }
+        try {
+            diario.write(entrada);
+            diario.newLine();
+            diario.flush();
+        } catch (IOException e) {
+            System.err.println("Error guardando pacientes: " + e.getMessage());
+            return;
+        }
+        if (++entradasDiario >= UMBRAL_COMPACTACION) {
+            programarCompactacion();
+        }
+    }
+
+    /**
+     * Debe invocarse con {@code lockEscritura} tomado.
+     */
+    private void programarCompactacion() {
+        if (!compactacionPendiente) {
+            compactacionPendiente = true;
+            compactador.execute(this::compactar);
+        }
+    }
 
-            try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(CSV_FILE))) {
+    /**
+     * Escribe el estado completo en el CSV y descarta el diario incluido.
+     *
+     * <p>Bajo {@code lockEscritura} solo se copia el estado y se rota el
+     * diario (el actual pasa a {@code .compactando} y se abre uno vacío);
+     * el CSV se escribe después, sin bloquear escrituras ni lecturas, en un
+     * archivo temporal que luego reemplaza al anterior.</p>
+     */
+    private void compactar() {
+        List<Paciente> estado;
+        Path compactando = Paths.get(JOURNAL_COMPACTANDO);
+        lockEscritura.lock();
+        try {
+            compactacionPendiente = false;
+            estado = listarTodos();
+            try {
+                if (diario != null) {
+                    diario.close();
+                }
+                if (!Files.exists(compactando)) {
+                    Files.move(Paths.get(JOURNAL_FILE), compactando);
+                } else {
+                    // Una compactación anterior no terminó: se une su diario con el actual
+                    Files.write(compactando, Files.readAllBytes(Paths.get(JOURNAL_FILE)),
+                            StandardOpenOption.APPEND);
+                    Files.delete(Paths.get(JOURNAL_FILE));
+                }
+            } catch (NoSuchFileException e) {
+                // No hay diario actual: solo queda el de una compactación anterior
+            } catch (IOException e) {
+                System.err.println("Error rotando diario de pacientes: " + e.getMessage());
+                abrirDiario();
+                return;
+            }
+            entradasDiario = 0;
+            abrirDiario();
+        } finally {
+            lockEscritura.unlock();
+        }
+
+        try {
+            Path temporal = Paths.get(CSV_TEMPORAL);
+            try (BufferedWriter writer = Files.newBufferedWriter(temporal)) {
                 writer.write(CSV_HEADER);
                 writer.newLine();
-
-                for (Paciente p : pacientes.values()) {
-                    writer.write(String.format("%s,%s,%s,%d,%s,%s,%s,%s",
-                            p.getDocumento(),
-                            p.getNombre(),
-                            p.getApellido(),
-                            p.getEdad(),
-                            p.getCorreo(),
-                            p.getGenero(),
-                            p.getCiudad(),
-                            p.getPais()
-                    ));
+                for (Paciente p : estado) {
+                    writer.write(aLineaCSV(p));
                     writer.newLine();
                 }
             }
+            try {
+                Files.move(temporal, Paths.get(CSV_FILE),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporal, Paths.get(CSV_FILE), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.deleteIfExists(compactando);
         } catch (IOException e) {
-            System.err.println("Error guardando pacientes: " + e.getMessage());
+            System.err.println("Error compactando pacientes: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,469 @@
+package org.BioGuard.service;
+
+import org.BioGuard.model.Diagnostico;
+import org.BioGuard.model.Muestra;
+import org.BioGuard.model.PackedSequence;
+import org.BioGuard.model.Paciente;
+import org.BioGuard.service.diagnostico.IDiagnosticoService;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Foto binaria del estado del servidor para arrancar sin reprocesar los
+ * archivos de origen.
+ *
+ * <p>Responsabilidad Única: Escribir y leer en un solo archivo los
+ * pacientes, las muestras y los diagnósticos (con los virus como índices
+ * de una tabla de nombres).</p>
+ *
+ * <p>Las muestras guardadas en el almacén se escriben solo con su
+ * referencia ({@code archivoPath}): escribir la foto no carga sus
+ * secuencias y, al leerla, el almacén las adopta con carga diferida, así
+ * que ni la foto ni el arranque dejan todas las secuencias en el heap.
+ * Solo una muestra sin archivo lleva sus bases empaquetadas en la foto.</p>
+ *
+ * <p>La foto se escribe periódicamente y al apagar el servidor (con
+ * {@link #detener}, una vez escritos los CSV pendientes), en un archivo
+ * temporal que luego reemplaza al anterior; termina con un CRC32
+ * de todo el contenido. Al arrancar se lee con una sola pasada secuencial
+ * si está vigente: si falta, está dañada o algún archivo de origen se
+ * modificó después de iniciarla, se devuelve null y el servidor carga
+ * desde los archivos como siempre.</p>
+ *
+ * <p>Vigencia: a la foto se le asigna como fecha de modificación el
+ * instante en que empezó a tomarse menos {@link #MARGEN_VIGENCIA_MS}. Los
+ * repositorios persisten en disco antes de registrar en memoria, así que
+ * una escritura que llegó al disco justo antes del inicio puede no estar
+ * aún en los listados; el margen hace que su archivo cuente como posterior
+ * a la foto y la invalide. Para cada fuente se compara esa fecha
+ * con la del archivo o directorio y con la de sus hijos directos (las
+ * carpetas de pacientes, los segmentos). Crear o reemplazar un archivo en
+ * una carpeta de paciente cambia la fecha de la carpeta.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public class SnapshotServidor {
+
+    private static final int MAGIA = 0x42475346; // "BGSF"
+    private static final int VERSION = 2;
+    private static final int TAMANO_BUFFER = 1 << 20;
+
+    /**
+     * Tiempo que se resta al inicio de la foto para fecharla: cubre lo que
+     * tarda una escritura entre llegar al disco y registrarse en memoria.
+     */
+    static final long MARGEN_VIGENCIA_MS = 5_000;
+
+    private final Path ruta;
+    private final List<Path> fuentes;
+    private final ReentrantLock lockEscritura = new ReentrantLock();
+    private ScheduledExecutorService programador;
+
+    /**
+     * @param ruta Archivo de la foto
+     * @param fuentes Archivos y directorios de los que se deriva el estado
+     */
+    public SnapshotServidor(String ruta, List<String> fuentes) {
+        this.ruta = Paths.get(ruta);
+        this.fuentes = new ArrayList<>();
+        for (String fuente : fuentes) {
+            this.fuentes.add(Paths.get(fuente));
+        }
+    }
+
+    // ========== LECTURA ==========
+
+    /**
+     * Lee la foto si existe y ninguna fuente es posterior a ella.
+     *
+     * @return Estado leído, o null si hay que cargar desde los archivos
+     */
+    public Estado cargarSiVigente() {
+        if (!Files.exists(ruta)) {
+            System.out.println("[Snapshot] No hay foto del estado; carga completa desde archivos");
+            return null;
+        }
+
+        long inicio = System.nanoTime();
+        try {
+            FileTime tomada = Files.getLastModifiedTime(ruta);
+            Path modificada = fuentePosterior(tomada);
+            if (modificada != null) {
+                System.out.println("[Snapshot] Foto desactualizada (" + modificada +
+                        " es posterior); carga completa desde archivos");
+                return null;
+            }
+
+            Estado estado = leer();
+            long ms = (System.nanoTime() - inicio) / 1_000_000;
+            System.out.println("[Snapshot] Estado cargado en " + ms + " ms: " + estado.pacientes.size() +
+                    " pacientes, " + estado.muestras.size() + " muestras, " +
+                    estado.diagnosticos.size() + " diagnósticos");
+            return estado;
+
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[Snapshot] Foto ilegible (" + e.getMessage() + "); carga completa desde archivos");
+            return null;
+        }
+    }
+
+    /**
+     * @return La primera fuente modificada en o después de la foto, o null
+     */
+    private Path fuentePosterior(FileTime tomada) throws IOException {
+        for (Path fuente : fuentes) {
+            if (!Files.exists(fuente)) {
+                continue;
+            }
+            if (Files.getLastModifiedTime(fuente).compareTo(tomada) >= 0) {
+                return fuente;
+            }
+            if (Files.isDirectory(fuente)) {
+                try (Stream<Path> hijos = Files.list(fuente)) {
+                    for (Path hijo : (Iterable<Path>) hijos::iterator) {
+                        if (Files.getLastModifiedTime(hijo).compareTo(tomada) >= 0) {
+                            return hijo;
+                        }
+                    }
+                } catch (NoSuchFileException e) {
+                    return fuente;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Estado leer() throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream archivo = Files.newInputStream(ruta);
+             CheckedInputStream verificado = new CheckedInputStream(
+                     new BufferedInputStream(archivo, TAMANO_BUFFER), crc)) {
+            DataInputStream in = new DataInputStream(verificado);
+
+            if (in.readInt() != MAGIA || in.readInt() != VERSION) {
+                throw new IOException("Formato de foto no reconocido");
+            }
+            in.readLong(); // instante de la foto
+
+            String[] virus = new String[in.readInt()];
+            for (int i = 0; i < virus.length; i++) {
+                virus[i] = in.readUTF();
+            }
+
+            int totalPacientes = in.readInt();
+            List<Paciente> pacientes = new ArrayList<>(totalPacientes);
+            for (int i = 0; i < totalPacientes; i++) {
+                pacientes.add(leerPaciente(in));
+            }
+
+            int totalMuestras = in.readInt();
+            List<Muestra> muestras = new ArrayList<>(totalMuestras);
+            for (int i = 0; i < totalMuestras; i++) {
+                muestras.add(leerMuestra(in));
+            }
+
+            int totalDiagnosticos = in.readInt();
+            List<Diagnostico> diagnosticos = new ArrayList<>(totalDiagnosticos);
+            for (int i = 0; i < totalDiagnosticos; i++) {
+                diagnosticos.add(leerDiagnostico(in, virus));
+            }
+
+            long calculado = crc.getValue();
+            if (in.readLong() != calculado) {
+                throw new IOException("CRC inválido");
+            }
+            return new Estado(pacientes, muestras, diagnosticos);
+        }
+    }
+
+    private static Paciente leerPaciente(DataInputStream in) throws IOException {
+        String documento = leerTexto(in);
+        String nombre = leerTexto(in);
+        String apellido = leerTexto(in);
+        int edad = in.readInt();
+        return new Paciente(documento, nombre, apellido, edad,
+                leerTexto(in), leerTexto(in), leerTexto(in), leerTexto(in));
+    }
+
+    private static Muestra leerMuestra(DataInputStream in) throws IOException {
+        Muestra muestra = new Muestra();
+        muestra.setId(leerTexto(in));
+        muestra.setDocumentoPaciente(leerTexto(in));
+        muestra.setFecha(leerFecha(in));
+        muestra.setArchivoPath(leerTexto(in));
+
+        int bases = in.readInt();
+        if (bases >= 0) {
+            long[] palabras = new long[PackedSequence.palabrasPara(bases)];
+            for (int i = 0; i < palabras.length; i++) {
+                palabras[i] = in.readLong();
+            }
+            muestra.setSecuenciaEmpaquetada(PackedSequence.desdePalabras(palabras, bases));
+        }
+        return muestra;
+    }
+
+    private static Diagnostico leerDiagnostico(DataInputStream in, String[] virus) throws IOException {
+        Diagnostico diagnostico = new Diagnostico();
+        diagnostico.setId(leerTexto(in));
+        diagnostico.setDocumentoPaciente(leerTexto(in));
+        diagnostico.setIdMuestra(leerTexto(in));
+        diagnostico.setFecha(leerFecha(in));
+        diagnostico.setArchivoCSV(leerTexto(in));
+
+        int total = in.readInt();
+        List<Diagnostico.HallazgoVirus> hallazgos = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            String nombre = virus[in.readInt()];
+            hallazgos.add(new Diagnostico.HallazgoVirus(nombre, in.readInt(), in.readInt(), in.readInt()));
+        }
+        diagnostico.setVirusDetectados(hallazgos);
+        return diagnostico;
+    }
+
+    private static String leerTexto(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static LocalDateTime leerFecha(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+
+    // ========== ESCRITURA ==========
+
+    /**
+     * Escribe la foto del estado actual. Las secuencias de las muestras
+     * guardadas en el almacén no se leen.
+     *
+     * @param pacienteService Servicio de pacientes
+     * @param diagnosticoService Servicio de diagnósticos y muestras
+     * @throws IOException Si hay error de escritura
+     */
+    public void guardar(IPacienteService pacienteService, IDiagnosticoService diagnosticoService)
+            throws IOException {
+        lockEscritura.lock();
+        try {
+            // La foto lleva la fecha de su inicio menos el margen: lo que
+            // cambie mientras se escribe, o poco antes, la invalida
+            FileTime inicio = FileTime.fromMillis(System.currentTimeMillis() - MARGEN_VIGENCIA_MS);
+            long t0 = System.nanoTime();
+
+            List<Paciente> pacientes = pacienteService.listarTodos();
+            List<Muestra> muestras = diagnosticoService.listarMuestras();
+            List<Diagnostico> diagnosticos = diagnosticoService.listarTodos();
+
+            Path temporal = ruta.resolveSibling(ruta.getFileName() + ".tmp");
+            if (ruta.getParent() != null) {
+                Files.createDirectories(ruta.getParent());
+            }
+            escribir(temporal, inicio.toMillis(), pacientes, muestras, diagnosticos);
+            Files.setLastModifiedTime(temporal, inicio);
+            try {
+                Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            long ms = (System.nanoTime() - t0) / 1_000_000;
+            System.out.println("[Snapshot] Foto guardada en " + ms + " ms: " + pacientes.size() +
+                    " pacientes, " + muestras.size() + " muestras, " + diagnosticos.size() + " diagnósticos");
+        } finally {
+            lockEscritura.unlock();
+        }
+    }
+
+    private static void escribir(Path destino, long instante, List<Paciente> pacientes,
+                                 List<Muestra> muestras, List<Diagnostico> diagnosticos) throws IOException {
+        // Tabla de nombres de virus: los hallazgos guardan su índice
+        Map<String, Integer> indiceVirus = new HashMap<>();
+        List<String> virus = new ArrayList<>();
+        for (Diagnostico d : diagnosticos) {
+            for (Diagnostico.HallazgoVirus h : d.getVirusDetectados()) {
+                indiceVirus.computeIfAbsent(String.valueOf(h.getNombreVirus()), nombre -> {
+                    virus.add(nombre);
+                    return virus.size() - 1;
+                });
+            }
+        }
+
+        CRC32 crc = new CRC32();
+        try (OutputStream archivo = Files.newOutputStream(destino);
+             CheckedOutputStream verificado = new CheckedOutputStream(
+                     new BufferedOutputStream(archivo, TAMANO_BUFFER), crc);
+             DataOutputStream out = new DataOutputStream(verificado)) {
+
+            out.writeInt(MAGIA);
+            out.writeInt(VERSION);
+            out.writeLong(instante);
+
+            out.writeInt(virus.size());
+            for (String nombre : virus) {
+                out.writeUTF(nombre);
+            }
+
+            out.writeInt(pacientes.size());
+            for (Paciente p : pacientes) {
+                escribirTexto(out, p.getDocumento());
+                escribirTexto(out, p.getNombre());
+                escribirTexto(out, p.getApellido());
+                out.writeInt(p.getEdad());
+                escribirTexto(out, p.getCorreo());
+                escribirTexto(out, p.getGenero());
+                escribirTexto(out, p.getCiudad());
+                escribirTexto(out, p.getPais());
+            }
+
+            out.writeInt(muestras.size());
+            for (Muestra m : muestras) {
+                escribirTexto(out, m.getId());
+                escribirTexto(out, m.getDocumentoPaciente());
+                escribirFecha(out, m.getFecha());
+                escribirTexto(out, m.getArchivoPath());
+
+                // Con archivo, la secuencia se lee de él al usarla
+                PackedSequence secuencia = m.getArchivoPath() == null ? m.getSecuenciaEmpaquetada() : null;
+                if (secuencia == null) {
+                    out.writeInt(-1);
+                    continue;
+                }
+                out.writeInt(secuencia.length());
+                for (int i = 0; i < secuencia.numeroPalabras(); i++) {
+                    out.writeLong(secuencia.palabra(i));
+                }
+            }
+
+            out.writeInt(diagnosticos.size());
+            for (Diagnostico d : diagnosticos) {
+                escribirTexto(out, d.getId());
+                escribirTexto(out, d.getDocumentoPaciente());
+                escribirTexto(out, d.getIdMuestra());
+                escribirFecha(out, d.getFecha());
+                escribirTexto(out, d.getArchivoCSV());
+
+                List<Diagnostico.HallazgoVirus> hallazgos = d.getVirusDetectados();
+                out.writeInt(hallazgos.size());
+                for (Diagnostico.HallazgoVirus h : hallazgos) {
+                    out.writeInt(indiceVirus.get(String.valueOf(h.getNombreVirus())));
+                    out.writeInt(h.getPosicionInicio());
+                    out.writeInt(h.getPosicionFin());
+                    out.writeInt(h.getDiferencias());
+                }
+            }
+
+            out.flush();
+            out.writeLong(crc.getValue());
+        }
+    }
+
+    private static void escribirTexto(DataOutputStream out, String texto) throws IOException {
+        out.writeBoolean(texto != null);
+        if (texto != null) {
+            out.writeUTF(texto);
+        }
+    }
+
+    private static void escribirFecha(DataOutputStream out, LocalDateTime fecha) throws IOException {
+        out.writeBoolean(fecha != null);
+        if (fecha != null) {
+            out.writeLong(fecha.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(fecha.getNano());
+        }
+    }
+
+    // ========== PROGRAMACIÓN ==========
+
+    /**
+     * Guarda la foto cada cierto tiempo. La última la escribe
+     * {@link #detener} al apagar.
+     *
+     * @param pacienteService Servicio de pacientes
+     * @param diagnosticoService Servicio de diagnósticos y muestras
+     * @param intervaloMinutos Minutos entre fotos
+     */
+    public void programar(IPacienteService pacienteService, IDiagnosticoService diagnosticoService,
+                          long intervaloMinutos) {
+        programador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "snapshot");
+            hilo.setDaemon(true);
+            hilo.setPriority(Thread.MIN_PRIORITY);
+            return hilo;
+        });
+        programador.scheduleWithFixedDelay(() -> guardarSinFallar(pacienteService, diagnosticoService),
+                intervaloMinutos, intervaloMinutos, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Cancela las fotos periódicas y escribe la última. Al apagar debe
+     * invocarse después de escribir los CSV pendientes de los diagnósticos
+     * y antes de cerrar el almacén de muestras.
+     *
+     * @param pacienteService Servicio de pacientes
+     * @param diagnosticoService Servicio de diagnósticos y muestras
+     */
+    public void detener(IPacienteService pacienteService, IDiagnosticoService diagnosticoService) {
+        if (programador != null) {
+            // Sin interrumpir: una foto en curso termina y esta espera su candado
+            programador.shutdown();
+        }
+        guardarSinFallar(pacienteService, diagnosticoService);
+    }
+
+    private void guardarSinFallar(IPacienteService pacienteService, IDiagnosticoService diagnosticoService) {
+        try {
+            guardar(pacienteService, diagnosticoService);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[Snapshot] Error guardando foto: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Estado leído de la foto.
+     */
+    public static final class Estado {
+        private final List<Paciente> pacientes;
+        private final List<Muestra> muestras;
+        private final List<Diagnostico> diagnosticos;
+
+        Estado(List<Paciente> pacientes, List<Muestra> muestras, List<Diagnostico> diagnosticos) {
+            this.pacientes = pacientes;
+            this.muestras = muestras;
+            this.diagnosticos = diagnosticos;
+        }
+
+        public List<Paciente> getPacientes() { return pacientes; }
+        public List<Muestra> getMuestras() { return muestras; }
+        public List<Diagnostico> getDiagnosticos() { return diagnosticos; }
+    }
+}
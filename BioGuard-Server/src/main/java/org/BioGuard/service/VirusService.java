@@ -2,51 +2,88 @@ package org.BioGuard.service;
 
 import org.BioGuard.model.Virus;
 import org.BioGuard.exception.VirusNotFoundException;
+import org.BioGuard.service.deteccion.CatalogoListener;
+import org.BioGuard.service.deteccion.CatalogoVirus;
+import org.BioGuard.service.deteccion.DetectorVirus;
+import org.BioGuard.service.deteccion.PersistenciaCatalogo;
+
+import java.io.IOException;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 public class VirusService implements IVirusService {
 
-    private final Map<String, Virus> virusMap = new ConcurrentHashMap<>();
     private final AtomicLong idGenerator = new AtomicLong(1);
 
+    // Las escrituras se serializan y publican una foto nueva del catálogo
+    // (copia en escritura); las lecturas solo leen el campo volátil
+    private final ReentrantLock escritura = new ReentrantLock();
+    private volatile CatalogoVirus catalogo = CatalogoVirus.VACIO;
+    private final List<CatalogoListener> listeners = new CopyOnWriteArrayList<>();
+    private final PersistenciaCatalogo persistencia;
+
+    /**
+     * Crea un catálogo solo en memoria.
+     */
+    public VirusService() {
+        this.persistencia = null;
+    }
+
+    /**
+     * Crea un catálogo persistente: carga el archivo indicado, con su
+     * detector ya compilado, y lo reescribe en cada cambio.
+     *
+     * @param rutaCatalogo Archivo del catálogo
+     */
+    public VirusService(String rutaCatalogo) {
+        this.persistencia = new PersistenciaCatalogo(rutaCatalogo);
+        PersistenciaCatalogo.Restaurado restaurado = persistencia.cargar();
+        if (restaurado != null) {
+            catalogo = restaurado.getCatalogo();
+            idGenerator.set(restaurado.getSiguienteId());
+        }
+    }
+
     @Override
     public Virus registrarVirus(Virus virus) {
         if (virus == null) throw new IllegalArgumentException("Virus no puede ser null");
 
-        if (virus.getId() == null) {
-            virus.setId(String.valueOf(idGenerator.getAndIncrement()));
-        }
+        escritura.lock();
+        try {
+            if (virus.getId() == null) {
+                virus.setId(String.valueOf(idGenerator.getAndIncrement()));
+            }
 
-        virusMap.put(virus.getId(), virus);
-        return virus;
+            publicar(catalogo.con(virus), virus);
+            return virus;
+        } finally {
+            escritura.unlock();
+        }
     }
 
     @Override
     public Optional<Virus> buscarPorId(String id) {
-        return Optional.ofNullable(virusMap.get(id));
+        return catalogo.buscarPorId(id);
     }
 
     @Override
     public List<Virus> buscarPorNombre(String nombre, boolean exacta) {
         if (nombre == null) return Collections.emptyList();
+        if (exacta) return catalogo.buscarPorNombre(nombre);
 
-        return virusMap.values().stream()
-                .filter(v -> {
-                    if (exacta) return nombre.equalsIgnoreCase(v.getNombre());
-                    else return v.getNombre() != null && v.getNombre().toLowerCase().contains(nombre.toLowerCase());
-                })
+        String buscado = nombre.toLowerCase();
+        return catalogo.getVirus().stream()
+                .filter(v -> v.getNombre() != null && v.getNombre().toLowerCase().contains(buscado))
                 .collect(Collectors.toList());
     }
 
     @Override
     public List<Virus> buscarPorNivelPeligrosidad(int nivel) {
-        return virusMap.values().stream()
-                .filter(v -> v.getNivelPeligrosidad() == nivel)
-                .collect(Collectors.toList());
+        return catalogo.buscarPorNivel(nivel);
     }
 
     @Override
@@ -54,21 +91,87 @@ public class VirusService implements IVirusService {
         if (virus == null || virus.getId() == null)
             throw new IllegalArgumentException("Virus o ID inválido");
 
-        if (!virusMap.containsKey(virus.getId())) {
-            throw new VirusNotFoundException("ID", virus.getId());
-        }
+        escritura.lock();
+        try {
+            if (catalogo.buscarPorId(virus.getId()).isEmpty()) {
+                throw new VirusNotFoundException("ID", virus.getId());
+            }
 
-        virusMap.put(virus.getId(), virus);
-        return virus;
+            publicar(catalogo.con(virus), virus);
+            return virus;
+        } finally {
+            escritura.unlock();
+        }
     }
 
     @Override
     public boolean eliminarVirus(String id) {
-        return virusMap.remove(id) != null;
+        escritura.lock();
+        try {
+            CatalogoVirus actual = catalogo;
+            CatalogoVirus nuevo = actual.sin(id);
+            if (nuevo == actual) {
+                return false;
+            }
+            catalogo = nuevo;
+            persistir(nuevo);
+            return true;
+        } finally {
+            escritura.unlock();
+        }
     }
 
     @Override
     public List<Virus> listarTodos() {
-        return new ArrayList<>(virusMap.values());
+        return catalogo.getVirus();
+    }
+
+    @Override
+    public CatalogoVirus obtenerCatalogo() {
+        return catalogo;
+    }
+
+    @Override
+    public DetectorVirus obtenerDetector() {
+        return catalogo.getDetector();
+    }
+
+    @Override
+    public void agregarListener(CatalogoListener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    /**
+     * Publica la nueva foto del catálogo y avisa a los listeners.
+     * Debe invocarse con el candado de escritura tomado.
+     */
+    private void publicar(CatalogoVirus nuevo, Virus recibido) {
+        // Los listeners reciben la copia que quedó en el catálogo
+        Virus cambiado = nuevo.buscarPorId(recibido.getId()).orElseThrow();
+        CatalogoVirus anterior = catalogo;
+        catalogo = nuevo;
+        persistir(nuevo);
+        for (CatalogoListener listener : listeners) {
+            try {
+                listener.virusCambiados(anterior, nuevo, List.of(cambiado));
+            } catch (RuntimeException e) {
+                System.err.println("[VirusService] Error notificando cambio de catálogo: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Guarda la foto publicada. Debe invocarse con el candado de escritura
+     * tomado, para que las fotos se escriban en orden de versión.
+     */
+    private void persistir(CatalogoVirus nuevo) {
+        if (persistencia == null) {
+            return;
+        }
+        try {
+            persistencia.guardar(nuevo, idGenerator.get());
+        } catch (IOException e) {
+            System.err.println("[VirusService] Error guardando catálogo: " + e.getMessage());
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,263 @@
+package org.BioGuard.service.deteccion;
+
+import org.BioGuard.model.Diagnostico;
+import org.BioGuard.model.PackedSequence;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caché acotada de resultados de detección, direccionada por contenido.
+ *
+ * <p>Responsabilidad Única: Evitar repetir el escaneo de una secuencia que
+ * ya se analizó con la misma versión del catálogo y la misma tolerancia
+ * (muestras repetidas, reintentos del cliente, la misma secuencia para
+ * distintos pacientes).</p>
+ *
+ * <p>La clave es el SHA-256 de la secuencia empaquetada junto con su
+ * longitud, la versión del catálogo y la tolerancia. Cuando el catálogo
+ * cambia de versión las entradas anteriores dejan de ser alcanzables y se
+ * descartan en el siguiente acceso. Al superar la capacidad se expulsa la
+ * entrada usada hace más tiempo (LRU).</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public class CacheDeteccion {
+
+    /** Capacidad por defecto, en número de secuencias. */
+    public static final int CAPACIDAD_POR_DEFECTO = 1024;
+
+    private static final int BYTES_POR_BLOQUE = 8192;
+
+    // Calculadores de huella libres. Un ThreadLocal retendría uno por
+    // hilo, y con un hilo virtual por cliente serían uno por conexión
+    private static final Queue<Huellero> HUELLEROS = new ConcurrentLinkedQueue<>();
+
+    private final int capacidad;
+    private final Map<Clave, List<Diagnostico.HallazgoVirus>> entradas;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong expulsiones = new AtomicLong();
+    private long versionCatalogo = -1;
+
+    public CacheDeteccion() {
+        this(CAPACIDAD_POR_DEFECTO);
+    }
+
+    /**
+     * @param capacidad Máximo de secuencias guardadas (0 desactiva la caché)
+     */
+    public CacheDeteccion(int capacidad) {
+        if (capacidad < 0) {
+            throw new IllegalArgumentException("La capacidad no puede ser negativa");
+        }
+        this.capacidad = capacidad;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Clave, List<Diagnostico.HallazgoVirus>> mayor) {
+                if (size() > CacheDeteccion.this.capacidad) {
+                    expulsiones.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Calcula la clave de una secuencia para una versión del catálogo.
+     *
+     * @param secuencia Secuencia empaquetada
+     * @param versionCatalogo Versión del catálogo usada en la detección
+     * @param tolerancia Tolerancia de la solicitud
+     * @return Clave de la caché
+     */
+    public Clave clave(PackedSequence secuencia, long versionCatalogo, int tolerancia) {
+        return new Clave(huella(secuencia), secuencia.length(), versionCatalogo, tolerancia);
+    }
+
+    /**
+     * @param clave Clave calculada con {@link #clave}
+     * @return Hallazgos guardados (lista inmodificable), o null si no están
+     */
+    public List<Diagnostico.HallazgoVirus> obtener(Clave clave) {
+        if (capacidad == 0) {
+            fallos.incrementAndGet();
+            return null;
+        }
+        List<Diagnostico.HallazgoVirus> hallazgos;
+        lock.lock();
+        try {
+            descartarSiCambioVersion(clave.versionCatalogo);
+            hallazgos = entradas.get(clave);
+        } finally {
+            lock.unlock();
+        }
+        (hallazgos != null ? aciertos : fallos).incrementAndGet();
+        return hallazgos;
+    }
+
+    /**
+     * Guarda el resultado de una detección.
+     *
+     * @param clave Clave calculada con {@link #clave}
+     * @param hallazgos Hallazgos de la detección
+     * @return Los mismos hallazgos como lista inmodificable
+     */
+    public List<Diagnostico.HallazgoVirus> guardar(Clave clave, List<Diagnostico.HallazgoVirus> hallazgos) {
+        List<Diagnostico.HallazgoVirus> inmodificable = Collections.unmodifiableList(hallazgos);
+        if (capacidad == 0) {
+            return inmodificable;
+        }
+        lock.lock();
+        try {
+            descartarSiCambioVersion(clave.versionCatalogo);
+            // Un resultado calculado con un catálogo ya reemplazado no se guarda
+            if (clave.versionCatalogo == versionCatalogo) {
+                entradas.put(clave, inmodificable);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return inmodificable;
+    }
+
+    /**
+     * Debe invocarse con el candado tomado.
+     */
+    private void descartarSiCambioVersion(long version) {
+        if (version > versionCatalogo) {
+            entradas.clear();
+            versionCatalogo = version;
+        }
+    }
+
+    public void limpiar() {
+        lock.lock();
+        try {
+            entradas.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getAciertos() {
+        return aciertos.get();
+    }
+
+    public long getFallos() {
+        return fallos.get();
+    }
+
+    public long getExpulsiones() {
+        return expulsiones.get();
+    }
+
+    public int getTamano() {
+        lock.lock();
+        try {
+            return entradas.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Porcentaje de consultas resueltas desde la caché (0-100)
+     */
+    public double getTasaAciertos() {
+        long a = aciertos.get();
+        long total = a + fallos.get();
+        return total == 0 ? 0 : a * 100.0 / total;
+    }
+
+    private static byte[] huella(PackedSequence secuencia) {
+        Huellero huellero = HUELLEROS.poll();
+        if (huellero == null) {
+            huellero = new Huellero();
+        }
+        // Si el cálculo falla a medias el huellero no vuelve a la reserva
+        byte[] huella = huellero.calcular(secuencia);
+        HUELLEROS.offer(huellero);
+        return huella;
+    }
+
+    /**
+     * SHA-256 y bloque de bytes reutilizables para calcular huellas.
+     */
+    private static final class Huellero {
+        private final MessageDigest digest;
+        private final byte[] bloque = new byte[BYTES_POR_BLOQUE];
+
+        Huellero() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 no disponible", e);
+            }
+        }
+
+        byte[] calcular(PackedSequence secuencia) {
+            digest.reset();
+            int usados = 0;
+            for (int i = 0; i < secuencia.numeroPalabras(); i++) {
+                long palabra = secuencia.palabra(i);
+                for (int b = 0; b < Long.BYTES; b++) {
+                    bloque[usados++] = (byte) (palabra >>> (b << 3));
+                }
+                if (usados == bloque.length) {
+                    digest.update(bloque, 0, usados);
+                    usados = 0;
+                }
+            }
+            digest.update(bloque, 0, usados);
+            return digest.digest();
+        }
+    }
+
+    /**
+     * Clave de la caché: huella de la secuencia más el contexto de detección.
+     */
+    public static final class Clave {
+        private final byte[] huella;
+        private final int longitud;
+        private final long versionCatalogo;
+        private final int tolerancia;
+        private final int hash;
+
+        private Clave(byte[] huella, int longitud, long versionCatalogo, int tolerancia) {
+            this.huella = huella;
+            this.longitud = longitud;
+            this.versionCatalogo = versionCatalogo;
+            this.tolerancia = tolerancia;
+            this.hash = 31 * (31 * (31 * Arrays.hashCode(huella) + longitud)
+                    + Long.hashCode(versionCatalogo)) + tolerancia;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Clave)) return false;
+            Clave otra = (Clave) o;
+            return longitud == otra.longitud && versionCatalogo == otra.versionCatalogo
+                    && tolerancia == otra.tolerancia && Arrays.equals(huella, otra.huella);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
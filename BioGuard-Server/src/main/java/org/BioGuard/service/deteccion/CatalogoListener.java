@@ -0,0 +1,27 @@
+package org.BioGuard.service.deteccion;
+
+import org.BioGuard.model.Virus;
+
+import java.util.List;
+
+/**
+ * Receptor de cambios en el catálogo de virus.
+ *
+ * <p>Se invoca con el candado de escritura del catálogo tomado, en el
+ * mismo orden en que se publican las versiones; las implementaciones
+ * deben limitarse a programar trabajo y retornar de inmediato.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface CatalogoListener {
+
+    /**
+     * @param anterior Catálogo antes del cambio
+     * @param nuevo Catálogo recién publicado
+     * @param cambiados Virus agregados o modificados
+     */
+    void virusCambiados(CatalogoVirus anterior, CatalogoVirus nuevo, List<Virus> cambiados);
+}
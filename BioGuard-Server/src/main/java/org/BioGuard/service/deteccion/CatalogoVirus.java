@@ -0,0 +1,183 @@
+package org.BioGuard.service.deteccion;
+
+import org.BioGuard.model.Virus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Foto inmutable y versionada del catálogo de virus.
+ *
+ * <p>Responsabilidad Única: Reunir en un solo objeto el estado del catálogo
+ * junto con sus índices precalculados (por id, por nombre, por nivel y de
+ * nombre a nivel) y el detector compilado.</p>
+ *
+ * <p>Cada cambio produce una foto nueva con la versión siguiente
+ * (copia en escritura); las fotos existentes nunca se modifican, así que
+ * un lector que obtiene una foto con una lectura volátil puede consultarla
+ * sin candados ni copias.</p>
+ *
+ * <p>Los virus que se agregan con {@link #con(Virus)} se copian: modificar
+ * después el objeto recibido no altera la foto, sus índices ni su
+ * detector. Los virus que entrega la foto le pertenecen y no deben
+ * modificarse; para cambiar uno se pasa una copia modificada a
+ * {@code con}.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public final class CatalogoVirus {
+
+    /** Catálogo sin virus, versión 0. */
+    public static final CatalogoVirus VACIO = new CatalogoVirus(0, new LinkedHashMap<>());
+
+    private final long version;
+    private final List<Virus> virus;
+    private final Map<String, Virus> porId;
+    private final Map<String, List<Virus>> porNombre;      // nombre en minúsculas
+    private final Map<Integer, List<Virus>> porNivel;
+    private final Map<String, Integer> nivelPorNombre;     // nombre exacto
+    private final DetectorVirus detector;
+
+    private CatalogoVirus(long version, LinkedHashMap<String, Virus> virusPorId) {
+        this(version, virusPorId, null);
+    }
+
+    private CatalogoVirus(long version, LinkedHashMap<String, Virus> virusPorId, DetectorVirus compilado) {
+        this.version = version;
+        this.porId = Collections.unmodifiableMap(virusPorId);
+        this.virus = Collections.unmodifiableList(new ArrayList<>(virusPorId.values()));
+
+        Map<String, List<Virus>> nombres = new HashMap<>();
+        Map<Integer, List<Virus>> niveles = new HashMap<>();
+        Map<String, Integer> nivelesPorNombre = new HashMap<>();
+        for (Virus v : virus) {
+            if (v.getNombre() != null) {
+                nombres.computeIfAbsent(clave(v.getNombre()), k -> new ArrayList<>()).add(v);
+                nivelesPorNombre.put(v.getNombre(), v.getNivelPeligrosidad());
+            }
+            niveles.computeIfAbsent(v.getNivelPeligrosidad(), k -> new ArrayList<>()).add(v);
+        }
+        nombres.replaceAll((k, lista) -> Collections.unmodifiableList(lista));
+        niveles.replaceAll((k, lista) -> Collections.unmodifiableList(lista));
+
+        this.porNombre = nombres;
+        this.porNivel = niveles;
+        this.nivelPorNombre = Collections.unmodifiableMap(nivelesPorNombre);
+        this.detector = compilado != null ? compilado : DetectorVirus.compilar(virus);
+    }
+
+    /**
+     * Reconstruye una foto guardada con su detector ya compilado. Los
+     * virus recibidos pasan a ser de la foto (el detector los referencia),
+     * así que no se copian.
+     *
+     * @param version Versión de la foto
+     * @param virus Virus en orden de registro
+     * @param detector Detector compilado para esos virus, en ese orden
+     * @return Catálogo restaurado
+     */
+    public static CatalogoVirus restaurar(long version, List<Virus> virus, DetectorVirus detector) {
+        LinkedHashMap<String, Virus> porId = new LinkedHashMap<>();
+        for (Virus v : virus) {
+            porId.put(v.getId(), v);
+        }
+        if (porId.size() != virus.size() || !detector.getVirus().equals(new ArrayList<>(porId.values()))) {
+            throw new IllegalArgumentException("El detector no corresponde a los virus del catálogo");
+        }
+        return new CatalogoVirus(version, porId, detector);
+    }
+
+    /**
+     * Crea la foto siguiente con una copia del virus agregada o
+     * reemplazando la anterior (por id). Los demás virus se conservan
+     * como las mismas instancias.
+     *
+     * @param nuevo Virus con id asignado
+     * @return Catálogo con la versión siguiente
+     */
+    public CatalogoVirus con(Virus nuevo) {
+        LinkedHashMap<String, Virus> copia = new LinkedHashMap<>(porId);
+        copia.put(nuevo.getId(), new Virus(nuevo));
+        return new CatalogoVirus(version + 1, copia);
+    }
+
+    /**
+     * Crea la foto siguiente sin el virus indicado.
+     *
+     * @param id Id del virus a quitar
+     * @return Catálogo con la versión siguiente, o este mismo si el id no existe
+     */
+    public CatalogoVirus sin(String id) {
+        if (!porId.containsKey(id)) {
+            return this;
+        }
+        LinkedHashMap<String, Virus> copia = new LinkedHashMap<>(porId);
+        copia.remove(id);
+        return new CatalogoVirus(version + 1, copia);
+    }
+
+    private static String clave(String nombre) {
+        return nombre.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return Versión del catálogo; aumenta con cada cambio
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Virus en orden de registro (lista inmodificable)
+     */
+    public List<Virus> getVirus() {
+        return virus;
+    }
+
+    public Optional<Virus> buscarPorId(String id) {
+        return id == null ? Optional.empty() : Optional.ofNullable(porId.get(id));
+    }
+
+    /**
+     * @param nombre Nombre a buscar, sin distinguir mayúsculas
+     * @return Virus con ese nombre (lista inmodificable)
+     */
+    public List<Virus> buscarPorNombre(String nombre) {
+        if (nombre == null) return Collections.emptyList();
+        return porNombre.getOrDefault(clave(nombre), Collections.emptyList());
+    }
+
+    /**
+     * @param nivel Nivel de peligrosidad
+     * @return Virus de ese nivel (lista inmodificable)
+     */
+    public List<Virus> buscarPorNivel(int nivel) {
+        return porNivel.getOrDefault(nivel, Collections.emptyList());
+    }
+
+    /**
+     * @return Nivel de peligrosidad por nombre exacto de virus (mapa inmodificable)
+     */
+    public Map<String, Integer> getNivelesPorNombre() {
+        return nivelPorNombre;
+    }
+
+    /**
+     * @return Detector compilado para esta versión del catálogo
+     */
+    public DetectorVirus getDetector() {
+        return detector;
+    }
+
+    public int size() {
+        return virus.size();
+    }
+}
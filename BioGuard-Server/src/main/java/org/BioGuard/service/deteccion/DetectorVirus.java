@@ -0,0 +1,365 @@
+package org.BioGuard.service.deteccion;
+
+import org.BioGuard.model.Diagnostico;
+import org.BioGuard.model.PackedSequence;
+import org.BioGuard.model.Virus;
+import org.BioGuard.util.AhoCorasickMatcher;
+import org.BioGuard.util.BitapMatcher;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Estructura de detección compilada a partir del catálogo de virus.
+ *
+ * <p>Responsabilidad Única: Encontrar en una sola pasada todas las
+ * ocurrencias de todos los virus registrados dentro de una secuencia.</p>
+ *
+ * <p>El resultado es idéntico al de buscar cada virus por separado con
+ * {@code String.indexOf}: por cada virus se reportan ocurrencias sin
+ * solapamiento (la siguiente búsqueda empieza al final de la anterior),
+ * y los hallazgos se agrupan por virus en el orden del catálogo.</p>
+ *
+ * <p>Los virus con tolerancia de mutaciones (propia o pedida en la
+ * solicitud) se buscan aparte con {@link BitapMatcher}, que admite hasta
+ * k bases distintas; cada hallazgo indica cuántas tuvo.</p>
+ *
+ * <p>Las secuencias largas pueden escanearse por bloques en paralelo
+ * (ver {@link #detectar(PackedSequence, int, ForkJoinPool, int)}); las
+ * posiciones reportadas son las mismas que en el escaneo secuencial.</p>
+ *
+ * <p>Las instancias son inmutables; para reflejar cambios en el catálogo
+ * se compila un detector nuevo. Los buscadores compilados pueden
+ * escribirse junto con el catálogo y leerse al reiniciar sin recompilar
+ * (ver {@link PersistenciaCatalogo}).</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public final class DetectorVirus {
+
+    private final List<Virus> virus;
+    private final int[] longitudes;
+    private final int longitudMaxima;
+    private final int[] tolerancias;
+    private final BitapMatcher[] aproximados;
+    private final AhoCorasickMatcher matcher;
+
+    private DetectorVirus(List<Virus> virus, int[] longitudes, int[] tolerancias,
+                          BitapMatcher[] aproximados, AhoCorasickMatcher matcher) {
+        this.virus = virus;
+        this.longitudes = longitudes;
+        this.longitudMaxima = Arrays.stream(longitudes).max().orElse(0);
+        this.tolerancias = tolerancias;
+        this.aproximados = aproximados;
+        this.matcher = matcher;
+    }
+
+    /**
+     * Compila un detector para los virus dados.
+     *
+     * @param catalogo Virus registrados, en el orden en que se reportarán
+     * @return Detector listo para usar
+     */
+    public static DetectorVirus compilar(Collection<Virus> catalogo) {
+        List<Virus> copia = Collections.unmodifiableList(new ArrayList<>(catalogo));
+        List<PackedSequence> patrones = new ArrayList<>(copia.size());
+        int[] longitudes = new int[copia.size()];
+        int[] tolerancias = new int[copia.size()];
+        BitapMatcher[] aproximados = new BitapMatcher[copia.size()];
+        for (int i = 0; i < copia.size(); i++) {
+            // Las secuencias no empaquetables quedan en null y no se compilan
+            PackedSequence secuencia = copia.get(i).getSecuenciaEmpaquetada();
+            patrones.add(secuencia);
+            longitudes[i] = secuencia != null ? secuencia.length() : 0;
+            tolerancias[i] = copia.get(i).getToleranciaMutaciones();
+            if (secuencia != null) {
+                aproximados[i] = BitapMatcher.compilar(secuencia);
+            }
+        }
+        return new DetectorVirus(copia, longitudes, tolerancias, aproximados,
+                AhoCorasickMatcher.compilar(patrones));
+    }
+
+    /**
+     * Escribe los buscadores compilados. Los virus no se escriben: al leer
+     * se reciben los mismos, en el mismo orden.
+     *
+     * @param out Destino
+     * @throws IOException Si hay error de escritura
+     */
+    public void escribir(DataOutput out) throws IOException {
+        out.writeInt(virus.size());
+        for (BitapMatcher aproximado : aproximados) {
+            out.writeBoolean(aproximado != null);
+            if (aproximado != null) {
+                aproximado.escribir(out);
+            }
+        }
+        matcher.escribir(out);
+    }
+
+    /**
+     * Lee un detector escrito con {@link #escribir(DataOutput)} para los
+     * mismos virus con que se compiló.
+     *
+     * @param in Origen
+     * @param catalogo Virus del detector, en el orden en que se compiló
+     * @return Detector listo para usar
+     * @throws IOException Si hay error de lectura o los buscadores no
+     *         corresponden a los virus
+     */
+    public static DetectorVirus leer(DataInput in, Collection<Virus> catalogo) throws IOException {
+        List<Virus> copia = Collections.unmodifiableList(new ArrayList<>(catalogo));
+        if (in.readInt() != copia.size()) {
+            throw new IOException("El detector no corresponde al catálogo");
+        }
+        int[] longitudes = new int[copia.size()];
+        int[] tolerancias = new int[copia.size()];
+        BitapMatcher[] aproximados = new BitapMatcher[copia.size()];
+        for (int i = 0; i < copia.size(); i++) {
+            PackedSequence secuencia = copia.get(i).getSecuenciaEmpaquetada();
+            longitudes[i] = secuencia != null ? secuencia.length() : 0;
+            tolerancias[i] = copia.get(i).getToleranciaMutaciones();
+            if (in.readBoolean()) {
+                aproximados[i] = BitapMatcher.leer(in);
+            }
+            int compilada = aproximados[i] != null ? aproximados[i].getLongitud() : 0;
+            if (compilada != longitudes[i]) {
+                throw new IOException("El detector no corresponde al virus " + copia.get(i).getId());
+            }
+        }
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.leer(in);
+        if (matcher.getNumeroPatrones() != copia.size()) {
+            throw new IOException("El autómata no corresponde al catálogo");
+        }
+        return new DetectorVirus(copia, longitudes, tolerancias, aproximados, matcher);
+    }
+
+    /**
+     * Detecta todos los virus del catálogo en la secuencia, usando la
+     * tolerancia propia de cada virus.
+     *
+     * @param secuencia Secuencia empaquetada a analizar
+     * @return Hallazgos agrupados por virus en orden de catálogo
+     */
+    public List<Diagnostico.HallazgoVirus> detectar(PackedSequence secuencia) {
+        return detectar(secuencia, 0);
+    }
+
+    /**
+     * Detecta todos los virus del catálogo en la secuencia.
+     *
+     * <p>Cada virus se busca con la mayor tolerancia entre la suya y la de
+     * la solicitud. Los de tolerancia cero se resuelven juntos en una sola
+     * pasada del autómata; el resto, con una pasada bit-paralela cada uno.</p>
+     *
+     * @param secuencia Secuencia empaquetada a analizar
+     * @param toleranciaSolicitud Bases distintas admitidas para todos los virus
+     * @return Hallazgos agrupados por virus en orden de catálogo
+     */
+    public List<Diagnostico.HallazgoVirus> detectar(PackedSequence secuencia, int toleranciaSolicitud) {
+        int[] efectivas = toleranciasEfectivas(toleranciaSolicitud);
+        return construirHallazgos(escanear(secuencia, efectivas, 0, secuencia.length()));
+    }
+
+    /**
+     * Detecta virus dividiendo la secuencia en bloques que se escanean en
+     * paralelo en el pool dado.
+     *
+     * <p>Cada bloque lee además las (longitud del virus más largo − 1) bases
+     * siguientes, para encontrar las ocurrencias que cruzan el borde. Los
+     * resultados se unen en orden; si la última ocurrencia aceptada de un
+     * bloque se solapa con las primeras del siguiente, ese virus se vuelve
+     * a escanear en el bloque siguiente desde donde quedó libre, de modo
+     * que las posiciones coinciden exactamente con el escaneo secuencial.</p>
+     *
+     * @param secuencia Secuencia empaquetada a analizar
+     * @param toleranciaSolicitud Bases distintas admitidas para todos los virus
+     * @param pool Pool donde se ejecutan los bloques
+     * @param tamanoBloque Bases por bloque
+     * @return Hallazgos agrupados por virus en orden de catálogo
+     */
+    public List<Diagnostico.HallazgoVirus> detectar(PackedSequence secuencia, int toleranciaSolicitud,
+                                                    ForkJoinPool pool, int tamanoBloque) {
+        int n = secuencia.length();
+        if (n <= tamanoBloque || virus.isEmpty()) {
+            return detectar(secuencia, toleranciaSolicitud);
+        }
+
+        int[] efectivas = toleranciasEfectivas(toleranciaSolicitud);
+        List<ForkJoinTask<Ocurrencias[]>> tareas = new ArrayList<>();
+        for (int desde = 0; desde < n; desde += tamanoBloque) {
+            int inicio = desde;
+            int fin = Math.min(n, desde + tamanoBloque);
+            tareas.add(pool.submit(() -> escanear(secuencia, efectivas, inicio, fin)));
+        }
+
+        Ocurrencias[] total = new Ocurrencias[virus.size()];
+        for (int b = 0; b < tareas.size(); b++) {
+            int desde = b * tamanoBloque;
+            int hasta = Math.min(n, desde + tamanoBloque);
+            unirBloque(total, tareas.get(b).join(), secuencia, efectivas, hasta);
+        }
+        return construirHallazgos(total);
+    }
+
+    private int[] toleranciasEfectivas(int toleranciaSolicitud) {
+        int[] efectivas = new int[virus.size()];
+        for (int i = 0; i < efectivas.length; i++) {
+            efectivas[i] = aproximados[i] != null ? Math.max(tolerancias[i], toleranciaSolicitud) : 0;
+        }
+        return efectivas;
+    }
+
+    /**
+     * Escanea las ocurrencias que empiezan en {@code [desde, hasta)}, sin
+     * solapamiento dentro del tramo.
+     */
+    private Ocurrencias[] escanear(PackedSequence secuencia, int[] efectivas, int desde, int hasta) {
+        int n = virus.size();
+        Ocurrencias[] ocurrencias = new Ocurrencias[n];
+        int limite = Math.min(secuencia.length(), hasta + Math.max(0, longitudMaxima - 1));
+        boolean hayExactos = false;
+
+        for (int i = 0; i < n; i++) {
+            hayExactos |= efectivas[i] == 0;
+        }
+
+        if (hayExactos) {
+            matcher.buscar(secuencia, desde, limite, (indice, inicio) -> {
+                if (efectivas[indice] == 0 && inicio < hasta) {
+                    agregar(ocurrencias, indice, inicio, 0);
+                }
+            });
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (efectivas[i] > 0) {
+                escanearVirus(ocurrencias, i, secuencia, efectivas[i], desde, hasta);
+            }
+        }
+        return ocurrencias;
+    }
+
+    private void escanearVirus(Ocurrencias[] ocurrencias, int indice, PackedSequence secuencia,
+                               int tolerancia, int desde, int hasta) {
+        int limite = Math.min(secuencia.length(), hasta + longitudes[indice] - 1);
+        aproximados[indice].buscar(secuencia, tolerancia, desde, limite, (inicio, diferencias) -> {
+            if (inicio < hasta) {
+                agregar(ocurrencias, indice, inicio, diferencias);
+            }
+        });
+    }
+
+    /**
+     * Agrega al total las ocurrencias de un bloque, corrigiendo los virus
+     * cuya primera ocurrencia en el bloque se solapa con la última aceptada.
+     */
+    private void unirBloque(Ocurrencias[] total, Ocurrencias[] bloque, PackedSequence secuencia,
+                            int[] efectivas, int hasta) {
+        for (int i = 0; i < total.length; i++) {
+            Ocurrencias parcial = bloque[i];
+            if (parcial == null || parcial.cantidad == 0) {
+                continue;
+            }
+
+            int libre = total[i] != null ? total[i].siguienteLibre : 0;
+            if (parcial.inicios[0] < libre) {
+                Ocurrencias[] corregido = new Ocurrencias[total.length];
+                if (libre < hasta) {
+                    corregido[i] = new Ocurrencias();
+                    corregido[i].siguienteLibre = libre;
+                    escanearVirus(corregido, i, secuencia, efectivas[i], libre, hasta);
+                }
+                parcial = corregido[i];
+                if (parcial == null) {
+                    continue;
+                }
+            }
+
+            if (total[i] == null) {
+                total[i] = new Ocurrencias();
+            }
+            total[i].anexar(parcial);
+        }
+    }
+
+    private List<Diagnostico.HallazgoVirus> construirHallazgos(Ocurrencias[] ocurrencias) {
+        List<Diagnostico.HallazgoVirus> hallazgos = new ArrayList<>();
+        for (int i = 0; i < ocurrencias.length; i++) {
+            Ocurrencias o = ocurrencias[i];
+            if (o == null) {
+                continue;
+            }
+            String nombre = virus.get(i).getNombre();
+            for (int j = 0; j < o.cantidad; j++) {
+                int inicio = o.inicios[j];
+                hallazgos.add(new Diagnostico.HallazgoVirus(
+                        nombre, inicio, inicio + longitudes[i] - 1, o.diferencias[j]));
+            }
+        }
+        return hallazgos;
+    }
+
+    /**
+     * Registra una ocurrencia si no se solapa con la anterior aceptada del
+     * mismo virus (misma semántica que indexOf avanzando patron.length()).
+     */
+    private void agregar(Ocurrencias[] ocurrencias, int indice, int inicio, int diferencias) {
+        Ocurrencias o = ocurrencias[indice];
+        if (o == null) {
+            o = ocurrencias[indice] = new Ocurrencias();
+        }
+        if (inicio < o.siguienteLibre) {
+            return;
+        }
+        o.siguienteLibre = inicio + longitudes[indice];
+        o.agregar(inicio, diferencias);
+    }
+
+    /**
+     * Ocurrencias aceptadas de un virus, en orden de posición.
+     */
+    private static final class Ocurrencias {
+        int[] inicios = new int[4];
+        int[] diferencias = new int[4];
+        int cantidad;
+        int siguienteLibre;
+
+        void agregar(int inicio, int diferencia) {
+            if (cantidad == inicios.length) {
+                inicios = Arrays.copyOf(inicios, cantidad * 2);
+                diferencias = Arrays.copyOf(diferencias, cantidad * 2);
+            }
+            inicios[cantidad] = inicio;
+            diferencias[cantidad] = diferencia;
+            cantidad++;
+        }
+
+        void anexar(Ocurrencias otra) {
+            for (int j = 0; j < otra.cantidad; j++) {
+                agregar(otra.inicios[j], otra.diferencias[j]);
+            }
+            if (otra.cantidad > 0) {
+                siguienteLibre = otra.siguienteLibre;
+            }
+        }
+    }
+
+    /**
+     * @return Virus incluidos en el detector, en orden de catálogo
+     */
+    public List<Virus> getVirus() {
+        return virus;
+    }
+}
@@ -0,0 +1,334 @@
+package org.BioGuard.service.deteccion;
+
+import org.BioGuard.model.PackedSequence;
+import org.BioGuard.model.Virus;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Persistencia del catálogo de virus junto con su detector compilado.
+ *
+ * <p>Responsabilidad Única: Escribir y leer en un archivo binario la foto
+ * vigente del catálogo: su versión, el siguiente id a asignar, los virus
+ * (con la secuencia ya empaquetada) y los buscadores compilados del
+ * {@link DetectorVirus}. Al reiniciar, el detector se lee tal cual en
+ * lugar de volver a validar las secuencias y recompilar el autómata.</p>
+ *
+ * <p>El archivo se reescribe completo en cada cambio, en un temporal que
+ * luego reemplaza al anterior. Tiene dos secciones, cada una con su
+ * CRC32:</p>
+ *
+ * <pre>
+ * [magia][formato][versión del catálogo][siguiente id][n][virus]...[CRC]
+ * [versión del detector][longitud][detector][CRC]
+ * </pre>
+ *
+ * <p>El detector es derivable de los virus: si su sección falta, es de
+ * otra versión o no se puede decodificar, se vuelve a compilar con
+ * {@link DetectorVirus#compilar}. Solo cuando los virus no se pueden leer
+ * se aparta el archivo con la extensión {@code .corrupto} y el servidor
+ * arranca con el catálogo vacío.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public class PersistenciaCatalogo {
+
+    private static final int MAGIA = 0x42475643; // "BGVC"
+    private static final int FORMATO = 2;
+
+    /** Formato anterior: un único CRC al final, tras el detector. */
+    private static final int FORMATO_SIN_SECCIONES = 1;
+
+    /** Versión de la serialización de {@link DetectorVirus#escribir}. */
+    static final int VERSION_DETECTOR = 1;
+
+    private final Path ruta;
+
+    /**
+     * @param ruta Archivo del catálogo
+     */
+    public PersistenciaCatalogo(String ruta) {
+        this.ruta = Paths.get(ruta);
+    }
+
+    /**
+     * Lee el catálogo guardado.
+     *
+     * @return Catálogo y siguiente id, o null si no hay catálogo legible
+     */
+    public Restaurado cargar() {
+        if (!Files.exists(ruta)) {
+            return null;
+        }
+
+        long inicio = System.nanoTime();
+        try {
+            Restaurado restaurado = leer();
+            long ms = (System.nanoTime() - inicio) / 1_000_000;
+            System.out.println("[PersistenciaCatalogo] Catálogo v" + restaurado.catalogo.getVersion() +
+                    " cargado en " + ms + " ms: " + restaurado.catalogo.size() + " virus");
+            return restaurado;
+
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[PersistenciaCatalogo] Catálogo ilegible (" + e.getMessage() + "); se inicia vacío");
+            apartar();
+            return null;
+        }
+    }
+
+    private Restaurado leer() throws IOException {
+        long tamano = Files.size(ruta);
+        CRC32 crc = new CRC32();
+        try (InputStream archivo = new BufferedInputStream(Files.newInputStream(ruta));
+             CheckedInputStream verificado = new CheckedInputStream(archivo, crc)) {
+            DataInputStream in = new DataInputStream(verificado);
+
+            if (in.readInt() != MAGIA) {
+                throw new IOException("Formato de catálogo no reconocido");
+            }
+            int formato = in.readInt();
+            if (formato != FORMATO && formato != FORMATO_SIN_SECCIONES) {
+                throw new IOException("Formato de catálogo no reconocido: " + formato);
+            }
+            long version = in.readLong();
+            long siguienteId = in.readLong();
+
+            int total = in.readInt();
+            List<Virus> virus = new ArrayList<>(total);
+            for (int i = 0; i < total; i++) {
+                virus.add(leerVirus(in));
+            }
+
+            byte[] detector;
+            if (formato == FORMATO) {
+                long calculado = crc.getValue();
+                if (in.readLong() != calculado) {
+                    throw new IOException("CRC inválido en los virus");
+                }
+                detector = leerSeccionDetector(in, tamano);
+            } else {
+                // El CRC final cubre también el detector: sin él no hay
+                // garantía de que los virus leídos estén intactos
+                byte[] resto = archivo.readAllBytes();
+                if (resto.length < Long.BYTES) {
+                    throw new IOException("Catálogo truncado");
+                }
+                int longitud = resto.length - Long.BYTES;
+                crc.update(resto, 0, longitud);
+                if (ByteBuffer.wrap(resto, longitud, Long.BYTES).getLong() != crc.getValue()) {
+                    throw new IOException("CRC inválido");
+                }
+                detector = Arrays.copyOf(resto, longitud);
+            }
+
+            return new Restaurado(CatalogoVirus.restaurar(version, virus, decodificarDetector(detector, virus)),
+                    siguienteId);
+        }
+    }
+
+    // Cuerpo de la sección del detector, o null si falta, es de otra
+    // versión o no pasa su CRC
+    private static byte[] leerSeccionDetector(DataInputStream in, long tamanoArchivo) {
+        try {
+            int version = in.readInt();
+            if (version != VERSION_DETECTOR) {
+                System.err.println("[PersistenciaCatalogo] Detector en versión " + version + "; se recompila");
+                return null;
+            }
+            int longitud = in.readInt();
+            if (longitud < 0 || longitud > tamanoArchivo) {
+                throw new IOException("Longitud de detector inválida: " + longitud);
+            }
+            byte[] cuerpo = new byte[longitud];
+            in.readFully(cuerpo);
+            CRC32 crc = new CRC32();
+            crc.update(cuerpo);
+            if (in.readLong() != crc.getValue()) {
+                throw new IOException("CRC inválido en el detector");
+            }
+            return cuerpo;
+        } catch (IOException e) {
+            System.err.println("[PersistenciaCatalogo] Detector ilegible (" + e.getMessage() + "); se recompila");
+            return null;
+        }
+    }
+
+    // Lee el detector guardado o, si no es utilizable, lo compila de nuevo
+    private static DetectorVirus decodificarDetector(byte[] cuerpo, List<Virus> virus) {
+        if (cuerpo != null) {
+            try {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(cuerpo));
+                DetectorVirus detector = DetectorVirus.leer(in, virus);
+                if (in.available() == 0) {
+                    return detector;
+                }
+                System.err.println("[PersistenciaCatalogo] Detector con bytes sobrantes; se recompila");
+            } catch (IOException | RuntimeException e) {
+                System.err.println("[PersistenciaCatalogo] Detector ilegible (" + e.getMessage() + "); se recompila");
+            }
+        }
+        return DetectorVirus.compilar(virus);
+    }
+
+    private static Virus leerVirus(DataInputStream in) throws IOException {
+        Virus virus = new Virus();
+        virus.setId(leerTexto(in));
+        virus.setNombre(leerTexto(in));
+        virus.setTipo(leerTexto(in));
+        virus.setNivelPeligrosidad(in.readInt());
+        virus.setSintomas(leerTexto(in));
+        virus.setTratamiento(leerTexto(in));
+        virus.setToleranciaMutaciones(in.readInt());
+
+        int bases = in.readInt();
+        if (bases >= 0) {
+            long[] palabras = new long[PackedSequence.palabrasPara(bases)];
+            for (int i = 0; i < palabras.length; i++) {
+                palabras[i] = in.readLong();
+            }
+            virus.setSecuenciaEmpaquetada(PackedSequence.desdePalabras(palabras, bases));
+        } else {
+            virus.setSecuencia(leerTexto(in));
+        }
+        return virus;
+    }
+
+    private void apartar() {
+        try {
+            Files.move(ruta, ruta.resolveSibling(ruta.getFileName() + ".corrupto"),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("[PersistenciaCatalogo] No se pudo apartar el catálogo dañado: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Escribe la foto del catálogo y su detector compilado.
+     *
+     * @param catalogo Foto a guardar
+     * @param siguienteId Siguiente id a asignar
+     * @throws IOException Si hay error de escritura
+     */
+    public void guardar(CatalogoVirus catalogo, long siguienteId) throws IOException {
+        if (ruta.getParent() != null) {
+            Files.createDirectories(ruta.getParent());
+        }
+        Path temporal = ruta.resolveSibling(ruta.getFileName() + ".tmp");
+
+        CRC32 crc = new CRC32();
+        try (OutputStream archivo = Files.newOutputStream(temporal);
+             CheckedOutputStream verificado = new CheckedOutputStream(new BufferedOutputStream(archivo), crc);
+             DataOutputStream out = new DataOutputStream(verificado)) {
+
+            out.writeInt(MAGIA);
+            out.writeInt(FORMATO);
+            out.writeLong(catalogo.getVersion());
+            out.writeLong(siguienteId);
+
+            out.writeInt(catalogo.size());
+            for (Virus virus : catalogo.getVirus()) {
+                escribirVirus(out, virus);
+            }
+            out.flush();
+            out.writeLong(crc.getValue());
+
+            ByteArrayOutputStream detector = new ByteArrayOutputStream();
+            catalogo.getDetector().escribir(new DataOutputStream(detector));
+            CRC32 crcDetector = new CRC32();
+            crcDetector.update(detector.toByteArray());
+            out.writeInt(VERSION_DETECTOR);
+            out.writeInt(detector.size());
+            detector.writeTo(out);
+            out.writeLong(crcDetector.getValue());
+        }
+
+        try {
+            Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void escribirVirus(DataOutputStream out, Virus virus) throws IOException {
+        escribirTexto(out, virus.getId());
+        escribirTexto(out, virus.getNombre());
+        escribirTexto(out, virus.getTipo());
+        out.writeInt(virus.getNivelPeligrosidad());
+        escribirTexto(out, virus.getSintomas());
+        escribirTexto(out, virus.getTratamiento());
+        out.writeInt(virus.getToleranciaMutaciones());
+
+        PackedSequence secuencia = virus.getSecuenciaEmpaquetada();
+        if (secuencia != null) {
+            out.writeInt(secuencia.length());
+            for (int i = 0; i < secuencia.numeroPalabras(); i++) {
+                out.writeLong(secuencia.palabra(i));
+            }
+        } else {
+            // Sin secuencia o con caracteres fuera de A, C, G, T
+            out.writeInt(-1);
+            escribirTexto(out, virus.getSecuencia());
+        }
+    }
+
+    // Longitud en bytes y UTF-8 (-1 para null): las secuencias no
+    // empaquetables pueden superar el límite de writeUTF
+    private static void escribirTexto(DataOutputStream out, String texto) throws IOException {
+        if (texto == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String leerTexto(DataInputStream in) throws IOException {
+        int longitud = in.readInt();
+        if (longitud < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[longitud];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Catálogo leído del archivo.
+     */
+    public static final class Restaurado {
+        private final CatalogoVirus catalogo;
+        private final long siguienteId;
+
+        Restaurado(CatalogoVirus catalogo, long siguienteId) {
+            this.catalogo = catalogo;
+            this.siguienteId = siguienteId;
+        }
+
+        public CatalogoVirus getCatalogo() { return catalogo; }
+        public long getSiguienteId() { return siguienteId; }
+    }
+}
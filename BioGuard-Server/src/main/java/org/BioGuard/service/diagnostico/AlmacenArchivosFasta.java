@@ -0,0 +1,133 @@
+package org.BioGuard.service.diagnostico;
+
+import org.BioGuard.model.Muestra;
+import org.BioGuard.exception.FileReadException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Consumer;
+
+/**
+ * Almacén de muestras con un archivo FASTA por muestra.
+ *
+ * <p>Responsabilidad Única: Guardar cada muestra como
+ * {@code <directorio>/<documento>/muestra_<fecha>.fasta} y cargarlas de
+ * vuelta al iniciar.</p>
+ *
+ * <p>Es el formato original del servidor y el que usan los diagnósticos
+ * CSV; {@link ExportadorFasta} lo regenera desde un {@link AlmacenSegmentos}.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public class AlmacenArchivosFasta implements AlmacenMuestras {
+
+    /** Directorio por defecto de las muestras. */
+    public static final String DIRECTORIO_POR_DEFECTO = "data/muestras/";
+
+    private final Path directorio;
+    private final MuestraParser parser = new MuestraParser();
+
+    public AlmacenArchivosFasta() {
+        this(DIRECTORIO_POR_DEFECTO);
+    }
+
+    /**
+     * @param directorio Directorio con una carpeta por paciente
+     */
+    public AlmacenArchivosFasta(String directorio) {
+        this.directorio = Paths.get(directorio);
+        crearDirectorioMuestras();
+    }
+
+    /**
+     * Crea el directorio de muestras si no existe.
+     */
+    private void crearDirectorioMuestras() {
+        try {
+            Files.createDirectories(directorio);
+        } catch (IOException e) {
+            System.err.println("[MuestraRepository] Error creando directorio: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Carga las muestras de los archivos FASTA de todas las carpetas de
+     * pacientes, en paralelo (ver {@link CargaParalela}). Solo se lee el
+     * encabezado de cada archivo; la secuencia se lee en su primer uso.
+     */
+    @Override
+    public void cargar(Consumer<Muestra> destino) {
+        CargaParalela.cargar("MuestraRepository", "muestras", directorio, "*.fasta",
+                // Ignorar carpetas que son placeholders
+                carpeta -> !carpeta.equals("documento") && !carpeta.equals("placeholder"),
+                this::leerMuestra, destino);
+    }
+
+    private Muestra leerMuestra(Path archivo, String documento) throws IOException, FileReadException {
+        Muestra muestra = parser.parsearEncabezado(archivo);
+
+        // Verificar que el documento coincida con la carpeta
+        if (!documento.equals(muestra.getDocumentoPaciente())) {
+            System.err.println("  Advertencia: Documento en archivo (" +
+                    muestra.getDocumentoPaciente() +
+                    ") no coincide con carpeta (" + documento + ")");
+        }
+        return muestra;
+    }
+
+    /**
+     * La secuencia se leerá del archivo FASTA de la muestra en su primer uso.
+     */
+    @Override
+    public void adoptar(Muestra muestra) {
+        if (muestra.getArchivoPath() != null) {
+            parser.diferirSecuencia(muestra, Paths.get(muestra.getArchivoPath()));
+        }
+    }
+
+    @Override
+    public void guardar(Muestra muestra) throws IOException {
+        // Crear carpeta del paciente
+        Path pacienteDir = directorio.resolve(muestra.getDocumentoPaciente());
+        Files.createDirectories(pacienteDir);
+
+        // Generar nombre de archivo
+        String nombreArchivo = muestra.getNombreArchivo();
+        Path archivoPath = pacienteDir.resolve(nombreArchivo);
+
+        // Evitar sobrescribir archivos existentes
+        int contador = 1;
+        while (Files.exists(archivoPath)) {
+            String nombreSinExt = nombreArchivo.replace(".fasta", "");
+            nombreArchivo = nombreSinExt + "_" + contador + ".fasta";
+            archivoPath = pacienteDir.resolve(nombreArchivo);
+            contador++;
+        }
+
+        // Crear contenido en formato FASTA
+        String contenido = ">" + muestra.getDocumentoPaciente() + "|" +
+                muestra.getFecha().format(DateTimeFormatter.ISO_DATE_TIME) + "\n" +
+                muestra.getSecuencia() + "\n";
+
+        // Escribir archivo
+        Files.writeString(archivoPath, contenido);
+        muestra.setArchivoPath(archivoPath.toString());
+    }
+
+    @Override
+    public void eliminar(Muestra muestra) throws IOException {
+        if (muestra.getArchivoPath() != null) {
+            Files.deleteIfExists(Paths.get(muestra.getArchivoPath()));
+        }
+    }
+
+    @Override
+    public void cerrar() {
+        // Cada escritura abre y cierra su archivo
+    }
+}
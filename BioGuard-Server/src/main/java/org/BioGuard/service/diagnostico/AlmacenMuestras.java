@@ -0,0 +1,72 @@
+package org.BioGuard.service.diagnostico;
+
+import org.BioGuard.model.Muestra;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Motor de almacenamiento de las muestras en disco.
+ *
+ * <p>Responsabilidad Única: Persistir y recuperar muestras; los índices en
+ * memoria y las consultas quedan en {@link MuestraRepository}.</p>
+ *
+ * <p>Implementaciones: {@link AlmacenArchivosFasta} (un archivo FASTA por
+ * muestra, en una carpeta por paciente) y {@link AlmacenSegmentos}
+ * (registros anexados a archivos de segmento).</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public interface AlmacenMuestras {
+
+    /**
+     * Entrega todas las muestras guardadas. Puede invocar al destino desde
+     * varios hilos; las secuencias pueden quedar con carga diferida.
+     *
+     * @param destino Recibe cada muestra cargada
+     */
+    void cargar(Consumer<Muestra> destino);
+
+    /**
+     * Indica que las muestras se obtuvieron de otra fuente y no se llamará
+     * a {@link #cargar(Consumer)}; el almacén puede liberar lo que haya
+     * preparado para la carga.
+     */
+    default void omitirCarga() {
+    }
+
+    /**
+     * Recibe una muestra obtenida de otra fuente que ya está guardada en
+     * este almacén, para que lea su secuencia como las que carga él mismo.
+     *
+     * @param muestra Muestra ya guardada
+     */
+    default void adoptar(Muestra muestra) {
+    }
+
+    /**
+     * Persiste una muestra nueva y actualiza su ruta de archivo. Al
+     * retornar, la muestra está en disco.
+     *
+     * @param muestra Muestra a guardar
+     * @throws IOException Si hay error de escritura
+     */
+    void guardar(Muestra muestra) throws IOException;
+
+    /**
+     * Elimina una muestra guardada.
+     *
+     * @param muestra Muestra a eliminar
+     * @throws IOException Si hay error de escritura
+     */
+    void eliminar(Muestra muestra) throws IOException;
+
+    /**
+     * Libera los recursos del almacén.
+     *
+     * @throws IOException Si hay error al cerrar
+     */
+    void cerrar() throws IOException;
+}
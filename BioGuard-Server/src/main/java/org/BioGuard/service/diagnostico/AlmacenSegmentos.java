@@ -0,0 +1,653 @@
+package org.BioGuard.service.diagnostico;
+
+import org.BioGuard.model.Muestra;
+import org.BioGuard.model.PackedSequence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Almacén de muestras en archivos de segmento de solo anexado.
+ *
+ * <p>Responsabilidad Única: Guardar las muestras como registros con
+ * prefijo de longitud en unos pocos archivos grandes, en lugar de un
+ * archivo pequeño por muestra.</p>
+ *
+ * <p>Formato de cada registro: longitud del cuerpo (int), CRC32 del cuerpo
+ * (int) y el cuerpo: tipo (byte), id, documento, fecha, número de bases y
+ * las palabras de la secuencia empaquetada. Eliminar una muestra anexa un
+ * registro de borrado con su id. Cuando el segmento activo supera el
+ * tamaño máximo se abre el siguiente ({@code segmento-000001.dat}, ...).</p>
+ *
+ * <p>Confirmación en grupo: cada escritor anexa su registro bajo un
+ * candado y luego espera a que esté en disco. El primero que espera hace
+ * {@code force} por todos los registros escritos hasta ese momento; los
+ * que llegan mientras tanto esperan y el siguiente {@code force} los cubre
+ * juntos, de modo que muchas escrituras concurrentes comparten un fsync.</p>
+ *
+ * <p>Al abrir se recorren los segmentos en orden y se reconstruye el
+ * índice id → posición. Cada registro se lee completo y se verifica con su
+ * CRC: el segmento se trunca en el primer registro incompleto (escritura
+ * cortada) o dañado, descartándolo junto con los que lo siguen en ese
+ * segmento. Las secuencias se leen del segmento en su primer uso y se
+ * vuelven a verificar con su CRC.</p>
+ *
+ * <p>Con mapeo en memoria, cada segmento sellado (todos menos el activo)
+ * se mapea una vez con {@code FileChannel.map} y las secuencias de sus
+ * muestras son vistas de ese mapeo ({@link PackedSequence#sobre}): la
+ * muestra guarda solo su ubicación y las palabras quedan fuera del heap.
+ * Las del segmento activo se leen al heap como sin mapeo, porque el
+ * archivo aún crece; al sellarlo, esas muestras pasan a leer del mapeo.
+ * Así el heap ocupado por secuencias queda acotado por el tamaño de un
+ * segmento, sin importar cuántas muestras se conserven.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public class AlmacenSegmentos implements AlmacenMuestras {
+
+    /** Directorio por defecto de los segmentos. */
+    public static final String DIRECTORIO_POR_DEFECTO = "data/segmentos/";
+
+    /** Tamaño máximo por defecto de un segmento, en bytes. */
+    public static final long TAMANO_SEGMENTO_POR_DEFECTO = 64L * 1024 * 1024;
+
+    private static final byte TIPO_MUESTRA = 1;
+    private static final byte TIPO_BORRADO = 2;
+    private static final int CABECERA = 2 * Integer.BYTES;
+    // Capacidad inicial del buffer con que se verifica cada registro al abrir
+    private static final int LECTURA_INICIAL = 64 * 1024;
+    private static final String PREFIJO = "segmento-";
+    private static final String EXTENSION = ".dat";
+
+    private final Path directorio;
+    private final long tamanoMaximo;
+    private final boolean mapear;
+    private final Map<Integer, FileChannel> segmentos = new ConcurrentHashMap<>();
+    private final Map<String, Ubicacion> indice = new ConcurrentHashMap<>();
+
+    // Escritura: segmento activo y registros anexados
+    private final ReentrantLock lockEscritura = new ReentrantLock();
+    private int segmentoActivo;
+    private FileChannel canalActivo;
+    private long posicionActiva;
+    private long registrosEscritos;
+
+    // Confirmación en grupo
+    private final ReentrantLock lockSync = new ReentrantLock();
+    private final Condition syncTerminado = lockSync.newCondition();
+    private long registrosEnDisco;
+    private boolean sincronizando;
+    private long sincronizaciones;
+
+    // Muestras leídas al abrir, en orden de escritura
+    private final Map<String, Muestra> recuperadas = new LinkedHashMap<>();
+
+    // Mapeos de los segmentos sellados
+    private final Map<Integer, MappedByteBuffer> mapeos = new ConcurrentHashMap<>();
+    // Muestras del segmento activo con la secuencia en el heap; pasan al
+    // mapeo cuando el segmento se sella. Protegido por lockEscritura
+    private final Map<Muestra, Ubicacion> enHeap = new IdentityHashMap<>();
+
+    public AlmacenSegmentos() throws IOException {
+        this(DIRECTORIO_POR_DEFECTO, TAMANO_SEGMENTO_POR_DEFECTO);
+    }
+
+    /**
+     * Abre (o crea) el almacén y reconstruye su índice.
+     *
+     * @param directorio Directorio de los segmentos
+     * @param tamanoMaximo Bytes a partir de los cuales se abre un segmento nuevo
+     * @throws IOException Si no se pueden abrir los segmentos
+     */
+    public AlmacenSegmentos(String directorio, long tamanoMaximo) throws IOException {
+        this(directorio, tamanoMaximo, false);
+    }
+
+    /**
+     * Abre (o crea) el almacén y reconstruye su índice.
+     *
+     * @param directorio Directorio de los segmentos
+     * @param tamanoMaximo Bytes a partir de los cuales se abre un segmento nuevo
+     * @param mapear true para leer las secuencias de los segmentos sellados
+     *               desde archivos mapeados en memoria, fuera del heap
+     * @throws IOException Si no se pueden abrir los segmentos
+     * @throws IllegalArgumentException Si se pide mapear segmentos de más de 1 GB
+     */
+    public AlmacenSegmentos(String directorio, long tamanoMaximo, boolean mapear) throws IOException {
+        // Un mapeo no puede superar 2 GB; el límite deja margen para el
+        // último registro, que puede exceder el tamaño máximo
+        if (mapear && tamanoMaximo > (1L << 30)) {
+            throw new IllegalArgumentException("Segmentos demasiado grandes para mapear: " + tamanoMaximo);
+        }
+        this.directorio = Paths.get(directorio);
+        this.tamanoMaximo = Math.max(CABECERA, tamanoMaximo);
+        this.mapear = mapear;
+        Files.createDirectories(this.directorio);
+        reconstruirIndice();
+    }
+
+    // ========== APERTURA ==========
+
+    private void reconstruirIndice() throws IOException {
+        long inicio = System.nanoTime();
+        List<Integer> numeros = new ArrayList<>();
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            archivos.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(PREFIJO) && n.endsWith(EXTENSION))
+                    .forEach(n -> numeros.add(Integer.parseInt(
+                            n.substring(PREFIJO.length(), n.length() - EXTENSION.length()))));
+        }
+        numeros.sort(null);
+
+        for (int numero : numeros) {
+            FileChannel canal = abrir(numero);
+            segmentos.put(numero, canal);
+            recorrerSegmento(numero, canal);
+        }
+
+        segmentoActivo = numeros.isEmpty() ? 1 : numeros.get(numeros.size() - 1);
+        canalActivo = segmentos.computeIfAbsent(segmentoActivo, n -> {
+            try {
+                return abrir(n);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        posicionActiva = canalActivo.size();
+
+        if (mapear) {
+            for (int numero : numeros) {
+                if (numero != segmentoActivo) {
+                    mapearSegmento(numero);
+                }
+            }
+        }
+
+        long ms = (System.nanoTime() - inicio) / 1_000_000;
+        System.out.println("[AlmacenSegmentos] Índice reconstruido: " + indice.size() + " muestras en " +
+                numeros.size() + " segmentos, " + ms + " ms");
+    }
+
+    private FileChannel abrir(int numero) throws IOException {
+        return FileChannel.open(rutaSegmento(numero),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private Path rutaSegmento(int numero) {
+        return directorio.resolve(String.format("%s%06d%s", PREFIJO, numero, EXTENSION));
+    }
+
+    /**
+     * Aplica en orden los registros de un segmento que pasan su CRC y
+     * trunca el segmento en el primero incompleto o dañado.
+     */
+    private void recorrerSegmento(int numero, FileChannel canal) throws IOException {
+        long tamano = canal.size();
+        long posicion = 0;
+        ByteBuffer lectura = ByteBuffer.allocate(LECTURA_INICIAL);
+        CRC32 crc = new CRC32();
+        boolean danado = false;
+
+        while (posicion + CABECERA <= tamano) {
+            lectura.clear();
+            leerCompleto(canal, lectura, posicion, CABECERA);
+            lectura.flip();
+            int longitud = lectura.getInt();
+            int crcGuardado = lectura.getInt();
+            if (longitud <= 0 || posicion + CABECERA + longitud > tamano) {
+                break;
+            }
+
+            if (lectura.capacity() < longitud) {
+                lectura = ByteBuffer.allocate(longitud);
+            }
+            lectura.clear();
+            leerCompleto(canal, lectura, posicion + CABECERA, longitud);
+            lectura.flip();
+            crc.reset();
+            crc.update(lectura.duplicate());
+            if ((int) crc.getValue() != crcGuardado) {
+                danado = true;
+                break;
+            }
+
+            try {
+                aplicar(lectura, numero, posicion, longitud);
+            } catch (RuntimeException e) {
+                System.err.println("  [AlmacenSegmentos] Registro ilegible en " + rutaSegmento(numero) +
+                        " @" + posicion + ": " + e.getMessage());
+            }
+            posicion += CABECERA + longitud;
+        }
+
+        if (posicion < tamano) {
+            System.err.println("  [AlmacenSegmentos] " + (danado ? "Registro dañado" : "Registro incompleto") +
+                    " en " + rutaSegmento(numero) + " @" + posicion + "; se descartan " +
+                    (tamano - posicion) + " bytes desde ahí");
+            canal.truncate(posicion);
+            canal.force(true);
+        }
+    }
+
+    private void aplicar(ByteBuffer cuerpo, int segmento, long posicion, int longitud) {
+        byte tipo = cuerpo.get();
+        String id = leerTexto(cuerpo);
+        if (tipo == TIPO_BORRADO) {
+            indice.remove(id);
+            recuperadas.remove(id);
+            return;
+        }
+        if (tipo != TIPO_MUESTRA) {
+            throw new IllegalStateException("Tipo de registro desconocido: " + tipo);
+        }
+
+        String documento = leerTexto(cuerpo);
+        LocalDateTime fecha = LocalDateTime.ofEpochSecond(cuerpo.getLong(), cuerpo.getInt(), ZoneOffset.UTC);
+
+        Ubicacion ubicacion = new Ubicacion(segmento, posicion, longitud);
+        Muestra muestra = new Muestra();
+        muestra.setId(id);
+        muestra.setDocumentoPaciente(documento);
+        muestra.setFecha(fecha);
+        muestra.setArchivoPath(ubicacion.toString(this));
+        muestra.setCargadorSecuencia(() -> cargarSecuencia(muestra, ubicacion));
+
+        indice.put(id, ubicacion);
+        recuperadas.remove(id);
+        recuperadas.put(id, muestra);
+    }
+
+    @Override
+    public void cargar(Consumer<Muestra> destino) {
+        recuperadas.values().forEach(destino);
+        recuperadas.clear();
+    }
+
+    @Override
+    public void omitirCarga() {
+        recuperadas.clear();
+    }
+
+    /**
+     * La secuencia se leerá del segmento en su primer uso, como las de las
+     * muestras recuperadas al abrir.
+     */
+    @Override
+    public void adoptar(Muestra muestra) {
+        Ubicacion ubicacion = indice.get(muestra.getId());
+        if (ubicacion != null) {
+            muestra.setCargadorSecuencia(() -> cargarSecuencia(muestra, ubicacion));
+        }
+    }
+
+    // ========== ESCRITURA ==========
+
+    @Override
+    public void guardar(Muestra muestra) throws IOException {
+        PackedSequence secuencia = muestra.getSecuenciaEmpaquetada();
+        byte[] id = texto(muestra.getId());
+        byte[] documento = texto(muestra.getDocumentoPaciente());
+        int palabras = secuencia.numeroPalabras();
+
+        int longitud = 1 + Short.BYTES + id.length + Short.BYTES + documento.length
+                + Long.BYTES + Integer.BYTES + Integer.BYTES + palabras * Long.BYTES;
+        ByteBuffer registro = ByteBuffer.allocate(CABECERA + longitud);
+        registro.position(CABECERA);
+        registro.put(TIPO_MUESTRA);
+        registro.putShort((short) id.length).put(id);
+        registro.putShort((short) documento.length).put(documento);
+        registro.putLong(muestra.getFecha().toEpochSecond(ZoneOffset.UTC));
+        registro.putInt(muestra.getFecha().getNano());
+        registro.putInt(secuencia.length());
+        for (int i = 0; i < palabras; i++) {
+            registro.putLong(secuencia.palabra(i));
+        }
+
+        Ubicacion ubicacion = anexar(registro, longitud);
+        indice.put(muestra.getId(), ubicacion);
+        muestra.setArchivoPath(ubicacion.toString(this));
+        if (mapear) {
+            adjuntar(muestra, ubicacion);
+        }
+    }
+
+    @Override
+    public void eliminar(Muestra muestra) throws IOException {
+        byte[] id = texto(muestra.getId());
+        int longitud = 1 + Short.BYTES + id.length;
+        ByteBuffer registro = ByteBuffer.allocate(CABECERA + longitud);
+        registro.position(CABECERA);
+        registro.put(TIPO_BORRADO);
+        registro.putShort((short) id.length).put(id);
+
+        anexar(registro, longitud);
+        indice.remove(muestra.getId());
+        if (mapear) {
+            lockEscritura.lock();
+            try {
+                enHeap.remove(muestra);
+            } finally {
+                lockEscritura.unlock();
+            }
+        }
+    }
+
+    /**
+     * Completa la cabecera, anexa el registro y espera a que esté en disco.
+     */
+    private Ubicacion anexar(ByteBuffer registro, int longitud) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(registro.array(), CABECERA, longitud);
+        registro.putInt(0, longitud);
+        registro.putInt(Integer.BYTES, (int) crc.getValue());
+        registro.flip();
+
+        Ubicacion ubicacion;
+        long numeroRegistro;
+        Map<Muestra, Ubicacion> selladas = Collections.emptyMap();
+        lockEscritura.lock();
+        try {
+            if (posicionActiva > 0 && posicionActiva + registro.remaining() > tamanoMaximo) {
+                selladas = rotar();
+            }
+            ubicacion = new Ubicacion(segmentoActivo, posicionActiva, longitud);
+            long posicion = posicionActiva;
+            while (registro.hasRemaining()) {
+                posicion += canalActivo.write(registro, posicion);
+            }
+            posicionActiva = posicion;
+            numeroRegistro = ++registrosEscritos;
+        } finally {
+            lockEscritura.unlock();
+        }
+
+        // Fuera del candado: cambiar el cargador toma el candado de la muestra
+        selladas.forEach((muestra, enSegmento) ->
+                muestra.setCargadorSecuencia(() -> cargarSecuencia(muestra, enSegmento)));
+        esperarDisco(numeroRegistro);
+        return ubicacion;
+    }
+
+    /**
+     * Cierra el segmento activo para escritura y abre el siguiente. Debe
+     * invocarse con el candado de escritura tomado. El segmento saliente
+     * se fuerza a disco aquí, así que sus registros ya están confirmados
+     * cuando un {@code force} posterior cubre solo el segmento nuevo. Los
+     * canales anteriores siguen abiertos para lectura.
+     *
+     * @return Muestras del segmento sellado cuya secuencia está en el heap,
+     *         para que pasen a leer del mapeo
+     */
+    private Map<Muestra, Ubicacion> rotar() throws IOException {
+        canalActivo.force(false);
+        Map<Muestra, Ubicacion> selladas = Collections.emptyMap();
+        if (mapear) {
+            mapearSegmento(segmentoActivo);
+            selladas = new IdentityHashMap<>(enHeap);
+            enHeap.clear();
+        }
+        segmentoActivo++;
+        canalActivo = abrir(segmentoActivo);
+        segmentos.put(segmentoActivo, canalActivo);
+        posicionActiva = 0;
+        return selladas;
+    }
+
+    private void mapearSegmento(int numero) throws IOException {
+        FileChannel canal = segmentos.get(numero);
+        mapeos.put(numero, canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()));
+    }
+
+    /**
+     * Con mapeo, deja la muestra leyendo del mapeo si su segmento ya está
+     * sellado, o la anota para pasarla al mapeo cuando se selle.
+     */
+    private void adjuntar(Muestra muestra, Ubicacion ubicacion) {
+        boolean sellado;
+        lockEscritura.lock();
+        try {
+            sellado = mapeos.containsKey(ubicacion.segmento);
+            if (!sellado) {
+                enHeap.put(muestra, ubicacion);
+            }
+        } finally {
+            lockEscritura.unlock();
+        }
+        if (sellado) {
+            muestra.setCargadorSecuencia(() -> cargarSecuencia(muestra, ubicacion));
+        }
+    }
+
+    /**
+     * Confirmación en grupo: retorna cuando el registro indicado está en
+     * disco. Si no hay un {@code force} en curso, este hilo lo hace por
+     * todos los registros escritos hasta ahora; si lo hay, espera.
+     */
+    private void esperarDisco(long numeroRegistro) throws IOException {
+        lockSync.lock();
+        try {
+            while (registrosEnDisco < numeroRegistro) {
+                if (sincronizando) {
+                    syncTerminado.awaitUninterruptibly();
+                    continue;
+                }
+                sincronizando = true;
+                long cubiertos = registrosEnDisco;
+                lockSync.unlock();
+                try {
+                    FileChannel canal;
+                    lockEscritura.lock();
+                    try {
+                        canal = canalActivo;
+                        cubiertos = registrosEscritos;
+                    } finally {
+                        lockEscritura.unlock();
+                    }
+                    canal.force(false);
+                } finally {
+                    lockSync.lock();
+                    sincronizando = false;
+                    if (cubiertos > registrosEnDisco) {
+                        registrosEnDisco = cubiertos;
+                        sincronizaciones++;
+                    }
+                    syncTerminado.signalAll();
+                }
+            }
+        } finally {
+            lockSync.unlock();
+        }
+    }
+
+    // ========== LECTURA ==========
+
+    /**
+     * Carga la secuencia de una muestra: como vista del mapeo si su
+     * segmento está sellado y mapeado, o copiada al heap si no.
+     */
+    private PackedSequence cargarSecuencia(Muestra muestra, Ubicacion ubicacion) throws IOException {
+        if (!mapear) {
+            return leerSecuencia(ubicacion);
+        }
+        MappedByteBuffer mapeo = mapeos.get(ubicacion.segmento);
+        if (mapeo == null) {
+            lockEscritura.lock();
+            try {
+                mapeo = mapeos.get(ubicacion.segmento);
+                if (mapeo == null) {
+                    enHeap.put(muestra, ubicacion);
+                }
+            } finally {
+                lockEscritura.unlock();
+            }
+        }
+        if (mapeo == null) {
+            return leerSecuencia(ubicacion);
+        }
+
+        ByteBuffer registro = mapeo.slice((int) ubicacion.posicion, CABECERA + ubicacion.longitud);
+        int bases = abrirRegistro(registro, ubicacion);
+        return PackedSequence.sobre(registro.asLongBuffer(), bases);
+    }
+
+    private PackedSequence leerSecuencia(Ubicacion ubicacion) throws IOException {
+        FileChannel canal = segmentos.get(ubicacion.segmento);
+        if (canal == null) {
+            throw new IOException("Segmento no disponible: " + ubicacion.segmento);
+        }
+
+        ByteBuffer registro = ByteBuffer.allocate(CABECERA + ubicacion.longitud);
+        leerCompleto(canal, registro, ubicacion.posicion, registro.capacity());
+        registro.flip();
+
+        int bases = abrirRegistro(registro, ubicacion);
+        long[] palabras = new long[PackedSequence.palabrasPara(bases)];
+        registro.asLongBuffer().get(palabras);
+        return PackedSequence.desdePalabras(palabras, bases);
+    }
+
+    /**
+     * Verifica la longitud y el CRC de un registro y avanza el buffer hasta
+     * las palabras de la secuencia.
+     *
+     * @return Número de bases de la secuencia
+     */
+    private int abrirRegistro(ByteBuffer registro, Ubicacion ubicacion) throws IOException {
+        int longitud = registro.getInt();
+        int crcGuardado = registro.getInt();
+        CRC32 crc = new CRC32();
+        crc.update(registro.duplicate());
+        if (longitud != ubicacion.longitud || (int) crc.getValue() != crcGuardado) {
+            throw new IOException("Registro dañado en " + ubicacion.toString(this));
+        }
+
+        registro.get(); // tipo
+        leerTexto(registro); // id
+        leerTexto(registro); // documento
+        registro.getLong();
+        registro.getInt();
+        return registro.getInt();
+    }
+
+    private static void leerCompleto(FileChannel canal, ByteBuffer destino, long posicion, int bytes)
+            throws IOException {
+        destino.limit(destino.position() + bytes);
+        while (destino.hasRemaining()) {
+            int leidos = canal.read(destino, posicion);
+            if (leidos < 0) {
+                throw new IOException("Fin de segmento inesperado");
+            }
+            posicion += leidos;
+        }
+    }
+
+    private static byte[] texto(String valor) {
+        byte[] bytes = (valor != null ? valor : "").getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Texto demasiado largo para el registro: " + bytes.length + " bytes");
+        }
+        return bytes;
+    }
+
+    private static String leerTexto(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ========== ESTADO ==========
+
+    /**
+     * @return Muestras vigentes en el índice
+     */
+    public int getMuestras() {
+        return indice.size();
+    }
+
+    /**
+     * @return Segmentos sellados mapeados en memoria
+     */
+    public int getSegmentosMapeados() {
+        return mapeos.size();
+    }
+
+    /**
+     * @return Llamadas a {@code force} hechas desde la apertura
+     */
+    public long getSincronizaciones() {
+        lockSync.lock();
+        try {
+            return sincronizaciones;
+        } finally {
+            lockSync.unlock();
+        }
+    }
+
+    /**
+     * @return Registros anexados desde la apertura
+     */
+    public long getRegistrosEscritos() {
+        lockEscritura.lock();
+        try {
+            return registrosEscritos;
+        } finally {
+            lockEscritura.unlock();
+        }
+    }
+
+    @Override
+    public void cerrar() throws IOException {
+        lockEscritura.lock();
+        try {
+            canalActivo.force(false);
+            for (FileChannel canal : segmentos.values()) {
+                canal.close();
+            }
+            segmentos.clear();
+        } finally {
+            lockEscritura.unlock();
+        }
+    }
+
+    /**
+     * Posición de un registro: segmento, inicio y longitud del cuerpo.
+     */
+    private static final class Ubicacion {
+        private final int segmento;
+        private final long posicion;
+        private final int longitud;
+
+        Ubicacion(int segmento, long posicion, int longitud) {
+            this.segmento = segmento;
+            this.posicion = posicion;
+            this.longitud = longitud;
+        }
+
+        String toString(AlmacenSegmentos almacen) {
+            return almacen.rutaSegmento(segmento) + "@" + posicion;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.BioGuard.service.diagnostico;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Carga en paralelo los archivos de las carpetas de pacientes.
+ *
+ * <p>Responsabilidad Única: Recorrer {@code data/muestras/} y leer sus
+ * archivos con un pool acotado, entregando cada resultado al repositorio
+ * que lo pidió.</p>
+ *
+ * <p>Cada carpeta de paciente es una tarea; el pool tiene tantos hilos
+ * como procesadores y se cierra al terminar la carga. No se imprime nada
+ * por archivo leído, solo los errores y un resumen final.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+final class CargaParalela {
+
+    /**
+     * Lee un archivo de la carpeta de un paciente.
+     *
+     * @param <T> Tipo del objeto leído
+     */
+    @FunctionalInterface
+    interface Lector<T> {
+        /**
+         * @param archivo Archivo a leer
+         * @param documento Nombre de la carpeta del paciente
+         * @return Objeto leído, o null si el archivo no aplica
+         */
+        T leer(Path archivo, String documento) throws Exception;
+    }
+
+    private CargaParalela() {}
+
+    /**
+     * Lee todos los archivos que cumplen el patrón en las carpetas de
+     * pacientes e imprime el resumen de la carga.
+     *
+     * @param origen Nombre del repositorio, para los mensajes
+     * @param elementos Nombre de lo que se carga, en plural, para el resumen
+     * @param raiz Carpeta que contiene una carpeta por paciente
+     * @param patron Patrón de los archivos a leer (p. ej. "*.fasta")
+     * @param incluirCarpeta Filtra las carpetas de pacientes por nombre
+     * @param lector Lee un archivo; sus excepciones cuentan como error
+     * @param destino Recibe cada objeto leído; puede invocarse desde varios hilos
+     * @param <T> Tipo del objeto leído
+     * @return Cantidad de objetos cargados
+     */
+    static <T> int cargar(String origen, String elementos, Path raiz, String patron,
+                          Predicate<String> incluirCarpeta, Lector<T> lector, Consumer<T> destino) {
+        if (!Files.exists(raiz)) {
+            return 0;
+        }
+
+        long inicio = System.nanoTime();
+        List<Path> carpetas;
+        try (Stream<Path> hijos = Files.list(raiz)) {
+            carpetas = hijos.filter(Files::isDirectory)
+                    .filter(c -> incluirCarpeta.test(c.getFileName().toString()))
+                    .toList();
+        } catch (IOException e) {
+            System.err.println("[" + origen + "] Error cargando " + elementos + ": " + e.getMessage());
+            return 0;
+        }
+
+        AtomicInteger cargados = new AtomicInteger();
+        AtomicInteger errores = new AtomicInteger();
+        int hilos = Math.max(1, Math.min(carpetas.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(hilos, r -> {
+            Thread hilo = new Thread(r, "carga-" + origen);
+            hilo.setDaemon(true);
+            return hilo;
+        });
+
+        try {
+            List<Future<?>> tareas = new ArrayList<>(carpetas.size());
+            for (Path carpeta : carpetas) {
+                tareas.add(pool.submit(() ->
+                        cargarCarpeta(origen, carpeta, patron, lector, destino, cargados, errores)));
+            }
+            for (Future<?> tarea : tareas) {
+                try {
+                    tarea.get();
+                } catch (ExecutionException e) {
+                    errores.incrementAndGet();
+                    System.err.println("[" + origen + "] Error cargando " + elementos + ": " + e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long ms = (System.nanoTime() - inicio) / 1_000_000;
+        System.out.println("[" + origen + "] Carga completada: " + cargados.get() + " " + elementos + " de " +
+                carpetas.size() + " pacientes en " + ms + " ms, " + errores.get() + " errores");
+        return cargados.get();
+    }
+
+    private static <T> void cargarCarpeta(String origen, Path carpeta, String patron, Lector<T> lector,
+                                          Consumer<T> destino, AtomicInteger cargados, AtomicInteger errores) {
+        String documento = carpeta.getFileName().toString();
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(carpeta, patron)) {
+            for (Path archivo : archivos) {
+                try {
+                    T leido = lector.leer(archivo, documento);
+                    if (leido != null) {
+                        destino.accept(leido);
+                        cargados.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    errores.incrementAndGet();
+                    System.err.println("  [" + origen + "] Error en " + archivo.getFileName() + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            errores.incrementAndGet();
+            System.err.println("  [" + origen + "] Error leyendo " + carpeta + ": " + e.getMessage());
+        }
+    }
+}
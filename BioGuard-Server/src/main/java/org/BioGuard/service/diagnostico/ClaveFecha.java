@@ -0,0 +1,68 @@
+package org.BioGuard.service.diagnostico;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Clave de los índices ordenados por fecha de los repositorios: la fecha
+ * del registro y su id para desempatar.
+ *
+ * <p>Un id null ordena antes que cualquier id de la misma fecha, por lo
+ * que {@link #inicioDe(LocalDateTime)} sirve como cota en las consultas
+ * por rango.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+final class ClaveFecha implements Comparable<ClaveFecha> {
+
+    private final LocalDateTime fecha;
+    private final String id;
+
+    /**
+     * @param fecha Fecha del registro (null ordena como la más antigua)
+     * @param id Id del registro
+     */
+    ClaveFecha(LocalDateTime fecha, String id) {
+        this(fecha != null ? fecha : LocalDateTime.MIN, id != null ? id : "", true);
+    }
+
+    private ClaveFecha(LocalDateTime fecha, String id, boolean exacta) {
+        this.fecha = fecha;
+        this.id = exacta ? id : null;
+    }
+
+    /**
+     * @return Cota que ordena antes que todos los registros de esa fecha
+     */
+    static ClaveFecha inicioDe(LocalDateTime fecha) {
+        return new ClaveFecha(fecha, null, false);
+    }
+
+    /**
+     * @return Cota que ordena después que todos los registros de esa fecha
+     */
+    static ClaveFecha finDe(LocalDateTime fecha) {
+        return inicioDe(fecha.plusNanos(1));
+    }
+
+    @Override
+    public int compareTo(ClaveFecha otra) {
+        int c = fecha.compareTo(otra.fecha);
+        if (c != 0) return c;
+        if (id == null) return otra.id == null ? 0 : -1;
+        if (otra.id == null) return 1;
+        return id.compareTo(otra.id);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ClaveFecha && compareTo((ClaveFecha) o) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fecha, id);
+    }
+}
@@ -13,6 +13,9 @@ import java.time.format.DateTimeFormatter;
  * de los diagnósticos, siguiendo el formato requerido:
  * virus,posicion_inicio,posicion_fin</p>
  *
+ * <p>Los hallazgos aproximados (detectados con tolerancia de mutaciones)
+ * agregan una cuarta columna con el número de bases distintas.</p>
+ *
  * @author Sergio Grajales
  * @author Jhonatan Tamayo
  * @version 1.0
@@ -24,24 +27,57 @@ public class DiagnosticoCSVGenerator {
     /**
      * Genera un archivo CSV con los hallazgos del diagnóstico.
      *
+     * <p>Si el diagnóstico ya tiene un CSV asociado, se reemplaza ese
+     * mismo archivo.</p>
+     *
      * @param diagnostico Diagnóstico a exportar
      * @return Ruta del archivo CSV generado
      * @throws IOException Si hay error de escritura
      */
     public String generarCSV(Diagnostico diagnostico) throws IOException {
-        // Crear carpeta del paciente
+        Path csvPath = rutaCSV(diagnostico);
+        Files.createDirectories(csvPath.getParent());
+        return escribirCSV(diagnostico, csvPath);
+    }
+
+    /**
+     * Calcula la ruta del CSV de un diagnóstico sin crear nada: la que ya
+     * tiene asociada o {@code data/muestras/<documento>/diagnóstico_<fecha>.csv}.
+     *
+     * @param diagnostico Diagnóstico a exportar
+     * @return Ruta del archivo CSV
+     */
+    public Path rutaCSV(Diagnostico diagnostico) {
+        if (diagnostico.getArchivoCSV() != null) {
+            return Paths.get(diagnostico.getArchivoCSV());
+        }
         Path pacienteDir = Paths.get(MUESTRAS_DIR, diagnostico.getDocumentoPaciente());
-        Files.createDirectories(pacienteDir);
 
-        // Extraer la parte de fecha del ID (formato: documento_yyyyMMdd_HHmmss)
-        String[] partes = diagnostico.getId().split("_");
-        String fechaStr = partes.length > 1 ? partes[1] : "";
+        // La parte de fecha del id (documento_fecha, ver Diagnostico.FORMATO_FECHA);
+        // al recargar, el id se reconstruye con el documento y el nombre
+        String prefijo = diagnostico.getDocumentoPaciente() + "_";
+        String fechaStr = diagnostico.getId().startsWith(prefijo)
+                ? diagnostico.getId().substring(prefijo.length())
+                : diagnostico.getFecha().format(Diagnostico.FORMATO_FECHA);
 
         String nombreCSV = "diagnóstico_" + fechaStr + ".csv";
-        Path csvPath = pacienteDir.resolve(nombreCSV);
+        return pacienteDir.resolve(nombreCSV);
+    }
 
-        // Escribir CSV
-        try (BufferedWriter writer = Files.newBufferedWriter(csvPath)) {
+    /**
+     * Escribe el CSV en la ruta indicada, cuya carpeta ya debe existir, y
+     * la asocia al diagnóstico.
+     *
+     * @param diagnostico Diagnóstico a exportar
+     * @param csvPath Ruta calculada con {@link #rutaCSV(Diagnostico)}
+     * @return Ruta del archivo CSV generado
+     * @throws IOException Si hay error de escritura
+     */
+    public String escribirCSV(Diagnostico diagnostico, Path csvPath) throws IOException {
+        // Escribir CSV en un temporal y reemplazar: la carpeta del paciente
+        // cambia de fecha también al sobrescribir (ver SnapshotServidor)
+        Path temporal = csvPath.resolveSibling(csvPath.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporal)) {
             // Escribir cabecera
             writer.write("virus,posicion_inicio,posicion_fin");
             writer.newLine();
@@ -52,7 +88,13 @@ public class DiagnosticoCSVGenerator {
                 writer.newLine();
             }
         }
+        try {
+            Files.move(temporal, csvPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporal, csvPath, StandardCopyOption.REPLACE_EXISTING);
+        }
 
+        diagnostico.setArchivoCSV(csvPath.toString());
         return csvPath.toString();
     }
 
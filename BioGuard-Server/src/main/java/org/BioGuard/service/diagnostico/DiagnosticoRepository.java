@@ -6,9 +6,10 @@ import java.io.*;
 import java.nio.file.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 /**
  * Repositorio para diagnósticos.
@@ -16,6 +17,12 @@ import java.util.stream.Stream;
  * <p>Responsabilidad Única: Gestionar la persistencia de diagnósticos
  * en memoria y en archivos CSV.</p>
  *
+ * <p>Además del mapa por id mantiene índices secundarios concurrentes,
+ * ordenados por fecha: por paciente, por nombre de virus detectado (sin
+ * distinguir mayúsculas) y global por fecha. Se actualizan al guardar y al
+ * cambiar los hallazgos de un diagnóstico, de modo que las consultas no
+ * recorren todos los diagnósticos.</p>
+ *
  * @author Sergio Grajales
  * @author Jhonatan Tamayo
  * @version 1.0
@@ -23,102 +30,242 @@ import java.util.stream.Stream;
 public class DiagnosticoRepository {
 
     private final Map<String, Diagnostico> diagnosticos = new ConcurrentHashMap<>();
+    private final Map<String, ConcurrentSkipListMap<ClaveFecha, Diagnostico>> porPaciente = new ConcurrentHashMap<>();
+    private final Map<String, ConcurrentSkipListMap<ClaveFecha, Diagnostico>> porVirus = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<ClaveFecha, Diagnostico> porFecha = new ConcurrentSkipListMap<>();
+    // Claves con que quedó indexado cada diagnóstico, para desindexarlo
+    // aunque su fecha o sus hallazgos cambien después
+    private final Map<String, Indexado> indexados = new ConcurrentHashMap<>();
     private static final String MUESTRAS_DIR = "data/muestras/";
+    // Nombre de los CSV escritos por generarCSVConFecha y por versiones anteriores
+    private static final DateTimeFormatter FORMATO_FECHA_ARCHIVO_ANTERIOR = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
 
     public void guardar(Diagnostico diagnostico) {
-        diagnosticos.put(diagnostico.getId(), diagnostico);
+        Diagnostico anterior = diagnosticos.put(diagnostico.getId(), diagnostico);
+        if (anterior != null) {
+            desindexar(anterior);
+        }
+        indexar(diagnostico);
+    }
+
+    /**
+     * Reemplaza los hallazgos de un diagnóstico guardado y actualiza el
+     * índice por virus. La lista se sustituye completa para no modificarla
+     * mientras otros hilos la leen.
+     *
+     * @param diagnostico Diagnóstico guardado
+     * @param hallazgos Nuevos hallazgos
+     */
+    public void actualizarHallazgos(Diagnostico diagnostico, List<Diagnostico.HallazgoVirus> hallazgos) {
+        desindexar(diagnostico);
+        diagnostico.setVirusDetectados(hallazgos);
+        if (diagnosticos.get(diagnostico.getId()) == diagnostico) {
+            indexar(diagnostico);
+        }
+    }
+
+    private void indexar(Diagnostico diagnostico) {
+        ClaveFecha clave = new ClaveFecha(diagnostico.getFecha(), diagnostico.getId());
+        Set<String> virus = new HashSet<>();
+        for (Diagnostico.HallazgoVirus h : diagnostico.getVirusDetectados()) {
+            if (h.getNombreVirus() != null) {
+                virus.add(claveVirus(h.getNombreVirus()));
+            }
+        }
+
+        porFecha.put(clave, diagnostico);
+        if (diagnostico.getDocumentoPaciente() != null) {
+            agregar(porPaciente, diagnostico.getDocumentoPaciente(), clave, diagnostico);
+        }
+        for (String nombre : virus) {
+            agregar(porVirus, nombre, clave, diagnostico);
+        }
+        indexados.put(diagnostico.getId(), new Indexado(clave, virus));
+    }
+
+    private void desindexar(Diagnostico diagnostico) {
+        Indexado previo = indexados.remove(diagnostico.getId());
+        if (previo == null) {
+            return;
+        }
+        porFecha.remove(previo.clave, diagnostico);
+        if (diagnostico.getDocumentoPaciente() != null) {
+            quitar(porPaciente, diagnostico.getDocumentoPaciente(), previo.clave, diagnostico);
+        }
+        for (String nombre : previo.virus) {
+            quitar(porVirus, nombre, previo.clave, diagnostico);
+        }
+    }
+
+    // compute es atómico por clave: altas y bajas del mismo índice no compiten
+    private static void agregar(Map<String, ConcurrentSkipListMap<ClaveFecha, Diagnostico>> indice,
+                                String clave, ClaveFecha fecha, Diagnostico diagnostico) {
+        indice.compute(clave, (k, mapa) -> {
+            if (mapa == null) {
+                mapa = new ConcurrentSkipListMap<>();
+            }
+            mapa.put(fecha, diagnostico);
+            return mapa;
+        });
+    }
+
+    private static void quitar(Map<String, ConcurrentSkipListMap<ClaveFecha, Diagnostico>> indice,
+                               String clave, ClaveFecha fecha, Diagnostico diagnostico) {
+        indice.computeIfPresent(clave, (k, mapa) -> {
+            mapa.remove(fecha, diagnostico);
+            return mapa.isEmpty() ? null : mapa;
+        });
+    }
+
+    private static String claveVirus(String nombre) {
+        return nombre.toLowerCase(Locale.ROOT);
+    }
+
+    private static List<Diagnostico> recientesPrimero(NavigableMap<ClaveFecha, Diagnostico> tramo) {
+        return tramo == null ? new ArrayList<>() : new ArrayList<>(tramo.descendingMap().values());
     }
 
     public Optional<Diagnostico> buscarPorId(String id) {
         return Optional.ofNullable(diagnosticos.get(id));
     }
 
+    /**
+     * @param documento Documento del paciente
+     * @return Diagnósticos del paciente (más reciente primero)
+     */
     public List<Diagnostico> buscarPorPaciente(String documento) {
-        List<Diagnostico> resultados = new ArrayList<>();
-        for (Diagnostico d : diagnosticos.values()) {
-            if (documento.equals(d.getDocumentoPaciente())) {
-                resultados.add(d);
+        if (documento == null) {
+            return new ArrayList<>();
+        }
+        return recientesPrimero(porPaciente.get(documento));
+    }
+
+    /**
+     * @param nombreVirus Nombre del virus, sin distinguir mayúsculas
+     * @return Diagnósticos en que se detectó el virus (más reciente primero)
+     */
+    public List<Diagnostico> buscarPorVirus(String nombreVirus) {
+        if (nombreVirus == null) {
+            return new ArrayList<>();
+        }
+        return recientesPrimero(porVirus.get(claveVirus(nombreVirus)));
+    }
+
+    /**
+     * @param desde Fecha inicial (incluida)
+     * @param hasta Fecha final (incluida)
+     * @return Diagnósticos del rango (más reciente primero)
+     */
+    public List<Diagnostico> buscarPorFecha(LocalDateTime desde, LocalDateTime hasta) {
+        if (desde == null || hasta == null || hasta.isBefore(desde)) {
+            return new ArrayList<>();
+        }
+        return recientesPrimero(porFecha.subMap(
+                ClaveFecha.inicioDe(desde), true, ClaveFecha.finDe(hasta), false));
+    }
+
+    /**
+     * @param nombreVirus Nombre del virus, sin distinguir mayúsculas
+     * @return Documentos de los pacientes con algún diagnóstico de ese virus,
+     *         en orden alfabético
+     */
+    public SortedSet<String> buscarPacientesConVirus(String nombreVirus) {
+        SortedSet<String> pacientes = new TreeSet<>();
+        for (Diagnostico d : buscarPorVirus(nombreVirus)) {
+            if (d.getDocumentoPaciente() != null) {
+                pacientes.add(d.getDocumentoPaciente());
             }
         }
-        resultados.sort((a, b) -> b.getFecha().compareTo(a.getFecha()));
-        return resultados;
+        return pacientes;
     }
 
     public List<Diagnostico> listarTodos() {
         return new ArrayList<>(diagnosticos.values());
     }
 
-    public void cargarDiagnosticosDesdeArchivos() {
-        Path muestrasDir = Paths.get(MUESTRAS_DIR);
-        if (!Files.exists(muestrasDir)) return;
-
-        System.out.println("[DiagnosticoRepository] Cargando diagnósticos...");
-        int contador = 0;
-
-        try (Stream<Path> pacientesDirs = Files.list(muestrasDir)) {
-            for (Path pacienteDir : pacientesDirs.filter(Files::isDirectory).toList()) {
-                String documento = pacienteDir.getFileName().toString();
-
-                try (DirectoryStream<Path> archivos = Files.newDirectoryStream(pacienteDir, "*.csv")) {
-                    for (Path csvPath : archivos) {
-                        try {
-                            Diagnostico diagnostico = parsearCSV(csvPath, documento);
-                            if (diagnostico != null) {
-                                diagnosticos.put(diagnostico.getId(), diagnostico);
-                                contador++;
-                            }
-                        } catch (Exception e) {
-                            System.err.println("  Error cargando " + csvPath.getFileName() + ": " + e.getMessage());
-                        }
-                    }
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error cargando diagnósticos: " + e.getMessage());
+    /**
+     * Registra diagnósticos ya leídos, por ejemplo de la foto del servidor.
+     *
+     * @param leidos Diagnósticos a registrar
+     */
+    public void cargar(Collection<Diagnostico> leidos) {
+        for (Diagnostico diagnostico : leidos) {
+            guardar(diagnostico);
         }
-
-        System.out.println("[DiagnosticoRepository] " + contador + " diagnósticos cargados");
     }
 
-    private Diagnostico parsearCSV(Path csvPath, String documento) {
-        try {
-            String nombre = csvPath.getFileName().toString();
-            if (!nombre.startsWith("diagnóstico_") && !nombre.startsWith("diagnostico_")) {
-                return null;
-            }
+    /**
+     * Carga los diagnósticos de los CSV de todas las carpetas de pacientes,
+     * en paralelo (ver {@link CargaParalela}).
+     */
+    public void cargarDiagnosticosDesdeArchivos() {
+        CargaParalela.cargar("DiagnosticoRepository", "diagnósticos", Paths.get(MUESTRAS_DIR), "*.csv",
+                carpeta -> true, this::parsearCSV, this::guardar);
+    }
 
-            String fechaStr = nombre.replace("diagnóstico_", "")
-                    .replace("diagnostico_", "")
-                    .replace(".csv", "");
+    /**
+     * @return Diagnóstico leído, o null si el archivo no es un diagnóstico
+     * @throws IOException Si hay error de lectura
+     * @throws RuntimeException Si la fecha o alguna fila son inválidas
+     */
+    private Diagnostico parsearCSV(Path csvPath, String documento) throws IOException {
+        String nombre = csvPath.getFileName().toString();
+        if (!nombre.startsWith("diagnóstico_") && !nombre.startsWith("diagnostico_")) {
+            return null;
+        }
 
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
-            LocalDateTime fecha = LocalDateTime.parse(fechaStr, formatter);
+        String fechaStr = nombre.replace("diagnóstico_", "")
+                .replace("diagnostico_", "")
+                .replace(".csv", "");
 
-            String id = documento + "_" + fechaStr;
+        LocalDateTime fecha = fechaDeArchivo(fechaStr);
 
-            Diagnostico diagnostico = new Diagnostico(documento, id);
-            diagnostico.setFecha(fecha);
+        String id = documento + "_" + fechaStr;
 
-            List<String> lines = Files.readAllLines(csvPath);
-            boolean primera = true;
+        Diagnostico diagnostico = new Diagnostico(documento, id);
+        // El constructor genera un id con la hora actual: se conserva el del archivo
+        diagnostico.setId(id);
+        diagnostico.setFecha(fecha);
+        diagnostico.setArchivoCSV(csvPath.toString());
 
-            for (String line : lines) {
-                if (primera) { primera = false; continue; }
+        try (BufferedReader lector = Files.newBufferedReader(csvPath)) {
+            lector.readLine(); // encabezado
+            String line;
+            while ((line = lector.readLine()) != null) {
                 if (line.trim().isEmpty()) continue;
 
                 String[] partes = line.split(",");
                 if (partes.length >= 3) {
+                    int diferencias = partes.length >= 4 ? Integer.parseInt(partes[3].trim()) : 0;
                     Diagnostico.HallazgoVirus h = new Diagnostico.HallazgoVirus(
-                            partes[0], Integer.parseInt(partes[1]), Integer.parseInt(partes[2]));
+                            partes[0], Integer.parseInt(partes[1]), Integer.parseInt(partes[2]), diferencias);
                     diagnostico.agregarHallazgo(h);
                 }
             }
+        }
 
-            return diagnostico;
+        return diagnostico;
+    }
 
-        } catch (Exception e) {
-            System.err.println("Error parseando CSV: " + e.getMessage());
-            return null;
+    // Fecha del nombre del CSV, en el formato del id o en el anterior
+    private static LocalDateTime fechaDeArchivo(String fechaStr) {
+        try {
+            return LocalDateTime.parse(fechaStr, Diagnostico.FORMATO_FECHA);
+        } catch (DateTimeParseException e) {
+            return LocalDateTime.parse(fechaStr, FORMATO_FECHA_ARCHIVO_ANTERIOR);
+        }
+    }
+
+    /**
+     * Claves con que se indexó un diagnóstico.
+     */
+    private static final class Indexado {
+        private final ClaveFecha clave;
+        private final Set<String> virus;
+
+        Indexado(ClaveFecha clave, Set<String> virus) {
+            this.clave = clave;
+            this.virus = virus;
         }
     }
-}
\ No newline at end of file
+}
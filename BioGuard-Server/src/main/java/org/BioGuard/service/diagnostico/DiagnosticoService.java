@@ -2,13 +2,17 @@ package org.BioGuard.service.diagnostico;
 
 import org.BioGuard.model.*;
 import org.BioGuard.service.IVirusService;
+import org.BioGuard.service.SnapshotServidor;
+import org.BioGuard.service.deteccion.CacheDeteccion;
+import org.BioGuard.service.deteccion.CatalogoVirus;
+import org.BioGuard.service.reporte.EjecutorComparaciones;
 import org.BioGuard.exception.DiagnosticoException;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Optional;
+import java.util.SortedSet;
 
 /**
  * Servicio de diagnósticos - Orquestador.
@@ -26,55 +30,122 @@ public class DiagnosticoService implements IDiagnosticoService {
     private final MuestraRepository muestraRepository;
     private final MuestraProcessor muestraProcessor;
     private final DiagnosticoCSVGenerator csvGenerator;
+    private final EscritorDiagnosticos escritorCSV;
+    private final ReescaneoMuestras reescaneo;
+    private final EjecutorComparaciones ejecutorComparaciones = new EjecutorComparaciones();
     private final IVirusService virusService;
 
     public DiagnosticoService(IVirusService virusService) {
+        this(virusService, MuestraProcessor.LONGITUD_MAXIMA_POR_DEFECTO,
+                MuestraProcessor.UMBRAL_PARALELO_POR_DEFECTO, CacheDeteccion.CAPACIDAD_POR_DEFECTO);
+    }
+
+    /**
+     * @param virusService Servicio de virus
+     * @param longitudMaxima Longitud máxima aceptada para una secuencia
+     * @param umbralParalelo Longitud a partir de la cual se escanea en paralelo
+     * @param capacidadCache Secuencias cuyo resultado de detección se guarda en caché
+     */
+    public DiagnosticoService(IVirusService virusService, int longitudMaxima, int umbralParalelo,
+                              int capacidadCache) {
+        this(virusService, longitudMaxima, umbralParalelo, capacidadCache, new AlmacenArchivosFasta());
+    }
+
+    /**
+     * @param virusService Servicio de virus
+     * @param longitudMaxima Longitud máxima aceptada para una secuencia
+     * @param umbralParalelo Longitud a partir de la cual se escanea en paralelo
+     * @param capacidadCache Secuencias cuyo resultado de detección se guarda en caché
+     * @param almacen Motor de almacenamiento de las muestras
+     */
+    public DiagnosticoService(IVirusService virusService, int longitudMaxima, int umbralParalelo,
+                              int capacidadCache, AlmacenMuestras almacen) {
+        this(virusService, longitudMaxima, umbralParalelo, capacidadCache, almacen, null);
+    }
+
+    /**
+     * @param virusService Servicio de virus
+     * @param longitudMaxima Longitud máxima aceptada para una secuencia
+     * @param umbralParalelo Longitud a partir de la cual se escanea en paralelo
+     * @param capacidadCache Secuencias cuyo resultado de detección se guarda en caché
+     * @param almacen Motor de almacenamiento de las muestras
+     * @param estado Muestras y diagnósticos leídos de la foto del servidor,
+     *               o null para cargarlos desde los archivos
+     */
+    public DiagnosticoService(IVirusService virusService, int longitudMaxima, int umbralParalelo,
+                              int capacidadCache, AlmacenMuestras almacen, SnapshotServidor.Estado estado) {
         this.virusService = virusService;
         this.diagnosticoRepository = new DiagnosticoRepository();
-        this.muestraRepository = new MuestraRepository();
-        this.muestraProcessor = new MuestraProcessor(virusService);
+        this.muestraProcessor = new MuestraProcessor(virusService, longitudMaxima, umbralParalelo, capacidadCache);
         this.csvGenerator = new DiagnosticoCSVGenerator();
+        this.escritorCSV = new EscritorDiagnosticos(csvGenerator);
+
+        if (estado != null) {
+            this.muestraRepository = new MuestraRepository(almacen, estado.getMuestras());
+            diagnosticoRepository.cargar(estado.getDiagnosticos());
+        } else {
+            this.muestraRepository = new MuestraRepository(almacen);
+            // Cargar diagnósticos existentes
+            diagnosticoRepository.cargarDiagnosticosDesdeArchivos();
+        }
 
-        // Cargar diagnósticos existentes
-        diagnosticoRepository.cargarDiagnosticosDesdeArchivos();
+        // Re-escanear las muestras guardadas cuando cambie el catálogo
+        this.reescaneo = new ReescaneoMuestras(muestraRepository, diagnosticoRepository, escritorCSV);
+        virusService.agregarListener(reescaneo::programar);
     }
 
     @Override
     public Diagnostico procesarMuestra(String documento, String secuencia)
             throws DiagnosticoException {
+        return procesarMuestra(documento, secuencia, 0);
+    }
+
+    @Override
+    public Diagnostico procesarMuestra(String documento, String secuencia, int tolerancia)
+            throws DiagnosticoException {
+
+        // 1. Validar (la secuencia se valida y empaqueta en una sola pasada)
+        muestraProcessor.validarTolerancia(tolerancia);
+        return registrarMuestra(documento, muestraProcessor.validarSecuencia(secuencia), tolerancia);
+    }
+
+    @Override
+    public Diagnostico procesarMuestra(String documento, PackedSequence secuencia, int tolerancia)
+            throws DiagnosticoException {
+        muestraProcessor.validarTolerancia(tolerancia);
+        return registrarMuestra(documento, muestraProcessor.validarSecuencia(secuencia), tolerancia);
+    }
 
-        // 1. Validar
-        muestraProcessor.validarSecuencia(secuencia);
+    private Diagnostico registrarMuestra(String documento, PackedSequence empaquetada, int tolerancia)
+            throws DiagnosticoException {
 
         // 2. Crear y guardar muestra
-        Muestra muestra = new Muestra(documento, secuencia);
+        Muestra muestra = new Muestra(documento, empaquetada);
         try {
             muestraRepository.guardar(muestra);
         } catch (IOException e) {
             throw new DiagnosticoException("Error guardando muestra: " + e.getMessage());
         }
 
-        // 3. Detectar virus
+        // 3. Detectar virus con la foto vigente del catálogo
+        CatalogoVirus catalogo = virusService.obtenerCatalogo();
         List<Diagnostico.HallazgoVirus> hallazgos =
-                muestraProcessor.detectarVirus(secuencia);
+                muestraProcessor.detectarVirus(empaquetada, tolerancia, catalogo);
 
-        // 4. Crear diagnóstico
-        String fechaStr = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        String id = documento + "_" + fechaStr;
-
-        Diagnostico diagnostico = new Diagnostico(documento, id);
+        // 4. Crear diagnóstico (enlazado a la muestra para poder re-escanearla)
+        Diagnostico diagnostico = new Diagnostico(documento, muestra.getId());
         diagnostico.setFecha(LocalDateTime.now());
         hallazgos.forEach(diagnostico::agregarHallazgo);
 
         // 5. Guardar diagnóstico
         diagnosticoRepository.guardar(diagnostico);
 
-        // 6. Generar CSV (opcional, no detiene el flujo)
-        try {
-            csvGenerator.generarCSV(diagnostico);
-        } catch (IOException e) {
-            System.err.println("Error generando CSV: " + e.getMessage());
-        }
+        // Si el catálogo cambió durante la detección, un re-escaneo que ya
+        // listó los diagnósticos no ve este: se re-escanea aparte
+        reescaneo.reescanearSiCambio(diagnostico, catalogo, virusService.obtenerCatalogo());
+
+        // 6. Generar CSV en segundo plano: la respuesta no espera al disco
+        escritorCSV.encolar(diagnostico);
 
         return diagnostico;
     }
@@ -94,6 +165,21 @@ public class DiagnosticoService implements IDiagnosticoService {
         return diagnosticoRepository.listarTodos();
     }
 
+    @Override
+    public List<Diagnostico> buscarPorVirus(String nombreVirus) {
+        return diagnosticoRepository.buscarPorVirus(nombreVirus);
+    }
+
+    @Override
+    public List<Diagnostico> buscarPorFecha(LocalDateTime desde, LocalDateTime hasta) {
+        return diagnosticoRepository.buscarPorFecha(desde, hasta);
+    }
+
+    @Override
+    public SortedSet<String> buscarPacientesConVirus(String nombreVirus) {
+        return diagnosticoRepository.buscarPacientesConVirus(nombreVirus);
+    }
+
     @Override
     public Muestra guardarMuestra(Muestra muestra) throws IOException {
         return muestraRepository.guardar(muestra);
@@ -113,4 +199,49 @@ public class DiagnosticoService implements IDiagnosticoService {
     public Optional<Muestra> obtenerMuestraPorId(String id) {
         return muestraRepository.buscarPorId(id);
     }
+
+    @Override
+    public Optional<EscritorDiagnosticos.EstadoCSV> obtenerEstadoCSV(String id) {
+        return diagnosticoRepository.buscarPorId(id).map(escritorCSV::estado);
+    }
+
+    @Override
+    public void vaciarCSV() {
+        escritorCSV.cerrar();
+    }
+
+    @Override
+    public void cerrar() {
+        // Primero lo que lee muestras o encola CSV; después el escritor,
+        // que recibe lo que encolaron; al final el almacén
+        reescaneo.detener();
+        ejecutorComparaciones.detener();
+        escritorCSV.cerrar();
+        muestraProcessor.cerrar();
+        try {
+            muestraRepository.cerrar();
+        } catch (IOException e) {
+            System.err.println("[DiagnosticoService] Error cerrando el almacén de muestras: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public List<Muestra> listarMuestras() {
+        return muestraRepository.listarTodas();
+    }
+
+    @Override
+    public CacheDeteccion obtenerCacheDeteccion() {
+        return muestraProcessor.getCache();
+    }
+
+    @Override
+    public EjecutorComparaciones obtenerEjecutorComparaciones() {
+        return ejecutorComparaciones;
+    }
+
+    @Override
+    public String obtenerProgresoReescaneo() {
+        return reescaneo.obtenerProgreso();
+    }
 }
\ No newline at end of file
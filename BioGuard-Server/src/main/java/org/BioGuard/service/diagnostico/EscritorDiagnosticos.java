@@ -0,0 +1,252 @@
+package org.BioGuard.service.diagnostico;
+
+import org.BioGuard.model.Diagnostico;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Escritura diferida de los CSV de diagnóstico.
+ *
+ * <p>Responsabilidad Única: Sacar del hilo de la solicitud la escritura
+ * del CSV. Los diagnósticos se encolan en una cola acotada y un hilo
+ * escritor los toma por lotes: dentro de un lote, cada carpeta de
+ * paciente se crea una sola vez y un diagnóstico encolado varias veces
+ * (por ejemplo, por un re-escaneo) se escribe una sola vez con sus
+ * hallazgos vigentes.</p>
+ *
+ * <p>Si la cola está llena, quien encola espera a que el escritor libere
+ * espacio. Al cerrar se dejan de aceptar diagnósticos nuevos en la cola
+ * (se escriben en el hilo que los entrega) y se escriben todos los
+ * pendientes antes de retornar.</p>
+ *
+ * <p>El estado de cada diagnóstico se consulta con
+ * {@link #estado(Diagnostico)}: pendiente mientras esté en la cola,
+ * guardado cuando su CSV está escrito, o con error si el último intento
+ * falló.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public class EscritorDiagnosticos {
+
+    /** Capacidad por defecto de la cola. */
+    public static final int CAPACIDAD_POR_DEFECTO = 4096;
+
+    /** Diagnósticos escritos como máximo en un lote. */
+    public static final int TAMANO_LOTE = 256;
+
+    /**
+     * Estado del CSV de un diagnóstico.
+     */
+    public enum EstadoCSV {
+        /** En la cola del escritor. */
+        PENDIENTE,
+        /** CSV escrito en disco. */
+        GUARDADO,
+        /** Falló la última escritura. */
+        ERROR,
+        /** Nunca se pidió escribirlo. */
+        SIN_CSV
+    }
+
+    private final DiagnosticoCSVGenerator csvGenerator;
+    private final BlockingQueue<Diagnostico> cola;
+    // Veces que cada diagnóstico está en la cola (o en el lote en curso)
+    private final Map<String, Integer> pendientes = new ConcurrentHashMap<>();
+    private final Map<String, String> errores = new ConcurrentHashMap<>();
+    private final Thread escritor;
+
+    // Encolar toma el candado de lectura; cerrar, el de escritura
+    private final ReentrantReadWriteLock lockCierre = new ReentrantReadWriteLock();
+    private volatile boolean cerrado;
+
+    private final AtomicLong escritos = new AtomicLong();
+    private final AtomicLong lotes = new AtomicLong();
+
+    public EscritorDiagnosticos(DiagnosticoCSVGenerator csvGenerator) {
+        this(csvGenerator, CAPACIDAD_POR_DEFECTO);
+    }
+
+    /**
+     * @param csvGenerator Generador de los archivos CSV
+     * @param capacidad Diagnósticos que caben en la cola
+     */
+    public EscritorDiagnosticos(DiagnosticoCSVGenerator csvGenerator, int capacidad) {
+        this.csvGenerator = csvGenerator;
+        this.cola = new ArrayBlockingQueue<>(Math.max(1, capacidad));
+        this.escritor = new Thread(this::ejecutar, "escritor-diagnosticos");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    /**
+     * Programa la escritura del CSV del diagnóstico. Retorna en cuanto el
+     * diagnóstico está en la cola; si el escritor ya se cerró, lo escribe
+     * en este hilo.
+     *
+     * @param diagnostico Diagnóstico cuyo CSV se escribe
+     */
+    public void encolar(Diagnostico diagnostico) {
+        lockCierre.readLock().lock();
+        try {
+            if (!cerrado) {
+                pendientes.merge(diagnostico.getId(), 1, Integer::sum);
+                try {
+                    cola.put(diagnostico);
+                    return;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    liberar(diagnostico);
+                }
+            }
+        } finally {
+            lockCierre.readLock().unlock();
+        }
+        escribirLote(List.of(diagnostico));
+    }
+
+    /**
+     * @param diagnostico Diagnóstico a consultar
+     * @return Estado de su CSV
+     */
+    public EstadoCSV estado(Diagnostico diagnostico) {
+        if (pendientes.containsKey(diagnostico.getId())) {
+            return EstadoCSV.PENDIENTE;
+        }
+        if (errores.containsKey(diagnostico.getId())) {
+            return EstadoCSV.ERROR;
+        }
+        return diagnostico.getArchivoCSV() != null ? EstadoCSV.GUARDADO : EstadoCSV.SIN_CSV;
+    }
+
+    /**
+     * @param diagnostico Diagnóstico a consultar
+     * @return Mensaje del último error de escritura, o null
+     */
+    public String error(Diagnostico diagnostico) {
+        return errores.get(diagnostico.getId());
+    }
+
+    private void ejecutar() {
+        List<Diagnostico> lote = new ArrayList<>(TAMANO_LOTE);
+        while (true) {
+            try {
+                Diagnostico primero = cola.poll(100, TimeUnit.MILLISECONDS);
+                if (primero == null) {
+                    if (cerrado && cola.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                lote.add(primero);
+                cola.drainTo(lote, TAMANO_LOTE - 1);
+                escribirLote(lote);
+            } catch (InterruptedException e) {
+                // Solo se interrumpe si el cierre no puede esperar: lo
+                // pendiente se escribe en cerrar()
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("[EscritorDiagnosticos] Error en lote: " + e.getMessage());
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    private void escribirLote(List<Diagnostico> lote) {
+        // El último encolado de cada id; se escriben sus hallazgos vigentes
+        Map<String, Diagnostico> unicos = new LinkedHashMap<>();
+        for (Diagnostico diagnostico : lote) {
+            unicos.put(diagnostico.getId(), diagnostico);
+        }
+
+        Set<Path> carpetas = new HashSet<>();
+        for (Diagnostico diagnostico : unicos.values()) {
+            try {
+                Path ruta = csvGenerator.rutaCSV(diagnostico);
+                if (carpetas.add(ruta.getParent())) {
+                    Files.createDirectories(ruta.getParent());
+                }
+                csvGenerator.escribirCSV(diagnostico, ruta);
+                errores.remove(diagnostico.getId());
+                escritos.incrementAndGet();
+            } catch (IOException | RuntimeException e) {
+                errores.put(diagnostico.getId(), String.valueOf(e.getMessage()));
+                System.err.println("[EscritorDiagnosticos] Error escribiendo CSV de " +
+                        diagnostico.getId() + ": " + e.getMessage());
+            }
+        }
+
+        for (Diagnostico diagnostico : lote) {
+            liberar(diagnostico);
+        }
+        lotes.incrementAndGet();
+    }
+
+    private void liberar(Diagnostico diagnostico) {
+        pendientes.computeIfPresent(diagnostico.getId(), (id, veces) -> veces > 1 ? veces - 1 : null);
+    }
+
+    /**
+     * Deja de aceptar diagnósticos en la cola y espera a que se escriban
+     * todos los pendientes.
+     */
+    public void cerrar() {
+        lockCierre.writeLock().lock();
+        try {
+            cerrado = true;
+        } finally {
+            lockCierre.writeLock().unlock();
+        }
+
+        try {
+            escritor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            escritor.interrupt();
+        }
+
+        // Lo que quedara si el escritor se interrumpió
+        List<Diagnostico> resto = new ArrayList<>();
+        cola.drainTo(resto);
+        if (!resto.isEmpty()) {
+            escribirLote(resto);
+        }
+    }
+
+    /**
+     * @return Diagnósticos en la cola
+     */
+    public int getEnCola() {
+        return cola.size();
+    }
+
+    /**
+     * @return CSV escritos desde el inicio
+     */
+    public long getEscritos() {
+        return escritos.get();
+    }
+
+    /**
+     * @return Lotes escritos desde el inicio
+     */
+    public long getLotes() {
+        return lotes.get();
+    }
+}
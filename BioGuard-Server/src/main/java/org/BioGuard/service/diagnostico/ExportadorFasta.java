@@ -0,0 +1,65 @@
+package org.BioGuard.service.diagnostico;
+
+import org.BioGuard.model.Muestra;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Herramienta de exportación de un {@link AlmacenSegmentos} al formato de
+ * un archivo FASTA por muestra.
+ *
+ * <p>Responsabilidad Única: Regenerar {@code data/muestras/<documento>/}
+ * a partir de los segmentos, por ejemplo para volver al almacén de
+ * archivos o para inspeccionar las muestras con otras herramientas.</p>
+ *
+ * <p>Uso: {@code java org.BioGuard.service.diagnostico.ExportadorFasta
+ * [directorio_segmentos] [directorio_destino]}</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public final class ExportadorFasta {
+
+    private ExportadorFasta() {}
+
+    public static void main(String[] args) {
+        String origen = args.length > 0 ? args[0] : AlmacenSegmentos.DIRECTORIO_POR_DEFECTO;
+        String destino = args.length > 1 ? args[1] : AlmacenArchivosFasta.DIRECTORIO_POR_DEFECTO;
+
+        try {
+            int exportadas = exportar(origen, destino);
+            System.out.println("[ExportadorFasta] " + exportadas + " muestras exportadas a " + destino);
+        } catch (IOException e) {
+            System.err.println("[ExportadorFasta] Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Escribe cada muestra vigente de los segmentos como archivo FASTA.
+     *
+     * @param directorioSegmentos Directorio de los segmentos
+     * @param directorioDestino Directorio con una carpeta por paciente
+     * @return Cantidad de muestras exportadas
+     * @throws IOException Si hay error de lectura o escritura
+     */
+    public static int exportar(String directorioSegmentos, String directorioDestino) throws IOException {
+        AlmacenSegmentos segmentos = new AlmacenSegmentos(directorioSegmentos,
+                AlmacenSegmentos.TAMANO_SEGMENTO_POR_DEFECTO);
+        try {
+            List<Muestra> muestras = new ArrayList<>();
+            segmentos.cargar(muestras::add);
+
+            AlmacenArchivosFasta archivos = new AlmacenArchivosFasta(directorioDestino);
+            for (Muestra muestra : muestras) {
+                archivos.guardar(muestra);
+            }
+            return muestras.size();
+        } finally {
+            segmentos.cerrar();
+        }
+    }
+}
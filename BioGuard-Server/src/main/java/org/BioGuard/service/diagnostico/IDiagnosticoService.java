@@ -2,21 +2,100 @@ package org.BioGuard.service.diagnostico;
 
 import org.BioGuard.model.Diagnostico;
 import org.BioGuard.model.Muestra;
+import org.BioGuard.model.PackedSequence;
 import org.BioGuard.exception.DiagnosticoException;
+import org.BioGuard.service.deteccion.CacheDeteccion;
+import org.BioGuard.service.reporte.EjecutorComparaciones;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.SortedSet;
 
 public interface IDiagnosticoService {
     Diagnostico procesarMuestra(String documento, String secuencia) throws DiagnosticoException;
+
+    /**
+     * Procesa una muestra admitiendo hasta {@code tolerancia} bases distintas
+     * por virus detectado (distancia de Hamming).
+     */
+    Diagnostico procesarMuestra(String documento, String secuencia, int tolerancia) throws DiagnosticoException;
+
+    /**
+     * Igual que {@link #procesarMuestra(String, String, int)} con una
+     * secuencia que ya llega empaquetada (protocolo binario).
+     */
+    Diagnostico procesarMuestra(String documento, PackedSequence secuencia, int tolerancia) throws DiagnosticoException;
     Muestra guardarMuestra(Muestra muestra) throws IOException;
     Optional<Diagnostico> buscarPorId(String id);
     List<Diagnostico> buscarPorPaciente(String documento);
     String generarCSV(Diagnostico diagnostico) throws IOException;
+
+    /**
+     * Los CSV de los diagnósticos nuevos se escriben en segundo plano.
+     *
+     * @param id Id del diagnóstico
+     * @return Estado de su CSV, o vacío si el diagnóstico no existe
+     */
+    Optional<EscritorDiagnosticos.EstadoCSV> obtenerEstadoCSV(String id);
+
+    /**
+     * Escribe los CSV pendientes y detiene la escritura en segundo plano;
+     * los diagnósticos posteriores escriben su CSV en el hilo que los
+     * registra. Al apagar se invoca antes de tomar la foto del estado.
+     */
+    void vaciarCSV();
+
+    /**
+     * Libera los recursos del servicio, en orden: detiene el re-escaneo y
+     * las comparaciones de los reportes, escribe los CSV pendientes,
+     * detiene el pool de detección y cierra el almacén de muestras.
+     */
+    void cerrar();
     List<Diagnostico> listarTodos();
 
+    /**
+     * @param nombreVirus Nombre del virus, sin distinguir mayúsculas
+     * @return Diagnósticos con ese virus (más reciente primero)
+     */
+    List<Diagnostico> buscarPorVirus(String nombreVirus);
+
+    /**
+     * @param desde Fecha inicial (incluida)
+     * @param hasta Fecha final (incluida)
+     * @return Diagnósticos del rango (más reciente primero)
+     */
+    List<Diagnostico> buscarPorFecha(LocalDateTime desde, LocalDateTime hasta);
+
+    /**
+     * @param nombreVirus Nombre del virus, sin distinguir mayúsculas
+     * @return Documentos de los pacientes en que se detectó el virus
+     */
+    SortedSet<String> buscarPacientesConVirus(String nombreVirus);
+
     // NUEVOS MÉTODOS PARA MUESTRAS
     List<Muestra> obtenerMuestrasDePaciente(String documento);
     Optional<Muestra> obtenerMuestraPorId(String id);
+
+    /**
+     * @return Todas las muestras del sistema
+     */
+    List<Muestra> listarMuestras();
+
+    /**
+     * @return Caché de resultados de detección, con sus métricas
+     */
+    CacheDeteccion obtenerCacheDeteccion();
+
+    /**
+     * @return Ejecutor compartido de las comparaciones de los reportes de
+     *         mutaciones; se detiene al cerrar el servicio
+     */
+    EjecutorComparaciones obtenerEjecutorComparaciones();
+
+    /**
+     * @return Progreso del re-escaneo de muestras tras cambios en el catálogo
+     */
+    String obtenerProgresoReescaneo();
 }
\ No newline at end of file
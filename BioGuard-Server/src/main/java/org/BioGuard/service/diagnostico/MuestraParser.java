@@ -1,15 +1,16 @@
 package org.BioGuard.service.diagnostico;
 
 import org.BioGuard.model.Muestra;
+import org.BioGuard.model.PackedSequence;
 import org.BioGuard.exception.FileReadException;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.util.List;
 
 /**
  * Parser para archivos FASTA de muestras.
@@ -17,6 +18,10 @@ import java.util.List;
  * <p>Responsabilidad Única: Leer archivos FASTA y convertirlos
  * en objetos Muestra.</p>
  *
+ * <p>{@link #parsearEncabezado(Path)} lee solo la primera línea y deja la
+ * secuencia para cuando se use; así el arranque no lee el archivo completo
+ * de cada muestra. {@link #parsear(Path)} lee y valida todo de inmediato.</p>
+ *
  * @author Sergio Grajales
  * @author Jhonatan Tamayo
  * @version 1.0
@@ -26,7 +31,7 @@ public class MuestraParser {
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_DATE_TIME;
 
     /**
-     * Parsea un archivo FASTA y reconstruye una muestra.
+     * Parsea un archivo FASTA y reconstruye una muestra con su secuencia.
      *
      * @param rutaArchivo Ruta del archivo FASTA
      * @return Muestra reconstruida
@@ -34,14 +39,33 @@ public class MuestraParser {
      * @throws FileReadException Si el formato es inválido
      */
     public Muestra parsear(Path rutaArchivo) throws IOException, FileReadException {
-        List<String> lineas = Files.readAllLines(rutaArchivo);
+        Muestra muestra = parsearEncabezado(rutaArchivo);
+        muestra.setSecuenciaEmpaquetada(leerSecuencia(rutaArchivo));
+        return muestra;
+    }
 
-        if (lineas.isEmpty()) {
+    /**
+     * Lee solo el encabezado del archivo FASTA. La secuencia se lee la
+     * primera vez que se pide a la muestra; un error de formato en ella se
+     * reporta en ese momento.
+     *
+     * @param rutaArchivo Ruta del archivo FASTA
+     * @return Muestra con documento, fecha e id, y la secuencia diferida
+     * @throws IOException Si hay error de lectura
+     * @throws FileReadException Si el encabezado es inválido
+     */
+    public Muestra parsearEncabezado(Path rutaArchivo) throws IOException, FileReadException {
+        String header;
+        try (BufferedReader lector = Files.newBufferedReader(rutaArchivo)) {
+            header = lector.readLine();
+        }
+
+        if (header == null) {
             throw new FileReadException("Archivo vacío: " + rutaArchivo);
         }
 
         // Primera línea: >documento|fecha
-        String header = lineas.get(0).trim();
+        header = header.trim();
         if (!header.startsWith(">")) {
             throw new FileReadException("Formato FASTA inválido: falta '>'");
         }
@@ -63,29 +87,58 @@ public class MuestraParser {
             throw new FileReadException("Fecha inválida en header: " + fechaStr);
         }
 
-        // Concatenar líneas restantes como secuencia
-        StringBuilder secuencia = new StringBuilder();
-        for (int i = 1; i < lineas.size(); i++) {
-            String linea = lineas.get(i).trim();
-            if (!linea.isEmpty()) {
-                secuencia.append(linea);
-            }
-        }
-
-        if (secuencia.length() == 0) {
-            throw new FileReadException("Secuencia vacía en archivo: " + rutaArchivo);
-        }
-
         // Crear ID a partir del documento y fecha
-        String id = documento + "_" + fecha.format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        String id = Muestra.generarId(documento, fecha);
 
         Muestra muestra = new Muestra();
         muestra.setId(id);
         muestra.setDocumentoPaciente(documento);
         muestra.setFecha(fecha);
-        muestra.setSecuencia(secuencia.toString());
         muestra.setArchivoPath(rutaArchivo.toString());
+        diferirSecuencia(muestra, rutaArchivo);
 
         return muestra;
     }
-}
\ No newline at end of file
+
+    /**
+     * Deja la secuencia de la muestra para leerla del archivo FASTA en su
+     * primer uso, descartando la que tuviera en memoria.
+     *
+     * @param muestra Muestra guardada en el archivo
+     * @param rutaArchivo Ruta del archivo FASTA
+     */
+    public void diferirSecuencia(Muestra muestra, Path rutaArchivo) {
+        muestra.setCargadorSecuencia(() -> {
+            try {
+                return leerSecuencia(rutaArchivo);
+            } catch (FileReadException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Empaqueta las líneas que siguen al encabezado como una sola
+     * secuencia, leyendo el archivo línea a línea.
+     */
+    private PackedSequence leerSecuencia(Path rutaArchivo) throws IOException, FileReadException {
+        PackedSequence.Builder secuencia = new PackedSequence.Builder();
+        try (BufferedReader lector = Files.newBufferedReader(rutaArchivo)) {
+            lector.readLine(); // encabezado
+            String linea;
+            while ((linea = lector.readLine()) != null) {
+                linea = linea.trim();
+                if (!linea.isEmpty()) {
+                    secuencia.append(linea);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new FileReadException(e.getMessage(), rutaArchivo.toString());
+        }
+
+        if (secuencia.length() == 0) {
+            throw new FileReadException("Secuencia vacía en archivo: " + rutaArchivo);
+        }
+        return secuencia.build();
+    }
+}
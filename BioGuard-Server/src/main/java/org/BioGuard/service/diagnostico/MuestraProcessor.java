@@ -2,10 +2,13 @@ package org.BioGuard.service.diagnostico;
 
 import org.BioGuard.model.*;
 import org.BioGuard.service.IVirusService;
+import org.BioGuard.service.deteccion.CacheDeteccion;
+import org.BioGuard.service.deteccion.CatalogoVirus;
+import org.BioGuard.service.deteccion.DetectorVirus;
 import org.BioGuard.exception.DiagnosticoException;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Procesador de muestras para detectar virus en secuencias de ADN.
@@ -13,79 +16,186 @@ import java.util.List;
  * <p>Responsabilidad Única: Analizar secuencias de ADN y detectar
  * la presencia de virus registrados en el sistema.</p>
  *
+ * <p>Las secuencias que superan el umbral de escaneo paralelo se dividen
+ * en bloques que se analizan en un {@link ForkJoinPool} propio; el
+ * resultado es el mismo que el del escaneo secuencial.</p>
+ *
+ * <p>Los resultados se guardan en una {@link CacheDeteccion}: una secuencia
+ * ya analizada con la misma versión del catálogo no se vuelve a escanear.</p>
+ *
  * @author Sergio Grajales
  * @author Jhonatan Tamayo
  * @version 1.0
  */
 public class MuestraProcessor {
 
+    /** Máximo de bases distintas que se puede pedir en una solicitud. */
+    public static final int TOLERANCIA_MAXIMA = Virus.TOLERANCIA_MAXIMA;
+
+    /** Longitud máxima de secuencia por defecto (genomas virales y bacterianos pequeños). */
+    public static final int LONGITUD_MAXIMA_POR_DEFECTO = 10_000_000;
+
+    /** Longitud a partir de la cual se escanea en paralelo por defecto. */
+    public static final int UMBRAL_PARALELO_POR_DEFECTO = 1_000_000;
+
+    /** Tamaño mínimo de bloque, para que cada tarea compense su costo. */
+    private static final int BLOQUE_MINIMO = 65_536;
+
     private final IVirusService virusService;
+    private final int longitudMaxima;
+    private final int umbralParalelo;
+    private final ForkJoinPool pool;
+    private final CacheDeteccion cache;
 
     public MuestraProcessor(IVirusService virusService) {
+        this(virusService, LONGITUD_MAXIMA_POR_DEFECTO, UMBRAL_PARALELO_POR_DEFECTO,
+                CacheDeteccion.CAPACIDAD_POR_DEFECTO);
+    }
+
+    /**
+     * @param virusService Servicio que provee el detector de virus
+     * @param longitudMaxima Longitud máxima aceptada para una secuencia
+     * @param umbralParalelo Longitud a partir de la cual se escanea por bloques en paralelo
+     * @param capacidadCache Secuencias cuyo resultado se guarda en caché (0 la desactiva)
+     */
+    public MuestraProcessor(IVirusService virusService, int longitudMaxima, int umbralParalelo,
+                            int capacidadCache) {
+        if (longitudMaxima <= 0 || umbralParalelo <= 0) {
+            throw new IllegalArgumentException("La longitud máxima y el umbral deben ser positivos");
+        }
         this.virusService = virusService;
+        this.longitudMaxima = longitudMaxima;
+        this.umbralParalelo = umbralParalelo;
+        this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        this.cache = new CacheDeteccion(capacidadCache);
     }
 
     /**
      * Detecta virus en una secuencia de ADN.
      *
-     * @param secuencia Secuencia a analizar
+     * <p>Usa el detector compilado del catálogo, que recorre la secuencia
+     * una sola vez sin importar cuántos virus haya registrados.</p>
+     *
+     * @param secuencia Secuencia empaquetada a analizar
      * @return Lista de hallazgos (virus encontrados y sus posiciones)
      */
-    public List<Diagnostico.HallazgoVirus> detectarVirus(String secuencia) {
-        List<Diagnostico.HallazgoVirus> hallazgos = new ArrayList<>();
-        List<Virus> virusRegistrados = virusService.listarTodos();
-
-        for (Virus virus : virusRegistrados) {
-            String virusSecuencia = virus.getSecuencia();
-            if (virusSecuencia == null || virusSecuencia.isEmpty()) {
-                continue;
-            }
+    public List<Diagnostico.HallazgoVirus> detectarVirus(PackedSequence secuencia) {
+        return detectarVirus(secuencia, 0);
+    }
+
+    /**
+     * Detecta virus admitiendo hasta {@code tolerancia} bases distintas
+     * por ocurrencia, además de la tolerancia propia de cada virus.
+     *
+     * @param secuencia Secuencia empaquetada a analizar
+     * @param tolerancia Bases distintas admitidas (0 = solo exactos)
+     * @return Lista inmodificable de hallazgos con el número de diferencias de cada uno
+     */
+    public List<Diagnostico.HallazgoVirus> detectarVirus(PackedSequence secuencia, int tolerancia) {
+        // Una sola lectura del catálogo: la versión de la clave y el
+        // detector usado corresponden siempre al mismo estado
+        return detectarVirus(secuencia, tolerancia, virusService.obtenerCatalogo());
+    }
 
-            List<Integer> posiciones = buscarVirusEnSecuencia(secuencia, virusSecuencia);
+    /**
+     * Detecta virus con una foto dada del catálogo, para que quien llama
+     * sepa con qué versión se obtuvieron los hallazgos.
+     *
+     * @param secuencia Secuencia empaquetada a analizar
+     * @param tolerancia Bases distintas admitidas (0 = solo exactos)
+     * @param catalogo Foto del catálogo a usar
+     * @return Lista inmodificable de hallazgos con el número de diferencias de cada uno
+     */
+    public List<Diagnostico.HallazgoVirus> detectarVirus(PackedSequence secuencia, int tolerancia,
+                                                         CatalogoVirus catalogo) {
+        CacheDeteccion.Clave clave = cache.clave(secuencia, catalogo.getVersion(), tolerancia);
 
-            for (Integer inicio : posiciones) {
-                int fin = inicio + virusSecuencia.length() - 1;
-                hallazgos.add(new Diagnostico.HallazgoVirus(
-                        virus.getNombre(), inicio, fin));
-            }
+        List<Diagnostico.HallazgoVirus> guardados = cache.obtener(clave);
+        if (guardados != null) {
+            return guardados;
+        }
+        return cache.guardar(clave, escanear(catalogo.getDetector(), secuencia, tolerancia));
+    }
+
+    private List<Diagnostico.HallazgoVirus> escanear(DetectorVirus detector, PackedSequence secuencia,
+                                                     int tolerancia) {
+        if (secuencia.length() <= umbralParalelo) {
+            return detector.detectar(secuencia, tolerancia);
         }
+        return detector.detectar(secuencia, tolerancia, pool, tamanoBloque(secuencia.length()));
+    }
 
-        return hallazgos;
+    /**
+     * Reparte la secuencia en unos cuatro bloques por núcleo, sin bajar
+     * del tamaño mínimo.
+     */
+    private int tamanoBloque(int longitud) {
+        int bloques = pool.getParallelism() * 4;
+        return Math.max(BLOQUE_MINIMO, (longitud + bloques - 1) / bloques);
     }
 
     /**
-     * Busca todas las ocurrencias de una subcadena en una secuencia.
+     * Valida la tolerancia de mutaciones pedida para una detección.
      *
-     * @param secuencia Secuencia completa
-     * @param patron Subcadena a buscar
-     * @return Lista de posiciones de inicio
+     * @param tolerancia Bases distintas admitidas
+     * @throws DiagnosticoException Si está fuera de rango
      */
-    private List<Integer> buscarVirusEnSecuencia(String secuencia, String patron) {
-        List<Integer> posiciones = new ArrayList<>();
-        int index = 0;
-        while ((index = secuencia.indexOf(patron, index)) != -1) {
-            posiciones.add(index);
-            index += patron.length();
+    public void validarTolerancia(int tolerancia) throws DiagnosticoException {
+        if (tolerancia < 0 || tolerancia > TOLERANCIA_MAXIMA) {
+            throw new DiagnosticoException(
+                    "La tolerancia debe estar entre 0 y " + TOLERANCIA_MAXIMA);
         }
-        return posiciones;
     }
 
     /**
-     * Valida que una secuencia sea válida para análisis.
+     * Valida que una secuencia sea válida para análisis y la empaqueta.
+     *
+     * <p>El alfabeto se comprueba en la misma pasada que empaqueta la
+     * secuencia, consultando una tabla por carácter. Una secuencia de solo
+     * espacios falla en su primer carácter; solo entonces se distingue de
+     * un carácter inválido, sin copiar la secuencia.</p>
      *
      * @param secuencia Secuencia a validar
-     * @throws DiagnosticoException Si la secuencia es inválida
+     * @return Secuencia empaquetada
+     * @throws DiagnosticoException Si la secuencia es inválida, indicando
+     *                              la posición del primer carácter inválido
      */
-    public void validarSecuencia(String secuencia) throws DiagnosticoException {
-        if (secuencia == null || secuencia.trim().isEmpty()) {
+    public PackedSequence validarSecuencia(String secuencia) throws DiagnosticoException {
+        if (secuencia == null || secuencia.isEmpty()) {
             throw new DiagnosticoException("La secuencia no puede estar vacía");
         }
-        if (secuencia.length() > 10000) {
-            throw new DiagnosticoException("La secuencia es demasiado larga (máx 10000 caracteres)");
+        if (secuencia.length() > longitudMaxima) {
+            throw new DiagnosticoException(
+                    "La secuencia es demasiado larga (máx " + longitudMaxima + " caracteres)");
+        }
+        try {
+            return PackedSequence.desde(secuencia);
+        } catch (IllegalArgumentException e) {
+            if (secuencia.isBlank()) {
+                throw new DiagnosticoException("La secuencia no puede estar vacía");
+            }
+            throw new DiagnosticoException(
+                    "La secuencia solo puede contener A, T, C, G: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Valida una secuencia que ya llega empaquetada: su alfabeto está
+     * garantizado por el formato, así que solo se comprueba la longitud.
+     *
+     * @param secuencia Secuencia a validar
+     * @return La misma secuencia
+     * @throws DiagnosticoException Si está vacía o es demasiado larga
+     */
+    public PackedSequence validarSecuencia(PackedSequence secuencia) throws DiagnosticoException {
+        if (secuencia == null || secuencia.isEmpty()) {
+            throw new DiagnosticoException("La secuencia no puede estar vacía");
         }
-        if (!secuencia.matches("^[ATCG]*$")) {
-            throw new DiagnosticoException("La secuencia solo puede contener A, T, C, G");
+        if (secuencia.length() > longitudMaxima) {
+            throw new DiagnosticoException(
+                    "La secuencia es demasiado larga (máx " + longitudMaxima + " caracteres)");
         }
+        return secuencia;
     }
 
     /**
@@ -95,20 +205,28 @@ public class MuestraProcessor {
      * @param secuencia2 Segunda secuencia
      * @return Porcentaje de similitud (0-100)
      */
-    public double calcularSimilitud(String secuencia1, String secuencia2) {
+    public double calcularSimilitud(PackedSequence secuencia1, PackedSequence secuencia2) {
         if (secuencia1 == null || secuencia2 == null) {
             return 0;
         }
 
         int minLength = Math.min(secuencia1.length(), secuencia2.length());
-        int coincidencias = 0;
+        return (secuencia1.contarCoincidencias(secuencia2) * 100.0) / minLength;
+    }
 
-        for (int i = 0; i < minLength; i++) {
-            if (secuencia1.charAt(i) == secuencia2.charAt(i)) {
-                coincidencias++;
-            }
-        }
+    public int getLongitudMaxima() {
+        return longitudMaxima;
+    }
+
+    public CacheDeteccion getCache() {
+        return cache;
+    }
 
-        return (coincidencias * 100.0) / minLength;
+    /**
+     * Detiene el pool del escaneo en paralelo; los escaneos en curso
+     * terminan.
+     */
+    public void cerrar() {
+        pool.shutdown();
     }
 }
\ No newline at end of file
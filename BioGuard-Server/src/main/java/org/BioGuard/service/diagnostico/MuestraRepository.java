@@ -1,22 +1,26 @@
 package org.BioGuard.service.diagnostico;
 
 import org.BioGuard.model.Muestra;
-import org.BioGuard.exception.FileReadException;
 
 import java.io.IOException;
-import java.nio.file.*;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 /**
  * Repositorio para gestionar la persistencia de muestras.
  *
  * <p>Responsabilidad Única: Gestionar el almacenamiento y recuperación
- * de muestras de ADN en el sistema de archivos y en memoria.</p>
+ * de muestras de ADN en el sistema de archivos y en memoria. El formato
+ * en disco lo decide el {@link AlmacenMuestras} recibido.</p>
+ *
+ * <p>Además del mapa por id se mantiene un índice secundario por paciente:
+ * para cada documento, un mapa ordenado por fecha (y por id, para
+ * desempatar). Las consultas por paciente, la muestra más reciente y las
+ * búsquedas por rango de fechas se resuelven sobre ese índice en
+ * O(log n), sin recorrer ni ordenar todas las muestras.</p>
  *
  * @author Sergio Grajales
  * @author Jhonatan Tamayo
@@ -25,126 +29,54 @@ import java.util.stream.Stream;
 public class MuestraRepository {
 
     private final Map<String, Muestra> muestras = new ConcurrentHashMap<>();
-    private final MuestraParser parser;
-    private static final String MUESTRAS_DIR = "data/muestras/";
+    private final Map<String, ConcurrentSkipListMap<ClaveFecha, Muestra>> porPaciente = new ConcurrentHashMap<>();
+    private final AlmacenMuestras almacen;
 
     /**
      * Constructor del repositorio de muestras.
-     * Inicializa el parser y carga las muestras existentes.
+     * Usa un archivo FASTA por muestra y carga las muestras existentes.
      */
     public MuestraRepository() {
-        this.parser = new MuestraParser();
-        crearDirectorioMuestras();
-        cargarMuestrasDesdeArchivos();
+        this(new AlmacenArchivosFasta());
     }
 
     /**
-     * Crea el directorio de muestras si no existe.
+     * @param almacen Motor de almacenamiento de las muestras
      */
-    private void crearDirectorioMuestras() {
-        try {
-            Files.createDirectories(Paths.get(MUESTRAS_DIR));
-        } catch (IOException e) {
-            System.err.println("[MuestraRepository] Error creando directorio: " + e.getMessage());
-        }
+    public MuestraRepository(AlmacenMuestras almacen) {
+        this.almacen = almacen;
+        almacen.cargar(this::registrar);
     }
 
     /**
-     * Carga todas las muestras desde los archivos FASTA en el sistema de archivos.
-     * Recorre recursivamente las carpetas de pacientes y parsea cada archivo .fasta.
+     * Crea el repositorio con muestras ya leídas (por ejemplo, de la foto
+     * del servidor) en lugar de cargarlas del almacén.
+     *
+     * @param almacen Motor de almacenamiento de las muestras
+     * @param iniciales Muestras a registrar
      */
-    private void cargarMuestrasDesdeArchivos() {
-        Path muestrasDir = Paths.get(MUESTRAS_DIR);
-        if (!Files.exists(muestrasDir)) {
-            return;
-        }
-
-        System.out.println("[MuestraRepository] Cargando muestras desde archivos...");
-        int contador = 0;
-        int errores = 0;
-
-        try (Stream<Path> pacientesDirs = Files.list(muestrasDir)) {
-            List<Path> carpetasPacientes = pacientesDirs.filter(Files::isDirectory).toList();
-
-            for (Path pacienteDir : carpetasPacientes) {
-                String documento = pacienteDir.getFileName().toString();
-
-                // Ignorar carpetas que son placeholders
-                if (documento.equals("documento") || documento.equals("placeholder")) {
-                    continue;
-                }
-
-                try (DirectoryStream<Path> archivos = Files.newDirectoryStream(pacienteDir, "*.fasta")) {
-                    for (Path archivo : archivos) {
-                        try {
-                            Muestra muestra = parser.parsear(archivo);
-
-                            // Verificar que el documento coincida con la carpeta
-                            if (!documento.equals(muestra.getDocumentoPaciente())) {
-                                System.err.println("  Advertencia: Documento en archivo (" +
-                                        muestra.getDocumentoPaciente() +
-                                        ") no coincide con carpeta (" + documento + ")");
-                            }
-
-                            muestras.put(muestra.getId(), muestra);
-                            contador++;
-                            System.out.println("  Cargada: " + muestra.getId());
-
-                        } catch (FileReadException e) {
-                            errores++;
-                            System.err.println("  Error de formato en " + archivo.getFileName() + ": " + e.getMessage());
-                        } catch (IOException e) {
-                            errores++;
-                            System.err.println("  Error de E/S en " + archivo.getFileName() + ": " + e.getMessage());
-                        }
-                    }
-                }
-            }
-
-            System.out.println("[MuestraRepository] " + contador + " muestras cargadas, " + errores + " errores");
-
-        } catch (IOException e) {
-            System.err.println("[MuestraRepository] Error cargando muestras: " + e.getMessage());
+    public MuestraRepository(AlmacenMuestras almacen, Collection<Muestra> iniciales) {
+        this.almacen = almacen;
+        almacen.omitirCarga();
+        for (Muestra muestra : iniciales) {
+            almacen.adoptar(muestra);
+            registrar(muestra);
         }
     }
 
     /**
-     * Guarda una nueva muestra en el sistema de archivos y en memoria.
+     * Guarda una nueva muestra en disco y en memoria.
      *
      * @param muestra Muestra a guardar
      * @return La muestra guardada con su ruta de archivo actualizada
      * @throws IOException Si hay error de escritura
      */
     public Muestra guardar(Muestra muestra) throws IOException {
-        // Crear carpeta del paciente
-        Path pacienteDir = Paths.get(MUESTRAS_DIR, muestra.getDocumentoPaciente());
-        Files.createDirectories(pacienteDir);
-
-        // Generar nombre de archivo
-        String nombreArchivo = muestra.getNombreArchivo();
-        Path archivoPath = pacienteDir.resolve(nombreArchivo);
-
-        // Evitar sobrescribir archivos existentes
-        int contador = 1;
-        while (Files.exists(archivoPath)) {
-            String nombreSinExt = nombreArchivo.replace(".fasta", "");
-            nombreArchivo = nombreSinExt + "_" + contador + ".fasta";
-            archivoPath = pacienteDir.resolve(nombreArchivo);
-            contador++;
-        }
-
-        // Crear contenido en formato FASTA
-        String contenido = ">" + muestra.getDocumentoPaciente() + "|" +
-                muestra.getFecha().format(DateTimeFormatter.ISO_DATE_TIME) + "\n" +
-                muestra.getSecuencia() + "\n";
-
-        // Escribir archivo
-        Files.writeString(archivoPath, contenido);
-        muestra.setArchivoPath(archivoPath.toString());
+        almacen.guardar(muestra);
 
         // Guardar en memoria
-        muestras.put(muestra.getId(), muestra);
-        System.out.println("[MuestraRepository] Muestra guardada: " + archivoPath);
+        registrar(muestra);
+        System.out.println("[MuestraRepository] Muestra guardada: " + muestra.getArchivoPath());
 
         return muestra;
     }
@@ -162,6 +94,58 @@ public class MuestraRepository {
         return Optional.ofNullable(muestras.get(id));
     }
 
+    /**
+     * Agrega la muestra al mapa por id y al índice del paciente,
+     * reemplazando la entrada anterior con el mismo id si la había.
+     */
+    private void registrar(Muestra muestra) {
+        Muestra anterior = muestras.put(muestra.getId(), muestra);
+        if (anterior != null) {
+            desindexar(anterior);
+        }
+        if (muestra.getDocumentoPaciente() == null) {
+            return;
+        }
+        porPaciente.compute(muestra.getDocumentoPaciente(), (doc, indice) -> {
+            if (indice == null) {
+                indice = new ConcurrentSkipListMap<>();
+            }
+            indice.put(new ClaveFecha(muestra.getFecha(), muestra.getId()), muestra);
+            return indice;
+        });
+    }
+
+    private void desindexar(Muestra muestra) {
+        if (muestra.getDocumentoPaciente() == null) {
+            return;
+        }
+        // compute es atómico por documento: no compite con registrar()
+        porPaciente.computeIfPresent(muestra.getDocumentoPaciente(), (doc, indice) -> {
+            if (!indice.remove(new ClaveFecha(muestra.getFecha(), muestra.getId()), muestra)) {
+                // La fecha cambió después de indexarla: se busca por identidad
+                indice.values().remove(muestra);
+            }
+            return indice.isEmpty() ? null : indice;
+        });
+    }
+
+    /**
+     * @return Índice del paciente ordenado por fecha ascendente, o null
+     */
+    private ConcurrentSkipListMap<ClaveFecha, Muestra> indiceDe(String documento) {
+        if (documento == null || documento.trim().isEmpty()) {
+            return null;
+        }
+        return porPaciente.get(documento);
+    }
+
+    /**
+     * Copia los valores del tramo del índice, del más reciente al más antiguo.
+     */
+    private static List<Muestra> recientesPrimero(ConcurrentNavigableMap<ClaveFecha, Muestra> tramo) {
+        return new ArrayList<>(tramo.descendingMap().values());
+    }
+
     /**
      * Busca muestras por documento de paciente.
      *
@@ -169,14 +153,11 @@ public class MuestraRepository {
      * @return Lista de muestras ordenadas por fecha (más reciente primero)
      */
     public List<Muestra> buscarPorPaciente(String documento) {
-        if (documento == null || documento.trim().isEmpty()) {
-            return Collections.emptyList();
+        ConcurrentSkipListMap<ClaveFecha, Muestra> indice = indiceDe(documento);
+        if (indice == null) {
+            return new ArrayList<>();
         }
-
-        return muestras.values().stream()
-                .filter(m -> documento.equals(m.getDocumentoPaciente()))
-                .sorted((a, b) -> b.getFecha().compareTo(a.getFecha()))
-                .collect(Collectors.toList());
+        return recientesPrimero(indice);
     }
 
     /**
@@ -186,20 +167,44 @@ public class MuestraRepository {
      * @return Optional con la muestra más reciente
      */
     public Optional<Muestra> obtenerMuestraReciente(String documento) {
-        return buscarPorPaciente(documento).stream().findFirst();
+        ConcurrentSkipListMap<ClaveFecha, Muestra> indice = indiceDe(documento);
+        if (indice == null) {
+            return Optional.empty();
+        }
+        Map.Entry<ClaveFecha, Muestra> ultima = indice.lastEntry();
+        return ultima != null ? Optional.of(ultima.getValue()) : Optional.empty();
     }
 
     /**
      * Obtiene todas las muestras anteriores a una fecha específica.
      *
      * @param documento Documento del paciente
-     * @param fecha Fecha límite
-     * @return Lista de muestras anteriores a la fecha
+     * @param fecha Fecha límite (excluida)
+     * @return Lista de muestras anteriores a la fecha (más reciente primero)
      */
     public List<Muestra> obtenerMuestrasAnterioresA(String documento, LocalDateTime fecha) {
-        return buscarPorPaciente(documento).stream()
-                .filter(m -> m.getFecha().isBefore(fecha))
-                .collect(Collectors.toList());
+        ConcurrentSkipListMap<ClaveFecha, Muestra> indice = indiceDe(documento);
+        if (indice == null || fecha == null) {
+            return new ArrayList<>();
+        }
+        return recientesPrimero(indice.headMap(ClaveFecha.inicioDe(fecha), false));
+    }
+
+    /**
+     * Obtiene las muestras de un paciente tomadas en un rango de fechas.
+     *
+     * @param documento Documento del paciente
+     * @param desde Fecha inicial (incluida)
+     * @param hasta Fecha final (incluida)
+     * @return Lista de muestras del rango (más reciente primero)
+     */
+    public List<Muestra> buscarPorPacienteEntre(String documento, LocalDateTime desde, LocalDateTime hasta) {
+        ConcurrentSkipListMap<ClaveFecha, Muestra> indice = indiceDe(documento);
+        if (indice == null || desde == null || hasta == null || hasta.isBefore(desde)) {
+            return new ArrayList<>();
+        }
+        return recientesPrimero(indice.subMap(
+                ClaveFecha.inicioDe(desde), true, ClaveFecha.finDe(hasta), false));
     }
 
     /**
@@ -228,10 +233,16 @@ public class MuestraRepository {
      * @return true si se eliminó correctamente
      */
     public boolean eliminar(String id) {
+        if (id == null) {
+            return false;
+        }
         Muestra muestra = muestras.remove(id);
+        if (muestra != null) {
+            desindexar(muestra);
+        }
         if (muestra != null && muestra.getArchivoPath() != null) {
             try {
-                Files.deleteIfExists(Paths.get(muestra.getArchivoPath()));
+                almacen.eliminar(muestra);
                 System.out.println("[MuestraRepository] Muestra eliminada: " + id);
                 return true;
             } catch (IOException e) {
@@ -251,4 +262,13 @@ public class MuestraRepository {
     public int contar() {
         return muestras.size();
     }
-}
\ No newline at end of file
+
+    /**
+     * Cierra el almacén de las muestras.
+     *
+     * @throws IOException Si hay error al cerrar
+     */
+    public void cerrar() throws IOException {
+        almacen.cerrar();
+    }
+}
@@ -0,0 +1,317 @@
+package org.BioGuard.service.diagnostico;
+
+import org.BioGuard.model.Diagnostico;
+import org.BioGuard.model.Muestra;
+import org.BioGuard.model.PackedSequence;
+import org.BioGuard.model.Virus;
+import org.BioGuard.service.deteccion.CatalogoVirus;
+import org.BioGuard.service.deteccion.DetectorVirus;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-escaneo retrospectivo de las muestras guardadas cuando se registra o
+ * modifica un virus.
+ *
+ * <p>Responsabilidad Única: Mantener al día los diagnósticos existentes
+ * frente a los cambios del catálogo, sin que haya que reenviar muestras.</p>
+ *
+ * <p>Cada cambio del catálogo programa un trabajo que se ejecuta en un hilo
+ * de fondo: solo se buscan los virus agregados o modificados, con un
+ * detector compilado para ellos, sobre las muestras que tienen diagnóstico.
+ * Las muestras se procesan por lotes en un pool de tamaño acotado, con una
+ * pausa entre lotes para no competir con las solicitudes en curso. En cada
+ * diagnóstico afectado se reemplazan los hallazgos de esos virus y su CSV
+ * se encola en el {@link EscritorDiagnosticos}.</p>
+ *
+ * <p>Los virus se buscan con su tolerancia propia; la tolerancia pedida en
+ * la solicitud original no se guarda y no se aplica.</p>
+ *
+ * <p>Un trabajo solo ve los diagnósticos registrados cuando empieza. Un
+ * diagnóstico detectado con la foto anterior del catálogo y registrado
+ * después queda cubierto por {@link #reescanearSiCambio}: al registrar,
+ * el servicio compara la foto usada con la vigente y, si cambió, se
+ * re-escanea ese diagnóstico con los virus que difieren.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public class ReescaneoMuestras {
+
+    /** Muestras por lote. */
+    public static final int TAMANO_LOTE_POR_DEFECTO = 64;
+
+    /** Pausa entre lotes, en milisegundos. */
+    public static final long PAUSA_POR_DEFECTO_MS = 10;
+
+    // Espera máxima por los hilos al detener
+    private static final long ESPERA_DETENER_SEGUNDOS = 5;
+
+    private final MuestraRepository muestraRepository;
+    private final DiagnosticoRepository diagnosticoRepository;
+    private final EscritorDiagnosticos escritor;
+    private final int tamanoLote;
+    private final long pausaMs;
+
+    private final ExecutorService coordinador;
+    private final ExecutorService pool;
+
+    // Progreso
+    private final AtomicInteger trabajosPendientes = new AtomicInteger();
+    private final AtomicLong trabajosCompletados = new AtomicLong();
+    private final AtomicInteger muestrasTotales = new AtomicInteger();
+    private final AtomicInteger muestrasProcesadas = new AtomicInteger();
+    private final AtomicLong diagnosticosActualizados = new AtomicLong();
+    private volatile String virusEnCurso = "";
+
+    public ReescaneoMuestras(MuestraRepository muestraRepository,
+                             DiagnosticoRepository diagnosticoRepository,
+                             EscritorDiagnosticos escritor) {
+        this(muestraRepository, diagnosticoRepository, escritor,
+                Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+                TAMANO_LOTE_POR_DEFECTO, PAUSA_POR_DEFECTO_MS);
+    }
+
+    /**
+     * @param paralelismo Hilos que escanean muestras a la vez
+     * @param tamanoLote Muestras por lote
+     * @param pausaMs Pausa entre lotes, en milisegundos
+     */
+    public ReescaneoMuestras(MuestraRepository muestraRepository,
+                             DiagnosticoRepository diagnosticoRepository,
+                             EscritorDiagnosticos escritor,
+                             int paralelismo, int tamanoLote, long pausaMs) {
+        this.muestraRepository = muestraRepository;
+        this.diagnosticoRepository = diagnosticoRepository;
+        this.escritor = escritor;
+        this.tamanoLote = Math.max(1, tamanoLote);
+        this.pausaMs = Math.max(0, pausaMs);
+        this.coordinador = Executors.newSingleThreadExecutor(r -> crearHilo(r, "reescaneo"));
+        this.pool = Executors.newFixedThreadPool(Math.max(1, paralelismo),
+                r -> crearHilo(r, "reescaneo-lote"));
+    }
+
+    private static Thread crearHilo(Runnable r, String nombre) {
+        Thread hilo = new Thread(r, nombre);
+        hilo.setDaemon(true);
+        hilo.setPriority(Thread.MIN_PRIORITY);
+        return hilo;
+    }
+
+    /**
+     * Programa el re-escaneo para los virus cambiados. Retorna de inmediato;
+     * puede usarse directamente como {@code CatalogoListener}.
+     *
+     * @param anterior Catálogo antes del cambio
+     * @param nuevo Catálogo después del cambio
+     * @param cambiados Virus agregados o modificados
+     */
+    public void programar(CatalogoVirus anterior, CatalogoVirus nuevo, List<Virus> cambiados) {
+        programar(anterior, cambiados, null);
+    }
+
+    /**
+     * Programa el re-escaneo de un solo diagnóstico si el catálogo cambió
+     * desde la foto con que se detectó. Solo se buscan los virus agregados
+     * o modificados entre ambas fotos.
+     *
+     * @param diagnostico Diagnóstico ya registrado
+     * @param usado Catálogo con que se detectaron sus hallazgos
+     * @param vigente Catálogo vigente
+     */
+    public void reescanearSiCambio(Diagnostico diagnostico, CatalogoVirus usado, CatalogoVirus vigente) {
+        if (usado.getVersion() == vigente.getVersion()) {
+            return;
+        }
+        // Las fotos conservan las instancias de los virus no modificados
+        List<Virus> cambiados = new ArrayList<>();
+        for (Virus v : vigente.getVirus()) {
+            if (usado.buscarPorId(v.getId()).orElse(null) != v) {
+                cambiados.add(v);
+            }
+        }
+        programar(usado, cambiados, diagnostico);
+    }
+
+    /**
+     * @param solo Diagnóstico a re-escanear, o null para todos
+     */
+    private void programar(CatalogoVirus anterior, List<Virus> cambiados, Diagnostico solo) {
+        if (cambiados.isEmpty()) {
+            return;
+        }
+
+        // Nombres cuyos hallazgos se reemplazan: los actuales y, si un virus
+        // cambió de nombre, también el anterior
+        Set<String> nombres = new HashSet<>();
+        for (Virus v : cambiados) {
+            nombres.add(v.getNombre());
+            anterior.buscarPorId(v.getId()).ifPresent(previo -> nombres.add(previo.getNombre()));
+        }
+        DetectorVirus detector = DetectorVirus.compilar(cambiados);
+
+        trabajosPendientes.incrementAndGet();
+        coordinador.execute(() -> {
+            try {
+                if (solo != null) {
+                    ejecutar(detector, nombres, solo);
+                } else {
+                    ejecutar(detector, nombres);
+                }
+            } catch (RuntimeException e) {
+                System.err.println("[Reescaneo] Error: " + e.getMessage());
+            } finally {
+                virusEnCurso = "";
+                trabajosPendientes.decrementAndGet();
+                trabajosCompletados.incrementAndGet();
+            }
+        });
+    }
+
+    private void ejecutar(DetectorVirus detector, Set<String> nombres) {
+        Map<String, Muestra> muestrasPorId = new HashMap<>();
+        for (Muestra m : muestraRepository.listarTodas()) {
+            muestrasPorId.put(m.getId(), m);
+        }
+
+        List<Diagnostico> pendientes = new ArrayList<>();
+        for (Diagnostico d : diagnosticoRepository.listarTodos()) {
+            if (d.getIdMuestra() != null && muestrasPorId.containsKey(d.getIdMuestra())) {
+                pendientes.add(d);
+            }
+        }
+
+        virusEnCurso = String.join(",", nombres);
+        muestrasTotales.set(pendientes.size());
+        muestrasProcesadas.set(0);
+        System.out.println("[Reescaneo] Re-escaneando " + pendientes.size() +
+                " muestras para: " + virusEnCurso);
+
+        for (int inicio = 0; inicio < pendientes.size(); inicio += tamanoLote) {
+            List<Diagnostico> lote = pendientes.subList(inicio, Math.min(pendientes.size(), inicio + tamanoLote));
+            procesarLote(lote, muestrasPorId, detector, nombres);
+
+            if (pausaMs > 0 && inicio + tamanoLote < pendientes.size()) {
+                try {
+                    Thread.sleep(pausaMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        System.out.println("[Reescaneo] Completado: " + virusEnCurso);
+    }
+
+    private void ejecutar(DetectorVirus detector, Set<String> nombres, Diagnostico diagnostico) {
+        Muestra muestra = muestraRepository.buscarPorId(diagnostico.getIdMuestra()).orElse(null);
+        if (muestra == null) {
+            return;
+        }
+        virusEnCurso = String.join(",", nombres);
+        muestrasTotales.set(1);
+        muestrasProcesadas.set(0);
+        procesarLote(List.of(diagnostico), Map.of(muestra.getId(), muestra), detector, nombres);
+    }
+
+    private void procesarLote(List<Diagnostico> lote, Map<String, Muestra> muestras,
+                              DetectorVirus detector, Set<String> nombres) {
+        List<Callable<List<Diagnostico.HallazgoVirus>>> tareas = new ArrayList<>(lote.size());
+        for (Diagnostico d : lote) {
+            Muestra muestra = muestras.get(d.getIdMuestra());
+            tareas.add(() -> {
+                // La secuencia puede cargarse aquí por primera vez: se lee en el pool
+                PackedSequence secuencia = muestra.getSecuenciaEmpaquetada();
+                return secuencia != null ? detector.detectar(secuencia) : List.<Diagnostico.HallazgoVirus>of();
+            });
+        }
+
+        List<Future<List<Diagnostico.HallazgoVirus>>> resultados;
+        try {
+            resultados = pool.invokeAll(tareas);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        for (int i = 0; i < lote.size(); i++) {
+            try {
+                actualizar(lote.get(i), resultados.get(i).get(), nombres);
+            } catch (ExecutionException e) {
+                System.err.println("[Reescaneo] Error en " + lote.get(i).getIdMuestra() + ": " + e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            muestrasProcesadas.incrementAndGet();
+        }
+    }
+
+    /**
+     * Reemplaza los hallazgos de los virus re-escaneados a través del
+     * repositorio, que mantiene al día su índice por virus.
+     */
+    private void actualizar(Diagnostico diagnostico, List<Diagnostico.HallazgoVirus> nuevos,
+                            Set<String> nombres) {
+        List<Diagnostico.HallazgoVirus> actuales = diagnostico.getVirusDetectados();
+        boolean habia = actuales.stream().anyMatch(h -> nombres.contains(h.getNombreVirus()));
+        if (nuevos.isEmpty() && !habia) {
+            return;
+        }
+
+        List<Diagnostico.HallazgoVirus> combinados = new ArrayList<>(actuales.size() + nuevos.size());
+        for (Diagnostico.HallazgoVirus h : actuales) {
+            if (!nombres.contains(h.getNombreVirus())) {
+                combinados.add(h);
+            }
+        }
+        combinados.addAll(nuevos);
+        diagnosticoRepository.actualizarHallazgos(diagnostico, combinados);
+        diagnosticosActualizados.incrementAndGet();
+        escritor.encolar(diagnostico);
+    }
+
+    /**
+     * @return Resumen del progreso: trabajos pendientes, muestras del
+     *         trabajo en curso y diagnósticos actualizados
+     */
+    public String obtenerProgreso() {
+        int pendientes = trabajosPendientes.get();
+        String estado = pendientes > 0 ? "EN_CURSO" : "INACTIVO";
+        return String.format("REESCANEO:%s|pendientes=%d|completados=%d|muestras=%d/%d|actualizados=%d|virus=%s",
+                estado, pendientes, trabajosCompletados.get(),
+                muestrasProcesadas.get(), muestrasTotales.get(),
+                diagnosticosActualizados.get(), virusEnCurso);
+    }
+
+    /**
+     * Detiene los hilos de fondo; los trabajos pendientes se descartan y
+     * se espera a que terminen los lotes interrumpidos.
+     */
+    public void detener() {
+        coordinador.shutdownNow();
+        pool.shutdownNow();
+        try {
+            if (!coordinador.awaitTermination(ESPERA_DETENER_SEGUNDOS, TimeUnit.SECONDS)
+                    || !pool.awaitTermination(ESPERA_DETENER_SEGUNDOS, TimeUnit.SECONDS)) {
+                System.err.println("[Reescaneo] Hay lotes que no terminaron al detener");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package org.BioGuard.service.reporte;
 
 import org.BioGuard.model.Diagnostico;
-import org.BioGuard.model.Virus;
 import org.BioGuard.service.IVirusService;
 import org.BioGuard.service.diagnostico.IDiagnosticoService;
 
@@ -69,8 +68,8 @@ public class AltoRiesgoReporter {
         // 2. Agrupar por paciente y procesar datos
         Map<String, ReporteData> datosPorPaciente = new HashMap<>();
 
-        // Obtener mapa de niveles de virus (nombre -> nivel)
-        Map<String, Integer> nivelesVirus = obtenerNivelesVirus();
+        // Mapa de niveles de virus (nombre -> nivel) ya construido en el catálogo
+        Map<String, Integer> nivelesVirus = virusService.obtenerCatalogo().getNivelesPorNombre();
 
         for (Diagnostico diag : todosDiagnosticos) {
             String documento = diag.getDocumentoPaciente();
@@ -111,18 +110,6 @@ public class AltoRiesgoReporter {
         return rutaArchivo.toString();
     }
 
-    /**
-     * Obtiene un mapa con nombre del virus y su nivel de peligrosidad.
-     */
-    private Map<String, Integer> obtenerNivelesVirus() {
-        Map<String, Integer> niveles = new HashMap<>();
-        for (Virus virus : virusService.listarTodos()) {
-            niveles.put(virus.getNombre(), virus.getNivelPeligrosidad());
-            System.out.println("[Reporter] Virus cargado: " + virus.getNombre() + " (nivel " + virus.getNivelPeligrosidad() + ")");
-        }
-        return niveles;
-    }
-
     /**
      * Genera el reporte y retorna el contenido como String para enviar al cliente.
      *
@@ -0,0 +1,164 @@
+package org.BioGuard.service.reporte;
+
+import org.BioGuard.model.Muestra;
+import org.BioGuard.util.ResultadoComparacion;
+import org.BioGuard.util.SecuenciaComparator;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caché de comparaciones entre pares de muestras.
+ *
+ * <p>Responsabilidad Única: Evitar recalcular la comparación de dos
+ * muestras que ya se compararon, por ejemplo al volver a pedir el reporte
+ * de mutaciones de un paciente con un historial largo.</p>
+ *
+ * <p>Las muestras no cambian una vez guardadas, así que la clave es el par
+ * de ids más el modo y el límite de ediciones del comparador (con otro
+ * límite el resultado de un par alineado puede ser distinto).</p>
+ *
+ * <p>La caché está acotada por número de pares y por bytes estimados de
+ * las diferencias guardadas, ya que comparar secuencias largas y muy
+ * distintas produce listas de diferencias grandes. Al superar cualquiera
+ * de los dos límites se expulsan los pares usados hace más tiempo; un
+ * resultado que por sí solo supera el límite de bytes no se guarda.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public class CacheComparaciones {
+
+    /** Capacidad por defecto, en pares de muestras. */
+    public static final int CAPACIDAD_POR_DEFECTO = 4096;
+
+    /** Bytes estimados de diferencias que se conservan por defecto. */
+    public static final long MAXIMO_BYTES_POR_DEFECTO = 64L * 1024 * 1024;
+
+    // Estimación del objeto Diferencia, sus dos String y la referencia en
+    // la lista, sin contar los caracteres
+    private static final int BYTES_POR_DIFERENCIA = 120;
+    private static final int BYTES_POR_RESULTADO = 96;
+
+    private final Map<String, Entrada> resultados;
+    private final int capacidad;
+    private final long maximoBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long bytes;
+
+    public CacheComparaciones() {
+        this(CAPACIDAD_POR_DEFECTO, MAXIMO_BYTES_POR_DEFECTO);
+    }
+
+    public CacheComparaciones(int capacidad) {
+        this(capacidad, MAXIMO_BYTES_POR_DEFECTO);
+    }
+
+    /**
+     * @param capacidad Pares de muestras como máximo
+     * @param maximoBytes Bytes estimados de diferencias como máximo
+     */
+    public CacheComparaciones(int capacidad, long maximoBytes) {
+        if (capacidad < 1 || maximoBytes < 1) {
+            throw new IllegalArgumentException("Los límites de la caché deben ser positivos");
+        }
+        this.capacidad = capacidad;
+        this.maximoBytes = maximoBytes;
+        this.resultados = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Obtiene la comparación del par, calculándola si no está guardada.
+     *
+     * @param actual Muestra actual
+     * @param anterior Muestra anterior
+     * @param comparador Comparador a usar si hay que calcularla
+     * @return Resultado de la comparación
+     */
+    public ResultadoComparacion obtener(Muestra actual, Muestra anterior, SecuenciaComparator comparador) {
+        String clave = comparador.getModo() + "|" + comparador.getMaxEdiciones() + "|"
+                + actual.getId() + "|" + anterior.getId();
+
+        lock.lock();
+        try {
+            Entrada guardada = resultados.get(clave);
+            if (guardada != null) {
+                return guardada.resultado;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // Se calcula fuera del candado; si dos hilos coinciden, ambos
+        // obtienen el mismo resultado
+        ResultadoComparacion resultado = comparador.analizar(
+                actual.getSecuenciaEmpaquetada(), anterior.getSecuenciaEmpaquetada());
+
+        long peso = estimarBytes(resultado);
+        if (peso > maximoBytes) {
+            return resultado;
+        }
+
+        lock.lock();
+        try {
+            Entrada anteriorEntrada = resultados.put(clave, new Entrada(resultado, peso));
+            if (anteriorEntrada != null) {
+                bytes -= anteriorEntrada.bytes;
+            }
+            bytes += peso;
+            expulsar();
+        } finally {
+            lock.unlock();
+        }
+        return resultado;
+    }
+
+    /**
+     * @return Bytes estimados de los resultados guardados
+     */
+    public long getBytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Expulsa los pares usados hace más tiempo hasta cumplir ambos límites.
+    // Debe invocarse con el candado tomado
+    private void expulsar() {
+        Iterator<Entrada> mayores = resultados.values().iterator();
+        while ((resultados.size() > capacidad || bytes > maximoBytes) && mayores.hasNext()) {
+            bytes -= mayores.next().bytes;
+            mayores.remove();
+        }
+    }
+
+    private static long estimarBytes(ResultadoComparacion resultado) {
+        long total = BYTES_POR_RESULTADO;
+        for (SecuenciaComparator.Diferencia diferencia : resultado.getDiferencias()) {
+            total += BYTES_POR_DIFERENCIA + longitud(diferencia.getSecuenciaOriginal())
+                    + longitud(diferencia.getSecuenciaNueva());
+        }
+        return total;
+    }
+
+    // Las secuencias son ASCII: un byte por carácter en los String compactos
+    private static int longitud(String texto) {
+        return texto != null ? texto.length() : 0;
+    }
+
+    private static final class Entrada {
+        private final ResultadoComparacion resultado;
+        private final long bytes;
+
+        Entrada(ResultadoComparacion resultado, long bytes) {
+            this.resultado = resultado;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package org.BioGuard.service.reporte;
+
+import org.BioGuard.model.Muestra;
+import org.BioGuard.util.ResultadoComparacion;
+import org.BioGuard.util.SecuenciaComparator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ejecuta en paralelo las comparaciones de un reporte de mutaciones.
+ *
+ * <p>Responsabilidad Única: Repartir las comparaciones (muestra actual,
+ * muestra anterior) de un historial en un pool acotado compartido por
+ * todos los reportes, y reunir los resultados en el orden original.</p>
+ *
+ * <p>Cada reporte tiene un tiempo máximo y puede cancelarse por su clave
+ * (el documento del paciente); en ambos casos se cancelan las
+ * comparaciones pendientes y se lanza {@link CancellationException}. Si
+ * hay varios reportes en curso con la misma clave, cancelarla los cancela
+ * todos.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public class EjecutorComparaciones {
+
+    /** Tiempo máximo por reporte, por defecto. */
+    public static final long TIMEOUT_POR_DEFECTO_MS = 60_000;
+
+    // Espera máxima por los hilos al detener
+    private static final long ESPERA_DETENER_SEGUNDOS = 5;
+
+    private final ExecutorService pool;
+    private final long timeoutMs;
+    private final Map<String, Set<Reporte>> enCurso = new ConcurrentHashMap<>();
+
+    public EjecutorComparaciones() {
+        this(Runtime.getRuntime().availableProcessors(), TIMEOUT_POR_DEFECTO_MS);
+    }
+
+    /**
+     * @param hilos Tamaño del pool compartido
+     * @param timeoutMs Tiempo máximo por reporte, en milisegundos
+     */
+    public EjecutorComparaciones(int hilos, long timeoutMs) {
+        AtomicInteger contador = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(Math.max(1, hilos), r -> {
+            Thread hilo = new Thread(r, "comparaciones-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Compara la muestra actual con cada anterior en el pool.
+     *
+     * @param clave Identifica el reporte para poder cancelarlo
+     * @param actual Muestra actual
+     * @param anteriores Muestras anteriores, en el orden del reporte
+     * @param comparador Comparador a usar
+     * @param cache Caché de comparaciones
+     * @return Resultados en el mismo orden que {@code anteriores}
+     * @throws CancellationException Si se cancela o se agota el tiempo
+     */
+    public List<ResultadoComparacion> comparar(String clave, Muestra actual, List<Muestra> anteriores,
+                                               SecuenciaComparator comparador, CacheComparaciones cache) {
+        Reporte reporte = new Reporte();
+        enCurso.compute(clave, (k, reportes) -> {
+            if (reportes == null) {
+                reportes = ConcurrentHashMap.newKeySet();
+            }
+            reportes.add(reporte);
+            return reportes;
+        });
+        try {
+            for (Muestra anterior : anteriores) {
+                if (!reporte.enviar(pool, () -> cache.obtener(actual, anterior, comparador))) {
+                    throw new CancellationException();
+                }
+            }
+
+            List<Future<ResultadoComparacion>> futuros = reporte.enviados();
+            long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            List<ResultadoComparacion> resultados = new ArrayList<>(futuros.size());
+            for (Future<ResultadoComparacion> futuro : futuros) {
+                resultados.add(futuro.get(limite - System.nanoTime(), TimeUnit.NANOSECONDS));
+            }
+            return resultados;
+
+        } catch (TimeoutException e) {
+            reporte.cancelar();
+            throw new CancellationException("Tiempo agotado (" + timeoutMs + " ms)");
+        } catch (CancellationException e) {
+            reporte.cancelar();
+            throw new CancellationException("Reporte cancelado");
+        } catch (InterruptedException e) {
+            reporte.cancelar();
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Reporte interrumpido");
+        } catch (ExecutionException e) {
+            reporte.cancelar();
+            throw new IllegalStateException("Error comparando muestras: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            enCurso.computeIfPresent(clave, (k, reportes) -> {
+                reportes.remove(reporte);
+                return reportes.isEmpty() ? null : reportes;
+            });
+        }
+    }
+
+    /**
+     * Cancela los reportes en curso con la clave dada.
+     *
+     * @param clave Clave del reporte (documento del paciente)
+     * @return true si había al menos un reporte en curso
+     */
+    public boolean cancelar(String clave) {
+        Set<Reporte> reportes = enCurso.get(clave);
+        if (reportes == null) {
+            return false;
+        }
+        boolean cancelado = false;
+        for (Reporte reporte : reportes) {
+            reporte.cancelar();
+            cancelado = true;
+        }
+        return cancelado;
+    }
+
+    /**
+     * Cancela las comparaciones y espera a que terminen las que estaban en
+     * curso, que comprueban la interrupción.
+     */
+    public void detener() {
+        pool.shutdownNow();
+        try {
+            if (!pool.awaitTermination(ESPERA_DETENER_SEGUNDOS, TimeUnit.SECONDS)) {
+                System.err.println("[EjecutorComparaciones] Hay comparaciones que no terminaron al detener");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Comparaciones de un reporte en curso. Se compara por identidad: dos
+     * reportes de la misma clave son entradas distintas.
+     *
+     * <p>Enviar y cancelar toman el mismo candado: una vez cancelado no se
+     * envía ninguna comparación más, así que ninguna escapa a la
+     * cancelación aunque llegue mientras el reporte aún se reparte.</p>
+     */
+    private static final class Reporte {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final List<Future<ResultadoComparacion>> futuros = new ArrayList<>();
+        private boolean cancelado;
+
+        /**
+         * @return false si el reporte ya se canceló y la tarea no se envió
+         */
+        boolean enviar(ExecutorService pool, Callable<ResultadoComparacion> tarea) {
+            lock.lock();
+            try {
+                if (cancelado) {
+                    return false;
+                }
+                futuros.add(pool.submit(tarea));
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        List<Future<ResultadoComparacion>> enviados() {
+            lock.lock();
+            try {
+                return new ArrayList<>(futuros);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void cancelar() {
+            lock.lock();
+            try {
+                cancelado = true;
+                for (Future<ResultadoComparacion> futuro : futuros) {
+                    futuro.cancel(true);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
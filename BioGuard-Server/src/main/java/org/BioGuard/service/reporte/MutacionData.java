@@ -1,6 +1,7 @@
 package org.BioGuard.service.reporte;
 
 import org.BioGuard.model.Muestra;
+import org.BioGuard.util.ResultadoComparacion;
 import org.BioGuard.util.SecuenciaComparator;
 
 import java.util.ArrayList;
@@ -9,6 +10,13 @@ import java.util.List;
 /**
  * Clase que procesa los datos de mutación para una muestra.
  *
+ * <p>Cada par (muestra actual, muestra anterior) se compara una sola vez:
+ * el {@link ResultadoComparacion} con similitud y diferencias se reutiliza
+ * en el reporte de texto y en el CSV, y puede compartirse entre reportes
+ * mediante una {@link CacheComparaciones}. Con un
+ * {@link EjecutorComparaciones} las comparaciones se reparten en paralelo
+ * y se reúnen en el mismo orden, así que la salida no cambia.</p>
+ *
  * @author Sergio Grajales
  * @author Jhonatan Tamayo
  * @version 1.0
@@ -18,11 +26,66 @@ public class MutacionData {
     private final Muestra muestraActual;
     private final List<Muestra> muestrasAnteriores;
     private final SecuenciaComparator comparador;
+    private final CacheComparaciones cache;
+    private final EjecutorComparaciones ejecutor;
+    private List<ResultadoComparacion> resultados;
 
     public MutacionData(Muestra muestraActual, List<Muestra> muestrasAnteriores) {
+        this(muestraActual, muestrasAnteriores, new SecuenciaComparator());
+    }
+
+    /**
+     * @param comparador Comparador a usar (posicional o alineado)
+     */
+    public MutacionData(Muestra muestraActual, List<Muestra> muestrasAnteriores,
+                        SecuenciaComparator comparador) {
+        this(muestraActual, muestrasAnteriores, comparador, new CacheComparaciones());
+    }
+
+    /**
+     * @param comparador Comparador a usar (posicional o alineado)
+     * @param cache Caché de comparaciones compartida entre reportes
+     */
+    public MutacionData(Muestra muestraActual, List<Muestra> muestrasAnteriores,
+                        SecuenciaComparator comparador, CacheComparaciones cache) {
+        this(muestraActual, muestrasAnteriores, comparador, cache, null);
+    }
+
+    /**
+     * @param comparador Comparador a usar (posicional o alineado)
+     * @param cache Caché de comparaciones compartida entre reportes
+     * @param ejecutor Pool para comparar en paralelo (null = secuencial)
+     */
+    public MutacionData(Muestra muestraActual, List<Muestra> muestrasAnteriores,
+                        SecuenciaComparator comparador, CacheComparaciones cache,
+                        EjecutorComparaciones ejecutor) {
         this.muestraActual = muestraActual;
         this.muestrasAnteriores = muestrasAnteriores;
-        this.comparador = new SecuenciaComparator();
+        this.comparador = comparador;
+        this.cache = cache;
+        this.ejecutor = ejecutor;
+    }
+
+    /**
+     * Compara la muestra actual con cada anterior, una sola vez por par.
+     *
+     * @throws java.util.concurrent.CancellationException Si el reporte se
+     *         cancela o se agota su tiempo
+     */
+    private List<ResultadoComparacion> resultados() {
+        if (resultados == null) {
+            if (ejecutor != null && muestrasAnteriores.size() > 1) {
+                resultados = ejecutor.comparar(muestraActual.getDocumentoPaciente(), muestraActual,
+                        muestrasAnteriores, comparador, cache);
+            } else {
+                List<ResultadoComparacion> calculados = new ArrayList<>(muestrasAnteriores.size());
+                for (Muestra anterior : muestrasAnteriores) {
+                    calculados.add(cache.obtener(muestraActual, anterior, comparador));
+                }
+                resultados = calculados;
+            }
+        }
+        return resultados;
     }
 
     /**
@@ -42,22 +105,16 @@ public class MutacionData {
             return reporte.toString();
         }
 
-        for (Muestra anterior : muestrasAnteriores) {
+        List<ResultadoComparacion> comparaciones = resultados();
+        for (int i = 0; i < muestrasAnteriores.size(); i++) {
+            Muestra anterior = muestrasAnteriores.get(i);
+            ResultadoComparacion resultado = comparaciones.get(i);
+
             reporte.append("Comparación con muestra: ").append(anterior.getId()).append("\n");
             reporte.append("Fecha muestra anterior: ").append(anterior.getFecha()).append("\n");
+            reporte.append("Similitud: ").append(resultado.getSimilitudFormateada()).append("%\n");
 
-            double similitud = comparador.calcularSimilitud(
-                    muestraActual.getSecuencia(),
-                    anterior.getSecuencia()
-            );
-
-            reporte.append(String.format("Similitud: %.2f%%\n", similitud));
-
-            List<SecuenciaComparator.Diferencia> diferencias = comparador.comparar(
-                    muestraActual.getSecuencia(),
-                    anterior.getSecuencia()
-            );
-
+            List<SecuenciaComparator.Diferencia> diferencias = resultado.getDiferencias();
             if (diferencias.isEmpty()) {
                 reporte.append("No se detectaron mutaciones.\n");
             } else {
@@ -66,7 +123,11 @@ public class MutacionData {
                     reporte.append("  Posición ").append(diff.getPosicionInicio())
                             .append("-").append(diff.getPosicionFin()).append(": ")
                             .append(diff.getSecuenciaOriginal()).append(" → ")
-                            .append(diff.getSecuenciaNueva()).append("\n");
+                            .append(diff.getSecuenciaNueva());
+                    if (comparador.getModo() == SecuenciaComparator.Modo.ALINEADO) {
+                        reporte.append(" (").append(diff.getTipo()).append(")");
+                    }
+                    reporte.append("\n");
                 }
             }
             reporte.append("\n");
@@ -82,32 +143,30 @@ public class MutacionData {
         StringBuilder csv = new StringBuilder();
         csv.append("muestra_actual,fecha_actual,muestra_anterior,fecha_anterior,similitud,mutaciones\n");
 
-        for (Muestra anterior : muestrasAnteriores) {
-            double similitud = comparador.calcularSimilitud(
-                    muestraActual.getSecuencia(),
-                    anterior.getSecuencia()
-            );
-
-            List<SecuenciaComparator.Diferencia> diferencias = comparador.comparar(
-                    muestraActual.getSecuencia(),
-                    anterior.getSecuencia()
-            );
-
-            String mutacionesStr = diferencias.isEmpty() ? "ninguna" :
-                    String.join(";", diferencias.stream()
-                            .map(d -> d.getPosicionInicio() + "-" + d.getPosicionFin())
-                            .toList());
-
-            csv.append(String.format("%s,%s,%s,%s,%.2f,%s\n",
-                    muestraActual.getId(),
-                    muestraActual.getFecha(),
-                    anterior.getId(),
-                    anterior.getFecha(),
-                    similitud,
-                    mutacionesStr
-            ));
+        List<ResultadoComparacion> comparaciones = resultados();
+        for (int i = 0; i < muestrasAnteriores.size(); i++) {
+            Muestra anterior = muestrasAnteriores.get(i);
+            ResultadoComparacion resultado = comparaciones.get(i);
+
+            csv.append(muestraActual.getId()).append(',')
+                    .append(muestraActual.getFecha()).append(',')
+                    .append(anterior.getId()).append(',')
+                    .append(anterior.getFecha()).append(',')
+                    .append(resultado.getSimilitudFormateada()).append(',');
+
+            List<SecuenciaComparator.Diferencia> diferencias = resultado.getDiferencias();
+            if (diferencias.isEmpty()) {
+                csv.append("ninguna");
+            } else {
+                for (int j = 0; j < diferencias.size(); j++) {
+                    if (j > 0) csv.append(';');
+                    csv.append(diferencias.get(j).getPosicionInicio())
+                            .append('-').append(diferencias.get(j).getPosicionFin());
+                }
+            }
+            csv.append('\n');
         }
 
         return csv.toString();
     }
-}
\ No newline at end of file
+}
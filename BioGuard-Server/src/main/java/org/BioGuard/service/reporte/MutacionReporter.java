@@ -2,12 +2,14 @@ package org.BioGuard.service.reporte;
 
 import org.BioGuard.model.Muestra;
 import org.BioGuard.service.diagnostico.IDiagnosticoService;
+import org.BioGuard.util.SecuenciaComparator;
 
 import java.io.*;
 import java.nio.file.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.stream.Collectors;
 
 /**
@@ -20,10 +22,42 @@ import java.util.stream.Collectors;
 public class MutacionReporter {
 
     private final IDiagnosticoService diagnosticoService;
+    private final SecuenciaComparator comparador;
+    private final CacheComparaciones cache;
+    private final EjecutorComparaciones ejecutor;
     private static final String REPORTES_DIR = "C:/Users/jhona/OneDrive/Escritorio/Backend-2026/BioGuard/data/reportes/";
 
     public MutacionReporter(IDiagnosticoService diagnosticoService) {
+        this(diagnosticoService, SecuenciaComparator.Modo.POSICIONAL);
+    }
+
+    /**
+     * @param modo Modo de comparación de las secuencias
+     */
+    public MutacionReporter(IDiagnosticoService diagnosticoService, SecuenciaComparator.Modo modo) {
+        this(diagnosticoService, modo, new CacheComparaciones());
+    }
+
+    /**
+     * @param modo Modo de comparación de las secuencias
+     * @param cache Caché de comparaciones compartida entre reportes
+     */
+    public MutacionReporter(IDiagnosticoService diagnosticoService, SecuenciaComparator.Modo modo,
+                            CacheComparaciones cache) {
+        this(diagnosticoService, modo, cache, null);
+    }
+
+    /**
+     * @param modo Modo de comparación de las secuencias
+     * @param cache Caché de comparaciones compartida entre reportes
+     * @param ejecutor Pool compartido para comparar en paralelo (null = secuencial)
+     */
+    public MutacionReporter(IDiagnosticoService diagnosticoService, SecuenciaComparator.Modo modo,
+                            CacheComparaciones cache, EjecutorComparaciones ejecutor) {
         this.diagnosticoService = diagnosticoService;
+        this.comparador = new SecuenciaComparator(modo, SecuenciaComparator.MAX_EDICIONES_POR_DEFECTO);
+        this.cache = cache;
+        this.ejecutor = ejecutor;
         crearDirectorioReportes();
     }
 
@@ -46,8 +80,7 @@ public class MutacionReporter {
             throw new IOException("No hay muestras para el paciente " + documento);
         }
 
-        // Ordenar por fecha descendente (más reciente primero)
-        muestras.sort((a, b) -> b.getFecha().compareTo(a.getFecha()));
+        // El repositorio ya las entrega por fecha descendente (más reciente primero)
 
         // Seleccionar muestra actual
         Muestra muestraActual;
@@ -69,13 +102,19 @@ public class MutacionReporter {
         }
 
         // Generar reporte
-        MutacionData data = new MutacionData(muestraActual, muestrasAnteriores);
+        MutacionData data = new MutacionData(muestraActual, muestrasAnteriores, comparador, cache, ejecutor);
 
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
         String nombreArchivo = "mutaciones_" + documento + "_" + timestamp + ".txt";
         Path rutaArchivo = Paths.get(REPORTES_DIR, nombreArchivo);
 
-        Files.writeString(rutaArchivo, data.generarReporte());
+        String contenido;
+        try {
+            contenido = data.generarReporte();
+        } catch (CancellationException e) {
+            throw new IOException("Reporte de mutaciones no completado: " + e.getMessage(), e);
+        }
+        Files.writeString(rutaArchivo, contenido);
 
         return rutaArchivo.toString();
     }
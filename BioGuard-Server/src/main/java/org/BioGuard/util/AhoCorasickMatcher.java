@@ -0,0 +1,320 @@
+package org.BioGuard.util;
+
+import org.BioGuard.model.PackedSequence;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Autómata Aho-Corasick para buscar muchas secuencias de ADN a la vez.
+ *
+ * <p>Compila un conjunto de patrones sobre el alfabeto A, C, G, T en un
+ * autómata determinista (tabla de transiciones completa) que recorre el
+ * texto una sola vez y reporta todas las ocurrencias de todos los patrones,
+ * incluidas las solapadas. El costo de búsqueda es lineal en la longitud
+ * del texto más el número de ocurrencias, sin importar cuántos patrones
+ * haya.</p>
+ *
+ * <p>Los patrones vacíos o con caracteres fuera de A, C, G, T no se compilan:
+ * nunca pueden aparecer en una secuencia validada.</p>
+ *
+ * <p>El autómata compilado puede escribirse y leerse en binario
+ * ({@link #escribir(DataOutput)}, {@link #leer(DataInput)}) para no
+ * recompilarlo al reiniciar.</p>
+ *
+ * <p>Las instancias son inmutables y seguras para uso concurrente.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public final class AhoCorasickMatcher {
+
+    /**
+     * Receptor de las ocurrencias encontradas durante una búsqueda.
+     */
+    @FunctionalInterface
+    public interface OcurrenciaListener {
+        /**
+         * @param indicePatron Índice del patrón en la lista usada al compilar
+         * @param inicio Posición (0-based) donde empieza la ocurrencia
+         */
+        void ocurrencia(int indicePatron, int inicio);
+    }
+
+    private static final int ALFABETO = 4;
+    private static final int SIN_PATRON = -1;
+    private static final byte[] CODIGOS = new byte[128];
+
+    static {
+        Arrays.fill(CODIGOS, (byte) -1);
+        CODIGOS['A'] = 0;
+        CODIGOS['C'] = 1;
+        CODIGOS['G'] = 2;
+        CODIGOS['T'] = 3;
+    }
+
+    private final int[] transiciones;      // estado * ALFABETO + base -> estado
+    private final int[] patronEnEstado;    // primer patrón que termina en el estado
+    private final int[] enlaceSalida;      // estado más cercano en la cadena de fallos con salida
+    private final int[] siguienteIgual;    // siguiente patrón con la misma secuencia
+    private final int[] longitudes;
+
+    private AhoCorasickMatcher(int[] transiciones, int[] patronEnEstado, int[] enlaceSalida,
+                               int[] siguienteIgual, int[] longitudes) {
+        this.transiciones = transiciones;
+        this.patronEnEstado = patronEnEstado;
+        this.enlaceSalida = enlaceSalida;
+        this.siguienteIgual = siguienteIgual;
+        this.longitudes = longitudes;
+    }
+
+    /**
+     * Compila el autómata para la lista de patrones dada.
+     *
+     * @param patrones Secuencias a buscar; el índice en la lista identifica
+     *                 al patrón en las ocurrencias reportadas
+     * @return Autómata listo para buscar
+     */
+    public static AhoCorasickMatcher compilar(List<? extends CharSequence> patrones) {
+        int capacidad = 1;
+        for (CharSequence p : patrones) {
+            if (p != null) capacidad += p.length();
+        }
+
+        int[] trie = new int[capacidad * ALFABETO];
+        Arrays.fill(trie, -1);
+        int[] patronEnEstado = new int[capacidad];
+        Arrays.fill(patronEnEstado, SIN_PATRON);
+        int[] siguienteIgual = new int[patrones.size()];
+        Arrays.fill(siguienteIgual, SIN_PATRON);
+        int[] longitudes = new int[patrones.size()];
+        int estados = 1;
+
+        // 1. Construir el trie
+        for (int i = 0; i < patrones.size(); i++) {
+            CharSequence patron = patrones.get(i);
+            if (!esCompilable(patron)) {
+                continue;
+            }
+            longitudes[i] = patron.length();
+
+            int estado = 0;
+            for (int j = 0; j < patron.length(); j++) {
+                int celda = estado * ALFABETO + CODIGOS[patron.charAt(j)];
+                if (trie[celda] == -1) {
+                    trie[celda] = estados++;
+                }
+                estado = trie[celda];
+            }
+
+            // Encadenar patrones idénticos en orden de aparición
+            if (patronEnEstado[estado] == SIN_PATRON) {
+                patronEnEstado[estado] = i;
+            } else {
+                int ultimo = patronEnEstado[estado];
+                while (siguienteIgual[ultimo] != SIN_PATRON) {
+                    ultimo = siguienteIgual[ultimo];
+                }
+                siguienteIgual[ultimo] = i;
+            }
+        }
+
+        // 2. Enlaces de fallo por BFS, completando la tabla de transiciones
+        int[] transiciones = Arrays.copyOf(trie, estados * ALFABETO);
+        int[] fallo = new int[estados];
+        int[] enlaceSalida = new int[estados];
+        Arrays.fill(enlaceSalida, SIN_PATRON);
+        int[] cola = new int[estados];
+        int cabeza = 0;
+        int fin = 0;
+
+        for (int b = 0; b < ALFABETO; b++) {
+            int hijo = transiciones[b];
+            if (hijo == -1) {
+                transiciones[b] = 0;
+            } else {
+                fallo[hijo] = 0;
+                cola[fin++] = hijo;
+            }
+        }
+
+        while (cabeza < fin) {
+            int estado = cola[cabeza++];
+            int f = fallo[estado];
+            enlaceSalida[estado] = patronEnEstado[f] != SIN_PATRON ? f : enlaceSalida[f];
+
+            for (int b = 0; b < ALFABETO; b++) {
+                int celda = estado * ALFABETO + b;
+                int hijo = transiciones[celda];
+                if (hijo == -1) {
+                    transiciones[celda] = transiciones[f * ALFABETO + b];
+                } else {
+                    fallo[hijo] = transiciones[f * ALFABETO + b];
+                    cola[fin++] = hijo;
+                }
+            }
+        }
+
+        return new AhoCorasickMatcher(transiciones,
+                Arrays.copyOf(patronEnEstado, estados), enlaceSalida, siguienteIgual, longitudes);
+    }
+
+    private static boolean esCompilable(CharSequence patron) {
+        if (patron == null || patron.length() == 0) {
+            return false;
+        }
+        for (int i = 0; i < patron.length(); i++) {
+            char c = patron.charAt(i);
+            if (c >= 128 || CODIGOS[c] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Recorre el texto una vez y reporta cada ocurrencia de cada patrón.
+     *
+     * <p>Las ocurrencias se reportan en orden creciente de posición final;
+     * para un mismo patrón, por lo tanto, en orden creciente de inicio.</p>
+     *
+     * @param texto Secuencia donde buscar
+     * @param listener Receptor de las ocurrencias
+     */
+    public void buscar(CharSequence texto, OcurrenciaListener listener) {
+        int estado = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            int base = c < 128 ? CODIGOS[c] : -1;
+            if (base < 0) {
+                estado = 0;
+                continue;
+            }
+            estado = transiciones[estado * ALFABETO + base];
+            reportar(estado, i, listener);
+        }
+    }
+
+    /**
+     * Igual que {@link #buscar(CharSequence, OcurrenciaListener)} pero
+     * leyendo las bases directamente de la representación empaquetada,
+     * 32 bases por palabra, sin decodificar a caracteres.
+     *
+     * @param texto Secuencia empaquetada donde buscar
+     * @param listener Receptor de las ocurrencias
+     */
+    public void buscar(PackedSequence texto, OcurrenciaListener listener) {
+        buscar(texto, 0, texto.length(), listener);
+    }
+
+    /**
+     * Busca solo en el tramo {@code [desde, hasta)} del texto. El recorrido
+     * empieza en la raíz, así que todas las ocurrencias reportadas empiezan
+     * en {@code desde} o después y terminan antes de {@code hasta}.
+     *
+     * @param texto Secuencia empaquetada donde buscar
+     * @param desde Primera posición a leer
+     * @param hasta Posición siguiente a la última a leer
+     * @param listener Receptor de las ocurrencias (posiciones absolutas)
+     */
+    public void buscar(PackedSequence texto, int desde, int hasta, OcurrenciaListener listener) {
+        int estado = 0;
+        int base = desde;
+        int w = desde >>> 5;
+        long palabra = desde < hasta ? texto.palabra(w) >>> ((desde & 31) << 1) : 0;
+
+        while (base < hasta) {
+            int fin = Math.min(hasta, (w + 1) * PackedSequence.BASES_POR_PALABRA);
+            for (; base < fin; base++, palabra >>>= 2) {
+                estado = transiciones[estado * ALFABETO + (int) (palabra & 3)];
+                reportar(estado, base, listener);
+            }
+            if (base < hasta) {
+                palabra = texto.palabra(++w);
+            }
+        }
+    }
+
+    private void reportar(int estado, int posicion, OcurrenciaListener listener) {
+        int salida = patronEnEstado[estado] != SIN_PATRON ? estado : enlaceSalida[estado];
+        while (salida != SIN_PATRON) {
+            for (int p = patronEnEstado[salida]; p != SIN_PATRON; p = siguienteIgual[p]) {
+                listener.ocurrencia(p, posicion - longitudes[p] + 1);
+            }
+            salida = enlaceSalida[salida];
+        }
+    }
+
+    /**
+     * Escribe las tablas del autómata compilado.
+     *
+     * @param out Destino
+     * @throws IOException Si hay error de escritura
+     */
+    public void escribir(DataOutput out) throws IOException {
+        escribirTabla(out, transiciones);
+        escribirTabla(out, patronEnEstado);
+        escribirTabla(out, enlaceSalida);
+        escribirTabla(out, siguienteIgual);
+        escribirTabla(out, longitudes);
+    }
+
+    /**
+     * Lee un autómata escrito con {@link #escribir(DataOutput)}.
+     *
+     * @param in Origen
+     * @return Autómata listo para buscar
+     * @throws IOException Si hay error de lectura o las tablas no son coherentes
+     */
+    public static AhoCorasickMatcher leer(DataInput in) throws IOException {
+        int[] transiciones = leerTabla(in);
+        int[] patronEnEstado = leerTabla(in);
+        int[] enlaceSalida = leerTabla(in);
+        int[] siguienteIgual = leerTabla(in);
+        int[] longitudes = leerTabla(in);
+
+        int estados = patronEnEstado.length;
+        if (estados == 0 || transiciones.length != estados * ALFABETO || enlaceSalida.length != estados
+                || siguienteIgual.length != longitudes.length) {
+            throw new IOException("Tablas del autómata incoherentes");
+        }
+        return new AhoCorasickMatcher(transiciones, patronEnEstado, enlaceSalida, siguienteIgual, longitudes);
+    }
+
+    private static void escribirTabla(DataOutput out, int[] tabla) throws IOException {
+        out.writeInt(tabla.length);
+        for (int valor : tabla) {
+            out.writeInt(valor);
+        }
+    }
+
+    private static int[] leerTabla(DataInput in) throws IOException {
+        int longitud = in.readInt();
+        if (longitud < 0) {
+            throw new IOException("Longitud de tabla inválida: " + longitud);
+        }
+        int[] tabla = new int[longitud];
+        for (int i = 0; i < longitud; i++) {
+            tabla[i] = in.readInt();
+        }
+        return tabla;
+    }
+
+    /**
+     * @return Número de estados del autómata (incluida la raíz)
+     */
+    public int getNumeroEstados() {
+        return patronEnEstado.length;
+    }
+
+    /**
+     * @return Número de patrones de la lista usada al compilar
+     */
+    public int getNumeroPatrones() {
+        return longitudes.length;
+    }
+}
@@ -0,0 +1,223 @@
+package org.BioGuard.util;
+
+import org.BioGuard.model.PackedSequence;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Búsqueda aproximada de un patrón con hasta k bases distintas
+ * (distancia de Hamming) usando el algoritmo bit-paralelo Shift-And.
+ *
+ * <p>Para cada nivel de error j se mantiene un vector de bits R<sub>j</sub>
+ * cuyo bit i indica que los primeros i+1 caracteres del patrón coinciden
+ * con el texto que termina en la posición actual con a lo sumo j bases
+ * distintas. Cada base del texto actualiza todos los vectores con unas
+ * pocas operaciones de bits, así que el costo es O(n·(k+1)) para patrones
+ * de hasta 64 bases y O(n·(k+1)·⌈m/64⌉) para patrones más largos, que se
+ * procesan por bloques de 64 bits.</p>
+ *
+ * <p>Las instancias son inmutables y seguras para uso concurrente.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public final class BitapMatcher {
+
+    /**
+     * Receptor de las coincidencias aproximadas.
+     */
+    @FunctionalInterface
+    public interface CoincidenciaListener {
+        /**
+         * @param inicio Posición (0-based) donde empieza la coincidencia
+         * @param diferencias Menor número de bases distintas para esa posición
+         */
+        void coincidencia(int inicio, int diferencias);
+    }
+
+    private final int longitud;
+    private final int bloques;
+    private final long[][] mascaras;   // [base][bloque]: bit i activo si patron[i] == base
+
+    private BitapMatcher(int longitud, long[][] mascaras) {
+        this.longitud = longitud;
+        this.bloques = mascaras[0].length;
+        this.mascaras = mascaras;
+    }
+
+    /**
+     * Precalcula las máscaras de bits del patrón.
+     *
+     * @param patron Patrón empaquetado (no vacío)
+     * @return Buscador listo para usar
+     */
+    public static BitapMatcher compilar(PackedSequence patron) {
+        if (patron == null || patron.isEmpty()) {
+            throw new IllegalArgumentException("El patrón no puede estar vacío");
+        }
+        int bloques = (patron.length() + 63) >>> 6;
+        long[][] mascaras = new long[4][bloques];
+        for (int i = 0; i < patron.length(); i++) {
+            mascaras[patron.codigoEn(i)][i >>> 6] |= 1L << (i & 63);
+        }
+        return new BitapMatcher(patron.length(), mascaras);
+    }
+
+    public int getLongitud() {
+        return longitud;
+    }
+
+    /**
+     * Escribe las máscaras precalculadas.
+     *
+     * @param out Destino
+     * @throws IOException Si hay error de escritura
+     */
+    public void escribir(DataOutput out) throws IOException {
+        out.writeInt(longitud);
+        for (long[] mascara : mascaras) {
+            for (long bloque : mascara) {
+                out.writeLong(bloque);
+            }
+        }
+    }
+
+    /**
+     * Lee un buscador escrito con {@link #escribir(DataOutput)}.
+     *
+     * @param in Origen
+     * @return Buscador listo para usar
+     * @throws IOException Si hay error de lectura
+     */
+    public static BitapMatcher leer(DataInput in) throws IOException {
+        int longitud = in.readInt();
+        if (longitud <= 0) {
+            throw new IOException("Longitud de patrón inválida: " + longitud);
+        }
+        long[][] mascaras = new long[4][(longitud + 63) >>> 6];
+        for (long[] mascara : mascaras) {
+            for (int b = 0; b < mascara.length; b++) {
+                mascara[b] = in.readLong();
+            }
+        }
+        return new BitapMatcher(longitud, mascaras);
+    }
+
+    /**
+     * Reporta, en orden creciente de posición, cada lugar del texto donde
+     * el patrón aparece con a lo sumo {@code maxDiferencias} bases distintas.
+     *
+     * <p>Las coincidencias pueden solaparse; el llamador decide cómo
+     * filtrarlas. {@code maxDiferencias} se limita a la longitud del patrón
+     * menos uno, para que al menos una base tenga que coincidir.</p>
+     *
+     * @param texto Secuencia donde buscar
+     * @param maxDiferencias Máximo de bases distintas admitidas (k)
+     * @param listener Receptor de las coincidencias
+     */
+    public void buscar(PackedSequence texto, int maxDiferencias, CoincidenciaListener listener) {
+        buscar(texto, maxDiferencias, 0, texto.length(), listener);
+    }
+
+    /**
+     * Igual que {@link #buscar(PackedSequence, int, CoincidenciaListener)}
+     * pero leyendo solo el tramo {@code [desde, hasta)} del texto: las
+     * coincidencias reportadas caben completas dentro del tramo.
+     *
+     * @param texto Secuencia donde buscar
+     * @param maxDiferencias Máximo de bases distintas admitidas (k)
+     * @param desde Primera posición a leer
+     * @param hasta Posición siguiente a la última a leer
+     * @param listener Receptor de las coincidencias (posiciones absolutas)
+     */
+    public void buscar(PackedSequence texto, int maxDiferencias, int desde, int hasta,
+                       CoincidenciaListener listener) {
+        int k = Math.max(0, Math.min(maxDiferencias, longitud - 1));
+        if (bloques == 1) {
+            buscarEnUnaPalabra(texto, k, desde, hasta, listener);
+        } else {
+            buscarPorBloques(texto, k, desde, hasta, listener);
+        }
+    }
+
+    private void buscarEnUnaPalabra(PackedSequence texto, int k, int desde, int hasta,
+                                    CoincidenciaListener listener) {
+        long[] r = new long[k + 1];
+        long bitFinal = 1L << (longitud - 1);
+        long[] mascara = {mascaras[0][0], mascaras[1][0], mascaras[2][0], mascaras[3][0]};
+        int primerFinal = desde + longitud - 1;
+
+        for (int w = desde >>> 5, i = desde; i < hasta; w++) {
+            long palabra = texto.palabra(w) >>> ((i & 31) << 1);
+            int fin = Math.min(hasta, (w + 1) * PackedSequence.BASES_POR_PALABRA);
+            for (; i < fin; i++, palabra >>>= 2) {
+                long b = mascara[(int) (palabra & 3)];
+
+                long anterior = r[0];
+                r[0] = ((anterior << 1) | 1) & b;
+                int encontrado = (r[0] & bitFinal) != 0 ? 0 : -1;
+
+                for (int j = 1; j <= k; j++) {
+                    long actual = r[j];
+                    // Coincidencia con j errores, o sustitución sobre j-1 errores
+                    r[j] = (((actual << 1) | 1) & b) | ((anterior << 1) | 1);
+                    anterior = actual;
+                    if (encontrado < 0 && (r[j] & bitFinal) != 0) {
+                        encontrado = j;
+                    }
+                }
+
+                if (encontrado >= 0 && i >= primerFinal) {
+                    listener.coincidencia(i - longitud + 1, encontrado);
+                }
+            }
+        }
+    }
+
+    private void buscarPorBloques(PackedSequence texto, int k, int desde, int hasta,
+                                  CoincidenciaListener listener) {
+        long[][] r = new long[k + 1][bloques];
+        long[] previo = new long[bloques];
+        int bloqueFinal = (longitud - 1) >>> 6;
+        long bitFinal = 1L << ((longitud - 1) & 63);
+        int primerFinal = desde + longitud - 1;
+
+        for (int i = desde; i < hasta; i++) {
+            long[] b = mascaras[texto.codigoEn(i)];
+
+            long[] r0 = r[0];
+            long acarreo = 1;
+            for (int w = 0; w < bloques; w++) {
+                long a = r0[w];
+                r0[w] = ((a << 1) | acarreo) & b[w];
+                acarreo = a >>> 63;
+                previo[w] = a;
+            }
+            int encontrado = (r0[bloqueFinal] & bitFinal) != 0 ? 0 : -1;
+
+            for (int j = 1; j <= k; j++) {
+                long[] actual = r[j];
+                long acarreoActual = 1;
+                long acarreoPrevio = 1;
+                for (int w = 0; w < bloques; w++) {
+                    long a = actual[w];
+                    long p = previo[w];
+                    actual[w] = (((a << 1) | acarreoActual) & b[w]) | ((p << 1) | acarreoPrevio);
+                    acarreoActual = a >>> 63;
+                    acarreoPrevio = p >>> 63;
+                    previo[w] = a;
+                }
+                if (encontrado < 0 && (actual[bloqueFinal] & bitFinal) != 0) {
+                    encontrado = j;
+                }
+            }
+
+            if (encontrado >= 0 && i >= primerFinal) {
+                listener.coincidencia(i - longitud + 1, encontrado);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.BioGuard.util;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado completo de comparar dos secuencias: similitud y diferencias,
+ * calculadas en una sola pasada.
+ *
+ * <p>La similitud ya formateada se guarda para que el reporte de texto y
+ * el CSV la reutilicen sin volver a formatearla.</p>
+ *
+ * @author Sergio Grajales
+ * @author Jhonatan Tamayo
+ * @version 1.0
+ */
+public final class ResultadoComparacion {
+
+    private final double similitud;
+    private final String similitudFormateada;
+    private final List<SecuenciaComparator.Diferencia> diferencias;
+
+    public ResultadoComparacion(double similitud, List<SecuenciaComparator.Diferencia> diferencias) {
+        this.similitud = similitud;
+        this.similitudFormateada = String.format("%.2f", similitud);
+        this.diferencias = Collections.unmodifiableList(diferencias);
+    }
+
+    /**
+     * @return Porcentaje de similitud (0-100)
+     */
+    public double getSimilitud() {
+        return similitud;
+    }
+
+    /**
+     * @return Similitud con dos decimales, en el formato del locale por defecto
+     */
+    public String getSimilitudFormateada() {
+        return similitudFormateada;
+    }
+
+    /**
+     * @return Diferencias encontradas (lista inmodificable)
+     */
+    public List<SecuenciaComparator.Diferencia> getDiferencias() {
+        return diferencias;
+    }
+}
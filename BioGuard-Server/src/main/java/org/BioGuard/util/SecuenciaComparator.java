@@ -1,37 +1,102 @@
 package org.BioGuard.util;
 
+import org.BioGuard.model.PackedSequence;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
 /**
  * Utilidad para comparar secuencias de ADN y detectar mutaciones.
  *
+ * <p>Tiene dos modos:</p>
+ * <ul>
+ *   <li>{@link Modo#POSICIONAL}: compara base a base en la misma posición.
+ *       Es el más rápido, pero una inserción o deleción hace que todo lo
+ *       que sigue aparezca como mutado.</li>
+ *   <li>{@link Modo#ALINEADO}: alinea las secuencias con el algoritmo
+ *       O(ND) de Myers (versión de espacio lineal, partiendo por la
+ *       "serpiente media") y reporta sustituciones, inserciones y
+ *       deleciones. El costo es O((N+M)·D), casi lineal cuando las
+ *       muestras se parecen; si un tramo necesita más de
+ *       {@code maxEdiciones} ediciones se reporta como un bloque.</li>
+ * </ul>
+ *
+ * <p>Las comparaciones largas revisan la marca de interrupción del hilo
+ * en sus bucles principales y abandonan con {@link CancellationException}
+ * si está puesta: así {@code Future.cancel(true)} detiene de verdad una
+ * comparación en curso. La marca no se borra.</p>
+ *
  * @author Sergio Grajales
  * @author Jhonatan Tamayo
  * @version 1.0
  */
 public class SecuenciaComparator {
 
+    /** Ediciones máximas por tramo en el modo alineado, por defecto. */
+    public static final int MAX_EDICIONES_POR_DEFECTO = 1024;
+
+    /**
+     * Modo de comparación.
+     */
+    public enum Modo {
+        /** Base a base en la misma posición. */
+        POSICIONAL,
+        /** Alineamiento con sustituciones, inserciones y deleciones. */
+        ALINEADO
+    }
+
+    /**
+     * Tipo de diferencia entre las secuencias.
+     */
+    public enum TipoDiferencia {
+        SUSTITUCION,
+        /** Bases presentes en la secuencia actual y no en la anterior. */
+        INSERCION,
+        /** Bases de la secuencia anterior que faltan en la actual. */
+        DELECION
+    }
+
     /**
      * Resultado de una comparación de secuencias.
+     *
+     * <p>Las posiciones se expresan sobre la secuencia anterior. En una
+     * inserción, inicio y fin indican la posición de la secuencia anterior
+     * ante la cual se insertan las bases. Las bases que no existen en uno
+     * de los lados se muestran como '-'.</p>
      */
     public static class Diferencia {
         private final int posicionInicio;
         private final int posicionFin;
         private final String secuenciaOriginal;
         private final String secuenciaNueva;
+        private final TipoDiferencia tipo;
+        private final int posicionActual;
 
         public Diferencia(int posicionInicio, int posicionFin, String original, String nueva) {
+            this(posicionInicio, posicionFin, original, nueva, TipoDiferencia.SUSTITUCION, posicionInicio);
+        }
+
+        /**
+         * @param posicionActual Posición donde empieza la diferencia en la secuencia actual
+         */
+        public Diferencia(int posicionInicio, int posicionFin, String original, String nueva,
+                          TipoDiferencia tipo, int posicionActual) {
             this.posicionInicio = posicionInicio;
             this.posicionFin = posicionFin;
             this.secuenciaOriginal = original;
             this.secuenciaNueva = nueva;
+            this.tipo = tipo;
+            this.posicionActual = posicionActual;
         }
 
         public int getPosicionInicio() { return posicionInicio; }
         public int getPosicionFin() { return posicionFin; }
         public String getSecuenciaOriginal() { return secuenciaOriginal; }
         public String getSecuenciaNueva() { return secuenciaNueva; }
+        public TipoDiferencia getTipo() { return tipo; }
+        public int getPosicionActual() { return posicionActual; }
 
         @Override
         public String toString() {
@@ -40,80 +105,383 @@ public class SecuenciaComparator {
         }
     }
 
+    private final Modo modo;
+    private final int maxEdiciones;
+
+    /**
+     * Comparador posicional.
+     */
+    public SecuenciaComparator() {
+        this(Modo.POSICIONAL, MAX_EDICIONES_POR_DEFECTO);
+    }
+
+    /**
+     * @param modo Modo de comparación
+     * @param maxEdiciones En modo alineado, ediciones máximas que se buscan
+     *                     por tramo antes de reportarlo como un bloque
+     */
+    public SecuenciaComparator(Modo modo, int maxEdiciones) {
+        if (maxEdiciones < 1) {
+            throw new IllegalArgumentException("maxEdiciones debe ser positivo");
+        }
+        this.modo = modo;
+        this.maxEdiciones = maxEdiciones;
+    }
+
+    public Modo getModo() {
+        return modo;
+    }
+
+    /**
+     * @return Ediciones máximas que se buscan en modo alineado
+     */
+    public int getMaxEdiciones() {
+        return maxEdiciones;
+    }
+
     /**
      * Compara dos secuencias y retorna las diferencias encontradas.
      *
+     * <p>En modo posicional las posiciones iguales se saltan palabra a
+     * palabra (32 bases por comparación); solo se decodifican las bases de
+     * cada diferencia.</p>
+     *
      * @param actual Secuencia actual
      * @param anterior Secuencia anterior (histórica)
      * @return Lista de diferencias encontradas
+     * @throws CancellationException Si el hilo se interrumpe durante la comparación
      */
-    public List<Diferencia> comparar(String actual, String anterior) {
-        List<Diferencia> diferencias = new ArrayList<>();
-
+    public List<Diferencia> comparar(PackedSequence actual, PackedSequence anterior) {
         if (actual == null || anterior == null) {
-            return diferencias;
+            return new ArrayList<>();
+        }
+        return modo == Modo.ALINEADO ? alinear(actual, anterior) : compararPosicional(actual, anterior);
+    }
+
+    /**
+     * Calcula similitud y diferencias a la vez, con una sola comparación.
+     *
+     * <p>El resultado es el mismo que llamar a {@link #calcularSimilitud}
+     * y a {@link #comparar} por separado: en modo posicional las
+     * posiciones distintas del prefijo común son exactamente las cubiertas
+     * por las diferencias, y en modo alineado la similitud se deriva del
+     * alineamiento.</p>
+     *
+     * @param actual Secuencia actual
+     * @param anterior Secuencia anterior (histórica)
+     * @return Similitud y diferencias
+     */
+    public ResultadoComparacion analizar(PackedSequence actual, PackedSequence anterior) {
+        List<Diferencia> diferencias = comparar(actual, anterior);
+        if (actual == null || anterior == null || actual.isEmpty() || anterior.isEmpty()) {
+            return new ResultadoComparacion(0.0, diferencias);
+        }
+        if (modo == Modo.ALINEADO) {
+            return new ResultadoComparacion(calcularSimilitud(diferencias, anterior.length()), diferencias);
         }
 
+        int minLength = Math.min(actual.length(), anterior.length());
+        int distintas = 0;
+        for (Diferencia d : diferencias) {
+            if (d.getPosicionInicio() >= minLength) break;
+            distintas += Math.min(d.getPosicionFin() + 1, minLength) - d.getPosicionInicio();
+        }
+        return new ResultadoComparacion(((minLength - distintas) * 100.0) / minLength, diferencias);
+    }
+
+    private List<Diferencia> compararPosicional(PackedSequence actual, PackedSequence anterior) {
+        List<Diferencia> diferencias = new ArrayList<>();
+
+        int longitudMin = Math.min(actual.length(), anterior.length());
         int longitudMax = Math.max(actual.length(), anterior.length());
-        int i = 0;
+        int i = actual.primeraDiferencia(anterior, 0);
 
         while (i < longitudMax) {
-            // Si hay diferencia en esta posición
-            if (i >= actual.length() || i >= anterior.length() ||
-                    actual.charAt(i) != anterior.charAt(i)) {
-
-                int inicio = i;
-                StringBuilder original = new StringBuilder();
-                StringBuilder nueva = new StringBuilder();
-
-                // Acumular mientras sean diferentes o hasta el final
-                while (i < longitudMax &&
-                        (i >= actual.length() || i >= anterior.length() ||
-                                actual.charAt(i) != anterior.charAt(i))) {
-
-                    if (i < anterior.length()) {
-                        original.append(anterior.charAt(i));
-                    } else {
-                        original.append('-'); // Posición que no existe en original
-                    }
+            comprobarInterrupcion();
+            int inicio = i;
 
-                    if (i < actual.length()) {
-                        nueva.append(actual.charAt(i));
-                    } else {
-                        nueva.append('-'); // Posición que no existe en nueva
-                    }
+            // Más allá del prefijo común todas las posiciones son distintas
+            int fin = actual.primeraCoincidencia(anterior, i);
+            if (fin >= longitudMin) {
+                fin = longitudMax;
+            }
 
-                    i++;
-                }
+            diferencias.add(new Diferencia(
+                    inicio, fin - 1, tramo(anterior, inicio, fin), tramo(actual, inicio, fin)
+            ));
 
-                diferencias.add(new Diferencia(
-                        inicio, i - 1, original.toString(), nueva.toString()
-                ));
-            } else {
-                i++;
-            }
+            i = fin < longitudMin ? actual.primeraDiferencia(anterior, fin) : longitudMax;
         }
 
         return diferencias;
     }
 
+    /**
+     * Decodifica un tramo rellenando con '-' las posiciones que no existen.
+     */
+    private String tramo(PackedSequence secuencia, int inicio, int fin) {
+        char[] texto = new char[fin - inicio];
+        for (int i = inicio; i < fin; i++) {
+            texto[i - inicio] = i < secuencia.length() ? secuencia.charAt(i) : '-';
+        }
+        return new String(texto);
+    }
+
     /**
      * Calcula el porcentaje de similitud entre dos secuencias.
+     *
+     * <p>En modo posicional es la fracción de posiciones iguales dentro del
+     * prefijo común; en modo alineado, la fracción de columnas iguales del
+     * alineamiento.</p>
      */
-    public double calcularSimilitud(String actual, String anterior) {
+    public double calcularSimilitud(PackedSequence actual, PackedSequence anterior) {
         if (actual == null || anterior == null || actual.isEmpty() || anterior.isEmpty()) {
             return 0.0;
         }
+        if (modo == Modo.ALINEADO) {
+            return calcularSimilitud(alinear(actual, anterior), anterior.length());
+        }
 
         int minLength = Math.min(actual.length(), anterior.length());
-        int coincidencias = 0;
+        return (actual.contarCoincidencias(anterior) * 100.0) / minLength;
+    }
 
-        for (int i = 0; i < minLength; i++) {
-            if (actual.charAt(i) == anterior.charAt(i)) {
-                coincidencias++;
+    /**
+     * Similitud de un alineamiento ya calculado: columnas iguales sobre el
+     * total de columnas.
+     *
+     * @param diferencias Diferencias del alineamiento
+     * @param longitudAnterior Longitud de la secuencia anterior
+     * @return Porcentaje de similitud (0-100)
+     */
+    public static double calcularSimilitud(List<Diferencia> diferencias, int longitudAnterior) {
+        int editadas = 0;
+        int insertadas = 0;
+        for (Diferencia d : diferencias) {
+            int bases = d.getSecuenciaOriginal().length();
+            if (d.getTipo() == TipoDiferencia.INSERCION) {
+                insertadas += bases;
+            } else {
+                editadas += bases;
             }
         }
+        int columnas = longitudAnterior + insertadas;
+        return columnas == 0 ? 0.0 : (longitudAnterior - editadas) * 100.0 / columnas;
+    }
+
+    // ------------------------------------------------------------------
+    // Modo alineado
+    // ------------------------------------------------------------------
+
+    private List<Diferencia> alinear(PackedSequence actual, PackedSequence anterior) {
+        Guion guion = new Guion();
+        diff(anterior, 0, anterior.length(), actual, 0, actual.length(), guion);
+        return guion.diferencias(anterior, actual);
+    }
+
+    /**
+     * Calcula el guion de ediciones que transforma a[aIni, aFin) en
+     * b[bIni, bFin), agregándolo en orden.
+     */
+    private void diff(PackedSequence a, int aIni, int aFin, PackedSequence b, int bIni, int bFin, Guion guion) {
+        // Prefijo y sufijo comunes
+        int prefijo = 0;
+        while (aIni + prefijo < aFin && bIni + prefijo < bFin
+                && a.codigoEn(aIni + prefijo) == b.codigoEn(bIni + prefijo)) {
+            prefijo++;
+        }
+        guion.iguales(prefijo);
+        aIni += prefijo;
+        bIni += prefijo;
 
-        return (coincidencias * 100.0) / minLength;
+        int sufijo = 0;
+        while (aFin - sufijo > aIni && bFin - sufijo > bIni
+                && a.codigoEn(aFin - sufijo - 1) == b.codigoEn(bFin - sufijo - 1)) {
+            sufijo++;
+        }
+        aFin -= sufijo;
+        bFin -= sufijo;
+
+        if (aIni == aFin || bIni == bFin) {
+            guion.deleciones(aFin - aIni);
+            guion.inserciones(bFin - bIni);
+        } else {
+            int[] corte = serpienteMedia(a, aIni, aFin, b, bIni, bFin);
+            if (corte == null) {
+                // Demasiado distintas: el tramo se reporta como un bloque
+                guion.deleciones(aFin - aIni);
+                guion.inserciones(bFin - bIni);
+            } else {
+                diff(a, aIni, corte[0], b, bIni, corte[1], guion);
+                diff(a, corte[0], aFin, b, corte[1], bFin, guion);
+            }
+        }
+        guion.iguales(sufijo);
+    }
+
+    /**
+     * Busca el punto medio de un camino de edición mínimo recorriendo a la
+     * vez desde el inicio y desde el final (Myers, 1986). Usa dos vectores
+     * de tamaño O(D).
+     *
+     * @return {x, y} absolutos donde partir el problema, o null si hacen
+     *         falta más de {@code maxEdiciones} ediciones
+     */
+    private int[] serpienteMedia(PackedSequence a, int aIni, int aFin, PackedSequence b, int bIni, int bFin) {
+        int n = aFin - aIni;
+        int m = bFin - bIni;
+        int maxD = Math.min((n + m + 1) / 2, maxEdiciones);
+        int desplazamiento = maxD;
+        int largoV = 2 * maxD + 2;
+        int[] v1 = new int[largoV];
+        int[] v2 = new int[largoV];
+        Arrays.fill(v1, -1);
+        Arrays.fill(v2, -1);
+        v1[desplazamiento + 1] = 0;
+        v2[desplazamiento + 1] = 0;
+
+        int delta = n - m;
+        boolean delantero = (delta & 1) != 0;   // con delta impar el cruce se detecta al avanzar
+        int k1Inicio = 0, k1Fin = 0, k2Inicio = 0, k2Fin = 0;
+
+        for (int d = 0; d < maxD; d++) {
+            comprobarInterrupcion();
+
+            // Camino hacia adelante
+            for (int k1 = -d + k1Inicio; k1 <= d - k1Fin; k1 += 2) {
+                int i1 = desplazamiento + k1;
+                int x1 = (k1 == -d || (k1 != d && v1[i1 - 1] < v1[i1 + 1])) ? v1[i1 + 1] : v1[i1 - 1] + 1;
+                int y1 = x1 - k1;
+                while (x1 < n && y1 < m && a.codigoEn(aIni + x1) == b.codigoEn(bIni + y1)) {
+                    x1++;
+                    y1++;
+                }
+                v1[i1] = x1;
+                if (x1 > n) {
+                    k1Fin += 2;
+                } else if (y1 > m) {
+                    k1Inicio += 2;
+                } else if (delantero) {
+                    int i2 = desplazamiento + delta - k1;
+                    if (i2 >= 0 && i2 < largoV && v2[i2] != -1 && x1 >= n - v2[i2]) {
+                        return new int[]{aIni + x1, bIni + y1};
+                    }
+                }
+            }
+
+            // Camino hacia atrás
+            for (int k2 = -d + k2Inicio; k2 <= d - k2Fin; k2 += 2) {
+                int i2 = desplazamiento + k2;
+                int x2 = (k2 == -d || (k2 != d && v2[i2 - 1] < v2[i2 + 1])) ? v2[i2 + 1] : v2[i2 - 1] + 1;
+                int y2 = x2 - k2;
+                while (x2 < n && y2 < m && a.codigoEn(aFin - x2 - 1) == b.codigoEn(bFin - y2 - 1)) {
+                    x2++;
+                    y2++;
+                }
+                v2[i2] = x2;
+                if (x2 > n) {
+                    k2Fin += 2;
+                } else if (y2 > m) {
+                    k2Inicio += 2;
+                } else if (!delantero) {
+                    int i1 = desplazamiento + delta - k2;
+                    if (i1 >= 0 && i1 < largoV && v1[i1] != -1) {
+                        int x1 = v1[i1];
+                        int y1 = desplazamiento + x1 - i1;
+                        if (x1 >= n - x2) {
+                            return new int[]{aIni + x1, bIni + y1};
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void comprobarInterrupcion() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Comparación interrumpida");
+        }
+    }
+
+    /**
+     * Guion de ediciones como tramos consecutivos de iguales, deleciones
+     * e inserciones.
+     */
+    private static final class Guion {
+        private static final int IGUAL = 0, DELECION = 1, INSERCION = 2;
+
+        private int[] tipos = new int[16];
+        private int[] largos = new int[16];
+        private int cantidad;
+
+        void iguales(int n) { agregar(IGUAL, n); }
+        void deleciones(int n) { agregar(DELECION, n); }
+        void inserciones(int n) { agregar(INSERCION, n); }
+
+        private void agregar(int tipo, int n) {
+            if (n == 0) return;
+            if (cantidad > 0 && tipos[cantidad - 1] == tipo) {
+                largos[cantidad - 1] += n;
+                return;
+            }
+            if (cantidad == tipos.length) {
+                tipos = Arrays.copyOf(tipos, cantidad * 2);
+                largos = Arrays.copyOf(largos, cantidad * 2);
+            }
+            tipos[cantidad] = tipo;
+            largos[cantidad] = n;
+            cantidad++;
+        }
+
+        /**
+         * Convierte cada grupo de ediciones entre dos tramos iguales en
+         * diferencias: las bases emparejadas son sustituciones y el resto,
+         * inserción o deleción.
+         */
+        List<Diferencia> diferencias(PackedSequence anterior, PackedSequence actual) {
+            List<Diferencia> resultado = new ArrayList<>();
+            int posA = 0;
+            int posB = 0;
+            int i = 0;
+            while (i < cantidad) {
+                if (tipos[i] == IGUAL) {
+                    posA += largos[i];
+                    posB += largos[i];
+                    i++;
+                    continue;
+                }
+                int borradas = 0;
+                int insertadas = 0;
+                for (; i < cantidad && tipos[i] != IGUAL; i++) {
+                    if (tipos[i] == DELECION) borradas += largos[i];
+                    else insertadas += largos[i];
+                }
+
+                int sustituidas = Math.min(borradas, insertadas);
+                if (sustituidas > 0) {
+                    resultado.add(new Diferencia(posA, posA + sustituidas - 1,
+                            anterior.subSequence(posA, posA + sustituidas).toString(),
+                            actual.subSequence(posB, posB + sustituidas).toString(),
+                            TipoDiferencia.SUSTITUCION, posB));
+                }
+                int a = posA + sustituidas;
+                int b = posB + sustituidas;
+                if (borradas > sustituidas) {
+                    int n = borradas - sustituidas;
+                    resultado.add(new Diferencia(a, a + n - 1,
+                            anterior.subSequence(a, a + n).toString(), "-".repeat(n),
+                            TipoDiferencia.DELECION, b));
+                } else if (insertadas > sustituidas) {
+                    int n = insertadas - sustituidas;
+                    resultado.add(new Diferencia(a, a,
+                            "-".repeat(n), actual.subSequence(b, b + n).toString(),
+                            TipoDiferencia.INSERCION, b));
+                }
+                posA += borradas;
+                posB += insertadas;
+            }
+            return resultado;
+        }
     }
-}
\ No newline at end of file
+}